@@ -0,0 +1,17 @@
+package com.aguapago.trazas;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.Collection;
+
+/**
+ * Destino al que se exportan los spans de las trazas elegidas
+ *
+ * Se llama desde los hilos del exportador (nunca desde el de la petición).
+ * Si publicar() lanza una excepción, el lote se pierde: las trazas no se
+ * reintentan.
+ */
+public interface DestinoTrazas {
+
+    void publicar(Collection<SpanData> spans) throws Exception;
+}
@@ -0,0 +1,64 @@
+package com.aguapago.trazas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Destino que agrega los spans a un archivo, un JSON por línea
+ *
+ * Cada línea tiene traceId, spanId, padre, nombre, tipo, servicio, inicio,
+ * ms, estado, muestreo (cabeza o cola) y los atributos del span. Todos los
+ * servicios escriben el mismo formato: juntando sus archivos y filtrando por
+ * traceId se ve el salto del gateway, las fases de GraphQL, los resolvers y
+ * el SQL de una misma petición.
+ */
+public class DestinoTrazasArchivo implements DestinoTrazas {
+
+    private static final AttributeKey<String> SERVICIO = AttributeKey.stringKey("service.name");
+
+    private final Path archivo;
+    private final ObjectMapper objectMapper;
+
+    public DestinoTrazasArchivo(Path archivo, ObjectMapper objectMapper) {
+        this.archivo = archivo;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publicar(Collection<SpanData> spans) throws IOException {
+        StringBuilder lineas = new StringBuilder();
+        for (SpanData span : spans) {
+            ObjectNode linea = objectMapper.createObjectNode();
+            linea.put("traceId", span.getTraceId());
+            linea.put("spanId", span.getSpanId());
+            linea.put("padre", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+            linea.put("nombre", span.getName());
+            linea.put("tipo", span.getKind().name());
+            linea.put("servicio", span.getResource().getAttribute(SERVICIO));
+            linea.put("inicio", Instant.EPOCH.plusNanos(span.getStartEpochNanos()).toString());
+            linea.put("ms", Math.round((span.getEndEpochNanos() - span.getStartEpochNanos()) / 1e4) / 100.0);
+            linea.put("estado", span.getStatus().getStatusCode().name());
+            linea.put("muestreo", span.getSpanContext().isSampled() ? "cabeza" : "cola");
+            ObjectNode atributos = linea.putObject("atributos");
+            span.getAttributes().forEach((clave, valor) -> atributos.put(clave.getKey(), String.valueOf(valor)));
+            lineas.append(objectMapper.writeValueAsString(linea)).append('\n');
+        }
+
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+        Files.writeString(archivo, lineas, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
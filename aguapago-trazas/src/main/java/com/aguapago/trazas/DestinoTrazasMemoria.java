@@ -0,0 +1,59 @@
+package com.aguapago.trazas;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Destino en memoria del proceso: guarda los últimos spans exportados (acotado)
+ * Pensado para pruebas y para revisar trazas en desarrollo.
+ */
+public class DestinoTrazasMemoria implements DestinoTrazas {
+
+    private final int capacidad;
+    private final Deque<SpanData> recientes = new ArrayDeque<>();
+    private final ReentrantLock candado = new ReentrantLock();
+
+    public DestinoTrazasMemoria(int capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    @Override
+    public void publicar(Collection<SpanData> spans) {
+        candado.lock();
+        try {
+            for (SpanData span : spans) {
+                if (recientes.size() == capacidad) {
+                    recientes.removeFirst();
+                }
+                recientes.addLast(span);
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Spans exportados de una traza, en el orden en que terminaron
+     */
+    public List<SpanData> deTraza(String traceId) {
+        return recientes().stream().filter(span -> span.getTraceId().equals(traceId)).toList();
+    }
+
+    /**
+     * Copia de los últimos spans exportados, del más viejo al más nuevo
+     */
+    public List<SpanData> recientes() {
+        candado.lock();
+        try {
+            return new ArrayList<>(recientes);
+        } finally {
+            candado.unlock();
+        }
+    }
+}
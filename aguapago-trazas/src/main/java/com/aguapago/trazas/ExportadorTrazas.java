@@ -0,0 +1,47 @@
+package com.aguapago.trazas;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * SpanExporter de OpenTelemetry que entrega los spans al DestinoTrazas
+ *
+ * Lo usan el BatchSpanProcessor de Spring Boot (trazas elegidas por
+ * muestreo de cabeza) y MuestreoCola (trazas lentas).
+ */
+public class ExportadorTrazas implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportadorTrazas.class);
+
+    private final DestinoTrazas destino;
+
+    public ExportadorTrazas(DestinoTrazas destino) {
+        this.destino = destino;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            destino.publicar(spans);
+            return CompletableResultCode.ofSuccess();
+        } catch (Exception e) {
+            log.warn("No se pudieron exportar {} spans: {}", spans.size(), e.toString());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,55 @@
+package com.aguapago.trazas;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+
+/**
+ * Muestreo de cabeza: decide al crear cada span si la traza se exporta
+ *
+ * - Si el padre viene muestreado (traceparent con flag 01 del cliente o
+ *   del gateway), se muestrea.
+ * - Si no, se decide por traceId con la probabilidad configurada. Es
+ *   determinista: gateway y usuarios-service llegan a la misma decisión
+ *   para la misma traza aunque el flag no viaje.
+ * - Lo que no sale elegido se registra igual (RECORD_ONLY) si el muestreo
+ *   de cola está activo, para que MuestreoCola pueda rescatar las trazas
+ *   lentas; si no, se descarta sin registrar.
+ */
+public class MuestreoCabeza implements Sampler {
+
+    private final Sampler porTraceId;
+    private final boolean registrarParaCola;
+
+    public MuestreoCabeza(double probabilidad, boolean registrarParaCola) {
+        this.porTraceId = Sampler.traceIdRatioBased(probabilidad);
+        this.registrarParaCola = registrarParaCola;
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        SpanContext padre = Span.fromContext(parentContext).getSpanContext();
+        if (padre.isValid() && padre.isSampled()) {
+            return SamplingResult.recordAndSample();
+        }
+        SamplingResult porId = porTraceId.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+        if (porId.getDecision() == SamplingDecision.RECORD_AND_SAMPLE) {
+            return SamplingResult.recordAndSample();
+        }
+        return registrarParaCola ? SamplingResult.recordOnly() : SamplingResult.drop();
+    }
+
+    @Override
+    public String getDescription() {
+        return "MuestreoCabeza{" + porTraceId.getDescription() + ", cola=" + registrarParaCola + "}";
+    }
+}
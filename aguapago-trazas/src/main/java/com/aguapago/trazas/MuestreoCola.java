@@ -0,0 +1,176 @@
+package com.aguapago.trazas;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Muestreo de cola: exporta las trazas lentas que el muestreo de cabeza no eligió
+ *
+ * Los spans no muestreados (RECORD_ONLY, ver MuestreoCabeza) se guardan por
+ * traceId mientras la traza está abierta. Al terminar la raíz local (el span
+ * sin padre o con padre remoto, ej. la petición HTTP) se decide:
+ * - duró al menos "umbral" o terminó con error: se exportan todos sus spans
+ * - si no: se descartan
+ *
+ * Todo acotado: como mucho maxTrazas abiertas y maxSpansPorTraza por traza;
+ * lo que no entra se cuenta en descartados. La exportación corre en un hilo
+ * propio, nunca en el de la petición.
+ */
+public class MuestreoCola implements SpanProcessor {
+
+    /** Un span que termina después de su raíz no reabre la traza por más de esto */
+    private static final long VIDA_MAXIMA_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final SpanExporter exportador;
+    private final int maxTrazas;
+    private final int maxSpansPorTraza;
+    private final ConcurrentHashMap<String, TrazaAbierta> abiertas = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor hiloExportacion;
+
+    private volatile long umbralNanos;
+
+    private final AtomicLong exportadas = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+
+    public MuestreoCola(SpanExporter exportador, Duration umbral, int maxTrazas, int maxSpansPorTraza) {
+        this.exportador = exportador;
+        this.umbralNanos = umbral.toNanos();
+        this.maxTrazas = maxTrazas;
+        this.maxSpansPorTraza = maxSpansPorTraza;
+        this.hiloExportacion = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(256), runnable -> {
+                Thread hilo = new Thread(runnable, "trazas-cola");
+                hilo.setDaemon(true);
+                return hilo;
+            }, (tarea, executor) -> descartados.incrementAndGet());
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanContext contexto = span.getSpanContext();
+        if (contexto.isSampled()) {
+            return;  // ya lo exporta el BatchSpanProcessor
+        }
+        SpanContext padre = span.getParentSpanContext();
+        String traceId = contexto.getTraceId();
+        if (padre.isValid() && !padre.isRemote()) {
+            guardar(traceId, span.toSpanData());
+            return;
+        }
+
+        // Raíz local: se decide la traza completa
+        TrazaAbierta traza = abiertas.remove(traceId);
+        SpanData raiz = span.toSpanData();
+        if (span.getLatencyNanos() < umbralNanos && raiz.getStatus().getStatusCode() != StatusCode.ERROR) {
+            return;
+        }
+        List<SpanData> spans = traza == null ? new ArrayList<>() : traza.cerrar();
+        spans.add(raiz);
+        exportadas.incrementAndGet();
+        hiloExportacion.execute(() -> exportador.export(spans));
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    private void guardar(String traceId, SpanData span) {
+        TrazaAbierta traza = abiertas.get(traceId);
+        if (traza == null) {
+            if (abiertas.size() >= maxTrazas) {
+                purgarViejas();
+                if (abiertas.size() >= maxTrazas) {
+                    descartados.incrementAndGet();
+                    return;
+                }
+            }
+            traza = abiertas.computeIfAbsent(traceId, id -> new TrazaAbierta());
+        }
+        if (!traza.agregar(span, maxSpansPorTraza)) {
+            descartados.incrementAndGet();
+        }
+    }
+
+    /** Trazas cuya raíz ya terminó (o nunca termina) y siguen recibiendo spans */
+    private void purgarViejas() {
+        long limite = System.nanoTime() - VIDA_MAXIMA_NANOS;
+        abiertas.values().removeIf(traza -> traza.creada < limite);
+    }
+
+    // ====== CONFIGURACIÓN Y ESTADO ======
+
+    /** Cambia el umbral en caliente (lo usan las pruebas de cada servicio) */
+    public void setUmbral(Duration umbral) {
+        this.umbralNanos = umbral.toNanos();
+    }
+
+    public long getExportadas() {
+        return exportadas.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        CompletableResultCode resultado = new CompletableResultCode();
+        try {
+            hiloExportacion.execute(resultado::succeed);
+        } catch (RuntimeException e) {
+            resultado.fail();
+        }
+        return resultado;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        hiloExportacion.shutdown();
+        abiertas.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private static final class TrazaAbierta {
+
+        final long creada = System.nanoTime();
+        private final List<SpanData> spans = new ArrayList<>();
+
+        synchronized boolean agregar(SpanData span, int maximo) {
+            if (spans.size() >= maximo) {
+                return false;
+            }
+            spans.add(span);
+            return true;
+        }
+
+        synchronized List<SpanData> cerrar() {
+            return new ArrayList<>(spans);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.aguapago.gateway.filtro;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Agrupa consultas GraphQL idénticas que están en curso a la vez
+ *
+ * Cuando una hoja de ruta se abre en decenas de dispositivos al mismo
+ * tiempo, llegan decenas de POST /graphql iguales. La primera se envía a
+ * usuarios-service; las que llegan mientras tanto esperan esa misma
+ * respuesta (estado, cabeceras y cuerpo) en lugar de repetir la consulta.
+ * Las cabeceras de usuarios-service (Retry-After de un rechazo por
+ * sobrecarga, Set-Cookie...) llegan a todas, salvo las de la conexión.
+ * Una petición que llega después de la respuesta se envía de nuevo: no es
+ * un caché.
+ *
+ * Dos peticiones son iguales si coinciden:
+ * - el documento normalizado (sin comentarios, comas ni espacios sobrantes),
+ *   operationName, variables y extensions;
+ * - la identidad: X-Tenant-Id (ya resuelto por TenantGlobalFilter),
+ *   Authorization y Cookie;
+ * - Accept y la ruta de destino.
+ *
+ * Solo se agrupan consultas: no las que tienen mutation o subscription,
+ * @defer o @stream (respuesta multipart/mixed) ni Idempotency-Key. Los lotes
+ * ya los atendió GraphQlLoteGlobalFilter y no llegan aquí.
+ *
+ * La petición que se envía no depende del cliente que la originó: si ese
+ * cliente se desconecta, las demás reciben la respuesta igual. Una respuesta
+ * de más de max-bytes-respuesta no se reparte: cada petición sigue por la
+ * ruta normal.
+ *
+ * Métricas: aguapago.graphql.coalescencia{resultado=enviada|agrupada} y
+ * aguapago.graphql.coalescencia.en-curso.
+ */
+@Component
+@ConditionalOnProperty(name = "aguapago.graphql.coalescencia.habilitado", havingValue = "true", matchIfMissing = true)
+public class GraphQlCoalescenciaGlobalFilter implements GlobalFilter, Ordered {
+
+    /** Cabeceras que identifican a quien pide y cambian la respuesta */
+    private static final List<String> CABECERAS_CLAVE = List.of(
+        TenantGlobalFilter.CABECERA, HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE, HttpHeaders.ACCEPT);
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final int maxBytesRespuesta;
+    private final Duration timeout;
+
+    private final Map<List<Object>, Sinks.One<Respuesta>> enCurso = new ConcurrentHashMap<>();
+    private final Counter enviadas;
+    private final Counter agrupadas;
+
+    public GraphQlCoalescenciaGlobalFilter(WebClient.Builder webClientBuilder,
+                                           ObjectMapper objectMapper,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${aguapago.graphql.coalescencia.max-bytes-respuesta:2MB}") DataSize maxBytesRespuesta,
+                                           @Value("${aguapago.graphql.coalescencia.timeout:30s}") Duration timeout) {
+        this.webClient = webClientBuilder.build();
+        this.objectMapper = objectMapper;
+        this.maxBytesRespuesta = (int) maxBytesRespuesta.toBytes();
+        this.timeout = timeout;
+        this.enviadas = Counter.builder("aguapago.graphql.coalescencia")
+            .description("Consultas GraphQL enviadas a usuarios-service o agrupadas con una idéntica en curso")
+            .tag("resultado", "enviada")
+            .register(meterRegistry);
+        this.agrupadas = Counter.builder("aguapago.graphql.coalescencia")
+            .description("Consultas GraphQL enviadas a usuarios-service o agrupadas con una idéntica en curso")
+            .tag("resultado", "agrupada")
+            .register(meterRegistry);
+        Gauge.builder("aguapago.graphql.coalescencia.en-curso", enCurso, Map::size)
+            .description("Consultas distintas esperando respuesta de usuarios-service")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.POST || !"/graphql".equals(request.getPath().value())
+                || request.getHeaders().containsKey(GraphQlLoteGlobalFilter.IDEMPOTENCY_KEY)) {
+            return chain.filter(exchange);
+        }
+
+        // El cuerpo ya lo leyó (y limitó) GraphQlLoteGlobalFilter: aquí se lee de memoria
+        return DataBufferUtils.join(request.getBody())
+            .map(GraphQlLoteGlobalFilter::leer)
+            .defaultIfEmpty(new byte[0])
+            .flatMap(cuerpo -> {
+                ServerWebExchange reenvio = exchange.mutate()
+                    .request(GraphQlLoteGlobalFilter.conCuerpo(exchange, cuerpo))
+                    .build();
+                List<Object> clave = clave(exchange, cuerpo);
+                if (clave == null) {
+                    return chain.filter(reenvio);
+                }
+                return compartir(clave, exchange, cuerpo)
+                    .onErrorResume(e -> !(e instanceof DataBufferLimitException), e -> Mono.fromCallable(() -> error(e)))
+                    .flatMap(respuesta -> escribir(exchange.getResponse(), respuesta))
+                    .onErrorResume(DataBufferLimitException.class, e -> chain.filter(reenvio));
+            });
+    }
+
+    // ====== AGRUPACIÓN ======
+
+    /**
+     * La primera petición con esta clave la envía; las demás esperan su respuesta
+     */
+    private Mono<Respuesta> compartir(List<Object> clave, ServerWebExchange exchange, byte[] cuerpo) {
+        return Mono.deferContextual(contexto -> {
+            Sinks.One<Respuesta> propio = Sinks.one();
+            Sinks.One<Respuesta> vuelo = enCurso.putIfAbsent(clave, propio);
+            if (vuelo != null) {
+                agrupadas.increment();
+                return vuelo.asMono();
+            }
+
+            enviadas.increment();
+            // Se quita de enCurso antes de responder: lo que llegue después se envía de nuevo
+            ejecutar(GraphQlLoteGlobalFilter.destino(exchange), cabeceras(exchange.getRequest()), cuerpo)
+                .contextWrite(contexto)
+                .subscribe(respuesta -> {
+                    enCurso.remove(clave, propio);
+                    propio.tryEmitValue(respuesta);
+                }, error -> {
+                    enCurso.remove(clave, propio);
+                    propio.tryEmitError(error);
+                });
+            return propio.asMono();
+        });
+    }
+
+    private Mono<Respuesta> ejecutar(URI destino, HttpHeaders cabeceras, byte[] cuerpo) {
+        return webClient.post()
+            .uri(destino)
+            .headers(h -> h.addAll(cabeceras))
+            .bodyValue(cuerpo)
+            .exchangeToMono(respuesta -> DataBufferUtils.join(respuesta.bodyToFlux(DataBuffer.class), maxBytesRespuesta)
+                .map(GraphQlLoteGlobalFilter::leer)
+                .defaultIfEmpty(new byte[0])
+                .map(bytes -> new Respuesta(respuesta.statusCode(),
+                    GraphQlLoteGlobalFilter.cabecerasRespuesta(respuesta.headers().asHttpHeaders()), bytes)))
+            .timeout(timeout);
+    }
+
+    private static HttpHeaders cabeceras(ServerHttpRequest request) {
+        HttpHeaders cabeceras = GraphQlLoteGlobalFilter.cabecerasReenviadas(request);
+        // El cuerpo se reparte tal cual a todos: sin compresión que deba negociar cada cliente
+        cabeceras.remove(HttpHeaders.ACCEPT_ENCODING);
+        return cabeceras;
+    }
+
+    // ====== CLAVE ======
+
+    /**
+     * Clave de agrupación, o null si la petición no se puede agrupar
+     */
+    private List<Object> clave(ServerWebExchange exchange, byte[] cuerpo) {
+        JsonNode operacion;
+        try {
+            operacion = objectMapper.readTree(cuerpo);
+        } catch (IOException e) {
+            return null;
+        }
+        JsonNode query = operacion == null ? null : operacion.get("query");
+        if (query == null || !operacion.isObject() || !query.isTextual()) {
+            return null;
+        }
+        String documento = normalizar(query.asText());
+        if (!soloLectura(documento)) {
+            return null;
+        }
+
+        HttpHeaders cabeceras = exchange.getRequest().getHeaders();
+        Object[] partes = new Object[4 + CABECERAS_CLAVE.size()];
+        partes[0] = GraphQlLoteGlobalFilter.destino(exchange);
+        partes[1] = documento;
+        partes[2] = operacion.path("operationName").asText(null);
+        partes[3] = Arrays.asList(operacion.get("variables"), operacion.get("extensions"));
+        for (int i = 0; i < CABECERAS_CLAVE.size(); i++) {
+            partes[4 + i] = cabeceras.get(CABECERAS_CLAVE.get(i));
+        }
+        return Arrays.asList(partes);
+    }
+
+    /**
+     * Documento sin comentarios ni separadores sobrantes: un espacio solo
+     * entre dos nombres o números; los strings quedan intactos
+     */
+    static String normalizar(String query) {
+        StringBuilder normalizado = new StringBuilder(query.length());
+        boolean separar = false;
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int fin = finDeString(query, i);
+                normalizado.append(query, i, fin);
+                separar = false;
+                i = fin;
+                continue;
+            }
+            if (c == '#') {
+                while (i < query.length() && query.charAt(i) != '\n' && query.charAt(i) != '\r') {
+                    i++;
+                }
+                separar = true;
+            } else if (Character.isWhitespace(c) || c == ',' || c == '\uFEFF') {
+                separar = true;
+                i++;
+            } else {
+                if (separar && normalizado.length() > 0
+                        && esNombre(normalizado.charAt(normalizado.length() - 1)) && esNombre(c)) {
+                    normalizado.append(' ');
+                }
+                separar = false;
+                normalizado.append(c);
+                i++;
+            }
+        }
+        return normalizado.toString();
+    }
+
+    /**
+     * Sin mutation ni subscription en el nivel superior y sin @defer ni @stream
+     */
+    static boolean soloLectura(String documento) {
+        int profundidad = 0;
+        int i = 0;
+        while (i < documento.length()) {
+            char c = documento.charAt(i);
+            if (c == '"') {
+                i = finDeString(documento, i);
+                continue;
+            }
+            if (c == '{' || c == '(' || c == '[') {
+                profundidad++;
+            } else if (c == '}' || c == ')' || c == ']') {
+                profundidad--;
+            } else if (esNombre(c)) {
+                int fin = i;
+                while (fin < documento.length() && esNombre(documento.charAt(fin))) {
+                    fin++;
+                }
+                String nombre = documento.substring(i, fin);
+                if (i > 0 && documento.charAt(i - 1) == '@') {
+                    if (nombre.equals("defer") || nombre.equals("stream")) {
+                        return false;
+                    }
+                } else if (profundidad == 0 && (nombre.equals("mutation") || nombre.equals("subscription"))) {
+                    return false;
+                }
+                i = fin;
+                continue;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /** Posición siguiente al string ("..." o """...""") que empieza en inicio */
+    private static int finDeString(String texto, int inicio) {
+        if (texto.startsWith("\"\"\"", inicio)) {
+            int i = inicio + 3;
+            while (i < texto.length() && !texto.startsWith("\"\"\"", i)) {
+                i += texto.startsWith("\\\"\"\"", i) ? 4 : 1;
+            }
+            return Math.min(i + 3, texto.length());
+        }
+        int i = inicio + 1;
+        while (i < texto.length() && texto.charAt(i) != '"' && texto.charAt(i) != '\n') {
+            i += texto.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 1, texto.length());
+    }
+
+    private static boolean esNombre(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    // ====== RESPUESTA ======
+
+    /** Respuesta para todas las peticiones agrupadas si usuarios-service no respondió */
+    private Respuesta error(Throwable e) throws IOException {
+        HttpStatus estado = e instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY;
+        ObjectNode resultado = objectMapper.createObjectNode();
+        resultado.putArray("errors").addObject().put("message", "No se pudo ejecutar la operación: " + e.getMessage());
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setContentType(MediaType.APPLICATION_JSON);
+        return new Respuesta(estado, cabeceras, objectMapper.writeValueAsBytes(resultado));
+    }
+
+    private static Mono<Void> escribir(ServerHttpResponse response, Respuesta respuesta) {
+        response.setStatusCode(respuesta.estado);
+        response.getHeaders().putAll(respuesta.cabeceras);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(respuesta.cuerpo)));
+    }
+
+    @Override
+    public int getOrder() {
+        // Después de GraphQlLoteGlobalFilter: el cuerpo ya está en memoria y los lotes ya se atendieron
+        return Ordered.HIGHEST_PRECEDENCE + 30;
+    }
+
+    private static final class Respuesta {
+
+        private final HttpStatusCode estado;
+        private final HttpHeaders cabeceras;
+        private final byte[] cuerpo;
+
+        private Respuesta(HttpStatusCode estado, HttpHeaders cabeceras, byte[] cuerpo) {
+            this.estado = estado;
+            this.cabeceras = cabeceras;
+            this.cuerpo = cuerpo;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.aguapago.gateway.filtro;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lotes de operaciones GraphQL en /graphql
+ *
+ * Si el cuerpo de un POST a /graphql es un arreglo JSON
+ * ([{"query": ...}, {"query": ...}]), el gateway lo separa, envía cada
+ * operación a usuarios-service en paralelo (hasta `concurrencia` a la vez)
+ * y responde un arreglo con los resultados en el mismo orden. Así la app
+ * móvil carga una pantalla con una sola petición HTTP.
+ *
+ * Límites (se rechazan con 400 y classification LOTE_EXCEDIDO):
+ * - max-operaciones: operaciones por lote.
+ * - costo-maximo: suma del costo de las operaciones. El costo de una
+ *   operación es la cantidad de conjuntos de selección ({ ... }) de su
+ *   query: una aproximación de cuántos objetos anidados resuelve.
+ * - max-bytes: tamaño del cuerpo, para cualquier POST a /graphql (413).
+ *
+ * Una operación que falla no tumba el lote: su posición lleva un error.
+ * La respuesta del lote lleva las Set-Cookie de todas sus operaciones (así
+ * una mutation en un lote conserva su ventana de lectura propia) y el
+ * Retry-After más largo, si alguna lo trae.
+ * Dentro de un lote no hay entrega incremental: cada operación se pide
+ * como JSON aunque el cliente acepte multipart/mixed.
+ * Con Idempotency-Key, cada operación lleva su propia clave (clave#posición):
+ * el reintento del mismo lote repite cada resultado en su lugar.
+ * Un cuerpo que no es arreglo sigue por la ruta normal sin cambios; una
+ * respuesta multipart/mixed (@defer / @stream) se reenvía parte por parte.
+ */
+@Component
+public class GraphQlLoteGlobalFilter implements GlobalFilter, Ordered {
+
+    static final String CLASIFICACION = "LOTE_EXCEDIDO";
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /** Cabeceras que no se copian a cada operación */
+    private static final Set<String> CABECERAS_EXCLUIDAS = Set.of(
+        "host", "content-length", "transfer-encoding", "connection", "keep-alive", "expect", "upgrade");
+
+    /** Cabeceras de la respuesta de usuarios-service que no se copian al cliente (hop-by-hop y el largo) */
+    private static final Set<String> CABECERAS_RESPUESTA_EXCLUIDAS = Set.of(
+        "content-length", "transfer-encoding", "connection", "keep-alive", "upgrade", "proxy-connection",
+        "proxy-authenticate", "te", "trailer");
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final int maxOperaciones;
+    private final int costoMaximo;
+    private final int maxBytes;
+    private final int concurrencia;
+    private final Duration timeout;
+
+    public GraphQlLoteGlobalFilter(WebClient.Builder webClientBuilder,
+                                   ObjectMapper objectMapper,
+                                   @Value("${aguapago.graphql.lote.max-operaciones:10}") int maxOperaciones,
+                                   @Value("${aguapago.graphql.lote.costo-maximo:60}") int costoMaximo,
+                                   @Value("${aguapago.graphql.lote.max-bytes:512KB}") DataSize maxBytes,
+                                   @Value("${aguapago.graphql.lote.concurrencia:5}") int concurrencia,
+                                   @Value("${aguapago.graphql.lote.timeout:10s}") Duration timeout) {
+        this.webClient = webClientBuilder.build();
+        this.objectMapper = objectMapper;
+        this.maxOperaciones = maxOperaciones;
+        this.costoMaximo = costoMaximo;
+        this.maxBytes = (int) maxBytes.toBytes();
+        this.concurrencia = concurrencia;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.POST || !"/graphql".equals(request.getPath().value())) {
+            return chain.filter(exchange);
+        }
+
+        return DataBufferUtils.join(request.getBody(), maxBytes)
+            .map(GraphQlLoteGlobalFilter::leer)
+            .defaultIfEmpty(new byte[0])
+            .flatMap(cuerpo -> esArreglo(cuerpo)
+                ? procesarLote(exchange, cuerpo)
+                : chain.filter(exchange.mutate().request(conCuerpo(exchange, cuerpo)).build()))
+            .onErrorResume(DataBufferLimitException.class, e -> responderError(exchange,
+                HttpStatus.PAYLOAD_TOO_LARGE, "El cuerpo supera " + maxBytes + " bytes"));
+    }
+
+    // ====== LOTE ======
+
+    private Mono<Void> procesarLote(ServerWebExchange exchange, byte[] cuerpo) {
+        List<JsonNode> operaciones = new ArrayList<>();
+        try {
+            objectMapper.readTree(cuerpo).forEach(operaciones::add);
+        } catch (IOException e) {
+            return responderError(exchange, HttpStatus.BAD_REQUEST, "El lote no es un JSON válido");
+        }
+
+        if (operaciones.isEmpty()) {
+            return responderError(exchange, HttpStatus.BAD_REQUEST, "El lote está vacío");
+        }
+        if (operaciones.size() > maxOperaciones) {
+            return responderError(exchange, HttpStatus.BAD_REQUEST,
+                "El lote tiene " + operaciones.size() + " operaciones; el máximo es " + maxOperaciones);
+        }
+        int costo = 0;
+        for (JsonNode operacion : operaciones) {
+            JsonNode query = operacion.get("query");
+            if (!operacion.isObject() || query == null || !query.isTextual()) {
+                return responderError(exchange, HttpStatus.BAD_REQUEST, "Cada operación del lote necesita un query");
+            }
+            costo += costo(query.asText());
+        }
+        if (costo > costoMaximo) {
+            return responderError(exchange, HttpStatus.BAD_REQUEST,
+                "El costo del lote es " + costo + "; el máximo es " + costoMaximo);
+        }
+
+        URI destino = destino(exchange);
+        HttpHeaders cabeceras = cabecerasReenviadas(exchange.getRequest());
+        return Flux.range(0, operaciones.size())
+            .flatMapSequential(i -> ejecutar(destino, cabecerasOperacion(cabeceras, i), operaciones.get(i)), concurrencia)
+            .collectList()
+            .flatMap(resultados -> {
+                ArrayNode respuesta = objectMapper.createArrayNode();
+                long reintentarEn = -1;
+                for (Resultado resultado : resultados) {
+                    respuesta.add(resultado.cuerpo);
+                    List<String> cookies = resultado.cabeceras.get(HttpHeaders.SET_COOKIE);
+                    if (cookies != null) {
+                        exchange.getResponse().getHeaders().addAll(HttpHeaders.SET_COOKIE, cookies);
+                    }
+                    reintentarEn = Math.max(reintentarEn,
+                        segundosRetryAfter(resultado.cabeceras.getFirst(HttpHeaders.RETRY_AFTER)));
+                }
+                if (reintentarEn >= 0) {
+                    exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(reintentarEn));
+                }
+                return escribir(exchange.getResponse(), HttpStatus.OK, respuesta);
+            });
+    }
+
+    private Mono<Resultado> ejecutar(URI destino, HttpHeaders cabeceras, JsonNode operacion) {
+        return webClient.post()
+            .uri(destino)
+            .headers(h -> h.addAll(cabeceras))
+            .contentType(MediaType.APPLICATION_JSON)
+            // El lote se responde como un arreglo JSON: sin entrega incremental (multipart)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(operacion)
+            .exchangeToMono(respuesta -> respuesta.bodyToMono(JsonNode.class)
+                .switchIfEmpty(Mono.fromSupplier(() ->
+                    error("Respuesta vacía (HTTP " + respuesta.statusCode().value() + ")")))
+                .map(cuerpo -> new Resultado(cuerpo, cabecerasRespuesta(respuesta.headers().asHttpHeaders()))))
+            .timeout(timeout)
+            .onErrorResume(e -> Mono.just(new Resultado(error("No se pudo ejecutar la operación: " + e.getMessage()),
+                HttpHeaders.EMPTY)));
+    }
+
+    /**
+     * Segundos de un Retry-After (número o fecha HTTP), o -1 si no hay o no se entiende
+     */
+    static long segundosRetryAfter(String valor) {
+        if (valor == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(valor.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime fecha = ZonedDateTime.parse(valor.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(), fecha).toSeconds());
+            } catch (DateTimeParseException ex) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Conjuntos de selección de la query, sin contar llaves dentro de strings
+     */
+    static int costo(String query) {
+        int costo = 0;
+        boolean enString = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '\\' && enString) {
+                i++;
+            } else if (c == '"') {
+                enString = !enString;
+            } else if (c == '{' && !enString) {
+                costo++;
+            }
+        }
+        return Math.max(1, costo);
+    }
+
+    // ====== REENVÍO ======
+
+    static URI destino(ServerWebExchange exchange) {
+        Route ruta = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        URI base = ruta.getUri();
+        return URI.create(base.getScheme() + "://" + base.getAuthority() + exchange.getRequest().getPath().value());
+    }
+
+    static HttpHeaders cabecerasReenviadas(ServerHttpRequest request) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        request.getHeaders().forEach((nombre, valores) -> {
+            if (!CABECERAS_EXCLUIDAS.contains(nombre.toLowerCase())) {
+                cabeceras.put(nombre, valores);
+            }
+        });
+        // Igual que el reenvío normal del gateway: la IP del cliente va al final
+        InetSocketAddress remota = request.getRemoteAddress();
+        if (remota != null && remota.getAddress() != null) {
+            String previo = request.getHeaders().getFirst("X-Forwarded-For");
+            String ip = remota.getAddress().getHostAddress();
+            cabeceras.set("X-Forwarded-For", previo == null ? ip : previo + ", " + ip);
+        }
+        return cabeceras;
+    }
+
+    /**
+     * Cabeceras de una respuesta de usuarios-service que se devuelven al cliente
+     * (Set-Cookie, Retry-After, Content-Type...), sin las de la conexión
+     */
+    static HttpHeaders cabecerasRespuesta(HttpHeaders recibidas) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        recibidas.forEach((nombre, valores) -> {
+            if (!CABECERAS_RESPUESTA_EXCLUIDAS.contains(nombre.toLowerCase())) {
+                cabeceras.put(nombre, valores);
+            }
+        });
+        return cabeceras;
+    }
+
+    /** La Idempotency-Key del lote no puede repetirse en todas sus operaciones */
+    private static HttpHeaders cabecerasOperacion(HttpHeaders cabeceras, int posicion) {
+        String clave = cabeceras.getFirst(IDEMPOTENCY_KEY);
+        if (clave == null) {
+            return cabeceras;
+        }
+        HttpHeaders propias = new HttpHeaders();
+        propias.addAll(cabeceras);
+        propias.set(IDEMPOTENCY_KEY, clave + '#' + posicion);
+        return propias;
+    }
+
+    static ServerHttpRequest conCuerpo(ServerWebExchange exchange, byte[] cuerpo) {
+        return new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(cuerpo)));
+            }
+        };
+    }
+
+    // ====== UTILIDADES ======
+
+    static byte[] leer(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static boolean esArreglo(byte[] cuerpo) {
+        for (byte b : cuerpo) {
+            if (!Character.isWhitespace(b)) {
+                return b == '[';
+            }
+        }
+        return false;
+    }
+
+    private ObjectNode error(String mensaje) {
+        ObjectNode resultado = objectMapper.createObjectNode();
+        resultado.putArray("errors").addObject().put("message", mensaje);
+        return resultado;
+    }
+
+    private Mono<Void> responderError(ServerWebExchange exchange, HttpStatus estado, String mensaje) {
+        ObjectNode resultado = error(mensaje);
+        ((ObjectNode) resultado.get("errors").get(0)).putObject("extensions").put("classification", CLASIFICACION);
+        return escribir(exchange.getResponse(), estado, resultado);
+    }
+
+    private Mono<Void> escribir(ServerHttpResponse response, HttpStatus estado, JsonNode cuerpo) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(cuerpo);
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(estado);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    @Override
+    public int getOrder() {
+        // Después de TenantGlobalFilter: cada operación lleva el tenant ya resuelto
+        return Ordered.HIGHEST_PRECEDENCE + 20;
+    }
+
+    /** Cuerpo de una operación del lote y las cabeceras que respondió usuarios-service */
+    private static final class Resultado {
+
+        private final JsonNode cuerpo;
+        private final HttpHeaders cabeceras;
+
+        private Resultado(JsonNode cuerpo, HttpHeaders cabeceras) {
+            this.cuerpo = cuerpo;
+            this.cabeceras = cabeceras;
+        }
+    }
+}
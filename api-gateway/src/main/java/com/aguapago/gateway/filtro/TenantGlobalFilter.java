@@ -0,0 +1,92 @@
+package com.aguapago.gateway.filtro;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resuelve la cooperativa (tenant) de cada petición y la envía al servicio
+ * en la cabecera X-Tenant-Id
+ *
+ * Orden de resolución:
+ * 1. El host de la petición, según aguapago.tenants.por-host
+ *    (ej. coop-norte.aguapago.bo=coop-norte).
+ * 2. La cabecera X-Tenant-Id del cliente, solo si el tenant está en
+ *    aguapago.tenants.permitidos (útil en desarrollo y pruebas).
+ * 3. Ninguno: el servicio usa su base principal.
+ *
+ * Cualquier X-Tenant-Id que no pase estas reglas se descarta, así un
+ * cliente no puede leer datos de otra cooperativa cambiando la cabecera.
+ */
+@Component
+public class TenantGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final String CABECERA = "X-Tenant-Id";
+
+    private final Map<String, String> porHost = new HashMap<>();
+    private final Set<String> permitidos = new HashSet<>();
+
+    public TenantGlobalFilter(@Value("${aguapago.tenants.por-host:}") List<String> porHost,
+                              @Value("${aguapago.tenants.permitidos:}") List<String> permitidos) {
+        for (String par : porHost) {
+            int separador = par.indexOf('=');
+            if (separador > 0) {
+                this.porHost.put(par.substring(0, separador).trim().toLowerCase(Locale.ROOT),
+                    par.substring(separador + 1).trim());
+            }
+        }
+        for (String tenant : permitidos) {
+            if (!tenant.isBlank()) {
+                this.permitidos.add(tenant.trim());
+            }
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String tenant = resolver(request);
+        ServerHttpRequest reenviada = request.mutate()
+            .headers(cabeceras -> {
+                cabeceras.remove(CABECERA);
+                if (tenant != null) {
+                    cabeceras.set(CABECERA, tenant);
+                }
+            })
+            .build();
+        return chain.filter(exchange.mutate().request(reenviada).build());
+    }
+
+    private String resolver(ServerHttpRequest request) {
+        String host = request.getHeaders().getHost() != null ? request.getHeaders().getHost().getHostString() : null;
+        if (host != null) {
+            String tenant = porHost.get(host.toLowerCase(Locale.ROOT));
+            if (tenant != null) {
+                return tenant;
+            }
+        }
+        String solicitado = request.getHeaders().getFirst(CABECERA);
+        if (solicitado != null && permitidos.contains(solicitado.trim())) {
+            return solicitado.trim();
+        }
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        // Antes que los demás filtros: los que vienen después ya ven el tenant resuelto
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+}
@@ -0,0 +1,77 @@
+package com.aguapago.gateway.traza;
+
+import com.aguapago.trazas.DestinoTrazas;
+import com.aguapago.trazas.DestinoTrazasArchivo;
+import com.aguapago.trazas.DestinoTrazasMemoria;
+import com.aguapago.trazas.ExportadorTrazas;
+import com.aguapago.trazas.MuestreoCabeza;
+import com.aguapago.trazas.MuestreoCola;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Trazas distribuidas desde la entrada del gateway
+ *
+ * Spring Cloud Gateway crea el span del salto a usuarios-service y le
+ * envía el traceparent (W3C); los lotes GraphQL lo envían en cada
+ * operación (WebClient instrumentado). Aquí se configuran el muestreo y el
+ * destino de los spans con las mismas clases que usuarios-service (módulo
+ * aguapago-trazas):
+ *
+ * aguapago.trazas.destino elige el destino:
+ * - archivo (por defecto): JSON por línea en aguapago.trazas.archivo
+ * - memoria: dentro del proceso, para pruebas
+ * - cualquier otro valor: se espera un bean DestinoTrazas propio
+ *
+ * Con la misma management.tracing.sampling.probability en los dos servicios,
+ * el muestreo de cabeza elige las mismas trazas. El de cola también coincide
+ * en la práctica: el salto del gateway dura al menos lo que tarda el servicio.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.trazas.habilitado", havingValue = "true", matchIfMissing = true)
+public class TrazasConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.trazas.destino", havingValue = "archivo", matchIfMissing = true)
+    public DestinoTrazasArchivo destinoTrazasArchivo(
+            @Value("${aguapago.trazas.archivo:logs/trazas-gateway.jsonl}") String archivo,
+            ObjectMapper objectMapper) {
+        return new DestinoTrazasArchivo(Path.of(archivo), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.trazas.destino", havingValue = "memoria")
+    public DestinoTrazasMemoria destinoTrazasMemoria(
+            @Value("${aguapago.trazas.memoria.capacidad:10000}") int capacidad) {
+        return new DestinoTrazasMemoria(capacidad);
+    }
+
+    @Bean
+    public ExportadorTrazas exportadorTrazas(DestinoTrazas destinoTrazas) {
+        return new ExportadorTrazas(destinoTrazas);
+    }
+
+    @Bean
+    public Sampler muestreoCabeza(
+            @Value("${management.tracing.sampling.probability:0.1}") double probabilidad,
+            @Value("${aguapago.trazas.cola.habilitado:true}") boolean cola) {
+        return new MuestreoCabeza(probabilidad, cola);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.trazas.cola.habilitado", havingValue = "true", matchIfMissing = true)
+    public MuestreoCola muestreoCola(
+            ExportadorTrazas exportadorTrazas,
+            @Value("${aguapago.trazas.cola.umbral:1s}") Duration umbral,
+            @Value("${aguapago.trazas.cola.max-trazas:2000}") int maxTrazas,
+            @Value("${aguapago.trazas.cola.max-spans-por-traza:500}") int maxSpansPorTraza) {
+        return new MuestreoCola(exportadorTrazas, umbral, maxTrazas, maxSpansPorTraza);
+    }
+}
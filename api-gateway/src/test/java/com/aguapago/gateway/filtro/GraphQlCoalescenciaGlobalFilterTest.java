@@ -0,0 +1,183 @@
+package com.aguapago.gateway.filtro;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Agrupación de consultas idénticas contra un usuarios-service simulado que
+ * tarda 400 ms y responde con un número de llamada distinto cada vez; las
+ * consultas "sobrecarga" se rechazan con 503 y Retry-After
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "aguapago.tenants.permitidos=coop-a,coop-b"
+})
+class GraphQlCoalescenciaGlobalFilterTest {
+
+    private static final AtomicInteger LLAMADAS = new AtomicInteger();
+
+    private static final DisposableServer SERVICIO = HttpServer.create()
+        .port(0)
+        .route(rutas -> rutas.post("/graphql", (request, response) -> request.receive().aggregate().asString()
+            .delayElement(Duration.ofMillis(400))
+            .flatMap(cuerpo -> {
+                int llamada = LLAMADAS.incrementAndGet();
+                if (cuerpo.contains("sobrecarga")) {
+                    return response.status(503)
+                        .header("Content-Type", "application/graphql-response+json")
+                        .header("Retry-After", "7")
+                        .sendString(Mono.just("{\"errors\":[{\"message\":\"Servicio sobrecargado\"}]}"))
+                        .then();
+                }
+                return response.header("Content-Type", "application/graphql-response+json")
+                    .sendString(Mono.just("{\"data\":{\"llamada\":" + llamada + "}}"))
+                    .then();
+            })))
+        .bindNow();
+
+    @DynamicPropertySource
+    static void rutas(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "usuarios-graphql");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + SERVICIO.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/graphql");
+    }
+
+    @AfterAll
+    static void detener() {
+        SERVICIO.disposeNow();
+    }
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void limpiar() {
+        LLAMADAS.set(0);
+    }
+
+    @Test
+    void lasConsultasIgualesEnCursoRecibenUnaSolaRespuesta() {
+        double agrupadasAntes = contador("agrupada");
+        // Mismo documento con otro formato, comentarios y orden de variables
+        List<String> cuerpos = List.of(
+            "{\"query\":\"query C($c: String!) { obtenerClientePorCodigo(codigo: $c) { id } }\",\"variables\":{\"c\":\"CLI-1\",\"x\":1}}",
+            "{\"query\":\"query C($c:String!){obtenerClientePorCodigo(codigo:$c){id}}\",\"variables\":{\"x\":1,\"c\":\"CLI-1\"}}",
+            "{\"query\":\"# hoja de ruta\\nquery C($c: String!) {\\n  obtenerClientePorCodigo(codigo: $c) {\\n    id,\\n  }\\n}\",\"variables\":{\"c\":\"CLI-1\",\"x\":1}}");
+
+        List<Respuesta> respuestas = Flux.range(0, 9)
+            .flatMap(i -> enviar(cuerpos.get(i % 3), "coop-a"))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(1, LLAMADAS.get());
+        assertTrue(respuestas.stream().allMatch(r -> r.cuerpo.equals("{\"data\":{\"llamada\":1}}")), respuestas::toString);
+        assertTrue(respuestas.stream().allMatch(r -> r.tipo.contains("application/graphql-response+json")));
+        assertEquals(8, contador("agrupada") - agrupadasAntes);
+
+        // Ya respondida: la siguiente vuelve a usuarios-service
+        assertEquals("{\"data\":{\"llamada\":2}}", enviar(cuerpos.get(0), "coop-a").block().cuerpo);
+    }
+
+    @Test
+    void distintasVariablesTenantsOMutationsNoSeAgrupan() {
+        String consulta = "{\"query\":\"query C($c: String!) { obtenerClientePorCodigo(codigo: $c) { id } }\",\"variables\":{\"c\":\"%s\"}}";
+        String mutation = "{\"query\":\"mutation { generarCodigoCliente }\"}";
+
+        Flux.merge(
+                enviar(String.format(consulta, "CLI-1"), "coop-a"),
+                enviar(String.format(consulta, "CLI-2"), "coop-a"),
+                enviar(String.format(consulta, "CLI-1"), "coop-b"),
+                enviar(mutation, "coop-a"),
+                enviar(mutation, "coop-a"))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(5, LLAMADAS.get());
+    }
+
+    @Test
+    void unRechazoPorSobrecargaLlegaConSusCabecerasATodas() {
+        List<Respuesta> respuestas = Flux.range(0, 3)
+            .flatMap(i -> enviar("{\"query\":\"{ sobrecarga }\"}", "coop-a"))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(1, LLAMADAS.get());
+        assertTrue(respuestas.stream().allMatch(r -> r.estado == 503
+            && "7".equals(r.retryAfter)
+            && r.cuerpo.contains("Servicio sobrecargado")), respuestas::toString);
+    }
+
+    @Test
+    void reconoceLasOperacionesQueNoSonDeLectura() {
+        assertEquals("query C($c:String!){a(x:$c y:\"  , # \"){b c}}",
+            GraphQlCoalescenciaGlobalFilter.normalizar("query C( $c : String! ) {\n a(x: $c, y: \"  , # \") { b # comentario\n c } }"));
+
+        assertTrue(GraphQlCoalescenciaGlobalFilter.soloLectura("{mutation:a}"));
+        assertTrue(GraphQlCoalescenciaGlobalFilter.soloLectura("query Q{a(t:\"mutation @defer\")}"));
+        assertFalse(GraphQlCoalescenciaGlobalFilter.soloLectura("mutation{a}"));
+        assertFalse(GraphQlCoalescenciaGlobalFilter.soloLectura("query Q{a}subscription S{b}"));
+        assertFalse(GraphQlCoalescenciaGlobalFilter.soloLectura("{a...@defer{b}}"));
+        assertFalse(GraphQlCoalescenciaGlobalFilter.soloLectura("{a@stream(initialCount:1){b}}"));
+    }
+
+    // ====== UTILIDADES ======
+
+    private Mono<Respuesta> enviar(String cuerpo, String tenant) {
+        return WebClient.create("http://localhost:" + puerto).post().uri("/graphql")
+            .header("X-Tenant-Id", tenant)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(cuerpo)
+            .exchangeToMono(respuesta -> respuesta.bodyToMono(String.class)
+                .map(texto -> new Respuesta(respuesta.statusCode().value(),
+                    String.valueOf(respuesta.headers().contentType().orElse(null)),
+                    respuesta.headers().asHttpHeaders().getFirst("Retry-After"), texto)));
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.counter("aguapago.graphql.coalescencia", "resultado", resultado).count();
+    }
+
+    private static final class Respuesta {
+
+        private final int estado;
+        private final String tipo;
+        private final String retryAfter;
+        private final String cuerpo;
+
+        private Respuesta(int estado, String tipo, String retryAfter, String cuerpo) {
+            this.estado = estado;
+            this.tipo = tipo;
+            this.retryAfter = retryAfter;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public String toString() {
+            return estado + " " + tipo + " Retry-After=" + retryAfter + " " + cuerpo;
+        }
+    }
+}
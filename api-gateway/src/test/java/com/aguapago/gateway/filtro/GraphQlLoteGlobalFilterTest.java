@@ -0,0 +1,248 @@
+package com.aguapago.gateway.filtro;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lotes GraphQL contra un usuarios-service simulado que responde con la
+ * query recibida; las operaciones "lentas" tardan más para comprobar que
+ * el orden de la respuesta no depende de cuál termina primero. Un campo
+ * escribeX responde la cookie X y un campo reintentarN, Retry-After: N.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "aguapago.graphql.lote.max-operaciones=3",
+    "aguapago.graphql.lote.costo-maximo=6",
+    "aguapago.tenants.permitidos=coop-a"
+})
+@AutoConfigureWebTestClient
+class GraphQlLoteGlobalFilterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final List<String> TENANTS_RECIBIDOS = new CopyOnWriteArrayList<>();
+    private static final Map<String, String> CLAVES_RECIBIDAS = new ConcurrentHashMap<>();
+    private static final AtomicInteger EN_CURSO = new AtomicInteger();
+    private static final AtomicInteger MAXIMO_EN_CURSO = new AtomicInteger();
+    private static final String PARTE_INICIAL = "\r\n---\r\nContent-Type: application/json; charset=utf-8\r\n\r\n"
+        + "{\"data\":{\"a\":1},\"hasNext\":true}\r\n---";
+    private static final String PARTE_FINAL = "\r\nContent-Type: application/json; charset=utf-8\r\n\r\n"
+        + "{\"incremental\":[{\"data\":{\"b\":2},\"path\":[]}],\"hasNext\":false}\r\n-----\r\n";
+
+    private static final DisposableServer SERVICIO = HttpServer.create()
+        .port(0)
+        .route(rutas -> rutas.post("/graphql", (request, response) -> {
+            TENANTS_RECIBIDOS.add(String.valueOf(request.requestHeaders().get("X-Tenant-Id")));
+            if (String.valueOf(request.requestHeaders().get("Accept")).contains("multipart/mixed")) {
+                // Entrega incremental: la segunda parte sale 800 ms después de la primera
+                return response.header("Content-Type", "multipart/mixed; boundary=\"-\"; deferSpec=20220824")
+                    .sendString(request.receive().aggregate().asString().flatMapMany(cuerpo -> Flux.concat(
+                        Mono.just(PARTE_INICIAL),
+                        Mono.delay(Duration.ofMillis(800)).thenReturn(PARTE_FINAL))));
+            }
+            return request.receive().aggregate().asString().flatMap(cuerpo -> {
+                String query = query(cuerpo);
+                CLAVES_RECIBIDAS.put(query, String.valueOf(request.requestHeaders().get("Idempotency-Key")));
+                MAXIMO_EN_CURSO.accumulateAndGet(EN_CURSO.incrementAndGet(), Math::max);
+                return Mono.delay(Duration.ofMillis(query.contains("lento") ? 300 : 10))
+                    .doFinally(senal -> EN_CURSO.decrementAndGet())
+                    .then(Mono.defer(() -> {
+                        Matcher escribe = Pattern.compile("escribe(\\w+)").matcher(query);
+                        while (escribe.find()) {
+                            response.addHeader("Set-Cookie", escribe.group(1) + "=1; Path=/");
+                        }
+                        Matcher reintentar = Pattern.compile("reintentar(\\d+)").matcher(query);
+                        if (reintentar.find()) {
+                            response.header("Retry-After", reintentar.group(1));
+                        }
+                        return response.header("Content-Type", "application/json")
+                            .sendString(Mono.just(eco(query)))
+                            .then();
+                    }));
+            });
+        }))
+        .bindNow();
+
+    private static String query(String cuerpo) {
+        try {
+            return MAPPER.readTree(cuerpo).get("query").asText();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static String eco(String query) {
+        return MAPPER.createObjectNode().set("data", MAPPER.createObjectNode().put("eco", query)).toString();
+    }
+
+    @DynamicPropertySource
+    static void rutas(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "usuarios-graphql");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + SERVICIO.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/graphql");
+    }
+
+    @AfterAll
+    static void detener() {
+        SERVICIO.disposeNow();
+    }
+
+    @Autowired
+    private WebTestClient cliente;
+
+    @Test
+    void ejecutaElLoteEnParaleloYRespondeEnOrden() throws Exception {
+        TENANTS_RECIBIDOS.clear();
+        MAXIMO_EN_CURSO.set(0);
+        String lote = "[{\"query\":\"{ lento }\"},{\"query\":\"{ a }\"},{\"query\":\"{ b { c } }\"}]";
+
+        JsonNode respuesta = MAPPER.readTree(cliente.post().uri("/graphql")
+            .header("X-Tenant-Id", "coop-a")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(lote)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody());
+
+        assertEquals(3, respuesta.size());
+        assertEquals("{ lento }", respuesta.get(0).get("data").get("eco").asText());
+        assertEquals("{ a }", respuesta.get(1).get("data").get("eco").asText());
+        assertEquals("{ b { c } }", respuesta.get(2).get("data").get("eco").asText());
+        assertTrue(MAXIMO_EN_CURSO.get() > 1, "las operaciones deben ejecutarse en paralelo");
+        assertEquals(List.of("coop-a", "coop-a", "coop-a"), TENANTS_RECIBIDOS);
+    }
+
+    @Test
+    void cadaOperacionLlevaSuPropiaIdempotencyKey() {
+        cliente.post().uri("/graphql")
+            .header("Idempotency-Key", "lote-1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("[{\"query\":\"mutation { a }\"},{\"query\":\"mutation { b }\"}]")
+            .exchange()
+            .expectStatus().isOk();
+
+        assertEquals("lote-1#0", CLAVES_RECIBIDAS.get("mutation { a }"));
+        assertEquals("lote-1#1", CLAVES_RECIBIDAS.get("mutation { b }"));
+    }
+
+    @Test
+    void laRespuestaDelLoteLlevaLasCookiesYElRetryAfterMasLargo() {
+        List<String> cookies = cliente.post().uri("/graphql")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("[{\"query\":\"mutation { escribeA reintentar3 }\"},{\"query\":\"mutation { escribeB }\"},"
+                + "{\"query\":\"{ reintentar9 }\"}]")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals("Retry-After", "9")
+            .returnResult(String.class)
+            .getResponseHeaders().get("Set-Cookie");
+
+        assertEquals(2, cookies.size());
+        assertTrue(cookies.get(0).startsWith("A=1") && cookies.get(1).startsWith("B=1"), cookies::toString);
+
+        // Sin Retry-After en ninguna operación, el lote tampoco lo lleva
+        cliente.post().uri("/graphql")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("[{\"query\":\"{ a }\"}]")
+            .exchange()
+            .expectHeader().doesNotExist("Retry-After");
+        assertEquals(-1, GraphQlLoteGlobalFilter.segundosRetryAfter("mañana"));
+    }
+
+    @Test
+    void rechazaLotesQueExcedenLosLimites() {
+        String demasiadas = "[{\"query\":\"{ a }\"},{\"query\":\"{ b }\"},{\"query\":\"{ c }\"},{\"query\":\"{ d }\"}]";
+        cliente.post().uri("/graphql").contentType(MediaType.APPLICATION_JSON).bodyValue(demasiadas)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.errors[0].extensions.classification").isEqualTo(GraphQlLoteGlobalFilter.CLASIFICACION);
+
+        // 4 + 3 conjuntos de selección; las llaves dentro de strings no cuentan
+        String costoso = "[{\"query\":\"{ a { b { c { d } } } }\"},{\"query\":\"{ e(x: \\\"{{{\\\") { f { g } } }\"}]";
+        cliente.post().uri("/graphql").contentType(MediaType.APPLICATION_JSON).bodyValue(costoso)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.errors[0].message").isEqualTo("El costo del lote es 7; el máximo es 6");
+    }
+
+    @Test
+    void lasOperacionesDelLotePidenJsonAunqueElClienteAcepteMultipart() throws Exception {
+        JsonNode respuesta = MAPPER.readTree(cliente.post().uri("/graphql")
+            .header("Accept", "multipart/mixed;deferSpec=20220824, application/json")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("[{\"query\":\"{ a }\"},{\"query\":\"{ b }\"}]")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody());
+
+        assertEquals("{ a }", respuesta.get(0).get("data").get("eco").asText());
+        assertEquals("{ b }", respuesta.get(1).get("data").get("eco").asText());
+    }
+
+    @Test
+    void unaRespuestaMultipartPasaSinAcumularse() {
+        long inicio = System.nanoTime();
+        FluxExchangeResult<DataBuffer> resultado = cliente.post().uri("/graphql")
+            .header("Accept", "multipart/mixed;deferSpec=20220824, application/json")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"query\":\"{ a ... @defer { b } }\"}")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(DataBuffer.class);
+        assertTrue(resultado.getResponseHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("multipart/mixed")));
+
+        // La primera parte llega antes de que el servicio haya escrito la segunda
+        List<String> trozos = new ArrayList<>();
+        List<Long> llegadas = new ArrayList<>();
+        resultado.getResponseBody()
+            .doOnNext(trozo -> {
+                trozos.add(trozo.toString(StandardCharsets.UTF_8));
+                llegadas.add((System.nanoTime() - inicio) / 1_000_000);
+                DataBufferUtils.release(trozo);
+            })
+            .blockLast(Duration.ofSeconds(5));
+
+        String primera = trozos.get(0);
+        assertTrue(primera.contains("\"hasNext\":true") && !primera.contains("incremental"), primera);
+        // Medido entre partes: el arranque de la primera petición no cuenta
+        long espera = llegadas.get(llegadas.size() - 1) - llegadas.get(0);
+        assertTrue(espera >= 500, "La primera parte llegó solo " + espera + " ms antes que la última");
+        assertEquals(PARTE_INICIAL + PARTE_FINAL, String.join("", trozos));
+    }
+
+    @Test
+    void unaOperacionSueltaSigueLaRutaNormal() {
+        cliente.post().uri("/graphql").contentType(MediaType.APPLICATION_JSON).bodyValue("{\"query\":\"{ a }\"}")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.data.eco").isEqualTo("{ a }");
+    }
+}
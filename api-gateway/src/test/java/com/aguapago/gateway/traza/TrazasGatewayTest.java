@@ -0,0 +1,134 @@
+package com.aguapago.gateway.traza;
+
+import com.aguapago.trazas.DestinoTrazasMemoria;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Propagación del traceparent hacia un usuarios-service simulado que
+ * guarda las cabeceras recibidas; spans en memoria y todo muestreado
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "management.tracing.sampling.probability=1.0",
+    "aguapago.trazas.destino=memoria"
+})
+@AutoConfigureWebTestClient
+@AutoConfigureObservability(metrics = false)
+class TrazasGatewayTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String SPAN_CLIENTE = "00f067aa0ba902b7";
+    private static final List<String> TRACEPARENTS = new CopyOnWriteArrayList<>();
+
+    private static final DisposableServer SERVICIO = HttpServer.create()
+        .port(0)
+        .route(rutas -> rutas.post("/graphql", (request, response) -> {
+            TRACEPARENTS.add(String.valueOf(request.requestHeaders().get("traceparent")));
+            return response.header("Content-Type", "application/json")
+                .sendString(request.receive().aggregate().asString().thenReturn("{\"data\":{\"ok\":true}}"));
+        }))
+        .bindNow();
+
+    @DynamicPropertySource
+    static void rutas(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "usuarios-graphql");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + SERVICIO.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/graphql");
+    }
+
+    @AfterAll
+    static void detener() {
+        SERVICIO.disposeNow();
+    }
+
+    @Autowired
+    private WebTestClient cliente;
+
+    @Autowired
+    private DestinoTrazasMemoria destino;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @BeforeEach
+    void limpiar() {
+        TRACEPARENTS.clear();
+    }
+
+    @Test
+    void continuaLaTrazaDelClienteHaciaElServicio() {
+        enviar("{\"query\":\"{ ok }\"}", "00-" + TRACE_ID + "-" + SPAN_CLIENTE + "-01");
+
+        assertEquals(1, TRACEPARENTS.size());
+        String[] recibido = TRACEPARENTS.get(0).split("-");
+        assertEquals(TRACE_ID, recibido[1]);
+        assertEquals("01", recibido[3]);
+
+        List<SpanData> spans = spansDe(TRACE_ID);
+        SpanData servidor = spans.stream().filter(s -> SPAN_CLIENTE.equals(s.getParentSpanId())).findFirst()
+            .orElseThrow(() -> new AssertionError("Falta el span de entrada: " + spans));
+        // usuarios-service recibe como padre un span del gateway hijo de la entrada
+        SpanData salto = spans.stream().filter(s -> s.getSpanId().equals(recibido[2])).findFirst()
+            .orElseThrow(() -> new AssertionError("Falta el span del salto: " + spans));
+        assertFalse(salto.getSpanId().equals(servidor.getSpanId()));
+        assertEquals(servidor.getSpanId(), salto.getParentSpanId());
+    }
+
+    @Test
+    void lasOperacionesDeUnLoteSiguenEnLaMismaTraza() {
+        enviar("[{\"query\":\"{ a }\"},{\"query\":\"{ b }\"}]", null);
+
+        assertEquals(2, TRACEPARENTS.size());
+        String traceId = TRACEPARENTS.get(0).split("-")[1];
+        assertTrue(TRACEPARENTS.stream().allMatch(t -> t.split("-")[1].equals(traceId)), TRACEPARENTS::toString);
+        assertFalse(spansDe(traceId).isEmpty());
+    }
+
+    // ====== UTILIDADES ======
+
+    private void enviar(String cuerpo, String traceparent) {
+        cliente.post().uri("/graphql")
+            .contentType(MediaType.APPLICATION_JSON)
+            .headers(cabeceras -> {
+                if (traceparent != null) {
+                    cabeceras.set("traceparent", traceparent);
+                }
+            })
+            .bodyValue(cuerpo)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    private List<SpanData> spansDe(String traceId) {
+        // El span de entrada termina justo después de responder
+        long limite = System.currentTimeMillis() + 5000;
+        List<SpanData> spans;
+        do {
+            tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+            spans = destino.deTraza(traceId);
+        } while (spans.stream().noneMatch(s -> !s.getParentSpanContext().isValid() || s.getParentSpanContext().isRemote())
+            && System.currentTimeMillis() < limite);
+        return spans;
+    }
+}
@@ -0,0 +1,65 @@
+package com.aguapago.usuarios.aprovisionamiento;
+
+import com.aguapago.usuarios.entity.TareaAprovisionamiento;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.repository.TareaAprovisionamientoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Servicio de Aprovisionamiento
+ *
+ * Encola la creación del perfil de cliente de un usuario. La tarea se
+ * guarda en la misma transacción que el usuario: si el registro se
+ * confirma, su perfil queda pendiente de forma durable.
+ */
+@Service
+@Transactional
+public class AprovisionamientoService {
+
+    @Autowired
+    private TareaAprovisionamientoRepository tareaRepository;
+
+    /**
+     * Encola el perfil de cliente de un usuario recién registrado
+     * @param usuario el usuario ya guardado (rol CLIENTE)
+     * @param direccion dirección del cliente (opcional)
+     * @param telefono teléfono del cliente (opcional)
+     * @param documentoIdentidad documento del cliente (opcional)
+     * @return la tarea creada
+     */
+    public TareaAprovisionamiento encolar(Usuario usuario, String direccion,
+                                          String telefono, String documentoIdentidad) {
+        TareaAprovisionamiento tarea = new TareaAprovisionamiento();
+        tarea.setUsuarioId(usuario.getId());
+        tarea.setDireccion(direccion);
+        tarea.setTelefono(telefono);
+        tarea.setDocumentoIdentidad(documentoIdentidad);
+        tarea.setEstado(TareaAprovisionamiento.PENDIENTE);
+        tarea.setIntentos(0);
+        tarea.setProximoIntento(LocalDateTime.now());
+        return tareaRepository.save(tarea);
+    }
+
+    /**
+     * Encola (o reabre) la tarea de un usuario CLIENTE que quedó sin perfil
+     * Lo usa el barrido de reconciliación; el perfil se crea sin datos de contacto
+     * @param usuarioId ID del usuario
+     */
+    public void encolarPorReconciliacion(Long usuarioId) {
+        TareaAprovisionamiento tarea = tareaRepository.findByUsuarioId(usuarioId)
+            .orElseGet(() -> {
+                TareaAprovisionamiento nueva = new TareaAprovisionamiento();
+                nueva.setUsuarioId(usuarioId);
+                return nueva;
+            });
+        tarea.setEstado(TareaAprovisionamiento.PENDIENTE);
+        tarea.setIntentos(0);
+        tarea.setProximoIntento(LocalDateTime.now());
+        tarea.setUltimoError(null);
+        tareaRepository.save(tarea);
+    }
+}
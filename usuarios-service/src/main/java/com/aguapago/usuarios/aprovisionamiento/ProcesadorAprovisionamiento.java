@@ -0,0 +1,211 @@
+package com.aguapago.usuarios.aprovisionamiento;
+
+import com.aguapago.usuarios.entity.TareaAprovisionamiento;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.TareaAprovisionamientoRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import com.aguapago.usuarios.service.ClienteService;
+import com.aguapago.usuarios.tenant.RegistroTenants;
+import com.aguapago.usuarios.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Procesador de la cola de aprovisionamiento de perfiles de cliente
+ *
+ * - Toma un lote de tareas vencidas y les pone un lease (proximoIntento en
+ *   el futuro), así otra instancia no las toma mientras se procesan.
+ * - Cada tarea se procesa en su propia transacción: un fallo no afecta al
+ *   resto del lote.
+ * - Un fallo reprograma la tarea con backoff exponencial; al agotar los
+ *   intentos queda FALLIDA para revisión.
+ * - El barrido de reconciliación encola a los usuarios CLIENTE que no
+ *   tienen perfil ni tarea abierta (ej. datos cargados a mano o tareas
+ *   completadas cuyo cliente se borró).
+ * - Con varios tenants, cada pasada atiende un lote de cada uno.
+ */
+@Component
+public class ProcesadorAprovisionamiento {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcesadorAprovisionamiento.class);
+
+    @Autowired
+    private TareaAprovisionamientoRepository tareaRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private AprovisionamientoService aprovisionamientoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RegistroTenants registroTenants;
+
+    @Value("${aguapago.aprovisionamiento.tamano-lote:50}")
+    private int tamanoLote;
+
+    @Value("${aguapago.aprovisionamiento.max-intentos:8}")
+    private int maxIntentos;
+
+    @Value("${aguapago.aprovisionamiento.backoff-inicial:2s}")
+    private Duration backoffInicial;
+
+    @Value("${aguapago.aprovisionamiento.backoff-maximo:10m}")
+    private Duration backoffMaximo;
+
+    @Value("${aguapago.aprovisionamiento.lease:5m}")
+    private Duration lease;
+
+    // ====== PROCESAMIENTO ======
+
+    /**
+     * Procesa un lote de tareas vencidas de cada tenant
+     * @return cantidad de perfiles creados
+     */
+    @Scheduled(fixedDelayString = "${aguapago.aprovisionamiento.intervalo:1s}")
+    public int procesarPendientes() {
+        int creados = 0;
+        for (String tenant : registroTenants.getIds()) {
+            creados += TenantContext.ejecutarEn(tenant, this::procesarLote);
+        }
+        return creados;
+    }
+
+    private int procesarLote() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        List<Long> lote = transaccion.execute(estado -> tomarLote());
+
+        int creados = 0;
+        for (Long tareaId : lote) {
+            try {
+                if (Boolean.TRUE.equals(transaccion.execute(estado -> procesar(tareaId)))) {
+                    creados++;
+                }
+            } catch (RuntimeException e) {
+                transaccion.executeWithoutResult(estado -> registrarFallo(tareaId, e));
+            }
+        }
+        return creados;
+    }
+
+    private List<Long> tomarLote() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<TareaAprovisionamiento> tareas = tareaRepository.findListas(ahora, PageRequest.of(0, tamanoLote));
+        for (TareaAprovisionamiento tarea : tareas) {
+            tarea.setProximoIntento(ahora.plus(lease));
+        }
+        return tareas.stream().map(TareaAprovisionamiento::getId).toList();
+    }
+
+    /**
+     * Crea el perfil de una tarea
+     * @return true si se creó un cliente; false si ya existía
+     */
+    private boolean procesar(Long tareaId) {
+        TareaAprovisionamiento tarea = tareaRepository.findById(tareaId)
+            .orElseThrow(() -> new IllegalStateException("Tarea de aprovisionamiento no encontrada"));
+        tarea.setIntentos(tarea.getIntentos() + 1);
+
+        // Idempotente: si el perfil ya existe, la tarea está cumplida
+        boolean crear = !clienteRepository.existsByUsuarioId(tarea.getUsuarioId());
+        if (crear) {
+            clienteService.crearCliente(
+                tarea.getUsuarioId(),
+                clienteService.generarCodigoCliente(),
+                tarea.getDireccion(),
+                tarea.getTelefono(),
+                tarea.getDocumentoIdentidad());
+        }
+        tarea.setEstado(TareaAprovisionamiento.COMPLETADA);
+        tarea.setUltimoError(null);
+        return crear;
+    }
+
+    private void registrarFallo(Long tareaId, RuntimeException error) {
+        tareaRepository.findById(tareaId).ifPresent(tarea -> {
+            int intentos = tarea.getIntentos() + 1;
+            tarea.setIntentos(intentos);
+            tarea.setUltimoError(recortar(error.getMessage()));
+            if (intentos >= maxIntentos) {
+                tarea.setEstado(TareaAprovisionamiento.FALLIDA);
+                log.error("Aprovisionamiento del usuario {} FALLIDO tras {} intentos: {}",
+                    tarea.getUsuarioId(), intentos, error.getMessage());
+            } else {
+                tarea.setProximoIntento(LocalDateTime.now().plus(backoff(intentos)));
+                log.warn("Aprovisionamiento del usuario {} falló (intento {}), se reintenta: {}",
+                    tarea.getUsuarioId(), intentos, error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Backoff exponencial: inicial * 2^(intentos-1), con tope
+     */
+    private Duration backoff(int intentos) {
+        Duration espera = backoffInicial.multipliedBy(1L << Math.min(intentos - 1, 20));
+        return espera.compareTo(backoffMaximo) > 0 ? backoffMaximo : espera;
+    }
+
+    // ====== RECONCILIACIÓN ======
+
+    /**
+     * Encola a los usuarios CLIENTE que quedaron sin perfil, en cada tenant
+     * @return cantidad de usuarios encolados
+     */
+    @Scheduled(fixedDelayString = "${aguapago.aprovisionamiento.intervalo-reconciliacion:5m}",
+               initialDelayString = "${aguapago.aprovisionamiento.intervalo-reconciliacion:5m}")
+    public int reconciliar() {
+        int total = 0;
+        for (String tenant : registroTenants.getIds()) {
+            total += TenantContext.ejecutarEn(tenant, this::reconciliarTenant);
+        }
+        return total;
+    }
+
+    private int reconciliarTenant() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int total = 0;
+        List<Long> usuarios;
+        do {
+            usuarios = transaccion.execute(estado -> {
+                List<Long> ids = usuarioRepository.findIdsClientesSinPerfil(PageRequest.of(0, tamanoLote));
+                ids.forEach(aprovisionamientoService::encolarPorReconciliacion);
+                return ids;
+            });
+            total += usuarios.size();
+        } while (usuarios.size() == tamanoLote);
+
+        if (total > 0) {
+            log.info("Reconciliación (tenant {}): {} usuarios CLIENTE sin perfil encolados",
+                TenantContext.actual(), total);
+        }
+        return total;
+    }
+
+    private static String recortar(String mensaje) {
+        if (mensaje == null) {
+            return null;
+        }
+        return mensaje.length() <= 500 ? mensaje : mensaje.substring(0, 500);
+    }
+}
@@ -0,0 +1,54 @@
+package com.aguapago.usuarios.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuración del executor para consultas GraphQL asíncronas
+ *
+ * Los resolvers de consulta devuelven CompletableFuture sobre este executor,
+ * así graphql-java resuelve en paralelo los campos raíz independientes de
+ * una misma operación. El tamaño coincide con el pool de conexiones: más
+ * hilos que conexiones solo harían esperar en Hikari.
+ *
+ * Cada tarea corre con el contexto de la petición que la envió
+ * (ContextPropagatingTaskDecorator): su tenant y su observación en curso,
+ * así el SQL del resolver va a la base correcta y cuelga de su traza.
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Bean(name = "consultasExecutor")
+    public Executor consultasExecutor(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+            @Value("${aguapago.consultas.cola:500}") int capacidadCola,
+            @Value("${spring.threads.virtual.enabled:false}") boolean hilosVirtuales) {
+        ContextPropagatingTaskDecorator decorador = new ContextPropagatingTaskDecorator();
+        if (hilosVirtuales) {
+            // Un hilo virtual por consulta, con el mismo tope de concurrencia que el pool
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("consulta-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(tamanoPool);
+            executor.setTaskDecorator(decorador);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(tamanoPool);
+        executor.setMaxPoolSize(tamanoPool);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("consulta-");
+        executor.setTaskDecorator(decorador);
+        // Con la cola llena, la consulta corre en el hilo de la petición (contrapresión)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,93 @@
+package com.aguapago.usuarios.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Ventana de lectura propia de quien hace la petición en curso
+ *
+ * La establece LecturaPropiaFilter al inicio de cada petición HTTP, a partir
+ * de la cookie que recibió el cliente tras su última escritura. Mientras la
+ * ventana está abierta, sus transacciones readOnly van a la primaria
+ * (ReplicaRoutingDataSource). Solo la abre una transacción de esta misma
+ * sesión que escribió filas (ObservadorEscrituras): los procesos programados
+ * no tienen sesión y no afectan a nadie.
+ *
+ * context-propagation copia la sesión a los hilos de los resolvers, así la
+ * escritura de un resolver se ve en la misma petición.
+ */
+public final class LecturaPropia {
+
+    private static final ThreadLocal<Sesion> ACTUAL = new ThreadLocal<>();
+
+    private LecturaPropia() {
+    }
+
+    /** Sesión del hilo actual (null fuera de una petición HTTP) */
+    public static Sesion actual() {
+        return ACTUAL.get();
+    }
+
+    static void establecer(Sesion sesion) {
+        ACTUAL.set(sesion);
+    }
+
+    static void limpiar() {
+        ACTUAL.remove();
+    }
+
+    /**
+     * Si las lecturas del hilo actual deben ir a la primaria
+     */
+    static boolean requierePrimaria() {
+        Sesion sesion = ACTUAL.get();
+        return sesion != null && System.currentTimeMillis() < sesion.getPrimariaHasta();
+    }
+
+    /**
+     * Ejecuta una acción con la sesión dada y restaura la anterior al terminar
+     */
+    public static <T> T ejecutarEn(Sesion sesion, Supplier<T> accion) {
+        Sesion anterior = ACTUAL.get();
+        ACTUAL.set(sesion);
+        try {
+            return accion.get();
+        } finally {
+            if (anterior != null) {
+                ACTUAL.set(anterior);
+            } else {
+                ACTUAL.remove();
+            }
+        }
+    }
+
+    /**
+     * Estado de una petición: hasta cuándo lee de la primaria y si escribió
+     * Se comparte entre los hilos que atienden la misma petición.
+     */
+    public static final class Sesion {
+
+        private volatile long primariaHasta;
+        private volatile boolean escribio;
+
+        /**
+         * @param primariaHasta instante (epoch ms) en que se cierra la ventana; 0 si no hay
+         */
+        public Sesion(long primariaHasta) {
+            this.primariaHasta = primariaHasta;
+        }
+
+        public long getPrimariaHasta() {
+            return primariaHasta;
+        }
+
+        public boolean isEscribio() {
+            return escribio;
+        }
+
+        /** Abre (o extiende) la ventana tras una escritura confirmada */
+        synchronized void registrarEscritura(long hasta) {
+            primariaHasta = Math.max(primariaHasta, hasta);
+            escribio = true;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.aguapago.usuarios.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Abre la sesión de lectura propia de cada petición
+ *
+ * La ventana viene en la cookie COOKIE (instante epoch ms en que se cierra),
+ * que LecturaPropiaInterceptor envía al cliente tras una escritura. Un valor
+ * más allá de la ventana configurada se recorta: el cliente no puede fijar
+ * sus lecturas en la primaria indefinidamente.
+ */
+public class LecturaPropiaFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "aguapago-primaria-hasta";
+
+    /** Atributo de la petición con la sesión, para LecturaPropiaInterceptor */
+    static final String ATRIBUTO = LecturaPropiaFilter.class.getName() + ".sesion";
+
+    private final long ventanaMillis;
+
+    public LecturaPropiaFilter(Duration ventana) {
+        this.ventanaMillis = ventana.toMillis();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        LecturaPropia.Sesion sesion = new LecturaPropia.Sesion(primariaHasta(request));
+        request.setAttribute(ATRIBUTO, sesion);
+        LecturaPropia.establecer(sesion);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            LecturaPropia.limpiar();
+        }
+    }
+
+    private long primariaHasta(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.min(Long.parseLong(cookie.getValue()), System.currentTimeMillis() + ventanaMillis);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
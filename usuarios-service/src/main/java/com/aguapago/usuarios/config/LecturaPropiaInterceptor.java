@@ -0,0 +1,45 @@
+package com.aguapago.usuarios.config;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Si la petición escribió, devuelve al cliente la cookie con su ventana de
+ * lectura propia (ver LecturaPropiaFilter)
+ *
+ * Así la siguiente petición del mismo cliente, aunque llegue a otra
+ * instancia, lee de la primaria hasta que la réplica alcance su escritura.
+ */
+public class LecturaPropiaInterceptor implements WebGraphQlInterceptor {
+
+    private final Duration ventana;
+
+    public LecturaPropiaInterceptor(Duration ventana) {
+        this.ventana = ventana;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        Object sesion = request.getAttributes().get(LecturaPropiaFilter.ATRIBUTO);
+        if (!(sesion instanceof LecturaPropia.Sesion propia)) {
+            return chain.next(request);
+        }
+        return chain.next(request).doOnNext(respuesta -> {
+            if (propia.isEscribio()) {
+                ResponseCookie cookie = ResponseCookie.from(LecturaPropiaFilter.COOKIE, String.valueOf(propia.getPrimariaHasta()))
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .maxAge(ventana.plusMillis(999).toSeconds())
+                    .build();
+                respuesta.getResponseHeaders().add(HttpHeaders.SET_COOKIE, cookie.toString());
+            }
+        });
+    }
+}
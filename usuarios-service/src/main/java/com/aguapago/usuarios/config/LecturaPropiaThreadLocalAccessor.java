@@ -0,0 +1,34 @@
+package com.aguapago.usuarios.config;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Expone LecturaPropia a context-propagation
+ *
+ * Igual que el tenant: Spring GraphQL y los executors restauran la sesión
+ * en el hilo de cada resolver.
+ */
+class LecturaPropiaThreadLocalAccessor implements ThreadLocalAccessor<LecturaPropia.Sesion> {
+
+    static final String CLAVE = "aguapago.lectura-propia";
+
+    @Override
+    public Object key() {
+        return CLAVE;
+    }
+
+    @Override
+    public LecturaPropia.Sesion getValue() {
+        return LecturaPropia.actual();
+    }
+
+    @Override
+    public void setValue(LecturaPropia.Sesion sesion) {
+        LecturaPropia.establecer(sesion);
+    }
+
+    @Override
+    public void setValue() {
+        LecturaPropia.limpiar();
+    }
+}
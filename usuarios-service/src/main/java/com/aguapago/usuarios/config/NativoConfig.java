@@ -0,0 +1,52 @@
+package com.aguapago.usuarios.config;
+
+import com.aguapago.usuarios.dto.AuthResponse;
+import com.aguapago.usuarios.dto.CambioSincronizacionDTO;
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.PaginaCambiosDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Pistas para la imagen nativa de GraalVM (perfil Maven "native")
+ *
+ * Spring AOT ya registra las entidades, los repositorios y los tipos de los
+ * resolvers GraphQL. Faltan dos cosas que solo se conocen al ejecutar:
+ * - Las migraciones por vendor: el {vendor} de spring.flyway.locations se
+ *   resuelve al conectarse, y Spring Boot solo incluye db/migration/*.
+ * - Los DTOs que el outbox serializa con Jackson y los que los resolvers
+ *   devuelven dentro de un CompletableFuture.
+ * - Los proxies JDBC de DataSourceObservado.
+ *
+ * En la JVM no tiene efecto.
+ */
+@Configuration
+@ImportRuntimeHints(NativoConfig.Pistas.class)
+public class NativoConfig {
+
+    static class Pistas implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("db/migration/postgresql/*.sql");
+
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                UsuarioDTO.class, ClienteDTO.class, AuthResponse.class,
+                CambioSincronizacionDTO.class, PaginaCambiosDTO.class);
+
+            hints.proxies().registerJdkProxy(Connection.class);
+            hints.proxies().registerJdkProxy(Statement.class);
+            hints.proxies().registerJdkProxy(PreparedStatement.class);
+            hints.proxies().registerJdkProxy(CallableStatement.class);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.aguapago.usuarios.config;
+
+import com.aguapago.usuarios.jdbc.ObservadorSql;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Abre la ventana de lectura propia de la sesión que escribió
+ *
+ * Una transacción de escritura que ejecutó al menos un INSERT, UPDATE,
+ * DELETE o MERGE abre la ventana al confirmarse (afterCommit); una que solo
+ * leyó, o que se revirtió, no cambia nada. Sin sesión (procesos programados,
+ * relay del outbox) no hay ventana que abrir.
+ */
+public class ObservadorEscrituras implements ObservadorSql {
+
+    private static final Set<String> ESCRITURAS = Set.of("insert", "update", "delete", "merge");
+
+    /** Recurso de la transacción: su sincronización ya está registrada */
+    private static final Object CLAVE = new Object();
+
+    private final long ventanaMillis;
+
+    public ObservadorEscrituras(Duration ventana) {
+        this.ventanaMillis = ventana.toMillis();
+    }
+
+    @Override
+    public void fin(Object inicio, String sql, long nanos, Throwable error) {
+        LecturaPropia.Sesion sesion = LecturaPropia.actual();
+        if (error != null || sesion == null
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || TransactionSynchronizationManager.hasResource(CLAVE)
+                || !esEscritura(sql)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(CLAVE, sesion);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sesion.registrarEscritura(System.currentTimeMillis() + ventanaMillis);
+            }
+
+            @Override
+            public void afterCompletion(int estado) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CLAVE);
+            }
+        });
+    }
+
+    /** Si la primera palabra del SQL (sin comentarios) modifica filas */
+    static boolean esEscritura(String sql) {
+        int i = 0;
+        while (i < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int fin = sql.indexOf("*/", i + 2);
+                i = fin < 0 ? sql.length() : fin + 2;
+            } else if (sql.startsWith("--", i)) {
+                int fin = sql.indexOf('\n', i);
+                i = fin < 0 ? sql.length() : fin + 1;
+            } else {
+                break;
+            }
+        }
+        int fin = i;
+        while (fin < sql.length() && Character.isLetter(sql.charAt(fin))) {
+            fin++;
+        }
+        return ESCRITURAS.contains(sql.substring(i, fin).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,104 @@
+package com.aguapago.usuarios.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.context.ContextRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enrutamiento de lecturas a réplicas de PostgreSQL
+ *
+ * Solo se activa si se define aguapago.replicas.urls (lista separada por comas).
+ * La primaria se configura con las propiedades spring.datasource.* de siempre;
+ * cada réplica recibe su propio pool Hikari.
+ *
+ * Lectura propia: quien escribe recibe una cookie con su ventana
+ * (ventana-lectura-propia) y, mientras dure, sus lecturas van a la primaria
+ * (ver LecturaPropia). Los demás clientes siguen leyendo de las réplicas.
+ *
+ * En el perfil reactivo las lecturas van por R2DBC, así que no aplica.
+ * Tampoco con varios tenants (aguapago.tenants.ids): cada uno tiene su pool.
+ */
+@Configuration
+@Profile("!reactivo")
+@ConditionalOnExpression("'${aguapago.replicas.urls:}' != '' and '${aguapago.tenants.ids:}' == ''")
+public class ReplicaDataSourceConfig {
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(new LecturaPropiaThreadLocalAccessor());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 @Value("${aguapago.replicas.urls}") List<String> urlsReplicas,
+                                 @Value("${aguapago.replicas.username:${spring.datasource.username}}") String usuario,
+                                 @Value("${aguapago.replicas.password:${spring.datasource.password}}") String password,
+                                 @Value("${aguapago.replicas.pool-size:10}") int tamanoPool) {
+        HikariDataSource primaria = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // Aplica spring.datasource.hikari.* a la primaria, como haría Spring Boot
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaria));
+        primaria.setPoolName("primaria");
+
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(ReplicaRoutingDataSource.PRIMARIA, primaria);
+        for (int i = 0; i < urlsReplicas.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName(ReplicaRoutingDataSource.REPLICA + i);
+            replica.setJdbcUrl(urlsReplicas.get(i).trim());
+            replica.setUsername(usuario);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(tamanoPool);
+            replica.setReadOnly(true);
+            destinos.put(ReplicaRoutingDataSource.REPLICA + i, replica);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(urlsReplicas.size());
+        routing.setTargetDataSources(destinos);
+        routing.setDefaultTargetDataSource(primaria);
+        routing.afterPropertiesSet();
+
+        // La conexión real se pide en la primera sentencia, cuando ya se sabe si es readOnly
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LecturaPropiaFilter> lecturaPropiaFilter(
+            @Value("${aguapago.replicas.ventana-lectura-propia:2s}") Duration ventana) {
+        FilterRegistrationBean<LecturaPropiaFilter> registracion = new FilterRegistrationBean<>(new LecturaPropiaFilter(ventana));
+        // Justo después de TenantFilter, antes de cualquier acceso a la base
+        registracion.setOrder(Ordered.HIGHEST_PRECEDENCE + 11);
+        return registracion;
+    }
+
+    @Bean
+    public LecturaPropiaInterceptor lecturaPropiaInterceptor(
+            @Value("${aguapago.replicas.ventana-lectura-propia:2s}") Duration ventana) {
+        return new LecturaPropiaInterceptor(ventana);
+    }
+
+    @Bean
+    public ObservadorEscrituras observadorEscrituras(
+            @Value("${aguapago.replicas.ventana-lectura-propia:2s}") Duration ventana) {
+        return new ObservadorEscrituras(ventana);
+    }
+}
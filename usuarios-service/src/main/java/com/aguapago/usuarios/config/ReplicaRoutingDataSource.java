@@ -0,0 +1,44 @@
+package com.aguapago.usuarios.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource que envía las transacciones readOnly a las réplicas
+ *
+ * - Transacción de solo lectura → una réplica (round-robin)
+ * - Transacción de escritura o sin transacción → la primaria
+ *
+ * Guardia de lectura propia: si la sesión en curso escribió hace menos de
+ * la ventana configurada (LecturaPropia), sus lecturas siguen yendo a la
+ * primaria, para que no lea datos atrasados de una réplica. Las escrituras
+ * de otros clientes y de los procesos programados no la afectan.
+ *
+ * Debe envolverse en un LazyConnectionDataSourceProxy: la clave se decide al
+ * ejecutar la primera sentencia, cuando la transacción ya marcó readOnly.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARIA = "primaria";
+    static final String REPLICA = "replica-";
+
+    private final int cantidadReplicas;
+    private final AtomicInteger siguiente = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(int cantidadReplicas) {
+        this.cantidadReplicas = cantidadReplicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARIA;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || LecturaPropia.requierePrimaria()) {
+            return PRIMARIA;
+        }
+        return REPLICA + Math.floorMod(siguiente.getAndIncrement(), cantidadReplicas);
+    }
+}
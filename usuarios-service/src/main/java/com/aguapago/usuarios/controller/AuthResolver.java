@@ -3,9 +3,11 @@ package com.aguapago.usuarios.controller;
 import com.aguapago.usuarios.dto.AuthResponse;
 import com.aguapago.usuarios.dto.LoginInput;
 import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.security.IpOrigenInterceptor;
 import com.aguapago.usuarios.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.ContextValue;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.stereotype.Controller;
 
@@ -23,11 +25,13 @@ public class AuthResolver {
      * Login simple
      * Si el login falla, devuelve null en los campos y mensaje de error
      * Si el login es exitoso, devuelve los datos del usuario
+     * La IP de origen la deja IpOrigenInterceptor en el contexto GraphQL
      */
     @MutationMapping
-    public AuthResponse login(@Argument LoginInput input) {
+    public AuthResponse login(@Argument LoginInput input,
+                              @ContextValue(name = IpOrigenInterceptor.IP_ORIGEN, required = false) String ipOrigen) {
         try {
-            Usuario usuario = authService.login(input.getEmail(), input.getPassword());
+            Usuario usuario = authService.login(input.getEmail(), input.getPassword(), ipOrigen);
             return AuthResponse.fromUsuario(usuario);
         } catch (Exception e) {
             // Devolver respuesta con solo el mensaje de error
@@ -1,16 +1,31 @@
 package com.aguapago.usuarios.controller;
 
+import com.aguapago.usuarios.directorio.DirectorioClientes;
+import com.aguapago.usuarios.dto.ActualizarClienteInput;
 import com.aguapago.usuarios.dto.ClienteDTO;
 import com.aguapago.usuarios.dto.ClienteInput;
 import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.incremental.TramoStream;
+import com.aguapago.usuarios.service.AuthService;
+import com.aguapago.usuarios.service.BusquedaMultiple;
 import com.aguapago.usuarios.service.ClienteService;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -20,13 +35,33 @@ import java.util.stream.Collectors;
  * - Consultas (obtener clientes)
  * - Creación y actualización de perfiles
  * - Generación de códigos
+ *
+ * En el perfil "reactivo" lo reemplaza ClienteReactivoResolver
  */
 @Controller
+@Profile("!reactivo")
 public class ClienteResolver {
 
     @Autowired
     private ClienteService clienteService;
 
+    @Autowired
+    private BusquedaMultiple busquedaMultiple;
+
+    @Autowired
+    private AuthService authService;
+
+    /**
+     * Executor acotado al pool de conexiones (ver AsyncConfig)
+     */
+    @Autowired
+    @Qualifier("consultasExecutor")
+    private Executor consultasExecutor;
+
+    /** null si aguapago.directorio.habilitado=false */
+    @Autowired(required = false)
+    private DirectorioClientes directorioClientes;
+
     // ========================================
     // QUERIES (Consultas)
     // ========================================
@@ -34,13 +69,17 @@ public class ClienteResolver {
     /**
      * Obtiene todos los clientes
      * GraphQL: obtenerTodosLosClientes
+     * Con @stream lee solo el tramo pedido (ver TramoStream)
      */
     @QueryMapping
-    public List<ClienteDTO> obtenerTodosLosClientes() {
-        return clienteService.obtenerTodosLosClientes()
+    public CompletableFuture<List<ClienteDTO>> obtenerTodosLosClientes(DataFetchingEnvironment environment) {
+        TramoStream tramo = TramoStream.de(environment);
+        return CompletableFuture.supplyAsync(() -> (tramo == null
+                ? clienteService.obtenerTodosLosClientes()
+                : tramo.leer(clienteService::obtenerClientesDesde, Cliente::getId))
             .stream()
             .map(ClienteDTO::fromEntity)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()), consultasExecutor);
     }
 
     /**
@@ -48,21 +87,77 @@ public class ClienteResolver {
      * GraphQL: obtenerClientePorId(id: ID!)
      */
     @QueryMapping
-    public ClienteDTO obtenerClientePorId(@Argument Long id) {
-        return clienteService.obtenerClientePorId(id)
+    public CompletableFuture<ClienteDTO> obtenerClientePorId(@Argument Long id) {
+        return CompletableFuture.supplyAsync(() -> clienteService.obtenerClientePorId(id)
             .map(ClienteDTO::fromEntity)
-            .orElse(null);
+            .orElse(null), consultasExecutor);
     }
 
     /**
      * Obtiene un cliente por su código
      * GraphQL: obtenerClientePorCodigo(codigo: String!)
+     * Primero en el directorio (sin hilo ni conexión); si no está, en la base
+     * (en la primaria, ver DirectorioClientes.leerYRecordar)
      */
     @QueryMapping
-    public ClienteDTO obtenerClientePorCodigo(@Argument String codigo) {
-        return clienteService.obtenerClientePorCodigo(codigo)
-            .map(ClienteDTO::fromEntity)
-            .orElse(null);
+    public CompletableFuture<ClienteDTO> obtenerClientePorCodigo(@Argument String codigo) {
+        ClienteDTO enDirectorio = directorioClientes == null ? null : directorioClientes.buscar(codigo);
+        if (enDirectorio != null) {
+            return CompletableFuture.completedFuture(enDirectorio);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            Supplier<List<ClienteDTO>> lectura = () -> clienteService.obtenerClientePorCodigo(codigo)
+                .map(ClienteDTO::fromEntity)
+                .stream()
+                .toList();
+            List<ClienteDTO> leidos = directorioClientes == null ? lectura.get() : directorioClientes.leerYRecordar(lectura);
+            return leidos.isEmpty() ? null : leidos.get(0);
+        }, consultasExecutor);
+    }
+
+    /**
+     * Obtiene varios clientes por código, en el orden pedido (null si no existe)
+     * Solo ADMIN (si no, lista vacía)
+     * GraphQL: obtenerClientesPorCodigos(codigos: [String!]!, usuarioEmail: String!)
+     * Los que están en el directorio no van a la base; el resto, con un
+     * SELECT ... IN por tramo
+     */
+    @QueryMapping
+    public CompletableFuture<List<ClienteDTO>> obtenerClientesPorCodigos(@Argument List<String> codigos,
+                                                                         @Argument String usuarioEmail) {
+        busquedaMultiple.validar(codigos);
+        return CompletableFuture.supplyAsync(() -> {
+            if (!authService.tieneRol(usuarioEmail, "ADMIN")) {
+                return List.<ClienteDTO>of();
+            }
+            List<ClienteDTO> resultado = new ArrayList<>(codigos.size());
+            List<String> faltantes = new ArrayList<>();
+            for (String codigo : codigos) {
+                ClienteDTO enDirectorio = directorioClientes == null ? null : directorioClientes.buscar(codigo);
+                resultado.add(enDirectorio);
+                if (enDirectorio == null) {
+                    faltantes.add(codigo);
+                }
+            }
+            if (faltantes.isEmpty()) {
+                return resultado;
+            }
+
+            Supplier<List<ClienteDTO>> lectura = () -> clienteService.obtenerClientesPorCodigos(faltantes).stream()
+                .filter(Objects::nonNull)
+                .map(ClienteDTO::fromEntity)
+                .toList();
+            Map<String, ClienteDTO> leidos = new HashMap<>();
+            for (ClienteDTO cliente : directorioClientes == null ? lectura.get() : directorioClientes.leerYRecordar(lectura)) {
+                leidos.put(cliente.getCodigoCliente(), cliente);
+            }
+            for (int i = 0; i < codigos.size(); i++) {
+                if (resultado.get(i) == null) {
+                    resultado.set(i, leidos.get(codigos.get(i)));
+                }
+            }
+            return resultado;
+        }, consultasExecutor);
     }
 
     /**
@@ -70,10 +165,10 @@ public class ClienteResolver {
      * GraphQL: obtenerClientePorUsuarioId(usuarioId: ID!)
      */
     @QueryMapping
-    public ClienteDTO obtenerClientePorUsuarioId(@Argument Long usuarioId) {
-        return clienteService.obtenerClientePorUsuarioId(usuarioId)
+    public CompletableFuture<ClienteDTO> obtenerClientePorUsuarioId(@Argument Long usuarioId) {
+        return CompletableFuture.supplyAsync(() -> clienteService.obtenerClientePorUsuarioId(usuarioId)
             .map(ClienteDTO::fromEntity)
-            .orElse(null);
+            .orElse(null), consultasExecutor);
     }
 
     // ========================================
@@ -102,14 +197,13 @@ public class ClienteResolver {
      */
     @MutationMapping
     public ClienteDTO actualizarCliente(@Argument Long id,
-                                        @Argument String direccion,
-                                        @Argument String telefono,
-                                        @Argument String documentoIdentidad) {
+                                        @Argument ActualizarClienteInput input) {
         Cliente cliente = clienteService.actualizarCliente(
             id, 
-            direccion, 
-            telefono, 
-            documentoIdentidad
+            input.getDireccion(), 
+            input.getTelefono(), 
+            input.getDocumentoIdentidad(),
+            input.getVersion()
         );
         return ClienteDTO.fromEntity(cliente);
     }
@@ -0,0 +1,53 @@
+package com.aguapago.usuarios.controller;
+
+import com.aguapago.usuarios.dto.PaginaCambiosDTO;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.service.SincronizacionService;
+import com.aguapago.usuarios.service.UsuarioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolver GraphQL de la sincronización incremental de la app móvil
+ *
+ * No está disponible en el perfil "reactivo"
+ */
+@Controller
+@Profile("!reactivo")
+public class SincronizacionResolver {
+
+    @Autowired
+    private SincronizacionService sincronizacionService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    @Qualifier("consultasExecutor")
+    private Executor consultasExecutor;
+
+    /**
+     * Obtiene los usuarios y clientes que cambiaron desde la última sincronización
+     * ADMIN recibe todos; cualquier otro usuario, solo su usuario y su cliente
+     * GraphQL: obtenerCambiosDesde(usuarioEmail: String!, desde: String, first: Int, after: String)
+     */
+    @QueryMapping
+    public CompletableFuture<PaginaCambiosDTO> obtenerCambiosDesde(@Argument String usuarioEmail,
+                                                                  @Argument String desde,
+                                                                  @Argument Integer first,
+                                                                  @Argument String after) {
+        return CompletableFuture.supplyAsync(() -> {
+            Usuario usuario = usuarioService.obtenerUsuarioPorEmail(usuarioEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + usuarioEmail));
+            Long alcance = "ADMIN".equals(usuario.getRol()) ? null : usuario.getId();
+            return sincronizacionService.obtenerCambiosDesde(desde, first, after, alcance);
+        }, consultasExecutor);
+    }
+}
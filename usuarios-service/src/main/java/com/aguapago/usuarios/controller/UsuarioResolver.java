@@ -2,16 +2,25 @@ package com.aguapago.usuarios.controller;
 
 import com.aguapago.usuarios.dto.RegistroUsuarioInput;
 import com.aguapago.usuarios.dto.ActualizarUsuarioInput;
+import com.aguapago.usuarios.dto.EstadisticasUsuariosDTO;
+import com.aguapago.usuarios.dto.FiltroUsuariosInput;
 import com.aguapago.usuarios.dto.UsuarioDTO;
 import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.incremental.TramoStream;
+import com.aguapago.usuarios.service.EstadisticasService;
 import com.aguapago.usuarios.service.UsuarioService;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 import com.aguapago.usuarios.service.AuthService;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -22,16 +31,31 @@ import java.util.stream.Collectors;
  * - Registro y actualización
  * - Cambio de contraseña
  * - Activar/desactivar usuarios
+ *
+ * En el perfil "reactivo" lo reemplaza UsuarioReactivoResolver
  */
 @Controller
+@Profile("!reactivo")
 public class UsuarioResolver {
 
     @Autowired
     private UsuarioService usuarioService;
 
+    @Autowired
+    private EstadisticasService estadisticasService;
+
     @Autowired
 private AuthService authService; 
 
+    /**
+     * Executor acotado al pool de conexiones
+     * Las queries devuelven CompletableFuture para que los campos raíz
+     * independientes de una operación se resuelvan en paralelo
+     */
+    @Autowired
+    @Qualifier("consultasExecutor")
+    private Executor consultasExecutor;
+
     // ========================================
     // QUERIES (Consultas)
     // ========================================
@@ -43,17 +67,19 @@ private AuthService authService;
  * GraphQL: obtenerTodosLosUsuarios(usuarioEmail: String!)
  */
 @QueryMapping
-public List<UsuarioDTO> obtenerTodosLosUsuarios(@Argument String usuarioEmail) {
-    // Validar que sea ADMIN
-    if (!authService.tieneRol(usuarioEmail, "ADMIN")) {
-        // Devolver lista vacía en lugar de error
-        return List.of(); // Lista vacía
-    }
-    
-    return usuarioService.obtenerTodosLosUsuarios()
-        .stream()
-        .map(UsuarioDTO::fromEntity)
-        .collect(Collectors.toList());
+public CompletableFuture<List<UsuarioDTO>> obtenerTodosLosUsuarios(@Argument String usuarioEmail) {
+    return CompletableFuture.supplyAsync(() -> {
+        // Validar que sea ADMIN
+        if (!authService.tieneRol(usuarioEmail, "ADMIN")) {
+            // Devolver lista vacía en lugar de error
+            return List.<UsuarioDTO>of(); // Lista vacía
+        }
+
+        return usuarioService.obtenerTodosLosUsuarios()
+            .stream()
+            .map(UsuarioDTO::fromEntity)
+            .collect(Collectors.toList());
+    }, consultasExecutor);
 }
 
     /**
@@ -63,44 +89,84 @@ public List<UsuarioDTO> obtenerTodosLosUsuarios(@Argument String usuarioEmail) {
  * GraphQL: obtenerUsuarioPorId(id: ID!, usuarioEmail: String!)
  */
 @QueryMapping
-public UsuarioDTO obtenerUsuarioPorId(@Argument Long id, @Argument String usuarioEmail) {
-    // Verificar si es ADMIN
-    boolean esAdmin = authService.tieneRol(usuarioEmail, "ADMIN");
-    
-    // Verificar si es el propietario
-    boolean esPropietario = authService.esPropietario(usuarioEmail, id);
-    
-    // Validar permisos
-    if (!esAdmin && !esPropietario) {
-        return null;
-    }
-    
-    return usuarioService.obtenerUsuarioPorId(id)
-        .map(UsuarioDTO::fromEntity)
-        .orElse(null);
+public CompletableFuture<UsuarioDTO> obtenerUsuarioPorId(@Argument Long id, @Argument String usuarioEmail) {
+    return CompletableFuture.supplyAsync(() -> {
+        // Verificar si es ADMIN
+        boolean esAdmin = authService.tieneRol(usuarioEmail, "ADMIN");
+
+        // Verificar si es el propietario
+        boolean esPropietario = authService.esPropietario(usuarioEmail, id);
+
+        // Validar permisos
+        if (!esAdmin && !esPropietario) {
+            return null;
+        }
+
+        return usuarioService.obtenerUsuarioPorId(id)
+            .map(UsuarioDTO::fromEntity)
+            .orElse(null);
+    }, consultasExecutor);
 }
 
+    /**
+     * Obtiene varios usuarios por ID, en el orden pedido (null si no existe)
+     * Solo ADMIN (si no, lista vacía)
+     * GraphQL: obtenerUsuariosPorIds(ids: [ID!]!, usuarioEmail: String!)
+     */
+    @QueryMapping
+    public CompletableFuture<List<UsuarioDTO>> obtenerUsuariosPorIds(@Argument List<Long> ids,
+                                                                     @Argument String usuarioEmail) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!authService.tieneRol(usuarioEmail, "ADMIN")) {
+                return List.<UsuarioDTO>of();
+            }
+            return usuarioService.obtenerUsuariosPorIds(ids)
+                .stream()
+                .map(u -> u == null ? null : UsuarioDTO.fromEntity(u))
+                .collect(Collectors.toList());
+        }, consultasExecutor);
+    }
+
     /**
      * Obtiene un usuario por su email
      * GraphQL: obtenerUsuarioPorEmail(email: String!)
      */
     @QueryMapping
-    public UsuarioDTO obtenerUsuarioPorEmail(@Argument String email) {
-        return usuarioService.obtenerUsuarioPorEmail(email)
+    public CompletableFuture<UsuarioDTO> obtenerUsuarioPorEmail(@Argument String email) {
+        return CompletableFuture.supplyAsync(() -> usuarioService.obtenerUsuarioPorEmail(email)
             .map(UsuarioDTO::fromEntity)
-            .orElse(null);
+            .orElse(null), consultasExecutor);
     }
 
     /**
      * Obtiene usuarios por rol
      * GraphQL: obtenerUsuariosPorRol(rol: String!)
+     * Con @stream lee solo el tramo pedido (ver TramoStream)
      */
     @QueryMapping
-    public List<UsuarioDTO> obtenerUsuariosPorRol(@Argument String rol) {
-        return usuarioService.obtenerUsuariosPorRol(rol)
+    public CompletableFuture<List<UsuarioDTO>> obtenerUsuariosPorRol(@Argument String rol,
+                                                                     DataFetchingEnvironment environment) {
+        TramoStream tramo = TramoStream.de(environment);
+        return CompletableFuture.supplyAsync(() -> (tramo == null
+                ? usuarioService.obtenerUsuariosPorRol(rol)
+                : tramo.leer((despuesDe, cantidad) -> usuarioService.obtenerUsuariosPorRolDesde(rol, despuesDe, cantidad),
+                    Usuario::getId))
             .stream()
             .map(UsuarioDTO::fromEntity)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()), consultasExecutor);
+    }
+
+    /**
+     * Totales del panel de administración (agregados en SQL, sin traer filas)
+     * Solo ADMIN (si no, null)
+     * GraphQL: estadisticasUsuarios(usuarioEmail: String!, meses: Int = 12)
+     */
+    @QueryMapping
+    public CompletableFuture<EstadisticasUsuariosDTO> estadisticasUsuarios(@Argument String usuarioEmail,
+                                                                          @Argument Integer meses) {
+        return CompletableFuture.supplyAsync(() -> authService.tieneRol(usuarioEmail, "ADMIN")
+            ? estadisticasService.obtenerEstadisticas(meses)
+            : null, consultasExecutor);
     }
 
     // ========================================
@@ -138,7 +204,8 @@ public UsuarioDTO actualizarUsuario(@Argument Long id,
         id, 
         input.getNombre(), 
         input.getApellido(), 
-        input.getEmail()
+        input.getEmail(),
+        input.getVersion()
     );
     return UsuarioDTO.fromEntity(usuario);
 }
@@ -155,11 +222,45 @@ public UsuarioDTO actualizarUsuario(@Argument Long id,
 
     /**
      * Activa o desactiva un usuario
-     * GraphQL: cambiarEstadoUsuario(id: ID!, activo: Boolean!)
+     * GraphQL: cambiarEstadoUsuario(id: ID!, activo: Boolean!, version: Int)
      */
     @MutationMapping
-    public UsuarioDTO cambiarEstadoUsuario(@Argument Long id, @Argument Boolean activo) {
-        Usuario usuario = usuarioService.cambiarEstadoUsuario(id, activo);
+    public UsuarioDTO cambiarEstadoUsuario(@Argument Long id, @Argument Boolean activo,
+                                          @Argument Long version) {
+        Usuario usuario = usuarioService.cambiarEstadoUsuario(id, activo, version);
         return UsuarioDTO.fromEntity(usuario);
     }
+
+    /**
+     * Activa o desactiva varios usuarios a la vez
+     * Solo ADMIN
+     * GraphQL: cambiarEstadoUsuarios(ids: [ID!]!, activo: Boolean!, usuarioEmail: String!)
+     */
+    @MutationMapping
+    public int cambiarEstadoUsuarios(@Argument List<Long> ids, @Argument Boolean activo,
+                                     @Argument String usuarioEmail) {
+        validarAdmin(usuarioEmail);
+        return usuarioService.cambiarEstadoUsuarios(ids, activo);
+    }
+
+    /**
+     * Activa o desactiva los usuarios que cumplen un filtro (rol y/o códigos de cliente)
+     * Solo ADMIN
+     * GraphQL: cambiarEstadoUsuariosPorFiltro(filtro: FiltroUsuariosInput!, activo: Boolean!, usuarioEmail: String!)
+     */
+    @MutationMapping
+    public int cambiarEstadoUsuariosPorFiltro(@Argument FiltroUsuariosInput filtro, @Argument Boolean activo,
+                                              @Argument String usuarioEmail) {
+        validarAdmin(usuarioEmail);
+        return usuarioService.cambiarEstadoUsuariosPorFiltro(filtro.getRol(), filtro.getCodigosCliente(), activo);
+    }
+
+    /**
+     * Rechaza la operación si quien la pide no es ADMIN
+     */
+    private void validarAdmin(String usuarioEmail) {
+        if (!authService.tieneRol(usuarioEmail, "ADMIN")) {
+            throw new IllegalArgumentException("Operación permitida solo a administradores");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package com.aguapago.usuarios.directorio;
+
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.tenant.RegistroTenants;
+import com.aguapago.usuarios.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Directorio codigoCliente → resumen del cliente (con su usuario), por tenant
+ *
+ * obtenerClientePorCodigo lo consulta antes de ir a la base: un acierto no
+ * ocupa conexión ni hilo del consultasExecutor. Cada tenant tiene su
+ * TablaDirectorio en `<carpeta>/<tenant>.dir`; al reiniciar, la instancia
+ * vuelve a mapear esos archivos y atiende desde el primer momento.
+ *
+ * Se mantiene al día:
+ * - ClienteService guarda el cliente al confirmar crearCliente y actualizarCliente
+ * - UsuarioService olvida los clientes de los usuarios que modifica
+ * - una búsqueda que no acierta guarda lo que leyó de la base (en la primaria)
+ * - cada `intervalo`, ponerseAlDia aplica los clientes y usuarios con
+ *   updatedAt posterior a la marca de la tabla: cubre las escrituras de
+ *   otras instancias y las hechas mientras esta estuvo detenida
+ *
+ * La marca se retrasa `margen` para no perder filas cuyo updatedAt se fijó
+ * antes de confirmar. Si hay más de `lote` cambios pendientes, la tabla se
+ * vacía y se vuelve a llenar con las búsquedas.
+ */
+public class DirectorioClientes implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectorioClientes.class);
+
+    private final Map<String, TablaDirectorio> tablas;
+    private final ClienteRepository clienteRepository;
+    private final TransactionTemplate transaccion;
+    private final RegistroTenants registroTenants;
+    private final Duration margen;
+    private final int lote;
+    private final Counter aciertos;
+    private final Counter fallos;
+
+    /**
+     * @param carpeta carpeta de los archivos (null: archivos temporales, sin arranque en caliente)
+     * @param capacidad entradas por tenant
+     */
+    public DirectorioClientes(Path carpeta, int capacidad, ClienteRepository clienteRepository,
+                              TransactionTemplate transaccion, RegistroTenants registroTenants,
+                              Duration margen, int lote, MeterRegistry registry) throws IOException {
+        this.clienteRepository = clienteRepository;
+        this.transaccion = transaccion;
+        this.registroTenants = registroTenants;
+        this.margen = margen;
+        this.lote = lote;
+        this.aciertos = contador(registry, "acierto");
+        this.fallos = contador(registry, "fallo");
+
+        this.tablas = new LinkedHashMap<>();
+        try {
+            for (String tenant : registroTenants.getIds()) {
+                TablaDirectorio tabla = TablaDirectorio.abrir(
+                    carpeta == null ? null : carpeta.resolve(tenant + ".dir"), capacidad);
+                tablas.put(tenant, tabla);
+                if (tabla.isRecuperada()) {
+                    log.info("Directorio de clientes del tenant {}: {} entradas recuperadas del archivo",
+                        tenant, tabla.getEntradas());
+                }
+                Gauge.builder("aguapago.directorio.entradas", tabla, TablaDirectorio::getEntradas)
+                    .description("Clientes en el directorio")
+                    .tag("tenant", tenant)
+                    .register(registry);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("aguapago.directorio.busquedas")
+            .description("Búsquedas por código en el directorio: aciertos y fallos")
+            .tag("resultado", resultado)
+            .register(registry);
+    }
+
+    // ====== CONSULTA ======
+
+    /**
+     * Resumen del cliente del tenant actual, o null si no está en el directorio
+     * (null no significa que el cliente no exista: hay que ir a la base)
+     */
+    public ClienteDTO buscar(String codigoCliente) {
+        TablaDirectorio tabla = tablas.get(TenantContext.actual());
+        ClienteDTO cliente = tabla == null || codigoCliente == null ? null : tabla.buscar(codigoCliente);
+        (cliente == null ? fallos : aciertos).increment();
+        return cliente;
+    }
+
+    /**
+     * Lee de la base lo que no estaba en el directorio y lo guarda
+     * La lectura va a la primaria (transacción de escritura): una réplica
+     * atrasada podría devolver una fila anterior a la última invalidación y
+     * dejarla de nuevo en el directorio. Solo las búsquedas que fallan pagan
+     * ese viaje.
+     */
+    public List<ClienteDTO> leerYRecordar(Supplier<List<ClienteDTO>> lectura) {
+        List<ClienteDTO> leidos = transaccion.execute(estado -> lectura.get());
+        leidos.forEach(this::recordar);
+        return leidos;
+    }
+
+    /**
+     * Guarda lo leído de la base
+     * No pisa una entrada más nueva que haya escrito otra ruta mientras tanto.
+     */
+    private void recordar(ClienteDTO cliente) {
+        TablaDirectorio tabla = tablas.get(TenantContext.actual());
+        if (tabla != null && cliente != null && cliente.getCodigoCliente() != null && cliente.getUsuario() != null) {
+            tabla.guardar(cliente);
+        }
+    }
+
+    // ====== ESCRITURAS ======
+
+    /**
+     * Guarda el cliente cuando confirma la transacción actual (si se revierte, no)
+     * El resumen se toma ahora, con la entidad todavía en la sesión.
+     */
+    public void recordarAlConfirmar(Cliente cliente) {
+        ClienteDTO resumen = ClienteDTO.fromEntity(cliente);
+        String tenant = TenantContext.actual();
+        alConfirmar(() -> TenantContext.ejecutarEn(tenant, () -> {
+            recordar(resumen);
+            return null;
+        }));
+    }
+
+    /**
+     * Olvida los clientes de esos usuarios cuando confirma la transacción actual
+     * La próxima búsqueda (o la próxima puesta al día) los lee de nuevo.
+     */
+    public void olvidarUsuariosAlConfirmar(Collection<Long> usuarioIds) {
+        TablaDirectorio tabla = tablas.get(TenantContext.actual());
+        if (tabla == null || usuarioIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(usuarioIds);
+        alConfirmar(() -> tabla.olvidarUsuarios(ids));
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    // ====== PUESTA AL DÍA ======
+
+    /**
+     * Aplica en cada tenant los cambios de la base desde la marca de su tabla
+     * @return clientes aplicados
+     */
+    @Scheduled(fixedDelayString = "${aguapago.directorio.intervalo:5s}")
+    public int ponerseAlDia() {
+        int total = 0;
+        for (Map.Entry<String, TablaDirectorio> tabla : tablas.entrySet()) {
+            try {
+                total += TenantContext.ejecutarEn(tabla.getKey(), () -> ponerseAlDia(tabla.getValue()));
+            } catch (RuntimeException e) {
+                log.warn("No se pudo poner al día el directorio de clientes (tenant {}), se reintenta en la siguiente pasada: {}",
+                    tabla.getKey(), e.getMessage());
+            }
+        }
+        return total;
+    }
+
+    private int ponerseAlDia(TablaDirectorio tabla) {
+        LocalDateTime inicio = LocalDateTime.now();
+        LocalDateTime marca = tabla.getMarca();
+        if (marca == null) {
+            // Tabla nueva: se llena con las búsquedas
+            tabla.setMarca(inicio.minus(margen));
+            return 0;
+        }
+
+        // En la primaria (transacción de escritura): una réplica atrasada más que el margen perdería cambios
+        List<ClienteDTO> cambios = transaccion.execute(estado -> {
+            PageRequest pagina = PageRequest.of(0, lote + 1);
+            List<ClienteDTO> leidos = new ArrayList<>();
+            clienteRepository.findCambiadosDesde(marca, pagina).forEach(c -> leidos.add(ClienteDTO.fromEntity(c)));
+            clienteRepository.findConUsuarioCambiadoDesde(marca, pagina).forEach(c -> leidos.add(ClienteDTO.fromEntity(c)));
+            return leidos;
+        });
+
+        int aplicados = 0;
+        if (cambios.size() > lote) {
+            log.info("Directorio de clientes del tenant {}: más de {} cambios desde {}, se vacía",
+                TenantContext.actual(), lote, marca);
+            tabla.vaciar();
+        } else {
+            for (ClienteDTO cliente : cambios) {
+                if (tabla.guardar(cliente)) {
+                    aplicados++;
+                }
+            }
+        }
+        tabla.setMarca(inicio.minus(margen));
+        return aplicados;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (TablaDirectorio tabla : tablas.values()) {
+            tabla.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.aguapago.usuarios.directorio;
+
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.tenant.RegistroTenants;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuración del directorio de clientes por código
+ *
+ * Activo por defecto; se desactiva con aguapago.directorio.habilitado=false.
+ * Con aguapago.directorio.carpeta vacía las tablas van a archivos
+ * temporales (sin arranque en caliente). Cada instancia necesita su propia
+ * carpeta: dos procesos no pueden compartir los archivos. Si se restaura
+ * la base a un punto anterior, hay que borrar la carpeta.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.directorio.habilitado", havingValue = "true", matchIfMissing = true)
+public class DirectorioClientesConfig {
+
+    @Bean
+    public DirectorioClientes directorioClientes(
+            ClienteRepository clienteRepository,
+            PlatformTransactionManager transactionManager,
+            RegistroTenants registroTenants,
+            MeterRegistry registry,
+            @Value("${aguapago.directorio.carpeta:data/directorio}") String carpeta,
+            @Value("${aguapago.directorio.capacidad:65536}") int capacidad,
+            @Value("${aguapago.directorio.margen:5s}") Duration margen,
+            @Value("${aguapago.directorio.lote:1000}") int lote) throws IOException {
+        return new DirectorioClientes(carpeta.isBlank() ? null : Path.of(carpeta), capacidad, clienteRepository,
+            new TransactionTemplate(transactionManager), registroTenants, margen, lote, registry);
+    }
+}
@@ -0,0 +1,582 @@
+package com.aguapago.usuarios.directorio;
+
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32;
+
+/**
+ * Tabla de hash codigoCliente → resumen del cliente, en un archivo mapeado en memoria
+ *
+ * Los datos viven fuera del heap (en el page cache del sistema operativo):
+ * no cuentan para el GC y, al reiniciar, el archivo se vuelve a mapear tal
+ * cual, sin recargar nada de la base.
+ *
+ * Formato: una cabecera de 64 bytes (formato, capacidad, marca de la última
+ * puesta al día) y `capacidad` slots de 512 bytes con direccionamiento
+ * abierto (sondeo lineal). Cada slot:
+ * - largo (int): 0 libre, -1 borrado, >0 largo del registro
+ * - hash del código (int) y CRC32 del registro (int)
+ * - id del usuario (long), para olvidar entradas sin decodificarlas
+ * - el registro: los campos de ClienteDTO y de su UsuarioDTO
+ *
+ * Un registro que no entra en el slot no se guarda (se sigue leyendo de la
+ * base). Con más del 75% de la tabla ocupada tampoco se agregan entradas.
+ *
+ * En el heap queda solo un índice usuarioId → slot, que se arma al abrir:
+ * olvidar a un usuario no recorre la tabla. Cada usuario tiene un solo
+ * cliente, así que una entrada nueva de un usuario reemplaza a la anterior.
+ *
+ * Lecturas sin bloqueo (lectura optimista de StampedLock: se copia el slot
+ * y se valida que nadie escribió mientras tanto); las escrituras son
+ * exclusivas. Al abrir, un slot con CRC inválido (escritura a medias antes
+ * de una caída del sistema) se descarta y la tabla se reconstruye.
+ */
+final class TablaDirectorio implements AutoCloseable {
+
+    static final int TAMANO_SLOT = 512;
+
+    private static final int CABECERA = 64;
+    private static final int MAGIA = 0x41444952;  // "ADIR"
+    private static final int FORMATO = 1;
+
+    private static final int POS_MAGIA = 0;
+    private static final int POS_FORMATO = 4;
+    private static final int POS_CAPACIDAD = 8;
+    private static final int POS_TAMANO_SLOT = 12;
+    private static final int POS_MARCA_SEGUNDOS = 16;
+    private static final int POS_MARCA_NANOS = 24;
+
+    private static final int SLOT_LARGO = 0;
+    private static final int SLOT_HASH = 4;
+    private static final int SLOT_CRC = 8;
+    private static final int SLOT_USUARIO = 12;
+    private static final int SLOT_REGISTRO = 20;
+    static final int MAXIMO_REGISTRO = TAMANO_SLOT - SLOT_REGISTRO;
+
+    private static final int LIBRE = 0;
+    private static final int BORRADO = -1;
+    private static final long SIN_MARCA = Long.MIN_VALUE;
+
+    private final FileChannel canal;
+    private final MappedByteBuffer mapa;
+    private final int capacidad;
+    private final int mascara;
+    private final int limite;
+    private final boolean recuperada;
+    private final StampedLock candado = new StampedLock();
+
+    /** Solo se modifican con el candado de escritura */
+    private int entradas;
+    private int borrados;
+    private final Map<Long, Integer> posicionPorUsuario = new HashMap<>();
+
+    private TablaDirectorio(FileChannel canal, MappedByteBuffer mapa, int capacidad, boolean recuperada) {
+        this.canal = canal;
+        this.mapa = mapa;
+        this.capacidad = capacidad;
+        this.mascara = capacidad - 1;
+        this.limite = capacidad / 4 * 3;
+        this.recuperada = recuperada;
+    }
+
+    /**
+     * Abre (o crea) la tabla en el archivo
+     * Si el archivo existe con el mismo formato y capacidad, se conservan sus
+     * entradas y su marca; si no, se empieza vacía.
+     * @param archivo archivo de la tabla (null: temporal, se borra al salir)
+     * @param capacidad slots (se redondea a potencia de 2)
+     */
+    static TablaDirectorio abrir(Path archivo, int capacidad) throws IOException {
+        int slots = Integer.highestOneBit(Math.max(16, capacidad - 1) << 1);
+        long tamano = CABECERA + (long) slots * TAMANO_SLOT;
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("La capacidad del directorio no puede superar "
+                + (Integer.MAX_VALUE - CABECERA) / TAMANO_SLOT + " entradas");
+        }
+        if (archivo == null) {
+            archivo = Files.createTempFile("directorio-clientes", ".dir");
+            archivo.toFile().deleteOnExit();
+        } else if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+
+        FileChannel canal = FileChannel.open(archivo,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean compatible = canal.size() == tamano;
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+            compatible = compatible
+                && mapa.getInt(POS_MAGIA) == MAGIA
+                && mapa.getInt(POS_FORMATO) == FORMATO
+                && mapa.getInt(POS_CAPACIDAD) == slots
+                && mapa.getInt(POS_TAMANO_SLOT) == TAMANO_SLOT;
+
+            TablaDirectorio tabla = new TablaDirectorio(canal, mapa, slots, compatible);
+            if (compatible) {
+                tabla.verificar();
+            } else {
+                tabla.inicializar();
+            }
+            return tabla;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // ====== CONSULTA ======
+
+    /**
+     * Resumen del cliente con ese código, o null si no está
+     * Cada llamada devuelve objetos nuevos.
+     */
+    ClienteDTO buscar(String codigo) {
+        byte[] clave = codigo.getBytes(StandardCharsets.UTF_8);
+        long sello = candado.tryOptimisticRead();
+        if (sello != 0) {
+            try {
+                ClienteDTO cliente = leer(codigo, clave);
+                if (candado.validate(sello)) {
+                    return cliente;
+                }
+            } catch (RuntimeException e) {
+                // Slot a medio escribir: se repite con el candado de lectura
+            }
+        }
+        sello = candado.readLock();
+        try {
+            return leer(codigo, clave);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    private ClienteDTO leer(String codigo, byte[] clave) {
+        int hash = hash(clave);
+        for (int i = 0; i < capacidad; i++) {
+            int pos = posicion((hash + i) & mascara);
+            int largo = mapa.getInt(pos + SLOT_LARGO);
+            if (largo == LIBRE) {
+                return null;
+            }
+            if (largo > 0 && largo <= MAXIMO_REGISTRO && mapa.getInt(pos + SLOT_HASH) == hash) {
+                byte[] registro = new byte[largo];
+                mapa.get(pos + SLOT_REGISTRO, registro, 0, largo);
+                if (crc(registro) == mapa.getInt(pos + SLOT_CRC)) {
+                    ClienteDTO cliente = decodificar(registro);
+                    if (codigo.equals(cliente.getCodigoCliente())) {
+                        return cliente;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // ====== ESCRITURA ======
+
+    /**
+     * Guarda o reemplaza el resumen del cliente
+     * No reemplaza una entrada más nueva (por versión del cliente o de su
+     * usuario): una lectura atrasada no pisa lo que ya escribió otra ruta.
+     * @return false si no se guardó (registro muy grande, tabla llena o entrada más nueva)
+     */
+    boolean guardar(ClienteDTO cliente) {
+        byte[] registro = codificar(cliente);
+        if (registro == null) {
+            return false;
+        }
+        byte[] clave = cliente.getCodigoCliente().getBytes(StandardCharsets.UTF_8);
+        int hash = hash(clave);
+        long usuarioId = cliente.getUsuario().getId();
+
+        long sello = candado.writeLock();
+        try {
+            int destino = -1;
+            for (int i = 0; i < capacidad; i++) {
+                int pos = posicion((hash + i) & mascara);
+                int largo = mapa.getInt(pos + SLOT_LARGO);
+                if (largo == LIBRE) {
+                    if (destino < 0) {
+                        destino = pos;
+                    }
+                    break;
+                }
+                if (largo == BORRADO) {
+                    if (destino < 0) {
+                        destino = pos;  // se reutiliza si la clave no aparece más adelante
+                    }
+                    continue;
+                }
+                if (mapa.getInt(pos + SLOT_HASH) == hash) {
+                    ClienteDTO actual = decodificar(copiar(pos, largo));
+                    if (cliente.getCodigoCliente().equals(actual.getCodigoCliente())) {
+                        if (esMasNuevo(actual, cliente)) {
+                            return false;
+                        }
+                        escribir(pos, hash, usuarioId, registro);
+                        return true;
+                    }
+                }
+            }
+
+            if (entradas + borrados >= limite && borrados > 0) {
+                reconstruir();
+                return guardarSinBuscar(hash, usuarioId, registro);
+            }
+            if (destino < 0 || entradas >= limite) {
+                return false;
+            }
+            if (mapa.getInt(destino + SLOT_LARGO) == BORRADO) {
+                borrados--;
+            }
+            escribir(destino, hash, usuarioId, registro);
+            entradas++;
+            return true;
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    /**
+     * Marca como borradas las entradas de esos usuarios (por el índice, sin recorrer la tabla)
+     * @return entradas borradas
+     */
+    int olvidarUsuarios(Set<Long> usuarioIds) {
+        if (usuarioIds.isEmpty()) {
+            return 0;
+        }
+        long sello = candado.writeLock();
+        try {
+            int olvidadas = 0;
+            for (Long usuarioId : usuarioIds) {
+                Integer pos = posicionPorUsuario.get(usuarioId);
+                if (pos != null) {
+                    borrar(pos);
+                    olvidadas++;
+                }
+            }
+            return olvidadas;
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    /** Borra todas las entradas (la marca se conserva) */
+    void vaciar() {
+        long sello = candado.writeLock();
+        try {
+            limpiarSlots();
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    // ====== MARCA Y ESTADO ======
+
+    /** Hasta dónde se aplicaron los cambios de la base (null: nunca) */
+    LocalDateTime getMarca() {
+        long segundos = mapa.getLong(POS_MARCA_SEGUNDOS);
+        return segundos == SIN_MARCA ? null
+            : LocalDateTime.ofEpochSecond(segundos, mapa.getInt(POS_MARCA_NANOS), ZoneOffset.UTC);
+    }
+
+    /**
+     * Fija la marca después de llevar las entradas al disco
+     * Así una marca guardada nunca cubre cambios que se perdieron en una caída.
+     */
+    void setMarca(LocalDateTime marca) {
+        mapa.force();
+        long sello = candado.writeLock();
+        try {
+            mapa.putLong(POS_MARCA_SEGUNDOS, marca.toEpochSecond(ZoneOffset.UTC));
+            mapa.putInt(POS_MARCA_NANOS, marca.getNano());
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    int getEntradas() {
+        return entradas;
+    }
+
+    int getCapacidad() {
+        return capacidad;
+    }
+
+    /** true si se abrió un archivo existente con sus entradas */
+    boolean isRecuperada() {
+        return recuperada;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapa.force();
+        canal.close();
+    }
+
+    // ====== SLOTS ======
+
+    private void inicializar() {
+        mapa.putInt(POS_MAGIA, MAGIA);
+        mapa.putInt(POS_FORMATO, FORMATO);
+        mapa.putInt(POS_CAPACIDAD, capacidad);
+        mapa.putInt(POS_TAMANO_SLOT, TAMANO_SLOT);
+        mapa.putLong(POS_MARCA_SEGUNDOS, SIN_MARCA);
+        mapa.putInt(POS_MARCA_NANOS, 0);
+        limpiarSlots();
+    }
+
+    /**
+     * Cuenta las entradas y arma el índice por usuario
+     * Si alguna está dañada o repetida, reconstruye la tabla sin ella.
+     */
+    private void verificar() {
+        boolean danada = false;
+        for (int i = 0; i < capacidad; i++) {
+            int pos = posicion(i);
+            int largo = mapa.getInt(pos + SLOT_LARGO);
+            if (largo == BORRADO) {
+                borrados++;
+            } else if (largo != LIBRE) {
+                if (largo > 0 && largo <= MAXIMO_REGISTRO && crc(copiar(pos, largo)) == mapa.getInt(pos + SLOT_CRC)) {
+                    entradas++;
+                    if (posicionPorUsuario.put(mapa.getLong(pos + SLOT_USUARIO), pos) != null) {
+                        danada = true;
+                    }
+                } else {
+                    danada = true;
+                }
+            }
+        }
+        if (danada || borrados > 0) {
+            reconstruir();
+        }
+    }
+
+    /** Vuelve a insertar las entradas válidas, sin borrados */
+    private void reconstruir() {
+        List<byte[]> registros = new ArrayList<>();
+        List<long[]> claves = new ArrayList<>();
+        for (int i = 0; i < capacidad; i++) {
+            int pos = posicion(i);
+            int largo = mapa.getInt(pos + SLOT_LARGO);
+            if (largo > 0 && largo <= MAXIMO_REGISTRO) {
+                byte[] registro = copiar(pos, largo);
+                if (crc(registro) == mapa.getInt(pos + SLOT_CRC)) {
+                    registros.add(registro);
+                    claves.add(new long[]{mapa.getInt(pos + SLOT_HASH), mapa.getLong(pos + SLOT_USUARIO)});
+                }
+            }
+        }
+        limpiarSlots();
+        for (int i = 0; i < registros.size(); i++) {
+            guardarSinBuscar((int) claves.get(i)[0], claves.get(i)[1], registros.get(i));
+        }
+    }
+
+    private boolean guardarSinBuscar(int hash, long usuarioId, byte[] registro) {
+        if (entradas >= limite) {
+            return false;
+        }
+        for (int i = 0; i < capacidad; i++) {
+            int pos = posicion((hash + i) & mascara);
+            if (mapa.getInt(pos + SLOT_LARGO) == LIBRE) {
+                escribir(pos, hash, usuarioId, registro);
+                entradas++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void limpiarSlots() {
+        for (int i = 0; i < capacidad; i++) {
+            mapa.putInt(posicion(i) + SLOT_LARGO, LIBRE);
+        }
+        entradas = 0;
+        borrados = 0;
+        posicionPorUsuario.clear();
+    }
+
+    /**
+     * El largo va último: un lector nunca ve un largo válido con el registro a medias
+     * Si el usuario ya tenía otra entrada, se borra.
+     */
+    private void escribir(int pos, int hash, long usuarioId, byte[] registro) {
+        if (mapa.getInt(pos + SLOT_LARGO) > 0) {
+            posicionPorUsuario.remove(mapa.getLong(pos + SLOT_USUARIO), pos);
+        }
+        Integer anterior = posicionPorUsuario.put(usuarioId, pos);
+        if (anterior != null && anterior != pos) {
+            borrar(anterior);
+        }
+        mapa.putInt(pos + SLOT_LARGO, LIBRE);
+        mapa.put(pos + SLOT_REGISTRO, registro, 0, registro.length);
+        mapa.putInt(pos + SLOT_HASH, hash);
+        mapa.putInt(pos + SLOT_CRC, crc(registro));
+        mapa.putLong(pos + SLOT_USUARIO, usuarioId);
+        mapa.putInt(pos + SLOT_LARGO, registro.length);
+    }
+
+    private void borrar(int pos) {
+        posicionPorUsuario.remove(mapa.getLong(pos + SLOT_USUARIO), pos);
+        mapa.putInt(pos + SLOT_LARGO, BORRADO);
+        entradas--;
+        borrados++;
+    }
+
+    private byte[] copiar(int pos, int largo) {
+        byte[] registro = new byte[largo];
+        mapa.get(pos + SLOT_REGISTRO, registro, 0, largo);
+        return registro;
+    }
+
+    private static int posicion(int slot) {
+        return CABECERA + slot * TAMANO_SLOT;
+    }
+
+    private static boolean esMasNuevo(ClienteDTO actual, ClienteDTO nuevo) {
+        return version(actual.getVersion()) > version(nuevo.getVersion())
+            || version(actual.getUsuario().getVersion()) > version(nuevo.getUsuario().getVersion());
+    }
+
+    private static long version(Long version) {
+        return version == null ? Long.MIN_VALUE : version;
+    }
+
+    /** Mezcla final de MurmurHash3 sobre el hash de los bytes */
+    private static int hash(byte[] clave) {
+        int h = Arrays.hashCode(clave);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int crc(byte[] registro) {
+        CRC32 crc = new CRC32();
+        crc.update(registro);
+        return (int) crc.getValue();
+    }
+
+    // ====== REGISTRO ======
+
+    /** null si no entra en un slot */
+    static byte[] codificar(ClienteDTO cliente) {
+        UsuarioDTO usuario = cliente.getUsuario();
+        ByteBuffer buffer = ByteBuffer.allocate(MAXIMO_REGISTRO);
+        try {
+            texto(buffer, cliente.getCodigoCliente());
+            numero(buffer, cliente.getId());
+            numero(buffer, cliente.getVersion());
+            fecha(buffer, cliente.getCreatedAt());
+            texto(buffer, cliente.getDireccion());
+            texto(buffer, cliente.getTelefono());
+            texto(buffer, cliente.getDocumentoIdentidad());
+            numero(buffer, usuario.getId());
+            numero(buffer, usuario.getVersion());
+            fecha(buffer, usuario.getCreatedAt());
+            texto(buffer, usuario.getNombre());
+            texto(buffer, usuario.getApellido());
+            texto(buffer, usuario.getEmail());
+            texto(buffer, usuario.getRol());
+            buffer.put((byte) (usuario.getActivo() == null ? 2 : usuario.getActivo() ? 1 : 0));
+        } catch (java.nio.BufferOverflowException e) {
+            return null;
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static ClienteDTO decodificar(byte[] registro) {
+        ByteBuffer buffer = ByteBuffer.wrap(registro);
+        try {
+            ClienteDTO cliente = new ClienteDTO();
+            cliente.setCodigoCliente(texto(buffer));
+            cliente.setId(numero(buffer));
+            cliente.setVersion(numero(buffer));
+            cliente.setCreatedAt(fecha(buffer));
+            cliente.setDireccion(texto(buffer));
+            cliente.setTelefono(texto(buffer));
+            cliente.setDocumentoIdentidad(texto(buffer));
+            UsuarioDTO usuario = new UsuarioDTO();
+            usuario.setId(numero(buffer));
+            usuario.setVersion(numero(buffer));
+            usuario.setCreatedAt(fecha(buffer));
+            usuario.setNombre(texto(buffer));
+            usuario.setApellido(texto(buffer));
+            usuario.setEmail(texto(buffer));
+            usuario.setRol(texto(buffer));
+            byte activo = buffer.get();
+            usuario.setActivo(activo == 2 ? null : activo == 1);
+            cliente.setUsuario(usuario);
+            return cliente;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Registro del directorio incompleto", e);
+        }
+    }
+
+    private static void texto(ByteBuffer buffer, String valor) {
+        if (valor == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new java.nio.BufferOverflowException();
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String texto(ByteBuffer buffer) {
+        short largo = buffer.getShort();
+        if (largo < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[largo];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void numero(ByteBuffer buffer, Long valor) {
+        buffer.putLong(valor == null ? Long.MIN_VALUE : valor);
+    }
+
+    private static Long numero(ByteBuffer buffer) {
+        long valor = buffer.getLong();
+        return valor == Long.MIN_VALUE ? null : valor;
+    }
+
+    private static void fecha(ByteBuffer buffer, LocalDateTime valor) {
+        buffer.putLong(valor == null ? SIN_MARCA : valor.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(valor == null ? 0 : valor.getNano());
+    }
+
+    private static LocalDateTime fecha(ByteBuffer buffer) {
+        long segundos = buffer.getLong();
+        int nanos = buffer.getInt();
+        return segundos == SIN_MARCA ? null : LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+    }
+}
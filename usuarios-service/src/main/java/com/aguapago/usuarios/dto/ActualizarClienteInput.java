@@ -0,0 +1,24 @@
+package com.aguapago.usuarios.dto;
+
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * DTO para actualizar información de cliente
+ * Solo se actualizan los campos enviados (no null)
+ */
+@Data
+public class ActualizarClienteInput {
+
+    @Size(max = 200, message = "La dirección no puede tener más de 200 caracteres")
+    private String direccion;
+
+    @Size(max = 20, message = "El teléfono no puede tener más de 20 caracteres")
+    private String telefono;
+
+    @Size(max = 20, message = "El documento no puede tener más de 20 caracteres")
+    private String documentoIdentidad;
+
+    // Versión leída por el cliente (opcional): si no coincide, la actualización falla por conflicto
+    private Long version;
+}
@@ -20,6 +20,9 @@ public class ActualizarUsuarioInput {
     @Size(max = 150, message = "El email no puede tener más de 150 caracteres")
     private String email;
 
+    // Versión leída por el cliente (opcional): si no coincide, la actualización falla por conflicto
+    private Long version;
+
     public ActualizarUsuarioInput() {
     }
 
@@ -0,0 +1,28 @@
+package com.aguapago.usuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de un registro que cambió desde la última sincronización
+ * Si eliminado es true (usuario desactivado, o cliente de un usuario
+ * desactivado) no lleva datos: la app solo debe borrarlo de su copia local
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioSincronizacionDTO {
+
+    public static final String USUARIO = "USUARIO";
+    public static final String CLIENTE = "CLIENTE";
+
+    private String tipo; // "USUARIO" o "CLIENTE"
+    private Long id;
+    private Boolean eliminado;
+    private LocalDateTime updatedAt;
+    private UsuarioDTO usuario; // solo si tipo es USUARIO y no está eliminado
+    private ClienteDTO cliente; // solo si tipo es CLIENTE y no está eliminado
+}
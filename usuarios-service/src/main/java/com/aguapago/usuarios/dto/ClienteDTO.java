@@ -22,6 +22,7 @@ public class ClienteDTO {
     private String telefono;
     private String documentoIdentidad;
     private LocalDateTime createdAt;
+    private Long version;
     
     // Información del usuario asociado
     private UsuarioDTO usuario;
@@ -38,6 +39,7 @@ public class ClienteDTO {
             cliente.getTelefono(),
             cliente.getDocumentoIdentidad(),
             cliente.getCreatedAt(),
+            cliente.getVersion(),
             UsuarioDTO.fromEntity(cliente.getUsuario()) // Convierte Usuario a DTO
         );
     }
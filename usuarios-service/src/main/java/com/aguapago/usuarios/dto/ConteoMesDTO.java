@@ -0,0 +1,18 @@
+package com.aguapago.usuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con las altas de clientes de un mes
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConteoMesDTO {
+
+    private String mes; // yyyy-MM
+
+    private Long cantidad;
+}
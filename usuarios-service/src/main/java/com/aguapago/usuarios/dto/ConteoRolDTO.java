@@ -0,0 +1,22 @@
+package com.aguapago.usuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con los usuarios de un rol, activos e inactivos
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConteoRolDTO {
+
+    private String rol;
+
+    private Long total;
+
+    private Long activos;
+
+    private Long inactivos;
+}
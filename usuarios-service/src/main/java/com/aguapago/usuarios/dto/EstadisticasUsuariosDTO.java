@@ -0,0 +1,32 @@
+package com.aguapago.usuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO con los totales del panel de administración
+ * Se calcula con agregados en SQL, sin traer filas (ver EstadisticasService)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasUsuariosDTO {
+
+    private Long totalUsuarios;
+
+    private Long usuariosActivos;
+
+    private Long usuariosInactivos;
+
+    private List<ConteoRolDTO> usuariosPorRol;
+
+    private Long totalClientes;
+
+    private List<ConteoMesDTO> clientesNuevosPorMes; // del más antiguo al actual, con 0 en los meses sin altas
+
+    private LocalDateTime calculadoEn; // los valores pueden tener hasta aguapago.estadisticas.vigencia de antigüedad
+}
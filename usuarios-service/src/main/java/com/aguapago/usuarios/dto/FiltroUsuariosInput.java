@@ -0,0 +1,17 @@
+package com.aguapago.usuarios.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO con el filtro de los cambios de estado masivos
+ * Debe indicarse al menos uno de los dos campos
+ */
+@Data
+public class FiltroUsuariosInput {
+
+    private String rol; // "ADMIN" o "CLIENTE" (opcional)
+
+    private List<String> codigosCliente; // códigos de cliente (opcional)
+}
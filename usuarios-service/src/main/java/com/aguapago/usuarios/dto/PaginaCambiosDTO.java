@@ -0,0 +1,24 @@
+package com.aguapago.usuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO con una página de cambios para la sincronización incremental
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCambiosDTO {
+
+    private List<CambioSincronizacionDTO> cambios;
+
+    private String cursor; // para pedir la página siguiente (after); null si no hubo cambios
+
+    private Boolean hayMas;
+
+    private String marca; // a guardar y enviar como desde en la próxima sincronización
+}
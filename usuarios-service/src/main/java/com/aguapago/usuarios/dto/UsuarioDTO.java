@@ -23,6 +23,7 @@ public class UsuarioDTO {
     private String rol;
     private Boolean activo;
     private LocalDateTime createdAt;
+    private Long version;
 
     /**
      * Constructor desde entidad Usuario
@@ -36,7 +37,8 @@ public class UsuarioDTO {
             usuario.getEmail(),
             usuario.getRol(),
             usuario.getActivo(),
-            usuario.getCreatedAt()
+            usuario.getCreatedAt(),
+            usuario.getVersion()
         );
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -46,9 +47,19 @@ public class Cliente {
     @Column(name = "documento_identidad", length = 20)
     private String documentoIdentidad; // CI, NIT, Pasaporte, etc.
 
+    /** Versión para concurrencia optimista: cada UPDATE la incrementa */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /** Última escritura: la base de la sincronización incremental (obtenerCambiosDesde) */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     /**
      * Relación One-to-One con Usuario
      * 
@@ -66,6 +77,16 @@ public class Cliente {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    /**
+     * Método que se ejecuta antes de cada UPDATE de la entidad
+     * Los UPDATE por consulta (parciales y masivos) fijan updatedAt ellos mismos
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 }
 
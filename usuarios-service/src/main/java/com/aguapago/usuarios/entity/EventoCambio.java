@@ -0,0 +1,57 @@
+package com.aguapago.usuarios.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad EventoCambio - Representa la tabla 'evento_outbox'
+ *
+ * Cada mutation de Usuario o Cliente escribe aquí un evento en la misma
+ * transacción que el cambio (patrón outbox). El relay los publica después
+ * en orden de id y marca publicadoAt; los consumidores pueden usar el id
+ * como posición para seguir el flujo de forma incremental.
+ */
+@Entity
+@Table(name = "evento_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoCambio {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "agregado", nullable = false, length = 20)
+    private String agregado; // "USUARIO" o "CLIENTE"
+
+    @Column(name = "agregado_id", nullable = false)
+    private Long agregadoId;
+
+    @Column(name = "tipo", nullable = false, length = 30)
+    private String tipo; // "CREADO", "ACTUALIZADO", ...
+
+    /** Estado del agregado tras el cambio, en JSON (mismo formato que los DTO) */
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "publicado_at")
+    private LocalDateTime publicadoAt;
+
+    /**
+     * Método que se ejecuta antes de persistir la entidad
+     * Establece la fecha de creación automáticamente
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,72 @@
+package com.aguapago.usuarios.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad TareaAprovisionamiento - Representa la tabla 'tarea_aprovisionamiento'
+ *
+ * Cola durable de perfiles de cliente por crear. registrarUsuario solo
+ * inserta el usuario y su tarea; el procesador crea el Cliente después,
+ * por lotes y con reintentos.
+ *
+ * Estados: PENDIENTE → COMPLETADA, o FALLIDA al agotar los reintentos.
+ */
+@Entity
+@Table(name = "tarea_aprovisionamiento")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TareaAprovisionamiento {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String FALLIDA = "FALLIDA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false, unique = true)
+    private Long usuarioId;
+
+    // Datos del perfil tal como llegaron en el registro
+    @Column(name = "direccion", length = 200)
+    private String direccion;
+
+    @Column(name = "telefono", length = 20)
+    private String telefono;
+
+    @Column(name = "documento_identidad", length = 20)
+    private String documentoIdentidad;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    @Column(name = "intentos", nullable = false)
+    private Integer intentos;
+
+    /** La tarea no se procesa antes de esta fecha (backoff o lease en curso) */
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Método que se ejecuta antes de persistir la entidad
+     * Establece la fecha de creación automáticamente
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -57,9 +58,19 @@ public class Usuario {
     @Column(name = "activo", nullable = false)
     private Boolean activo = true;
 
+    /** Versión para concurrencia optimista: cada UPDATE la incrementa */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /** Última escritura: la base de la sincronización incremental (obtenerCambiosDesde) */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     /**
      * Método que se ejecuta antes de persistir la entidad
      * Establece la fecha de creación automáticamente
@@ -67,6 +78,16 @@ public class Usuario {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    /**
+     * Método que se ejecuta antes de cada UPDATE de la entidad
+     * Los UPDATE por consulta (parciales y masivos) fijan updatedAt ellos mismos
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 }
 
@@ -0,0 +1,27 @@
+package com.aguapago.usuarios.exception;
+
+import lombok.Getter;
+
+/**
+ * Se lanza cuando una actualización trae una versión que ya no es la actual
+ *
+ * Otro cambio se confirmó entre la lectura del cliente y su escritura; el
+ * cliente debe volver a leer el registro y reintentar con la nueva versión.
+ */
+@Getter
+public class ConflictoVersionException extends RuntimeException {
+
+    private final String entidad;
+    private final Long id;
+    private final Long versionEsperada;
+    private final Long versionActual;
+
+    public ConflictoVersionException(String entidad, Long id, Long versionEsperada, Long versionActual) {
+        super(String.format("%s %d fue modificado por otra operación (versión enviada %d, versión actual %d)",
+            entidad, id, versionEsperada, versionActual));
+        this.entidad = entidad;
+        this.id = id;
+        this.versionEsperada = versionEsperada;
+        this.versionActual = versionActual;
+    }
+}
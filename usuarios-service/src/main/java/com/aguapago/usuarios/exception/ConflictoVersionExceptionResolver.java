@@ -0,0 +1,52 @@
+package com.aguapago.usuarios.exception;
+
+import graphql.ErrorClassification;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Traduce los conflictos de versión a un error GraphQL reconocible
+ *
+ * classification CONFLICTO_VERSION y reintentable=true: el cliente debe
+ * volver a leer el registro y repetir la mutation con la versión actual.
+ * Cubre tanto la actualización parcial (ConflictoVersionException) como
+ * las escrituras por entidad que detecta Hibernate con @Version.
+ */
+@Component
+public class ConflictoVersionExceptionResolver extends DataFetcherExceptionResolverAdapter {
+
+    static final ErrorClassification CONFLICTO_VERSION = ErrorClassification.errorClassification("CONFLICTO_VERSION");
+
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+        Map<String, Object> extensiones = new LinkedHashMap<>();
+        extensiones.put("reintentable", true);
+
+        if (ex instanceof ConflictoVersionException conflicto) {
+            extensiones.put("entidad", conflicto.getEntidad());
+            extensiones.put("id", conflicto.getId());
+            extensiones.put("versionActual", conflicto.getVersionActual());
+            return error(conflicto.getMessage(), extensiones, env);
+        }
+        if (ex instanceof ObjectOptimisticLockingFailureException) {
+            return error("El registro fue modificado por otra operación, vuelva a leerlo y reintente",
+                extensiones, env);
+        }
+        return null;
+    }
+
+    private static GraphQLError error(String mensaje, Map<String, Object> extensiones, DataFetchingEnvironment env) {
+        return GraphqlErrorBuilder.newError(env)
+            .message(mensaje)
+            .errorType(CONFLICTO_VERSION)
+            .extensions(extensiones)
+            .build();
+    }
+}
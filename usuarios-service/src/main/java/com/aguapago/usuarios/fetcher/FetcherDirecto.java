@@ -0,0 +1,100 @@
+package com.aguapago.usuarios.fetcher;
+
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.LightDataFetcher;
+import graphql.schema.PropertyDataFetcher;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * DataFetcher de un campo que llama directo al getter del DTO
+ *
+ * El getter se enlaza una vez, al construir el esquema, con
+ * LambdaMetafactory: cada llamada es una invocación normal (que el JIT puede
+ * inlinear), sin la búsqueda en caché ni la clave que arma PropertyDataFetcher
+ * por cada campo de cada fila.
+ *
+ * Es un LightDataFetcher: graphql-java no crea el DataFetchingEnvironment
+ * para llamarlo, y Spring no lo decora (es trivial). Si la fuente no es del
+ * tipo esperado (otro resolver devolvió otra clase), cae en PropertyDataFetcher.
+ */
+public final class FetcherDirecto implements LightDataFetcher<Object> {
+
+    private final Class<?> tipo;
+    private final Function<Object, Object> getter;
+    private final PropertyDataFetcher<Object> respaldo;
+
+    private FetcherDirecto(Class<?> tipo, String campo, Function<Object, Object> getter) {
+        this.tipo = tipo;
+        this.getter = getter;
+        this.respaldo = PropertyDataFetcher.fetching(campo);
+    }
+
+    /**
+     * @return el fetcher del campo, o null si el tipo no tiene un getter público para él
+     */
+    public static FetcherDirecto para(Class<?> tipo, String campo) {
+        Method metodo = buscarGetter(tipo, campo);
+        if (metodo == null) {
+            return null;
+        }
+        return new FetcherDirecto(tipo, campo, enlazar(metodo));
+    }
+
+    @Override
+    public Object get(GraphQLFieldDefinition campo, Object fuente, Supplier<DataFetchingEnvironment> environment)
+            throws Exception {
+        if (tipo.isInstance(fuente)) {
+            return getter.apply(fuente);
+        }
+        return fuente == null ? null : respaldo.get(campo, fuente, environment);
+    }
+
+    @Override
+    public Object get(DataFetchingEnvironment environment) throws Exception {
+        return get(environment.getFieldDefinition(), environment.getSource(), () -> environment);
+    }
+
+    // ====== ENLACE ======
+
+    private static Method buscarGetter(Class<?> tipo, String campo) {
+        String sufijo = Character.toUpperCase(campo.charAt(0)) + campo.substring(1);
+        for (String nombre : new String[] {"get" + sufijo, "is" + sufijo}) {
+            try {
+                Method metodo = tipo.getMethod(nombre);
+                if (metodo.getReturnType() != void.class && !Modifier.isStatic(metodo.getModifiers())) {
+                    return metodo;
+                }
+            } catch (NoSuchMethodException e) {
+                // Probar el siguiente prefijo
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> enlazar(Method metodo) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle getter = lookup.unreflect(metodo);
+            Class<?> retorno = MethodType.methodType(metodo.getReturnType()).wrap().returnType();
+            CallSite sitio = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                getter,
+                MethodType.methodType(retorno, metodo.getDeclaringClass()));
+            return (Function<Object, Object>) sitio.getTarget().invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("No se pudo enlazar " + metodo, e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.aguapago.usuarios.fetcher;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.idl.FieldWiringEnvironment;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.WiringFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NativeDetector;
+import org.springframework.graphql.execution.RuntimeWiringConfigurer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registra un FetcherDirecto para cada campo de los tipos GraphQL que se
+ * resuelven con un DTO
+ *
+ * El DTO de un tipo se busca por nombre en el paquete de DTOs: Usuario ->
+ * UsuarioDTO, AuthResponse -> AuthResponse. Se registra como WiringFactory,
+ * así solo cubre los campos sin DataFetcher propio (@SchemaMapping, etc.);
+ * los campos sin getter siguen con el fetcher por defecto.
+ *
+ * En la imagen nativa no se pueden generar clases al arrancar, así que ahí
+ * se mantiene PropertyDataFetcher (con las pistas de reflexión de AOT).
+ */
+public class FetchersDirectos implements RuntimeWiringConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(FetchersDirectos.class);
+
+    private final String paqueteDtos;
+
+    /** Tipo GraphQL -> DTO (vacío si el tipo no tiene DTO) */
+    private final Map<String, Optional<Class<?>>> dtos = new ConcurrentHashMap<>();
+
+    /** Tipo.campo -> fetcher (vacío si el campo no tiene getter) */
+    private final Map<String, Optional<FetcherDirecto>> fetchers = new ConcurrentHashMap<>();
+
+    public FetchersDirectos(String paqueteDtos) {
+        this.paqueteDtos = paqueteDtos;
+    }
+
+    @Override
+    public void configure(RuntimeWiring.Builder builder) {
+    }
+
+    @Override
+    public void configure(RuntimeWiring.Builder builder, List<WiringFactory> container) {
+        if (NativeDetector.inNativeImage()) {
+            return;
+        }
+        container.add(new WiringFactory() {
+
+            @Override
+            public boolean providesDataFetcher(FieldWiringEnvironment environment) {
+                return fetcher(environment) != null;
+            }
+
+            @Override
+            public DataFetcher<?> getDataFetcher(FieldWiringEnvironment environment) {
+                FetcherDirecto fetcher = fetcher(environment);
+                log.debug("Campo {}.{} con acceso directo", environment.getParentType().getName(),
+                    environment.getFieldDefinition().getName());
+                return fetcher;
+            }
+        });
+    }
+
+    private FetcherDirecto fetcher(FieldWiringEnvironment environment) {
+        String tipoGraphql = environment.getParentType().getName();
+        String campo = environment.getFieldDefinition().getName();
+        return fetchers.computeIfAbsent(tipoGraphql + "." + campo, coordenadas -> dto(tipoGraphql)
+                .map(tipo -> FetcherDirecto.para(tipo, campo)))
+            .orElse(null);
+    }
+
+    private Optional<Class<?>> dto(String tipoGraphql) {
+        return dtos.computeIfAbsent(tipoGraphql, nombre -> {
+            ClassLoader cargador = FetchersDirectos.class.getClassLoader();
+            for (String candidato : new String[] {nombre + "DTO", nombre}) {
+                try {
+                    return Optional.of(Class.forName(paqueteDtos + "." + candidato, false, cargador));
+                } catch (ClassNotFoundException e) {
+                    // Probar el siguiente nombre
+                }
+            }
+            return Optional.empty();
+        });
+    }
+}
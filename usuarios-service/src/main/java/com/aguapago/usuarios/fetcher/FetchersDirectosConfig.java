@@ -0,0 +1,22 @@
+package com.aguapago.usuarios.fetcher;
+
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de los DataFetchers directos de los DTOs
+ *
+ * Activos por defecto; con aguapago.graphql.fetchers-directos.habilitado=false
+ * todos los campos vuelven a PropertyDataFetcher (por reflexión).
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.graphql.fetchers-directos.habilitado", havingValue = "true", matchIfMissing = true)
+public class FetchersDirectosConfig {
+
+    @Bean
+    public FetchersDirectos fetchersDirectos() {
+        return new FetchersDirectos(UsuarioDTO.class.getPackageName());
+    }
+}
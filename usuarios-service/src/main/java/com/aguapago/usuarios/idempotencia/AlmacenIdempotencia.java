@@ -0,0 +1,97 @@
+package com.aguapago.usuarios.idempotencia;
+
+import graphql.ExecutionResult;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Resultados de las mutations por Idempotency-Key, acotados en cantidad y tiempo
+ *
+ * Cada entrada guarda la huella de la petición original y el resultado de
+ * su ejecución (un CompletableFuture: mientras la primera ejecución no
+ * termina, los duplicados esperan sobre él). Como mucho `capacidad`
+ * entradas; al pasarse se descarta la más antigua. Una entrada con más de
+ * `vigencia` se trata como inexistente.
+ */
+public class AlmacenIdempotencia {
+
+    private final int capacidad;
+    private final long vigenciaMs;
+    private final LongSupplier reloj;
+    private final Map<String, Entrada> entradas;
+
+    public AlmacenIdempotencia(int capacidad, Duration vigencia) {
+        this(capacidad, vigencia, System::currentTimeMillis);
+    }
+
+    AlmacenIdempotencia(int capacidad, Duration vigencia, LongSupplier reloj) {
+        this.capacidad = capacidad;
+        this.vigenciaMs = vigencia.toMillis();
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                return size() > AlmacenIdempotencia.this.capacidad;
+            }
+        };
+    }
+
+    // ====== MÉTODOS PÚBLICOS ======
+
+    /**
+     * Entrada vigente de la clave, o una nueva con `propio` si no hay
+     * Quien recibe una entrada cuyo resultado es `propio` ejecuta la
+     * mutation; los demás esperan ese resultado.
+     */
+    public synchronized Entrada reservar(String clave, String huella, CompletableFuture<ExecutionResult> propio) {
+        long ahora = reloj.getAsLong();
+        Entrada actual = entradas.get(clave);
+        if (actual != null && ahora - actual.creada <= vigenciaMs) {
+            return actual;
+        }
+        Entrada nueva = new Entrada(huella, propio, ahora);
+        entradas.remove(clave);  // una entrada vencida vuelve al final del orden
+        entradas.put(clave, nueva);
+        return nueva;
+    }
+
+    /**
+     * Quita la entrada si todavía es la de ese resultado (no la de una reserva posterior)
+     */
+    public synchronized void liberar(String clave, CompletableFuture<ExecutionResult> resultado) {
+        Entrada actual = entradas.get(clave);
+        if (actual != null && actual.resultado == resultado) {
+            entradas.remove(clave);
+        }
+    }
+
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    public static final class Entrada {
+
+        private final String huella;
+        private final CompletableFuture<ExecutionResult> resultado;
+        private final long creada;
+
+        private Entrada(String huella, CompletableFuture<ExecutionResult> resultado, long creada) {
+            this.huella = huella;
+            this.resultado = resultado;
+            this.creada = creada;
+        }
+
+        public String getHuella() {
+            return huella;
+        }
+
+        /** Se completa con null si la primera ejecución no dejó resultado (cancelada o fallida) */
+        public CompletableFuture<ExecutionResult> getResultado() {
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.aguapago.usuarios.idempotencia;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuración de las mutations idempotentes (cabecera Idempotency-Key)
+ *
+ * Activo por defecto; se desactiva con aguapago.idempotencia.habilitado=false.
+ * El almacén vive en memoria de cada instancia: detrás de un balanceador,
+ * los reintentos de un cliente deben llegar a la misma instancia (o el
+ * reintento se ejecuta y falla como antes, ej. "El email ya está registrado").
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.idempotencia.habilitado", havingValue = "true", matchIfMissing = true)
+public class IdempotenciaConfig {
+
+    @Bean
+    public AlmacenIdempotencia almacenIdempotencia(
+            MeterRegistry registry,
+            @Value("${aguapago.idempotencia.capacidad:10000}") int capacidad,
+            @Value("${aguapago.idempotencia.vigencia:24h}") Duration vigencia) {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(capacidad, vigencia);
+        Gauge.builder("aguapago.idempotencia.entradas", almacen, AlmacenIdempotencia::getTamano)
+            .description("Idempotency-Keys guardadas")
+            .register(registry);
+        return almacen;
+    }
+
+    @Bean
+    public IdempotenciaInterceptor idempotenciaInterceptor(AlmacenIdempotencia almacenIdempotencia,
+                                                           MeterRegistry registry) {
+        return new IdempotenciaInterceptor(almacenIdempotencia, registry);
+    }
+}
@@ -0,0 +1,199 @@
+package com.aguapago.usuarios.idempotencia;
+
+import com.aguapago.usuarios.tenant.TenantContext;
+import graphql.ErrorClassification;
+import graphql.ExecutionResult;
+import graphql.GraphqlErrorBuilder;
+import graphql.incremental.IncrementalExecutionResult;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mutations idempotentes con la cabecera Idempotency-Key
+ *
+ * La app móvil reintenta registrarUsuario, crearCliente o cambiarPassword
+ * cuando la red falla, sin saber si la primera llegó. Con la misma
+ * Idempotency-Key (por tenant):
+ * - la primera petición se ejecuta y su resultado se guarda
+ * - un reintento recibe ese resultado sin volver a ejecutar la mutation
+ *   (cabecera Idempotency-Replayed: true)
+ * - un duplicado que llega mientras la primera sigue en curso la espera
+ * - la misma clave con otra query o con otras variables se rechaza
+ *   (classification IDEMPOTENCIA)
+ *
+ * Solo se guarda un resultado con algún campo raíz no nulo: algo se
+ * escribió y repetirlo duplicaría el efecto. Si todos fallaron (validación,
+ * email repetido, sobrecarga...) la transacción no dejó nada y el próximo
+ * reintento se ejecuta de nuevo. Las queries y las peticiones sin cabecera
+ * pasan sin cambios.
+ *
+ * Va antes que el resto de interceptores: un reintento repetido no ocupa
+ * cupo en el límite de concurrencia.
+ */
+public class IdempotenciaInterceptor implements WebGraphQlInterceptor, Ordered {
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotency-Replayed";
+
+    static final ErrorClassification IDEMPOTENCIA = ErrorClassification.errorClassification("IDEMPOTENCIA");
+
+    private static final int LARGO_MAXIMO = 255;
+
+    private final AlmacenIdempotencia almacen;
+    private final Counter ejecutadas;
+    private final Counter repetidas;
+    private final Counter rechazadas;
+
+    public IdempotenciaInterceptor(AlmacenIdempotencia almacen, MeterRegistry registry) {
+        this.almacen = almacen;
+        this.ejecutadas = contador(registry, "ejecutada");
+        this.repetidas = contador(registry, "repetida");
+        this.rechazadas = contador(registry, "rechazada");
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("aguapago.idempotencia")
+            .description("Mutations con Idempotency-Key: ejecutadas, repetidas desde el almacén o rechazadas")
+            .tag("resultado", resultado)
+            .register(registry);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        String clave = request.getHeaders().getFirst(CABECERA);
+        if (clave == null || clave.isBlank() || !esMutation(request.getDocument(), request.getOperationName())) {
+            return chain.next(request);
+        }
+        if (clave.length() > LARGO_MAXIMO) {
+            rechazadas.increment();
+            return Mono.just(error(request, "La Idempotency-Key no puede superar " + LARGO_MAXIMO + " caracteres"));
+        }
+
+        String claveTenant = TenantContext.actual() + '/' + clave;
+        String huella = huella(request);
+        CompletableFuture<ExecutionResult> propio = new CompletableFuture<>();
+        AlmacenIdempotencia.Entrada entrada = almacen.reservar(claveTenant, huella, propio);
+
+        if (!entrada.getHuella().equals(huella)) {
+            rechazadas.increment();
+            return Mono.just(error(request, "La Idempotency-Key ya se usó con otra operación o con otras variables"));
+        }
+        if (entrada.getResultado() != propio) {
+            // Duplicado: espera a la primera ejecución (sin bloquear el hilo)
+            return Mono.fromFuture(entrada.getResultado(), true)
+                .flatMap(resultado -> {
+                    repetidas.increment();
+                    return Mono.just(repetida(request, resultado));
+                })
+                // La primera no dejó resultado: este reintento toma su lugar
+                .switchIfEmpty(Mono.defer(() -> intercept(request, chain)));
+        }
+
+        ejecutadas.increment();
+        return chain.next(request)
+            .doOnNext(respuesta -> terminar(claveTenant, propio, respuesta.getExecutionResult()))
+            .doFinally(senal -> {
+                if (!propio.isDone()) {
+                    almacen.liberar(claveTenant, propio);
+                    propio.complete(null);
+                }
+            });
+    }
+
+    private void terminar(String clave, CompletableFuture<ExecutionResult> propio, ExecutionResult resultado) {
+        if (resultado instanceof IncrementalExecutionResult) {
+            // Con @defer/@stream el resto se entrega aparte: no se puede repetir
+            almacen.liberar(clave, propio);
+            propio.complete(null);
+            return;
+        }
+        if (!escribioAlgo(resultado)) {
+            almacen.liberar(clave, propio);
+        }
+        propio.complete(resultado);
+    }
+
+    private static boolean escribioAlgo(ExecutionResult resultado) {
+        return resultado.getData() instanceof Map<?, ?> datos
+            && datos.values().stream().anyMatch(Objects::nonNull);
+    }
+
+    // ====== PETICIÓN ======
+
+    /**
+     * Si el documento no se puede analizar o la operación no existe,
+     * graphql-java devolverá el error: aquí no se trata como mutation.
+     */
+    static boolean esMutation(String documento, String nombreOperacion) {
+        try {
+            OperationDefinition encontrada = null;
+            for (OperationDefinition operacion : Parser.parse(documento).getDefinitionsOfType(OperationDefinition.class)) {
+                if (nombreOperacion == null || nombreOperacion.equals(operacion.getName())) {
+                    if (encontrada != null && nombreOperacion == null) {
+                        return false;
+                    }
+                    encontrada = operacion;
+                }
+            }
+            return encontrada != null && encontrada.getOperation() == OperationDefinition.Operation.MUTATION;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** SHA-256 de la query, el nombre de la operación y las variables (sin guardar las contraseñas) */
+    static String huella(WebGraphQlRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getDocument().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(request.getOperationName()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(request.getVariables()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ====== RESPUESTAS ======
+
+    private static WebGraphQlResponse repetida(WebGraphQlRequest request, ExecutionResult resultado) {
+        WebGraphQlResponse respuesta = new WebGraphQlResponse(
+            new DefaultExecutionGraphQlResponse(request.toExecutionInput(), resultado));
+        respuesta.getResponseHeaders().set(CABECERA_REPETIDA, "true");
+        return respuesta;
+    }
+
+    private static WebGraphQlResponse error(WebGraphQlRequest request, String mensaje) {
+        ExecutionResult resultado = ExecutionResult.newExecutionResult()
+            .addError(GraphqlErrorBuilder.newError()
+                .message(mensaje)
+                .errorType(IDEMPOTENCIA)
+                .extensions(Map.of("reintentable", false))
+                .build())
+            .build();
+        return new WebGraphQlResponse(new DefaultExecutionGraphQlResponse(request.toExecutionInput(), resultado));
+    }
+}
@@ -0,0 +1,177 @@
+package com.aguapago.usuarios.incremental;
+
+import graphql.language.Argument;
+import graphql.language.AstPrinter;
+import graphql.language.BooleanValue;
+import graphql.language.Definition;
+import graphql.language.Directive;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.IntValue;
+import graphql.language.Node;
+import graphql.language.NodeTraverser;
+import graphql.language.NodeVisitorStub;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.StringValue;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import graphql.parser.Parser;
+import graphql.util.TraversalControl;
+import graphql.util.TraverserContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Campo raíz de una query marcado con @stream
+ *
+ * Solo los campos raíz se entregan por tramos: son los listados grandes
+ * (obtenerTodosLosClientes, obtenerUsuariosPorRol). En un campo anidado la
+ * directiva se acepta pero la lista llega completa.
+ */
+final class CampoStream {
+
+    static final String DIRECTIVA = "stream";
+
+    /** Clave del campo en la respuesta (alias o nombre) */
+    final String clave;
+    final String etiqueta;
+    final int inicial;
+
+    /** La operación con solo este campo, para pedir los tramos siguientes */
+    final String documentoTramo;
+
+    private CampoStream(String clave, String etiqueta, int inicial, String documentoTramo) {
+        this.clave = clave;
+        this.etiqueta = etiqueta;
+        this.inicial = inicial;
+        this.documentoTramo = documentoTramo;
+    }
+
+    /**
+     * Campos raíz con @stream activo en la operación pedida
+     * Si el documento no se puede analizar, graphql-java devolverá el error;
+     * aquí no hay campos que entregar por tramos.
+     */
+    static List<CampoStream> buscar(String documento, String nombreOperacion, Map<String, Object> variables) {
+        Document ast;
+        try {
+            ast = Parser.parse(documento);
+        } catch (RuntimeException e) {
+            return List.of();
+        }
+        OperationDefinition operacion = operacion(ast, nombreOperacion);
+        if (operacion == null || operacion.getOperation() != OperationDefinition.Operation.QUERY) {
+            return List.of();
+        }
+
+        Map<String, CampoStream> campos = new LinkedHashMap<>();
+        for (Selection<?> seleccion : operacion.getSelectionSet().getSelections()) {
+            if (!(seleccion instanceof Field campo) || campos.containsKey(campo.getResultKey())) {
+                continue;
+            }
+            Directive stream = campo.getDirectives(DIRECTIVA).stream().findFirst().orElse(null);
+            if (stream == null || !Boolean.TRUE.equals(valor(stream.getArgument("if"), variables, Boolean.TRUE))) {
+                continue;
+            }
+            Object inicial = valor(stream.getArgument("initialCount"), variables, 0);
+            Object etiqueta = valor(stream.getArgument("label"), variables, null);
+            if (!(inicial instanceof Number numero) || numero.intValue() < 0) {
+                continue;  // initialCount inválido: la lista llega completa
+            }
+            campos.put(campo.getResultKey(), new CampoStream(campo.getResultKey(),
+                etiqueta == null ? null : etiqueta.toString(), numero.intValue(), documentoTramo(ast, operacion, campo)));
+        }
+        return List.copyOf(campos.values());
+    }
+
+    // ====== DOCUMENTO DE LOS TRAMOS ======
+
+    /**
+     * La operación reducida al campo: con los fragmentos y las variables que
+     * usa (graphql-java rechaza fragmentos y variables declarados sin usar)
+     */
+    private static String documentoTramo(Document ast, OperationDefinition operacion, Field campo) {
+        Map<String, FragmentDefinition> fragmentos = new LinkedHashMap<>();
+        ast.getDefinitionsOfType(FragmentDefinition.class).forEach(f -> fragmentos.put(f.getName(), f));
+
+        Set<String> fragmentosUsados = new HashSet<>();
+        Set<String> variablesUsadas = new HashSet<>();
+        Deque<Node<?>> pendientes = new ArrayDeque<>(List.of(campo));
+        NodeVisitorStub visitante = new NodeVisitorStub() {
+
+            @Override
+            public TraversalControl visitVariableReference(VariableReference node, TraverserContext<Node> context) {
+                variablesUsadas.add(node.getName());
+                return TraversalControl.CONTINUE;
+            }
+
+            @Override
+            public TraversalControl visitFragmentSpread(FragmentSpread node, TraverserContext<Node> context) {
+                FragmentDefinition definicion = fragmentos.get(node.getName());
+                if (definicion != null && fragmentosUsados.add(node.getName())) {
+                    pendientes.add(definicion);
+                }
+                return TraversalControl.CONTINUE;
+            }
+        };
+        while (!pendientes.isEmpty()) {
+            new NodeTraverser().depthFirst(visitante, pendientes.poll());
+        }
+
+        OperationDefinition reducida = operacion.transform(builder -> builder
+            .selectionSet(SelectionSet.newSelectionSet().selection(campo).build())
+            .variableDefinitions(operacion.getVariableDefinitions().stream()
+                .filter(v -> variablesUsadas.contains(v.getName()))
+                .toList()));
+        List<Definition> definiciones = new ArrayList<>();
+        definiciones.add(reducida);
+        fragmentos.values().stream().filter(f -> fragmentosUsados.contains(f.getName())).forEach(definiciones::add);
+        return AstPrinter.printAstCompact(Document.newDocument().definitions(definiciones).build());
+    }
+
+    // ====== UTILIDADES ======
+
+    private static Object valor(Argument argumento, Map<String, Object> variables, Object porDefecto) {
+        if (argumento == null) {
+            return porDefecto;
+        }
+        Value<?> valor = argumento.getValue();
+        if (valor instanceof VariableReference referencia) {
+            return variables == null ? porDefecto : variables.getOrDefault(referencia.getName(), porDefecto);
+        }
+        if (valor instanceof BooleanValue booleano) {
+            return booleano.isValue();
+        }
+        if (valor instanceof IntValue entero) {
+            return entero.getValue().intValue();
+        }
+        if (valor instanceof StringValue texto) {
+            return texto.getValue();
+        }
+        return porDefecto;
+    }
+
+    private static OperationDefinition operacion(Document documento, String nombreOperacion) {
+        OperationDefinition encontrada = null;
+        for (OperationDefinition operacion : documento.getDefinitionsOfType(OperationDefinition.class)) {
+            if (nombreOperacion == null || nombreOperacion.equals(operacion.getName())) {
+                if (encontrada != null && nombreOperacion == null) {
+                    return null;  // varias operaciones sin operationName: error de graphql-java
+                }
+                encontrada = operacion;
+            }
+        }
+        return encontrada;
+    }
+}
@@ -0,0 +1,39 @@
+package com.aguapago.usuarios.incremental;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Configuración de la entrega incremental (@defer / @stream) en /graphql
+ *
+ * Activa por defecto; se desactiva con aguapago.graphql.incremental.habilitado=false
+ * (las directivas se siguen aceptando y la respuesta llega completa en JSON).
+ * La ruta va antes que la de Spring GraphQL y solo toma los POST que piden
+ * multipart/mixed; el resto sigue por el handler JSON de siempre.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.graphql.incremental.habilitado", havingValue = "true", matchIfMissing = true)
+public class EntregaIncrementalConfig {
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public RouterFunction<ServerResponse> entregaIncrementalRouterFunction(
+            WebGraphQlHandler webGraphQlHandler,
+            ObjectMapper objectMapper,
+            @Value("${spring.graphql.http.path:/graphql}") String ruta,
+            @Value("${aguapago.graphql.incremental.tamano-tramo:500}") int tamanoTramo) {
+        EntregaIncrementalHandler handler = new EntregaIncrementalHandler(webGraphQlHandler, objectMapper, tamanoTramo);
+        return RouterFunctions.route()
+            .POST(ruta, EntregaIncrementalHandler::aceptaMultipart, handler)
+            .build();
+    }
+}
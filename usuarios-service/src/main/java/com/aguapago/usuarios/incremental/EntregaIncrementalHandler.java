@@ -0,0 +1,306 @@
+package com.aguapago.usuarios.incremental;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.ExperimentalApi;
+import graphql.GraphQLError;
+import graphql.incremental.IncrementalExecutionResult;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.servlet.ServletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.server.support.SerializableGraphQlRequest;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * POST /graphql con Accept: multipart/mixed (entrega incremental)
+ *
+ * La respuesta es multipart/mixed; boundary="-" (formato deferSpec=20220824,
+ * el de Apollo Client y graphql-js): una parte JSON por entrega, cada una
+ * enviada y vaciada (flush) en cuanto está lista.
+ * - @defer lo ejecuta graphql-java (soporte incremental experimental): la
+ *   primera parte llega sin los fragmentos diferidos y cada uno viaja
+ *   después como {"incremental":[{"data":..., "path":[...]}]}.
+ * - @stream en un campo raíz se entrega por tramos: la primera parte trae
+ *   initialCount filas y cada tramo siguiente (tamano-tramo filas) es otra
+ *   ejecución de la operación reducida a ese campo, que el resolver lee por
+ *   keyset a partir de la última fila entregada (ver TramoStream).
+ *
+ * Cada ejecución pasa por los interceptores de /graphql (tenant, límite de
+ * concurrencia, IP de origen) igual que una petición normal: un listado
+ * largo ocupa el cupo de a un tramo por vez y no durante toda la entrega.
+ * Si un tramo falla (o el límite lo rechaza), su parte lleva el error y la
+ * entrega termina.
+ */
+public class EntregaIncrementalHandler implements HandlerFunction<ServerResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(EntregaIncrementalHandler.class);
+
+    static final MediaType MULTIPART_MIXED = new MediaType("multipart", "mixed",
+        Map.of("boundary", "\"-\"", "deferSpec", "20220824"));
+
+    private static final byte[] DELIMITADOR = "\r\n---".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CABECERA_PARTE =
+        "\r\nContent-Type: application/json; charset=utf-8\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CIERRE = "--\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final WebGraphQlHandler graphQlHandler;
+    private final ObjectMapper objectMapper;
+    private final int tamanoTramo;
+    private final ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+
+    public EntregaIncrementalHandler(WebGraphQlHandler graphQlHandler, ObjectMapper objectMapper, int tamanoTramo) {
+        if (tamanoTramo <= 0) {
+            throw new IllegalArgumentException("tamano-tramo debe ser mayor que 0");
+        }
+        this.graphQlHandler = graphQlHandler;
+        this.objectMapper = objectMapper;
+        this.tamanoTramo = tamanoTramo;
+    }
+
+    /**
+     * El cliente pidió multipart/mixed explícitamente
+     * Con un Accept comodín (el de curl, por ejemplo) sigue el handler JSON de Spring.
+     */
+    static boolean aceptaMultipart(ServerRequest request) {
+        return request.headers().accept().stream()
+            .anyMatch(tipo -> "multipart".equals(tipo.getType()) && "mixed".equals(tipo.getSubtype()));
+    }
+
+    @Override
+    public ServerResponse handle(ServerRequest request) throws ServletException, IOException {
+        SerializableGraphQlRequest graphQlRequest = request.body(SerializableGraphQlRequest.class);
+        Map<String, Object> cuerpo = new HashMap<>();
+        cuerpo.put("query", graphQlRequest.getQuery());
+        cuerpo.put("operationName", graphQlRequest.getOperationName());
+        cuerpo.put("variables", graphQlRequest.getVariables());
+        cuerpo.put("extensions", graphQlRequest.getExtensions());
+        Peticion peticion = new Peticion(request, cuerpo, snapshots.captureAll());
+
+        List<CampoStream> campos = CampoStream.buscar(graphQlRequest.getQuery(),
+            graphQlRequest.getOperationName(), graphQlRequest.getVariables());
+        Map<String, TramoStream> tramos = new HashMap<>();
+        campos.forEach(campo -> tramos.put(campo.clave, new TramoStream(campo.inicial, 0L)));
+
+        Map<String, Object> contexto = new HashMap<>();
+        contexto.put(ExperimentalApi.ENABLE_INCREMENTAL_SUPPORT, true);
+        contexto.put(TramoStream.CLAVE, tramos);
+        Mono<ServerResponse> respuesta = peticion.ejecutar(cuerpo, contexto)
+            .map(inicial -> ServerResponse.ok()
+                .headers(cabeceras -> cabeceras.addAll(inicial.getResponseHeaders()))
+                .contentType(MULTIPART_MIXED)
+                .body(multipart(entregas(peticion, inicial, campos, tramos))));
+        return ServerResponse.async(respuesta.toFuture());
+    }
+
+    // ====== ENTREGAS ======
+
+    private Flux<Map<String, Object>> entregas(Peticion peticion, WebGraphQlResponse inicial,
+                                               List<CampoStream> campos, Map<String, TramoStream> tramos) {
+        ExecutionResult resultado = inicial.getExecutionResult();
+        Map<String, Object> datos = resultado.getData() instanceof Map<?, ?> mapa ? castear(mapa) : Map.of();
+
+        // Campos con @stream que quedaron por entregar, con la cantidad ya enviada
+        List<CampoStream> pendientes = new ArrayList<>();
+        Map<String, Integer> entregados = new HashMap<>();
+        for (CampoStream campo : campos) {
+            TramoStream tramo = tramos.get(campo.clave);
+            if (tramo.isLeido() && !tramo.isFin() && datos.get(campo.clave) instanceof List<?> lista) {
+                pendientes.add(campo);
+                entregados.put(campo.clave, lista.size());
+            }
+        }
+
+        boolean diferidos = resultado instanceof IncrementalExecutionResult incremental && incremental.hasNext();
+        Map<String, Object> primera = new LinkedHashMap<>(resultado.toSpecification());
+        primera.put("hasNext", diferidos || !pendientes.isEmpty());
+
+        Flux<Map<String, Object>> fragmentos = !diferidos ? Flux.empty()
+            : Flux.from(((IncrementalExecutionResult) resultado).getIncrementalItemPublisher())
+                .map(parcial -> {
+                    Map<String, Object> entrega = new LinkedHashMap<>(parcial.toSpecification());
+                    if (!pendientes.isEmpty()) {
+                        entrega.put("hasNext", true);
+                    }
+                    return entrega;
+                });
+        Flux<Map<String, Object>> listas = Flux.fromIterable(pendientes)
+            .concatMap(campo -> tramos(peticion, campo, tramos.get(campo.clave).getUltimo(), entregados.get(campo.clave)));
+        Flux<Map<String, Object>> fin = pendientes.isEmpty() ? Flux.empty() : Flux.just(Map.of("hasNext", false));
+        return Flux.concat(Flux.just(primera), fragmentos, listas, fin);
+    }
+
+    /**
+     * Tramos siguientes de un campo con @stream, uno después de otro
+     */
+    private Flux<Map<String, Object>> tramos(Peticion peticion, CampoStream campo, long despuesDe, int indice) {
+        return tramo(peticion, campo, despuesDe, indice)
+            .expand(anterior -> anterior.continuar
+                ? tramo(peticion, campo, anterior.ultimo, anterior.indice + anterior.cantidad)
+                : Mono.empty())
+            .filter(tramo -> tramo.entrega != null)
+            .map(tramo -> tramo.entrega);
+    }
+
+    private Mono<Tramo> tramo(Peticion peticion, CampoStream campo, long despuesDe, int indice) {
+        TramoStream tramo = new TramoStream(tamanoTramo, despuesDe);
+        Map<String, Object> cuerpo = new HashMap<>(peticion.cuerpo);
+        cuerpo.put("query", campo.documentoTramo);
+        return peticion.ejecutar(cuerpo, Map.of(TramoStream.CLAVE, Map.of(campo.clave, tramo)))
+            .map(respuesta -> {
+                ExecutionResult resultado = respuesta.getExecutionResult();
+                List<?> items = resultado.getData() instanceof Map<?, ?> datos
+                    && datos.get(campo.clave) instanceof List<?> lista && tramo.isLeido() ? lista : null;
+                int cantidad = items == null ? 0 : items.size();
+                log.debug("Tramo de {} desde el índice {}: {} filas", campo.clave, indice, cantidad);
+
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("items", items);
+                item.put("path", List.of(campo.clave, indice));
+                if (campo.etiqueta != null) {
+                    item.put("label", campo.etiqueta);
+                }
+                if (!resultado.getErrors().isEmpty()) {
+                    item.put("errors", resultado.getErrors().stream()
+                        .map(error -> desplazar(error, campo.clave, indice))
+                        .toList());
+                }
+                boolean vacio = cantidad == 0 && resultado.getErrors().isEmpty();
+                Map<String, Object> entrega = vacio ? null : Map.of("incremental", List.of(item), "hasNext", true);
+                boolean continuar = items != null && resultado.getErrors().isEmpty() && !tramo.isFin();
+                return new Tramo(entrega, continuar, tramo.getUltimo(), indice, cantidad);
+            });
+    }
+
+    /**
+     * La ruta de un error dentro del tramo, como índice de la lista completa
+     */
+    private static Map<String, Object> desplazar(GraphQLError error, String clave, int indice) {
+        Map<String, Object> especificacion = new LinkedHashMap<>(error.toSpecification());
+        if (especificacion.get("path") instanceof List<?> ruta && ruta.size() > 1
+                && clave.equals(ruta.get(0)) && ruta.get(1) instanceof Integer posicion) {
+            List<Object> desplazada = new ArrayList<>(ruta);
+            desplazada.set(1, posicion + indice);
+            especificacion.put("path", desplazada);
+        }
+        return especificacion;
+    }
+
+    // ====== MULTIPART ======
+
+    /**
+     * Cada parte termina con el delimitador de la siguiente, para que el
+     * cliente la procese sin esperar a que llegue otra
+     */
+    private Flux<byte[]> multipart(Flux<Map<String, Object>> entregas) {
+        return entregas.index()
+            .map(entrega -> parte(entrega.getT2(), entrega.getT1() == 0))
+            .concatWith(Mono.just(CIERRE));
+    }
+
+    private byte[] parte(Map<String, Object> entrega, boolean primera) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(entrega);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", e);
+        }
+        int inicio = primera ? DELIMITADOR.length : 0;
+        byte[] parte = new byte[inicio + CABECERA_PARTE.length + json.length + DELIMITADOR.length];
+        System.arraycopy(DELIMITADOR, 0, parte, 0, inicio);
+        System.arraycopy(CABECERA_PARTE, 0, parte, inicio, CABECERA_PARTE.length);
+        System.arraycopy(json, 0, parte, inicio + CABECERA_PARTE.length, json.length);
+        System.arraycopy(DELIMITADOR, 0, parte, parte.length - DELIMITADOR.length, DELIMITADOR.length);
+        return parte;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castear(Map<?, ?> mapa) {
+        return (Map<String, Object>) mapa;
+    }
+
+    // ====== PETICIÓN ======
+
+    /**
+     * Los datos de la petición HTTP para armar cada ejecución
+     * Los tramos se ejecutan fuera del hilo de la petición: el tenant y demás
+     * ThreadLocals se restauran desde la captura inicial.
+     */
+    private final class Peticion {
+
+        final Map<String, Object> cuerpo;
+        private final URI uri;
+        private final HttpHeaders cabeceras;
+        private final MultiValueMap<String, HttpCookie> cookies = new LinkedMultiValueMap<>();
+        private final InetSocketAddress remoteAddress;
+        private final Map<String, Object> atributos;
+        private final Locale locale = LocaleContextHolder.getLocale();
+        private final ContextSnapshot snapshot;
+
+        Peticion(ServerRequest request, Map<String, Object> cuerpo, ContextSnapshot snapshot) {
+            this.cuerpo = cuerpo;
+            this.uri = request.uri();
+            this.cabeceras = HttpHeaders.readOnlyHttpHeaders(request.headers().asHttpHeaders());
+            this.remoteAddress = request.remoteAddress().orElse(null);
+            this.atributos = new HashMap<>(request.attributes());
+            this.snapshot = snapshot;
+            request.cookies().values().forEach(lista -> lista.forEach(c -> cookies.add(c.getName(),
+                new HttpCookie(c.getName(), c.getValue()))));
+        }
+
+        Mono<WebGraphQlResponse> ejecutar(Map<String, Object> cuerpo, Map<String, Object> contexto) {
+            return Mono.defer(() -> {
+                WebGraphQlRequest graphQlRequest = new WebGraphQlRequest(uri, cabeceras, cookies, remoteAddress,
+                    atributos, cuerpo, UUID.randomUUID().toString(), locale);
+                graphQlRequest.configureExecutionInput((input, builder) -> builder.graphQLContext(contexto).build());
+                try (ContextSnapshot.Scope scope = snapshot.setThreadLocals()) {
+                    return graphQlHandler.handleRequest(graphQlRequest);
+                }
+            });
+        }
+    }
+
+    private static final class Tramo {
+
+        final Map<String, Object> entrega;
+        final boolean continuar;
+        final long ultimo;
+        final int indice;
+        final int cantidad;
+
+        Tramo(Map<String, Object> entrega, boolean continuar, long ultimo, int indice, int cantidad) {
+            this.entrega = entrega;
+            this.continuar = continuar;
+            this.ultimo = ultimo;
+            this.indice = indice;
+            this.cantidad = cantidad;
+        }
+    }
+}
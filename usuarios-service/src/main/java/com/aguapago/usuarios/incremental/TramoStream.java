@@ -0,0 +1,74 @@
+package com.aguapago.usuarios.incremental;
+
+import graphql.schema.DataFetchingEnvironment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Tramo de una lista con @stream que le toca leer a un resolver
+ *
+ * EntregaIncrementalHandler ejecuta la operación varias veces: la primera
+ * con initialCount filas y las siguientes con tamano-tramo filas a partir de
+ * la última entregada. El tramo viaja en el GraphQLContext, por clave de
+ * resultado del campo raíz (alias o nombre).
+ *
+ * Un resolver que soporta @stream lee solo su tramo, en orden de id
+ * (keyset); si lo ignora y devuelve la lista completa, la lista se entrega
+ * entera en la primera respuesta.
+ */
+public final class TramoStream {
+
+    static final String CLAVE = TramoStream.class.getName();
+
+    private final int limite;
+    private final long despuesDe;
+
+    private volatile boolean leido;
+    private volatile boolean fin;
+    private volatile long ultimo;
+
+    TramoStream(int limite, long despuesDe) {
+        this.limite = limite;
+        this.despuesDe = despuesDe;
+        this.ultimo = despuesDe;
+    }
+
+    /**
+     * @return el tramo del campo que se está resolviendo, o null si no lleva @stream
+     */
+    public static TramoStream de(DataFetchingEnvironment environment) {
+        Map<String, TramoStream> tramos = environment.getGraphQlContext().get(CLAVE);
+        return tramos == null ? null : tramos.get(environment.getField().getResultKey());
+    }
+
+    /**
+     * Lee las filas del tramo y recuerda hasta dónde llegó
+     * @param consulta (id después del cual leer, cantidad) → filas en orden de id
+     * @param id id de una fila
+     * @return filas del tramo (vacío con initialCount 0, sin consultar la base)
+     */
+    public <T> List<T> leer(BiFunction<Long, Integer, List<T>> consulta, Function<T, Long> id) {
+        List<T> filas = limite == 0 ? List.of() : consulta.apply(despuesDe, limite);
+        if (!filas.isEmpty()) {
+            ultimo = id.apply(filas.get(filas.size() - 1));
+        }
+        fin = filas.size() < limite;
+        leido = true;
+        return filas;
+    }
+
+    boolean isLeido() {
+        return leido;
+    }
+
+    boolean isFin() {
+        return fin;
+    }
+
+    long getUltimo() {
+        return ultimo;
+    }
+}
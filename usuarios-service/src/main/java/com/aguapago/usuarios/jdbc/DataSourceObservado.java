@@ -0,0 +1,151 @@
+package com.aguapago.usuarios.jdbc;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * DataSource que avisa a los ObservadorSql de cada sentencia
+ *
+ * Envuelve la conexión y los Statement que crea con proxies de JDK: se
+ * observa cada execute*, y el SQL se toma del prepareStatement (o del propio
+ * execute, en un Statement simple). Los valores de los parámetros (setXxx)
+ * no se interceptan.
+ *
+ * Sin observadores activos devuelve la conexión tal cual. Para llegar al
+ * DataSource original (ej. TenantRoutingDataSource) usar unwrap().
+ */
+class DataSourceObservado extends DelegatingDataSource {
+
+    private final ObjectProvider<ObservadorSql> observadores;
+
+    DataSourceObservado(DataSource destino, ObjectProvider<ObservadorSql> observadores) {
+        super(destino);
+        this.observadores = observadores;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return observar(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return observar(super.getConnection(username, password));
+    }
+
+    private Connection observar(Connection conexion) {
+        List<ObservadorSql> activos = observadores.orderedStream().filter(ObservadorSql::isActivo).toList();
+        if (activos.isEmpty()) {
+            return conexion;
+        }
+        return (Connection) Proxy.newProxyInstance(DataSourceObservado.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new ConexionObservada(conexion, activos));
+    }
+
+    // ====== PROXIES ======
+
+    private static final class ConexionObservada implements InvocationHandler {
+
+        private final Connection conexion;
+        private final List<ObservadorSql> observadores;
+
+        ConexionObservada(Connection conexion, List<ObservadorSql> observadores) {
+            this.conexion = conexion;
+            this.observadores = observadores;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            Object resultado = invocar(conexion, metodo, args);
+            if (resultado instanceof Statement sentencia) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String texto ? texto : null;
+                Class<?> tipo = sentencia instanceof CallableStatement ? CallableStatement.class
+                    : sentencia instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(DataSourceObservado.class.getClassLoader(),
+                    new Class<?>[] {tipo}, new SentenciaObservada(sentencia, sql, (Connection) proxy, observadores));
+            }
+            return resultado;
+        }
+    }
+
+    private static final class SentenciaObservada implements InvocationHandler {
+
+        private final Statement sentencia;
+        private final String sql;
+        private final Connection conexion;
+        private final List<ObservadorSql> observadores;
+
+        SentenciaObservada(Statement sentencia, String sql, Connection conexion, List<ObservadorSql> observadores) {
+            this.sentencia = sentencia;
+            this.sql = sql;
+            this.conexion = conexion;
+            this.observadores = observadores;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            switch (nombre) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    return conexion;
+                default:
+                    break;
+            }
+            String texto = args != null && args.length > 0 && args[0] instanceof String propio ? propio : sql;
+            if (!nombre.startsWith("execute") || texto == null) {
+                return invocar(sentencia, metodo, args);
+            }
+
+            Object[] inicios = new Object[observadores.size()];
+            for (int i = 0; i < inicios.length; i++) {
+                inicios[i] = observadores.get(i).inicio(texto);
+            }
+            long inicio = System.nanoTime();
+            Throwable error = null;
+            try {
+                return invocar(sentencia, metodo, args);
+            } catch (Throwable e) {
+                error = e;
+                throw e;
+            } finally {
+                long nanos = System.nanoTime() - inicio;
+                // En orden inverso, como se cierran los scopes anidados
+                for (int i = inicios.length - 1; i >= 0; i--) {
+                    observadores.get(i).fin(inicios[i], texto, nanos, error);
+                }
+            }
+        }
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
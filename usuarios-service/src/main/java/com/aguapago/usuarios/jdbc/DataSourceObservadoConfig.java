@@ -0,0 +1,34 @@
+package com.aguapago.usuarios.jdbc;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Envuelve el DataSource de la aplicación (Hikari, réplicas o tenants) en
+ * un DataSourceObservado
+ *
+ * Los observadores son los beans ObservadorSql (registro lento, trazas);
+ * se buscan en cada conexión, así que el BeanPostProcessor no adelanta la
+ * creación de ningún bean.
+ */
+@Configuration
+public class DataSourceObservadoConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceObservadoPostProcessor(ObjectProvider<ObservadorSql> observadores) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof DataSourceObservado)) {
+                    return new DataSourceObservado(dataSource, observadores);
+                }
+                return bean;
+            }
+        };
+    }
+}
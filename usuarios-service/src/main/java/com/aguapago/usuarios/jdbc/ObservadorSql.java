@@ -0,0 +1,35 @@
+package com.aguapago.usuarios.jdbc;
+
+/**
+ * Recibe cada sentencia que se ejecuta por el DataSource de la aplicación
+ * (ver DataSourceObservado)
+ *
+ * Se llama en el hilo que ejecuta la sentencia, así que debe ser barato:
+ * medir, decidir y, si hace falta, dejar el trabajo para otro hilo.
+ * El SQL llega tal como se preparó, con los ? de los parámetros; los valores
+ * (setXxx) nunca se interceptan.
+ */
+public interface ObservadorSql {
+
+    /**
+     * Si ningún observador está activo, la conexión se entrega sin envolver
+     */
+    default boolean isActivo() {
+        return true;
+    }
+
+    /**
+     * Antes de ejecutar la sentencia
+     * @return lo que el observador necesite en fin() (ej. la Observation abierta), o null
+     */
+    default Object inicio(String sql) {
+        return null;
+    }
+
+    /**
+     * Después de ejecutar la sentencia, también si falló
+     * @param inicio lo devuelto por inicio()
+     * @param error la excepción de la sentencia, o null
+     */
+    void fin(Object inicio, String sql, long nanos, Throwable error);
+}
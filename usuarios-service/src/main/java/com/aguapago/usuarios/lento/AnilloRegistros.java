@@ -0,0 +1,69 @@
+package com.aguapago.usuarios.lento;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer circular de capacidad fija: muchos productores, un solo consumidor
+ *
+ * Los hilos de las peticiones nunca esperan: si el consumidor (el hilo que
+ * escribe el archivo) va atrasado y el anillo está lleno, ofrecer devuelve
+ * false y el registro se descarta.
+ */
+final class AnilloRegistros<T> {
+
+    private final AtomicReferenceArray<T> celdas;
+    private final int mascara;
+
+    /** Próxima posición a reservar por un productor */
+    private final AtomicLong escritura = new AtomicLong();
+
+    /** Próxima posición a leer; solo la avanza el consumidor */
+    private volatile long lectura;
+
+    AnilloRegistros(int capacidad) {
+        int potencia = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.celdas = new AtomicReferenceArray<>(potencia);
+        this.mascara = potencia - 1;
+    }
+
+    /**
+     * @return false si el anillo está lleno (el elemento no se guarda)
+     */
+    boolean ofrecer(T elemento) {
+        long posicion;
+        do {
+            posicion = escritura.get();
+            if (posicion - lectura >= celdas.length()) {
+                return false;
+            }
+        } while (!escritura.compareAndSet(posicion, posicion + 1));
+        // La celda ya está libre: el consumidor la vacía antes de avanzar lectura
+        celdas.set((int) (posicion & mascara), elemento);
+        return true;
+    }
+
+    /**
+     * Solo desde el hilo consumidor
+     * @return el siguiente elemento, o null si no hay (o si el productor que
+     *         reservó la posición todavía no lo publicó)
+     */
+    T tomar() {
+        int celda = (int) (lectura & mascara);
+        T elemento = celdas.get(celda);
+        if (elemento == null) {
+            return null;
+        }
+        celdas.set(celda, null);
+        lectura = lectura + 1;
+        return elemento;
+    }
+
+    boolean vacio() {
+        return escritura.get() == lectura;
+    }
+
+    int capacidad() {
+        return celdas.length();
+    }
+}
@@ -0,0 +1,91 @@
+package com.aguapago.usuarios.lento;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archivo de texto que rota por tamaño
+ *
+ * Al superar tamanoMaximo, registro-lento.log pasa a registro-lento.log.1,
+ * el .1 a .2, y así hasta conservar "archivos" copias; la más vieja se borra.
+ * No es seguro entre hilos: lo usa solo el escritor de RegistroLento.
+ */
+final class ArchivoRotativo implements AutoCloseable {
+
+    private final Path archivo;
+    private final long tamanoMaximo;
+    private final int archivos;
+
+    private BufferedWriter escritor;
+    private long tamano;
+
+    ArchivoRotativo(Path archivo, long tamanoMaximo, int archivos) {
+        this.archivo = archivo.toAbsolutePath();
+        this.tamanoMaximo = tamanoMaximo;
+        this.archivos = Math.max(1, archivos);
+    }
+
+    void escribir(String linea) throws IOException {
+        if (escritor == null) {
+            abrir();
+        }
+        escritor.write(linea);
+        escritor.write('\n');
+        // Aproximado (ASCII casi siempre); solo decide cuándo rotar
+        tamano += linea.length() + 1;
+        if (tamano >= tamanoMaximo) {
+            rotar();
+        }
+    }
+
+    void flush() throws IOException {
+        if (escritor != null) {
+            escritor.flush();
+        }
+    }
+
+    Path getArchivo() {
+        return archivo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (escritor != null) {
+            escritor.close();
+            escritor = null;
+        }
+    }
+
+    // ====== ROTACIÓN ======
+
+    private void abrir() throws IOException {
+        Path directorio = archivo.getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+        escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        tamano = Files.size(archivo);
+    }
+
+    private void rotar() throws IOException {
+        close();
+        Files.deleteIfExists(copia(archivos));
+        for (int i = archivos - 1; i >= 1; i--) {
+            if (Files.exists(copia(i))) {
+                Files.move(copia(i), copia(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(archivo, copia(1), StandardCopyOption.REPLACE_EXISTING);
+        abrir();
+    }
+
+    private Path copia(int numero) {
+        return archivo.resolveSibling(archivo.getFileName() + "." + numero);
+    }
+}
@@ -0,0 +1,138 @@
+package com.aguapago.usuarios.lento;
+
+import graphql.language.AstPrinter;
+import graphql.language.AstSignature;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+
+import java.util.List;
+
+/**
+ * Quita los valores de lo que se escribe en el registro lento
+ *
+ * Los valores de los parámetros de un PreparedStatement nunca se capturan;
+ * aquí se quitan además los literales que vengan dentro del propio texto
+ * (SQL armado a mano, argumentos escritos en la query GraphQL).
+ */
+public final class Redaccion {
+
+    private Redaccion() {
+    }
+
+    /**
+     * Reemplaza cadenas y números literales por ? y compacta los espacios
+     * Los dígitos dentro de identificadores (u1_0, V3) se conservan.
+     */
+    public static String sql(String sql) {
+        StringBuilder resultado = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = finCadena(sql, i + 1);
+                resultado.append('?');
+            } else if (Character.isDigit(c) && !parteDeIdentificador(sql, i)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                resultado.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (!resultado.isEmpty()) {
+                    resultado.append(' ');
+                }
+            } else {
+                resultado.append(c);
+                i++;
+            }
+        }
+        return resultado.toString().stripTrailing();
+    }
+
+    /**
+     * Cantidad de parámetros (?) del SQL, sin contar los que estén dentro de cadenas
+     */
+    static int parametros(String sql) {
+        int cantidad = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = finCadena(sql, i + 1);
+            } else {
+                if (c == '?') {
+                    cantidad++;
+                }
+                i++;
+            }
+        }
+        return cantidad;
+    }
+
+    /**
+     * @return el documento GraphQL, o null si no se puede analizar
+     */
+    static Document documento(String documento) {
+        try {
+            return Parser.parse(documento);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Nombre de la operación ejecutada: el pedido o, si no vino, el de la
+     * única operación del documento (null si es anónima)
+     */
+    static String nombreOperacion(Document documento, String nombreOperacion) {
+        if (nombreOperacion != null || documento == null) {
+            return nombreOperacion;
+        }
+        List<OperationDefinition> operaciones = documento.getDefinitionsOfType(OperationDefinition.class);
+        return operaciones.size() == 1 ? operaciones.get(0).getName() : null;
+    }
+
+    /**
+     * La operación en una línea, con los literales vacíos ("", 0) y sin las
+     * demás operaciones del documento (AstSignature.privacySafeQuery)
+     */
+    static String operacion(Document documento, String nombreOperacion) {
+        if (documento == null) {
+            return "<documento no analizable>";
+        }
+        try {
+            return AstPrinter.printAstCompact(new AstSignature().privacySafeQuery(documento, nombreOperacion));
+        } catch (RuntimeException e) {
+            return "<documento no analizable>";
+        }
+    }
+
+    // ====== UTILIDADES ======
+
+    /** Posición siguiente al cierre de la cadena ('' es una comilla escapada) */
+    private static int finCadena(String sql, int desde) {
+        int i = desde;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean parteDeIdentificador(String sql, int posicion) {
+        if (posicion == 0) {
+            return false;
+        }
+        char anterior = sql.charAt(posicion - 1);
+        return Character.isLetterOrDigit(anterior) || anterior == '_' || anterior == '$' || anterior == '"';
+    }
+}
@@ -0,0 +1,284 @@
+package com.aguapago.usuarios.lento;
+
+import com.aguapago.usuarios.jdbc.ObservadorSql;
+import com.aguapago.usuarios.tenant.TenantContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import graphql.language.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de sentencias SQL y operaciones GraphQL lentas o muestreadas
+ *
+ * Reemplaza a show-sql y al DEBUG de graphql, que escribían todo de forma
+ * síncrona en el hilo de la petición. Aquí la petición solo mide y decide:
+ * - LENTO: la duración llegó al umbral (umbralSql / umbralOperacion)
+ * - MUESTRA: no es lenta, pero salió elegida con probabilidad "muestreo"
+ *
+ * Lo elegido se deja en un AnilloRegistros sin bloquear (si está lleno se
+ * descarta y se cuenta). Un hilo escritor lo redacta (ver Redaccion), lo
+ * pasa a JSON y lo escribe en un ArchivoRotativo, un JSON por línea.
+ *
+ * Umbrales, muestreo y el interruptor "activo" se cambian en caliente con
+ * el endpoint /actuator/registrolento.
+ */
+public class RegistroLento implements ObservadorSql, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroLento.class);
+
+    private static final long ESPERA_ESCRITOR_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AnilloRegistros<Entrada> anillo;
+    private final ArchivoRotativo archivo;
+    private final ObjectMapper objectMapper;
+    private final Thread escritor;
+
+    private volatile boolean activo;
+    private volatile long umbralSqlNanos;
+    private volatile long umbralOperacionNanos;
+    private volatile double muestreo;
+    private volatile boolean detenido;
+
+    private final AtomicLong lentos = new AtomicLong();
+    private final AtomicLong muestras = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong erroresEscritura = new AtomicLong();
+
+    RegistroLento(ArchivoRotativo archivo, int capacidad, ObjectMapper objectMapper,
+                  Duration umbralSql, Duration umbralOperacion, double muestreo) {
+        this.anillo = new AnilloRegistros<>(capacidad);
+        this.archivo = archivo;
+        this.objectMapper = objectMapper;
+        this.activo = true;
+        this.umbralSqlNanos = umbralSql.toNanos();
+        this.umbralOperacionNanos = umbralOperacion.toNanos();
+        this.muestreo = validarMuestreo(muestreo);
+        this.escritor = new Thread(this::escribirPendientes, "registro-lento");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    @Override
+    public boolean isActivo() {
+        return activo;
+    }
+
+    // ====== REGISTRO (hilo de la petición) ======
+
+    @Override
+    public void fin(Object inicio, String sql, long nanos, Throwable error) {
+        sql(sql, nanos, error != null);
+    }
+
+    /**
+     * @param sql texto tal como se preparó (con los ? de los parámetros)
+     */
+    void sql(String sql, long nanos, boolean error) {
+        Motivo motivo = motivo(nanos, umbralSqlNanos);
+        if (motivo != null) {
+            publicar(new Entrada(Tipo.SQL, motivo, nanos, error ? 1 : 0, sql, null));
+        }
+    }
+
+    /**
+     * @param documento la query GraphQL; se guarda solo su firma sin literales
+     */
+    void operacion(String documento, String nombreOperacion, long nanos, int errores) {
+        Motivo motivo = motivo(nanos, umbralOperacionNanos);
+        if (motivo != null) {
+            publicar(new Entrada(Tipo.OPERACION, motivo, nanos, errores, documento, nombreOperacion));
+        }
+    }
+
+    private Motivo motivo(long nanos, long umbral) {
+        if (!activo) {
+            return null;
+        }
+        if (nanos >= umbral) {
+            return Motivo.LENTO;
+        }
+        double probabilidad = muestreo;
+        return probabilidad > 0 && ThreadLocalRandom.current().nextDouble() < probabilidad ? Motivo.MUESTRA : null;
+    }
+
+    private void publicar(Entrada entrada) {
+        if (!anillo.ofrecer(entrada)) {
+            descartados.incrementAndGet();
+            return;
+        }
+        (entrada.motivo == Motivo.LENTO ? lentos : muestras).incrementAndGet();
+    }
+
+    // ====== CONFIGURACIÓN EN CALIENTE ======
+
+    /**
+     * Cambia solo los valores no nulos
+     */
+    public synchronized void configurar(Boolean activo, Duration umbralSql, Duration umbralOperacion, Double muestreo) {
+        if (umbralSql != null && umbralSql.isNegative() || umbralOperacion != null && umbralOperacion.isNegative()) {
+            throw new IllegalArgumentException("Los umbrales no pueden ser negativos");
+        }
+        if (muestreo != null) {
+            this.muestreo = validarMuestreo(muestreo);
+        }
+        if (umbralSql != null) {
+            this.umbralSqlNanos = umbralSql.toNanos();
+        }
+        if (umbralOperacion != null) {
+            this.umbralOperacionNanos = umbralOperacion.toNanos();
+        }
+        if (activo != null) {
+            this.activo = activo;
+        }
+        log.info("Registro lento: activo={} umbralSql={}ms umbralOperacion={}ms muestreo={}", this.activo,
+            TimeUnit.NANOSECONDS.toMillis(umbralSqlNanos), TimeUnit.NANOSECONDS.toMillis(umbralOperacionNanos),
+            this.muestreo);
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("activo", activo);
+        estado.put("umbralSqlMs", TimeUnit.NANOSECONDS.toMillis(umbralSqlNanos));
+        estado.put("umbralOperacionMs", TimeUnit.NANOSECONDS.toMillis(umbralOperacionNanos));
+        estado.put("muestreo", muestreo);
+        estado.put("archivo", archivo.getArchivo().toString());
+        estado.put("capacidad", anillo.capacidad());
+        estado.put("lentos", lentos.get());
+        estado.put("muestras", muestras.get());
+        estado.put("descartados", descartados.get());
+        estado.put("erroresEscritura", erroresEscritura.get());
+        return estado;
+    }
+
+    private static double validarMuestreo(double muestreo) {
+        if (muestreo < 0 || muestreo > 1 || Double.isNaN(muestreo)) {
+            throw new IllegalArgumentException("El muestreo debe estar entre 0 y 1");
+        }
+        return muestreo;
+    }
+
+    // ====== ESCRITOR ======
+
+    private void escribirPendientes() {
+        while (!detenido) {
+            if (!vaciarAnillo()) {
+                LockSupport.parkNanos(ESPERA_ESCRITOR_NANOS);
+            }
+        }
+        vaciarAnillo();
+    }
+
+    /**
+     * Escribe lo que haya en el anillo y hace flush al terminar
+     * @return false si no había nada
+     */
+    private boolean vaciarAnillo() {
+        synchronized (archivo) {
+            Entrada entrada = anillo.tomar();
+            if (entrada == null) {
+                return false;
+            }
+            try {
+                while (entrada != null) {
+                    archivo.escribir(linea(entrada));
+                    entrada = anillo.tomar();
+                }
+                archivo.flush();
+            } catch (IOException | RuntimeException e) {
+                // Sin reintentos: el registro lento no debe acumular ni frenar nada
+                if (erroresEscritura.getAndIncrement() == 0) {
+                    log.warn("No se pudo escribir el registro lento en {}: {}", archivo.getArchivo(), e.toString());
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Espera a que lo publicado hasta ahora quede escrito (pruebas)
+     */
+    void esperarEscritura() {
+        while (!anillo.vacio()) {
+            LockSupport.unpark(escritor);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        synchronized (archivo) {
+            // El escritor suelta el monitor solo después del flush
+        }
+    }
+
+    private String linea(Entrada entrada) throws IOException {
+        ObjectNode linea = objectMapper.createObjectNode();
+        linea.put("ts", Instant.ofEpochMilli(entrada.momento).toString());
+        linea.put("tipo", entrada.tipo.name());
+        linea.put("motivo", entrada.motivo.name());
+        linea.put("ms", Math.round(entrada.nanos / 1e4) / 100.0);
+        linea.put("tenant", entrada.tenant);
+        linea.put("hilo", entrada.hilo);
+        if (entrada.tipo == Tipo.SQL) {
+            linea.put("sql", Redaccion.sql(entrada.texto));
+            linea.put("parametros", Redaccion.parametros(entrada.texto));
+            linea.put("error", entrada.errores > 0);
+        } else {
+            Document documento = Redaccion.documento(entrada.texto);
+            String nombre = Redaccion.nombreOperacion(documento, entrada.nombreOperacion);
+            linea.put("operacion", nombre);
+            linea.put("firma", Redaccion.operacion(documento, nombre));
+            linea.put("errores", entrada.errores);
+        }
+        return objectMapper.writeValueAsString(linea);
+    }
+
+    @Override
+    public void close() throws Exception {
+        detenido = true;
+        LockSupport.unpark(escritor);
+        escritor.join(TimeUnit.SECONDS.toMillis(5));
+        synchronized (archivo) {
+            archivo.close();
+        }
+    }
+
+    // ====== ENTRADAS ======
+
+    enum Tipo { SQL, OPERACION }
+
+    enum Motivo { LENTO, MUESTRA }
+
+    /**
+     * Lo mínimo que se copia en el hilo de la petición; la redacción y el
+     * JSON se hacen en el escritor
+     */
+    private static final class Entrada {
+
+        final Tipo tipo;
+        final Motivo motivo;
+        final long momento = System.currentTimeMillis();
+        final long nanos;
+        final int errores;
+        final String texto;
+        final String nombreOperacion;
+        final String tenant = TenantContext.actual();
+        final String hilo = Thread.currentThread().getName();
+
+        Entrada(Tipo tipo, Motivo motivo, long nanos, int errores, String texto, String nombreOperacion) {
+            this.tipo = tipo;
+            this.motivo = motivo;
+            this.nanos = nanos;
+            this.errores = errores;
+            this.texto = texto;
+            this.nombreOperacion = nombreOperacion;
+        }
+    }
+}
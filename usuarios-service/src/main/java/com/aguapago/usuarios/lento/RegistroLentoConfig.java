@@ -0,0 +1,49 @@
+package com.aguapago.usuarios.lento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuración del registro de SQL y operaciones GraphQL lentas
+ *
+ * Activo por defecto; se desactiva del todo con
+ * aguapago.registro-lento.habilitado=false. El SQL le llega como ObservadorSql
+ * del DataSourceObservado.
+ * Los umbrales y el muestreo son los valores iniciales: después se cambian
+ * con /actuator/registrolento (ver RegistroLentoEndpoint).
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.registro-lento.habilitado", havingValue = "true", matchIfMissing = true)
+public class RegistroLentoConfig {
+
+    @Bean
+    public RegistroLento registroLento(
+            ObjectMapper objectMapper,
+            @Value("${aguapago.registro-lento.archivo:logs/registro-lento.log}") String archivo,
+            @Value("${aguapago.registro-lento.tamano-maximo:10MB}") DataSize tamanoMaximo,
+            @Value("${aguapago.registro-lento.archivos:5}") int archivos,
+            @Value("${aguapago.registro-lento.capacidad:8192}") int capacidad,
+            @Value("${aguapago.registro-lento.umbral-sql:200ms}") Duration umbralSql,
+            @Value("${aguapago.registro-lento.umbral-operacion:500ms}") Duration umbralOperacion,
+            @Value("${aguapago.registro-lento.muestreo:0}") double muestreo) {
+        return new RegistroLento(new ArchivoRotativo(Path.of(archivo), tamanoMaximo.toBytes(), archivos),
+            capacidad, objectMapper, umbralSql, umbralOperacion, muestreo);
+    }
+
+    @Bean
+    public RegistroLentoInterceptor registroLentoInterceptor(RegistroLento registroLento) {
+        return new RegistroLentoInterceptor(registroLento);
+    }
+
+    @Bean
+    public RegistroLentoEndpoint registroLentoEndpoint(RegistroLento registroLento) {
+        return new RegistroLentoEndpoint(registroLento);
+    }
+}
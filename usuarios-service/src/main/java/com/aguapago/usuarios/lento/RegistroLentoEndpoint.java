@@ -0,0 +1,43 @@
+package com.aguapago.usuarios.lento;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * /actuator/registrolento: estado y configuración en caliente del registro lento
+ *
+ * GET devuelve umbrales, muestreo y contadores. POST con un JSON cambia solo
+ * lo que se envíe, ej. {"umbralSqlMs": 50, "muestreo": 0.01} o {"activo": false}.
+ * Los cambios no sobreviven a un reinicio (vuelven las propiedades).
+ */
+@Endpoint(id = "registrolento")
+public class RegistroLentoEndpoint {
+
+    private final RegistroLento registro;
+
+    public RegistroLentoEndpoint(RegistroLento registro) {
+        this.registro = registro;
+    }
+
+    @ReadOperation
+    public Map<String, Object> estado() {
+        return registro.estado();
+    }
+
+    @WriteOperation
+    public Map<String, Object> configurar(@Nullable Boolean activo,
+                                          @Nullable Long umbralSqlMs,
+                                          @Nullable Long umbralOperacionMs,
+                                          @Nullable Double muestreo) {
+        registro.configurar(activo,
+            umbralSqlMs == null ? null : Duration.ofMillis(umbralSqlMs),
+            umbralOperacionMs == null ? null : Duration.ofMillis(umbralOperacionMs),
+            muestreo);
+        return registro.estado();
+    }
+}
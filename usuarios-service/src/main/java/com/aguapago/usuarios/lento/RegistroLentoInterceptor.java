@@ -0,0 +1,35 @@
+package com.aguapago.usuarios.lento;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mide cada operación de /graphql, de la entrada hasta el resultado, y se
+ * la pasa a RegistroLento (que decide si es lenta o si sale en la muestra)
+ *
+ * Las variables de la petición no se registran; del documento solo queda
+ * la firma sin literales.
+ */
+public class RegistroLentoInterceptor implements WebGraphQlInterceptor {
+
+    private final RegistroLento registro;
+
+    public RegistroLentoInterceptor(RegistroLento registro) {
+        this.registro = registro;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        if (!registro.isActivo()) {
+            return chain.next(request);
+        }
+        long inicio = System.nanoTime();
+        return chain.next(request)
+            .doOnNext(respuesta -> registro.operacion(request.getDocument(), request.getOperationName(),
+                System.nanoTime() - inicio, respuesta.getErrors().size()))
+            .doOnError(error -> registro.operacion(request.getDocument(), request.getOperationName(),
+                System.nanoTime() - inicio, 1));
+    }
+}
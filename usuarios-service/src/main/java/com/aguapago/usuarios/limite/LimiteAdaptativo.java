@@ -0,0 +1,119 @@
+package com.aguapago.usuarios.limite;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Límite de concurrencia adaptativo basado en la latencia medida
+ *
+ * - Crecimiento por gradiente: compara la latencia de cada muestra con un
+ *   promedio de largo plazo. Si la latencia se mantiene, el límite sube
+ *   (+√límite); si crece porque las peticiones empiezan a hacer cola en el
+ *   pool de conexiones, el gradiente baja y el límite se reduce en proporción.
+ * - Decremento multiplicativo (AIMD): una petición fallida o más lenta que
+ *   la latencia máxima recorta el límite por un factor fijo.
+ *
+ * Solo crece si al menos la mitad del límite está en uso: sin carga real no
+ * hay información para subirlo.
+ */
+public class LimiteAdaptativo {
+
+    /** Peso de cada muestra en el promedio de largo plazo */
+    private static final double PESO_LARGO = 1.0 / 500;
+
+    /** Suavizado aplicado a cada cambio del límite */
+    private static final double SUAVIZADO = 0.2;
+
+    /** Factor de recorte ante error o latencia excesiva */
+    private static final double FACTOR_REDUCCION = 0.9;
+
+    private final int minimo;
+    private final int maximo;
+    private final double tolerancia;
+    private final long latenciaMaximaNanos;
+
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private final ReentrantLock actualizacion = new ReentrantLock();
+
+    private volatile double limite;
+    private double rttLargoNanos;
+
+    /**
+     * @param inicial        límite de partida
+     * @param minimo         el límite nunca baja de este valor
+     * @param maximo         el límite nunca sube de este valor
+     * @param tolerancia     cuánto puede crecer la latencia sobre el promedio antes de reducir (ej. 2.0)
+     * @param latenciaMaxima una muestra más lenta que esto cuenta como sobrecarga
+     */
+    public LimiteAdaptativo(int inicial, int minimo, int maximo, double tolerancia, Duration latenciaMaxima) {
+        if (minimo < 1 || maximo < minimo || inicial < minimo || inicial > maximo) {
+            throw new IllegalArgumentException("Límites de concurrencia inválidos: inicial=" + inicial
+                + " minimo=" + minimo + " maximo=" + maximo);
+        }
+        if (tolerancia < 1.0) {
+            throw new IllegalArgumentException("La tolerancia de latencia debe ser al menos 1.0");
+        }
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.tolerancia = tolerancia;
+        this.latenciaMaximaNanos = latenciaMaxima.toNanos();
+        this.limite = inicial;
+    }
+
+    /**
+     * Intenta admitir una petición de la prioridad dada
+     *
+     * @return true si se admitió; en ese caso debe llamarse a liberar()
+     */
+    public boolean intentarAdquirir(PrioridadConsulta prioridad) {
+        int permitidas = prioridad.permitidas(getLimite());
+        while (true) {
+            int actuales = enVuelo.get();
+            if (actuales >= permitidas) {
+                return false;
+            }
+            if (enVuelo.compareAndSet(actuales, actuales + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera una petición admitida y ajusta el límite con su latencia
+     */
+    public void liberar(long latenciaNanos, boolean fallo) {
+        int actuales = enVuelo.getAndDecrement();
+        actualizacion.lock();
+        try {
+            if (fallo || latenciaNanos > latenciaMaximaNanos) {
+                limite = Math.max(minimo, limite * FACTOR_REDUCCION);
+                return;
+            }
+
+            rttLargoNanos = rttLargoNanos == 0
+                ? latenciaNanos
+                : rttLargoNanos * (1 - PESO_LARGO) + latenciaNanos * PESO_LARGO;
+
+            // Sin presión real no hay motivo para subir el límite
+            if (actuales < limite / 2) {
+                return;
+            }
+
+            double gradiente = Math.max(0.5, Math.min(1.0, tolerancia * rttLargoNanos / latenciaNanos));
+            double nuevo = limite * gradiente + Math.sqrt(limite);
+            nuevo = limite * (1 - SUAVIZADO) + nuevo * SUAVIZADO;
+            limite = Math.max(minimo, Math.min(maximo, nuevo));
+        } finally {
+            actualizacion.unlock();
+        }
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public int getEnVuelo() {
+        return enVuelo.get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.aguapago.usuarios.limite;
+
+import com.aguapago.usuarios.tenant.RegistroTenants;
+import com.aguapago.usuarios.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuración del límite de concurrencia adaptativo de /graphql
+ *
+ * Activo por defecto; se desactiva con aguapago.limite.habilitado=false.
+ * El límite inicial parte del tamaño del pool de Hikari: por encima de eso,
+ * las peticiones extra solo esperan conexión.
+ *
+ * Con varios tenants cada uno tiene su propio límite, calculado sobre su
+ * propio pool: la carga de una cooperativa no consume el cupo de las demás.
+ *
+ * El interceptor es también Instrumentation de graphql-java y va primero en
+ * la cadena: una operación rechazada no llega a abrir spans ni otros
+ * contextos de las instrumentaciones siguientes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.limite.habilitado", havingValue = "true", matchIfMissing = true)
+public class LimiteConcurrenciaConfig {
+
+    @Bean
+    public LimiteAdaptativo limiteAdaptativo(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+            @Value("${aguapago.limite.minimo:4}") int minimo,
+            @Value("${aguapago.limite.maximo:200}") int maximo,
+            @Value("${aguapago.limite.tolerancia:2.0}") double tolerancia,
+            @Value("${aguapago.limite.latencia-maxima:5s}") Duration latenciaMaxima) {
+        int inicial = Math.max(minimo, Math.min(maximo, tamanoPool * 2));
+        return new LimiteAdaptativo(inicial, minimo, maximo, tolerancia, latenciaMaxima);
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public LimiteConcurrenciaInterceptor limiteConcurrenciaInterceptor(
+            LimiteAdaptativo limiteAdaptativo,
+            RegistroTenants registroTenants,
+            Environment environment,
+            @Value("${aguapago.limite.minimo:4}") int minimo,
+            @Value("${aguapago.limite.maximo:200}") int maximo,
+            @Value("${aguapago.limite.tolerancia:2.0}") double tolerancia,
+            @Value("${aguapago.limite.latencia-maxima:5s}") Duration latenciaMaxima,
+            @Value("${aguapago.limite.reintentar-en:1s}") Duration reintentarEn) {
+        Map<String, LimiteAdaptativo> porTenant = new HashMap<>();
+        porTenant.put(TenantContext.PRINCIPAL, limiteAdaptativo);
+        for (String tenant : registroTenants.getIds()) {
+            if (!TenantContext.PRINCIPAL.equals(tenant)) {
+                int tamanoPool = environment.getProperty("aguapago.tenants." + tenant + ".pool-size", Integer.class, 5);
+                int inicial = Math.max(minimo, Math.min(maximo, tamanoPool * 2));
+                porTenant.put(tenant, new LimiteAdaptativo(inicial, minimo, maximo, tolerancia, latenciaMaxima));
+            }
+        }
+        return new LimiteConcurrenciaInterceptor(porTenant, reintentarEn);
+    }
+}
@@ -0,0 +1,228 @@
+package com.aguapago.usuarios.limite;
+
+import com.aguapago.usuarios.tenant.TenantContext;
+import graphql.ErrorClassification;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLTypeUtil;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Control de admisión en la entrada de /graphql
+ *
+ * Clasifica cada petición según sus campos raíz y la admite solo si hay
+ * cupo en el LimiteAdaptativo para su prioridad. Lo que no entra se
+ * rechaza de inmediato con un error reintentable (classification SOBRECARGA
+ * y cabecera Retry-After), en lugar de quedar esperando una conexión de
+ * Hikari hasta que todas las peticiones vencen juntas.
+ *
+ * Trabaja en dos puntos: como interceptor elige el límite del tenant y deja
+ * una Admision en el GraphQLContext; como Instrumentation clasifica la
+ * operación que graphql-java ya analizó y validó (sin volver a parsear el
+ * documento) y toma el cupo justo antes de ejecutarla.
+ *
+ * Una petición con varios campos raíz toma la prioridad más baja de ellos.
+ * Con varios tenants, cada uno se admite contra su propio límite.
+ */
+public class LimiteConcurrenciaInterceptor extends SimplePerformantInstrumentation implements WebGraphQlInterceptor {
+
+    static final ErrorClassification SOBRECARGA = ErrorClassification.errorClassification("SOBRECARGA");
+
+    /** Campos que recorren tablas completas, leen o cambian muchas filas o sincronizan en segundo plano */
+    private static final Set<String> CAMPOS_LISTADO = Set.of(
+        "obtenerTodosLosUsuarios",
+        "obtenerTodosLosClientes",
+        "obtenerUsuariosPorRol",
+        "cambiarEstadoUsuarios",
+        "cambiarEstadoUsuariosPorFiltro",
+        "obtenerCambiosDesde",
+        "obtenerClientesPorCodigos",
+        "obtenerUsuariosPorIds",
+        "estadisticasUsuarios"
+    );
+
+    /** Búsquedas de una sola fila y el login */
+    private static final Set<String> CAMPOS_PUNTUALES = Set.of(
+        "login",
+        "obtenerUsuarioPorId",
+        "obtenerUsuarioPorEmail",
+        "obtenerMiPerfil",
+        "obtenerClientePorId",
+        "obtenerClientePorCodigo",
+        "obtenerClientePorUsuarioId",
+        "obtenerMiPerfilCliente"
+    );
+
+    private final Map<String, LimiteAdaptativo> limitesPorTenant;
+    private final LimiteAdaptativo limitePrincipal;
+    private final Duration reintentarEn;
+
+    public LimiteConcurrenciaInterceptor(LimiteAdaptativo limite, Duration reintentarEn) {
+        this(Map.of(TenantContext.PRINCIPAL, limite), reintentarEn);
+    }
+
+    public LimiteConcurrenciaInterceptor(Map<String, LimiteAdaptativo> limitesPorTenant, Duration reintentarEn) {
+        this.limitesPorTenant = Map.copyOf(limitesPorTenant);
+        this.limitePrincipal = limitesPorTenant.get(TenantContext.PRINCIPAL);
+        this.reintentarEn = reintentarEn;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        Admision admision = admision();
+        request.configureExecutionInput((entrada, builder) ->
+            builder.graphQLContext(Map.of(Admision.CLAVE, admision)).build());
+
+        return chain.next(request)
+            .doOnNext(respuesta -> {
+                if (admision.isRechazada()) {
+                    respuesta.getResponseHeaders().set("Retry-After",
+                        String.valueOf(Math.max(1, reintentarEn.toSeconds())));
+                }
+            })
+            .doFinally(senal -> admision.liberar(senal == SignalType.ON_ERROR));
+    }
+
+    /**
+     * Toma el cupo con la operación ya analizada y validada
+     * Sin Admision en el contexto (ejecución que no llegó por /graphql) no limita.
+     */
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        ExecutionContext ejecucion = parameters.getExecutionContext();
+        Admision admision = ejecucion.getGraphQLContext().get(Admision.CLAVE);
+        if (admision != null) {
+            PrioridadConsulta prioridad = clasificar(ejecucion.getOperationDefinition(), ejecucion.getGraphQLSchema());
+            if (!admision.admitir(prioridad)) {
+                throw new AbortExecutionException(List.of(errorSobrecarga(prioridad)));
+            }
+        }
+        return super.beginExecuteOperation(parameters, state);
+    }
+
+    /** Admisión pendiente contra el límite del tenant actual */
+    Admision admision() {
+        return new Admision(limitesPorTenant.getOrDefault(TenantContext.actual(), limitePrincipal));
+    }
+
+    // ====== CLASIFICACIÓN ======
+
+    /**
+     * Prioridad de la operación según sus campos raíz
+     * Los campos sin clasificar se deducen del esquema: una query que
+     * devuelve una lista es BAJA; el resto de queries y mutations, NORMAL.
+     */
+    static PrioridadConsulta clasificar(OperationDefinition operacion, GraphQLSchema esquema) {
+        GraphQLObjectType raiz = switch (operacion.getOperation()) {
+            case QUERY -> esquema.getQueryType();
+            case MUTATION -> esquema.getMutationType();
+            case SUBSCRIPTION -> esquema.getSubscriptionType();
+        };
+
+        PrioridadConsulta resultado = PrioridadConsulta.ALTA;
+        for (Selection<?> seleccion : operacion.getSelectionSet().getSelections()) {
+            PrioridadConsulta campo = seleccion instanceof Field field
+                ? prioridadCampo(field.getName(), operacion.getOperation(), raiz)
+                : PrioridadConsulta.NORMAL;
+            if (campo.ordinal() > resultado.ordinal()) {
+                resultado = campo;
+            }
+        }
+        return resultado;
+    }
+
+    private static PrioridadConsulta prioridadCampo(String campo, OperationDefinition.Operation tipo,
+                                                    GraphQLObjectType raiz) {
+        if (CAMPOS_LISTADO.contains(campo)) {
+            return PrioridadConsulta.BAJA;
+        }
+        if (CAMPOS_PUNTUALES.contains(campo) || "__typename".equals(campo)) {
+            return PrioridadConsulta.ALTA;
+        }
+        // Resto de mutations y campos nuevos sin clasificar
+        GraphQLFieldDefinition definicion = raiz != null ? raiz.getFieldDefinition(campo) : null;
+        if (tipo == OperationDefinition.Operation.QUERY && definicion != null
+                && GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(definicion.getType()))) {
+            return PrioridadConsulta.BAJA;
+        }
+        return PrioridadConsulta.NORMAL;
+    }
+
+    // ====== RECHAZO ======
+
+    private GraphQLError errorSobrecarga(PrioridadConsulta prioridad) {
+        return GraphqlErrorBuilder.newError()
+            .message("Servicio sobrecargado, reintente en unos instantes")
+            .errorType(SOBRECARGA)
+            .extensions(Map.of(
+                "reintentable", true,
+                "reintentarEnMs", reintentarEn.toMillis(),
+                "prioridad", prioridad.name()))
+            .build();
+    }
+
+    // ====== ADMISIÓN ======
+
+    /**
+     * Estado de admisión de una petición
+     * La crea el interceptor y la resuelve beginExecuteOperation; el cupo
+     * se libera cuando termina la respuesta, solo si se llegó a tomar.
+     */
+    static final class Admision {
+
+        static final String CLAVE = Admision.class.getName();
+
+        private final LimiteAdaptativo limite;
+        private volatile boolean adquirida;
+        private volatile boolean rechazada;
+        private volatile long inicio;
+
+        private Admision(LimiteAdaptativo limite) {
+            this.limite = limite;
+        }
+
+        boolean admitir(PrioridadConsulta prioridad) {
+            if (!limite.intentarAdquirir(prioridad)) {
+                rechazada = true;
+                return false;
+            }
+            inicio = System.nanoTime();
+            adquirida = true;
+            return true;
+        }
+
+        void liberar(boolean error) {
+            if (adquirida) {
+                adquirida = false;
+                limite.liberar(System.nanoTime() - inicio, error);
+            }
+        }
+
+        boolean isRechazada() {
+            return rechazada;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.aguapago.usuarios.limite;
+
+/**
+ * Clases de prioridad para la admisión de peticiones GraphQL
+ *
+ * Cada clase puede ocupar solo una fracción del límite de concurrencia:
+ * al acercarse a la saturación, las peticiones BAJA se rechazan primero y
+ * las ALTA siguen entrando hasta el límite completo.
+ */
+public enum PrioridadConsulta {
+
+    /** login y búsquedas de una sola fila */
+    ALTA(1.0),
+
+    /** mutations de escritura y queries sin clasificar que devuelven un solo objeto */
+    NORMAL(0.85),
+
+    /** listados completos (obtenerTodos*, obtenerUsuariosPorRol) y queries que devuelven listas */
+    BAJA(0.6);
+
+    private final double fraccionLimite;
+
+    PrioridadConsulta(double fraccionLimite) {
+        this.fraccionLimite = fraccionLimite;
+    }
+
+    /**
+     * Peticiones en vuelo que esta clase puede alcanzar con el límite dado
+     */
+    public int permitidas(int limite) {
+        return Math.max(1, (int) (limite * fraccionLimite));
+    }
+}
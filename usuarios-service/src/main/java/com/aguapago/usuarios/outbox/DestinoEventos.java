@@ -0,0 +1,18 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.entity.EventoCambio;
+
+import java.util.List;
+
+/**
+ * Destino al que el relay publica los eventos del outbox
+ *
+ * La entrega es "al menos una vez": si publicar() lanza una excepción, el
+ * lote queda pendiente y se reintenta en la siguiente pasada, así que un
+ * consumidor puede recibir un evento repetido y debe deduplicar por id.
+ * Los eventos llegan en orden de id dentro de cada lote.
+ */
+public interface DestinoEventos {
+
+    void publicar(List<EventoCambio> eventos) throws Exception;
+}
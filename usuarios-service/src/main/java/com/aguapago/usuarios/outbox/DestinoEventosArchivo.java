@@ -0,0 +1,55 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.entity.EventoCambio;
+import com.aguapago.usuarios.tenant.TenantContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Destino que agrega los eventos a un archivo, un JSON por línea
+ *
+ * Cada línea tiene tenant, id, agregado, agregadoId, tipo, createdAt y el payload
+ * del agregado. Sirve para pruebas y como fuente simple para procesos
+ * batch que lean el archivo de forma incremental.
+ */
+public class DestinoEventosArchivo implements DestinoEventos {
+
+    private final Path archivo;
+    private final ObjectMapper objectMapper;
+
+    public DestinoEventosArchivo(Path archivo, ObjectMapper objectMapper) {
+        this.archivo = archivo;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publicar(List<EventoCambio> eventos) throws IOException {
+        StringBuilder lineas = new StringBuilder();
+        for (EventoCambio evento : eventos) {
+            ObjectNode linea = objectMapper.createObjectNode();
+            linea.put("tenant", TenantContext.actual());
+            linea.put("id", evento.getId());
+            linea.put("agregado", evento.getAgregado());
+            linea.put("agregadoId", evento.getAgregadoId());
+            linea.put("tipo", evento.getTipo());
+            linea.put("createdAt", evento.getCreatedAt().toString());
+            linea.set("payload", objectMapper.readTree(evento.getPayload()));
+            lineas.append(objectMapper.writeValueAsString(linea)).append('\n');
+        }
+
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+        // Una sola escritura por lote; SYNC para no marcar publicado algo que no llegó al disco
+        Files.writeString(archivo, lineas, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+}
@@ -0,0 +1,76 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.entity.EventoCambio;
+import com.aguapago.usuarios.tenant.TenantContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Destino en memoria del proceso
+ *
+ * Guarda los últimos eventos publicados (acotado) y los reenvía a los
+ * suscriptores registrados. Pensado para pruebas y para consumidores que
+ * viven dentro del mismo servicio.
+ *
+ * Cada tenant tiene su propio buffer de recientes: el volumen de una
+ * cooperativa grande no desplaza los eventos de las demás.
+ */
+public class DestinoEventosMemoria implements DestinoEventos {
+
+    private final int capacidad;
+    private final Map<String, Deque<EventoCambio>> recientesPorTenant = new HashMap<>();
+    private final ReentrantLock candado = new ReentrantLock();
+    private final List<Consumer<EventoCambio>> suscriptores = new CopyOnWriteArrayList<>();
+
+    public DestinoEventosMemoria(int capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    @Override
+    public void publicar(List<EventoCambio> eventos) {
+        candado.lock();
+        try {
+            Deque<EventoCambio> recientes =
+                recientesPorTenant.computeIfAbsent(TenantContext.actual(), tenant -> new ArrayDeque<>());
+            for (EventoCambio evento : eventos) {
+                if (recientes.size() == capacidad) {
+                    recientes.removeFirst();
+                }
+                recientes.addLast(evento);
+            }
+        } finally {
+            candado.unlock();
+        }
+        for (EventoCambio evento : eventos) {
+            suscriptores.forEach(suscriptor -> suscriptor.accept(evento));
+        }
+    }
+
+    /**
+     * Registra un suscriptor que recibe cada evento publicado desde ahora
+     */
+    public void suscribir(Consumer<EventoCambio> suscriptor) {
+        suscriptores.add(suscriptor);
+    }
+
+    /**
+     * Copia de los últimos eventos publicados del tenant actual, del más viejo al más nuevo
+     */
+    public List<EventoCambio> recientes() {
+        candado.lock();
+        try {
+            Deque<EventoCambio> recientes = recientesPorTenant.get(TenantContext.actual());
+            return recientes != null ? new ArrayList<>(recientes) : new ArrayList<>();
+        } finally {
+            candado.unlock();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.repository.EventoCambioRepository;
+import com.aguapago.usuarios.tenant.RegistroTenants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuración del relay del outbox y de su destino
+ *
+ * aguapago.outbox.destino elige el destino:
+ * - memoria (por defecto): dentro del proceso, para pruebas
+ * - archivo: JSON por línea en aguapago.outbox.archivo
+ * - cualquier otro valor: se espera un bean DestinoEventos propio (ej. un broker)
+ */
+@Configuration
+@EnableScheduling
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.outbox.destino", havingValue = "memoria", matchIfMissing = true)
+    public DestinoEventosMemoria destinoEventosMemoria(
+            @Value("${aguapago.outbox.memoria.capacidad:10000}") int capacidad) {
+        return new DestinoEventosMemoria(capacidad);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.outbox.destino", havingValue = "archivo")
+    public DestinoEventosArchivo destinoEventosArchivo(
+            @Value("${aguapago.outbox.archivo:eventos/usuarios-eventos.jsonl}") String archivo,
+            ObjectMapper objectMapper) {
+        return new DestinoEventosArchivo(Path.of(archivo), objectMapper);
+    }
+
+    @Bean
+    public RelayOutbox relayOutbox(
+            EventoCambioRepository eventoCambioRepository,
+            DestinoEventos destinoEventos,
+            PlatformTransactionManager transactionManager,
+            RegistroTenants registroTenants,
+            @Value("${aguapago.outbox.tamano-lote:200}") int tamanoLote,
+            @Value("${aguapago.outbox.lotes-por-pasada:10}") int lotesPorPasada,
+            @Value("${aguapago.outbox.retencion:7d}") Duration retencion) {
+        return new RelayOutbox(eventoCambioRepository, destinoEventos,
+            new TransactionTemplate(transactionManager), registroTenants, tamanoLote, lotesPorPasada, retencion);
+    }
+}
@@ -0,0 +1,89 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.entity.EventoCambio;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.repository.EventoCambioRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Servicio de Outbox
+ *
+ * Registra un evento de cambio por cada mutation de Usuario o Cliente.
+ * Exige una transacción activa (MANDATORY): el evento se guarda junto con
+ * el cambio o no se guarda ninguno de los dos.
+ *
+ * El payload es el DTO del agregado, así nunca sale el passwordHash.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    public static final String USUARIO = "USUARIO";
+    public static final String CLIENTE = "CLIENTE";
+
+    public static final String CREADO = "CREADO";
+    public static final String ACTUALIZADO = "ACTUALIZADO";
+    public static final String PASSWORD_CAMBIADO = "PASSWORD_CAMBIADO";
+    public static final String ESTADO_CAMBIADO = "ESTADO_CAMBIADO";
+    /** Cambio de estado masivo: payload parcial {"id", "activo"} */
+    public static final String ESTADO_CAMBIADO_MASIVO = "ESTADO_CAMBIADO_MASIVO";
+
+    @Autowired
+    private EventoCambioRepository eventoCambioRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Registra un cambio de usuario
+     * @param tipo tipo de cambio (CREADO, ACTUALIZADO, ...)
+     * @param usuario el usuario ya guardado
+     */
+    public void registrarCambioUsuario(String tipo, Usuario usuario) {
+        registrar(USUARIO, usuario.getId(), tipo, UsuarioDTO.fromEntity(usuario));
+    }
+
+    /**
+     * Registra un cambio de cliente
+     * @param tipo tipo de cambio (CREADO, ACTUALIZADO, ...)
+     * @param cliente el cliente ya guardado
+     */
+    public void registrarCambioCliente(String tipo, Cliente cliente) {
+        registrar(CLIENTE, cliente.getId(), tipo, ClienteDTO.fromEntity(cliente));
+    }
+
+    /**
+     * Registra los eventos de un cambio de estado masivo con una sola sentencia
+     * Debe llamarse antes del UPDATE del lote, con los mismos filtros
+     * @param ids IDs del lote
+     * @param activo nuevo estado
+     * @param rol rol que deben tener (null: cualquiera)
+     * @return cantidad de eventos registrados
+     */
+    public int registrarCambiosDeEstado(List<Long> ids, Boolean activo, String rol) {
+        return eventoCambioRepository.registrarCambiosDeEstado(ids, activo, String.valueOf(activo), rol);
+    }
+
+    private void registrar(String agregado, Long agregadoId, String tipo, Object estado) {
+        EventoCambio evento = new EventoCambio();
+        evento.setAgregado(agregado);
+        evento.setAgregadoId(agregadoId);
+        evento.setTipo(tipo);
+        try {
+            evento.setPayload(objectMapper.writeValueAsString(estado));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento de " + agregado, e);
+        }
+        eventoCambioRepository.save(evento);
+    }
+}
@@ -0,0 +1,111 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.entity.EventoCambio;
+import com.aguapago.usuarios.repository.EventoCambioRepository;
+import com.aguapago.usuarios.tenant.RegistroTenants;
+import com.aguapago.usuarios.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Relay del outbox: publica los eventos pendientes por lotes
+ *
+ * Cada lote se toma, se publica en el destino y se marca como publicado
+ * dentro de una transacción. Si el destino falla, la transacción se
+ * revierte y el lote se reintenta en la siguiente pasada (al menos una vez).
+ * Las filas se toman con SKIP LOCKED, así que varias instancias pueden
+ * correr el relay a la vez sin publicar el mismo lote dos veces.
+ *
+ * Con varios tenants, cada pasada recorre todos y publica a lo sumo
+ * lotesPorPasada lotes de cada uno: un tenant con mucho volumen no demora
+ * los eventos de los demás.
+ */
+public class RelayOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayOutbox.class);
+
+    private final EventoCambioRepository eventoCambioRepository;
+    private final DestinoEventos destino;
+    private final TransactionTemplate transaccion;
+    private final RegistroTenants registroTenants;
+    private final int tamanoLote;
+    private final int lotesPorPasada;
+    private final Duration retencion;
+
+    public RelayOutbox(EventoCambioRepository eventoCambioRepository, DestinoEventos destino,
+                       TransactionTemplate transaccion, RegistroTenants registroTenants,
+                       int tamanoLote, int lotesPorPasada, Duration retencion) {
+        this.eventoCambioRepository = eventoCambioRepository;
+        this.destino = destino;
+        this.transaccion = transaccion;
+        this.registroTenants = registroTenants;
+        this.tamanoLote = tamanoLote;
+        this.lotesPorPasada = lotesPorPasada;
+        this.retencion = retencion;
+    }
+
+    /**
+     * Publica lotes de cada tenant hasta vaciar sus pendientes o llegar al tope por pasada
+     * @return cantidad de eventos publicados
+     */
+    @Scheduled(fixedDelayString = "${aguapago.outbox.intervalo:1s}")
+    public int publicarPendientes() {
+        int total = 0;
+        for (String tenant : registroTenants.getIds()) {
+            total += TenantContext.ejecutarEn(tenant, this::publicarPendientesDelTenant);
+        }
+        return total;
+    }
+
+    private int publicarPendientesDelTenant() {
+        int total = 0;
+        for (int i = 0; i < lotesPorPasada; i++) {
+            int publicados;
+            try {
+                publicados = transaccion.execute(estado -> publicarLote());
+            } catch (RuntimeException e) {
+                log.warn("No se pudo publicar el lote del outbox (tenant {}), se reintenta en la siguiente pasada: {}",
+                    TenantContext.actual(), e.getMessage());
+                break;
+            }
+            total += publicados;
+            if (publicados < tamanoLote) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Borra los eventos publicados más viejos que la retención
+     */
+    @Scheduled(fixedDelayString = "${aguapago.outbox.intervalo-limpieza:1h}")
+    public void limpiarPublicados() {
+        for (String tenant : registroTenants.getIds()) {
+            TenantContext.ejecutarEn(tenant, () -> transaccion.execute(estado ->
+                eventoCambioRepository.borrarPublicadosAntesDe(LocalDateTime.now().minus(retencion))));
+        }
+    }
+
+    private int publicarLote() {
+        List<EventoCambio> lote = eventoCambioRepository.findPendientes(PageRequest.of(0, tamanoLote));
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        try {
+            destino.publicar(lote);
+        } catch (Exception e) {
+            throw new IllegalStateException("Destino de eventos no disponible: " + e.getMessage(), e);
+        }
+        eventoCambioRepository.marcarPublicados(
+            lote.stream().map(EventoCambio::getId).toList(), LocalDateTime.now());
+        return lote.size();
+    }
+}
@@ -0,0 +1,64 @@
+package com.aguapago.usuarios.reactivo;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Repositorio reactivo para la tabla cliente
+ *
+ * Contraparte R2DBC de ClienteRepository (perfil "reactivo").
+ * Las consultas devuelven el cliente junto con su usuario en una sola fila.
+ */
+@Repository
+public interface ClienteReactivoRepository extends ReactiveCrudRepository<ClienteRow, Long> {
+
+    String SELECT_CON_USUARIO = "SELECT c.id, c.codigo_cliente, c.direccion, c.telefono, "
+        + "c.documento_identidad, c.created_at, c.version, u.id AS usuario_id, u.nombre AS usuario_nombre, "
+        + "u.apellido AS usuario_apellido, u.email AS usuario_email, u.rol AS usuario_rol, "
+        + "u.activo AS usuario_activo, u.created_at AS usuario_created_at, u.version AS usuario_version "
+        + "FROM cliente c JOIN usuario u ON u.id = c.usuario_id ";
+
+    /**
+     * Obtiene todos los clientes con su usuario
+     * @return Flux con todos los clientes
+     */
+    @Query(SELECT_CON_USUARIO + "ORDER BY c.id")
+    Flux<ClienteUsuarioRow> findAllConUsuario();
+
+    /**
+     * Busca un cliente por su ID
+     * @param id el ID del cliente
+     * @return Mono con el cliente, vacío si no existe
+     */
+    @Query(SELECT_CON_USUARIO + "WHERE c.id = :id")
+    Mono<ClienteUsuarioRow> findConUsuarioById(Long id);
+
+    /**
+     * Busca un cliente por su código único
+     * @param codigoCliente el código del cliente (ej: "CLI-001")
+     * @return Mono con el cliente, vacío si no existe
+     */
+    @Query(SELECT_CON_USUARIO + "WHERE c.codigo_cliente = :codigoCliente")
+    Mono<ClienteUsuarioRow> findConUsuarioByCodigoCliente(String codigoCliente);
+
+    /**
+     * Clientes con los códigos dados, con su usuario, en una sola consulta (sin orden)
+     * @param codigos códigos de cliente (un tramo de BusquedaMultiple)
+     * @return Flux con los clientes que existen
+     */
+    @Query(SELECT_CON_USUARIO + "WHERE c.codigo_cliente IN (:codigos)")
+    Flux<ClienteUsuarioRow> findConUsuarioByCodigoClienteIn(Collection<String> codigos);
+
+    /**
+     * Busca un cliente por el ID de su usuario
+     * @param usuarioId el ID del usuario
+     * @return Mono con el cliente, vacío si no existe
+     */
+    @Query(SELECT_CON_USUARIO + "WHERE c.usuario_id = :usuarioId")
+    Mono<ClienteUsuarioRow> findConUsuarioByUsuarioId(Long usuarioId);
+}
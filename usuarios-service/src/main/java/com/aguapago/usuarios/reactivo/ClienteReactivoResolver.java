@@ -0,0 +1,137 @@
+package com.aguapago.usuarios.reactivo;
+
+import com.aguapago.usuarios.dto.ActualizarClienteInput;
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.ClienteInput;
+import com.aguapago.usuarios.service.ClienteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.aguapago.usuarios.reactivo.UsuarioReactivoResolver.bloqueante;
+
+/**
+ * Resolver GraphQL reactivo para operaciones de Cliente (perfil "reactivo")
+ *
+ * Reemplaza a ClienteResolver con el mismo esquema:
+ * - Queries: R2DBC, sin bloquear hilos
+ * - Mutations: servicios JPA ejecutados en boundedElastic
+ */
+@Controller
+@Profile("reactivo")
+public class ClienteReactivoResolver {
+
+    @Autowired
+    private ClienteReactivoService clienteReactivoService;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private UsuarioReactivoService usuarioReactivoService;
+
+    // ========================================
+    // QUERIES (Consultas)
+    // ========================================
+
+    /**
+     * Obtiene todos los clientes
+     * GraphQL: obtenerTodosLosClientes
+     */
+    @QueryMapping
+    public Flux<ClienteDTO> obtenerTodosLosClientes() {
+        return clienteReactivoService.obtenerTodosLosClientes();
+    }
+
+    /**
+     * Obtiene un cliente por su ID
+     * GraphQL: obtenerClientePorId(id: ID!)
+     */
+    @QueryMapping
+    public Mono<ClienteDTO> obtenerClientePorId(@Argument Long id) {
+        return clienteReactivoService.obtenerClientePorId(id);
+    }
+
+    /**
+     * Obtiene un cliente por su código
+     * GraphQL: obtenerClientePorCodigo(codigo: String!)
+     */
+    @QueryMapping
+    public Mono<ClienteDTO> obtenerClientePorCodigo(@Argument String codigo) {
+        return clienteReactivoService.obtenerClientePorCodigo(codigo);
+    }
+
+    /**
+     * Obtiene varios clientes por código, en el orden pedido
+     * Solo ADMIN (si no, lista vacía)
+     * GraphQL: obtenerClientesPorCodigos(codigos: [String!]!, usuarioEmail: String!)
+     */
+    @QueryMapping
+    public Mono<List<ClienteDTO>> obtenerClientesPorCodigos(@Argument List<String> codigos,
+                                                            @Argument String usuarioEmail) {
+        return usuarioReactivoService.tieneRol(usuarioEmail, "ADMIN")
+            .flatMap(esAdmin -> esAdmin
+                ? clienteReactivoService.obtenerClientesPorCodigos(codigos)
+                : Mono.just(List.<ClienteDTO>of()));
+    }
+
+    /**
+     * Obtiene un cliente por el ID de su usuario
+     * GraphQL: obtenerClientePorUsuarioId(usuarioId: ID!)
+     */
+    @QueryMapping
+    public Mono<ClienteDTO> obtenerClientePorUsuarioId(@Argument Long usuarioId) {
+        return clienteReactivoService.obtenerClientePorUsuarioId(usuarioId);
+    }
+
+    // ========================================
+    // MUTATIONS (Modificaciones)
+    // ========================================
+
+    /**
+     * Crea un nuevo perfil de cliente
+     * GraphQL: crearCliente(input: ClienteInput!)
+     */
+    @MutationMapping
+    public Mono<ClienteDTO> crearCliente(@Argument ClienteInput input) {
+        return bloqueante(() -> ClienteDTO.fromEntity(clienteService.crearCliente(
+            input.getUsuarioId(),
+            input.getCodigoCliente(),
+            input.getDireccion(),
+            input.getTelefono(),
+            input.getDocumentoIdentidad()
+        )));
+    }
+
+    /**
+     * Actualiza un cliente
+     * GraphQL: actualizarCliente(id: ID!, input: ActualizarClienteInput!)
+     */
+    @MutationMapping
+    public Mono<ClienteDTO> actualizarCliente(@Argument Long id,
+                                              @Argument ActualizarClienteInput input) {
+        return bloqueante(() -> ClienteDTO.fromEntity(clienteService.actualizarCliente(
+            id,
+            input.getDireccion(),
+            input.getTelefono(),
+            input.getDocumentoIdentidad(),
+            input.getVersion()
+        )));
+    }
+
+    /**
+     * Genera un código de cliente único automáticamente
+     * GraphQL: generarCodigoCliente
+     */
+    @MutationMapping
+    public Mono<String> generarCodigoCliente() {
+        return bloqueante(clienteService::generarCodigoCliente);
+    }
+}
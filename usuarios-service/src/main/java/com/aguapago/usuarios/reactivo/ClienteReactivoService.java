@@ -0,0 +1,103 @@
+package com.aguapago.usuarios.reactivo;
+
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.service.BusquedaMultiple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Servicio de consultas de Cliente sobre R2DBC (perfil "reactivo")
+ *
+ * Cada consulta trae el cliente y su usuario con un solo JOIN.
+ */
+@Service
+@Profile("reactivo")
+public class ClienteReactivoService {
+
+    @Autowired
+    private ClienteReactivoRepository clienteRepository;
+
+    @Autowired
+    private BusquedaMultiple busquedaMultiple;
+
+    /**
+     * Obtiene todos los clientes
+     * @return Flux con todos los clientes
+     */
+    public Flux<ClienteDTO> obtenerTodosLosClientes() {
+        return clienteRepository.findAllConUsuario().map(ClienteReactivoService::aDto);
+    }
+
+    /**
+     * Busca un cliente por su ID
+     * @param id el ID del cliente
+     * @return Mono con el cliente, vacío si no existe
+     */
+    public Mono<ClienteDTO> obtenerClientePorId(Long id) {
+        return clienteRepository.findConUsuarioById(id).map(ClienteReactivoService::aDto);
+    }
+
+    /**
+     * Busca un cliente por su código
+     * @param codigoCliente el código del cliente (ej: "CLI-001")
+     * @return Mono con el cliente, vacío si no existe
+     */
+    public Mono<ClienteDTO> obtenerClientePorCodigo(String codigoCliente) {
+        return clienteRepository.findConUsuarioByCodigoCliente(codigoCliente).map(ClienteReactivoService::aDto);
+    }
+
+    /**
+     * Busca varios clientes por código, un SELECT ... IN por tramo (uno tras otro)
+     * @param codigos códigos de cliente
+     * @return Mono con un cliente por código, en el mismo orden (null si no existe)
+     */
+    public Mono<List<ClienteDTO>> obtenerClientesPorCodigos(List<String> codigos) {
+        return Mono.fromCallable(() -> busquedaMultiple.tramos(codigos))
+            .flatMapMany(Flux::fromIterable)
+            .concatMap(clienteRepository::findConUsuarioByCodigoClienteIn)
+            .map(ClienteReactivoService::aDto)
+            .collectMap(ClienteDTO::getCodigoCliente)
+            .map(porCodigo -> BusquedaMultiple.enOrden(codigos, porCodigo));
+    }
+
+    /**
+     * Busca un cliente por el ID de su usuario
+     * @param usuarioId el ID del usuario
+     * @return Mono con el cliente, vacío si no existe
+     */
+    public Mono<ClienteDTO> obtenerClientePorUsuarioId(Long usuarioId) {
+        return clienteRepository.findConUsuarioByUsuarioId(usuarioId).map(ClienteReactivoService::aDto);
+    }
+
+    /**
+     * Convierte la fila plana cliente + usuario → ClienteDTO
+     */
+    static ClienteDTO aDto(ClienteUsuarioRow fila) {
+        UsuarioDTO usuario = new UsuarioDTO(
+            fila.getUsuarioId(),
+            fila.getUsuarioNombre(),
+            fila.getUsuarioApellido(),
+            fila.getUsuarioEmail(),
+            fila.getUsuarioRol(),
+            fila.getUsuarioActivo(),
+            fila.getUsuarioCreatedAt(),
+            fila.getUsuarioVersion()
+        );
+        return new ClienteDTO(
+            fila.getId(),
+            fila.getCodigoCliente(),
+            fila.getDireccion(),
+            fila.getTelefono(),
+            fila.getDocumentoIdentidad(),
+            fila.getCreatedAt(),
+            fila.getVersion(),
+            usuario
+        );
+    }
+}
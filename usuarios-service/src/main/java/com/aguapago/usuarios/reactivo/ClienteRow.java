@@ -0,0 +1,43 @@
+package com.aguapago.usuarios.reactivo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la tabla 'cliente' para el acceso reactivo (R2DBC)
+ *
+ * Mapea la misma tabla que la entidad JPA Cliente; solo se usa para lectura.
+ */
+@Table("cliente")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClienteRow {
+
+    @Id
+    private Long id;
+
+    @Column("codigo_cliente")
+    private String codigoCliente;
+
+    private String direccion;
+
+    private String telefono;
+
+    @Column("documento_identidad")
+    private String documentoIdentidad;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    private Long version;
+
+    @Column("usuario_id")
+    private Long usuarioId;
+}
@@ -0,0 +1,36 @@
+package com.aguapago.usuarios.reactivo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección plana de cliente + usuario, leída con un solo JOIN
+ *
+ * R2DBC no navega relaciones, así que las consultas de cliente traen las
+ * columnas del usuario en la misma fila (alias usuario_*).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClienteUsuarioRow {
+
+    private Long id;
+    private String codigoCliente;
+    private String direccion;
+    private String telefono;
+    private String documentoIdentidad;
+    private LocalDateTime createdAt;
+    private Long version;
+
+    private Long usuarioId;
+    private String usuarioNombre;
+    private String usuarioApellido;
+    private String usuarioEmail;
+    private String usuarioRol;
+    private Boolean usuarioActivo;
+    private LocalDateTime usuarioCreatedAt;
+    private Long usuarioVersion;
+}
@@ -0,0 +1,28 @@
+package com.aguapago.usuarios.reactivo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Configuración del perfil reactivo
+ *
+ * Spring Boot no crea el DataSource JDBC cuando existe un ConnectionFactory
+ * de R2DBC, pero las mutations siguen usando JPA. Aquí se declara el
+ * DataSource a partir de las mismas propiedades spring.datasource.*
+ */
+@Configuration
+@Profile("reactivo")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactivoConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
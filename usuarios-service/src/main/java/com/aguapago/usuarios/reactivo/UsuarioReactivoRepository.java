@@ -0,0 +1,53 @@
+package com.aguapago.usuarios.reactivo;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Repositorio reactivo para la tabla usuario
+ *
+ * Contraparte R2DBC de UsuarioRepository (perfil "reactivo").
+ */
+@Repository
+public interface UsuarioReactivoRepository extends ReactiveCrudRepository<UsuarioRow, Long> {
+
+    /**
+     * Busca un usuario por su email
+     * @param email el email del usuario
+     * @return Mono con el usuario, vacío si no existe
+     */
+    Mono<UsuarioRow> findByEmail(String email);
+
+    /**
+     * Usuarios con los IDs dados, en una sola consulta (sin orden)
+     * @param ids IDs de usuario (un tramo de BusquedaMultiple)
+     * @return Flux con los usuarios que existen
+     */
+    Flux<UsuarioRow> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Busca todos los usuarios con un rol específico
+     * @param rol el rol a buscar ("ADMIN" o "CLIENTE")
+     * @return Flux con los usuarios de ese rol
+     */
+    Flux<UsuarioRow> findByRol(String rol);
+
+    /**
+     * Busca usuarios por estado (activo/inactivo)
+     * @param activo true para activos, false para inactivos
+     * @return Flux con los usuarios en ese estado
+     */
+    Flux<UsuarioRow> findByActivo(Boolean activo);
+
+    /**
+     * Busca usuarios por rol y estado
+     * @param rol el rol a buscar
+     * @param activo el estado a buscar
+     * @return Flux con los usuarios que cumplen ambas condiciones
+     */
+    Flux<UsuarioRow> findByRolAndActivo(String rol, Boolean activo);
+}
@@ -0,0 +1,215 @@
+package com.aguapago.usuarios.reactivo;
+
+import com.aguapago.usuarios.dto.ActualizarUsuarioInput;
+import com.aguapago.usuarios.dto.EstadisticasUsuariosDTO;
+import com.aguapago.usuarios.dto.FiltroUsuariosInput;
+import com.aguapago.usuarios.dto.RegistroUsuarioInput;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.service.EstadisticasService;
+import com.aguapago.usuarios.service.UsuarioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Resolver GraphQL reactivo para operaciones de Usuario (perfil "reactivo")
+ *
+ * Reemplaza a UsuarioResolver con el mismo esquema:
+ * - Queries: R2DBC, sin bloquear hilos
+ * - Mutations: servicios JPA ejecutados en boundedElastic
+ */
+@Controller
+@Profile("reactivo")
+public class UsuarioReactivoResolver {
+
+    @Autowired
+    private UsuarioReactivoService usuarioReactivoService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private EstadisticasService estadisticasService;
+
+    // ========================================
+    // QUERIES (Consultas)
+    // ========================================
+
+    /**
+     * Obtiene todos los usuarios del sistema
+     * Solo ADMIN puede ejecutar esta operación (si no, lista vacía)
+     * GraphQL: obtenerTodosLosUsuarios(usuarioEmail: String!)
+     */
+    @QueryMapping
+    public Flux<UsuarioDTO> obtenerTodosLosUsuarios(@Argument String usuarioEmail) {
+        return usuarioReactivoService.tieneRol(usuarioEmail, "ADMIN")
+            .flatMapMany(esAdmin -> esAdmin
+                ? usuarioReactivoService.obtenerTodosLosUsuarios()
+                : Flux.empty());
+    }
+
+    /**
+     * Obtiene un usuario por su ID
+     * ADMIN puede ver cualquier usuario, CLIENTE solo el suyo
+     * GraphQL: obtenerUsuarioPorId(id: ID!, usuarioEmail: String!)
+     */
+    @QueryMapping
+    public Mono<UsuarioDTO> obtenerUsuarioPorId(@Argument Long id, @Argument String usuarioEmail) {
+        return Mono.zip(
+                usuarioReactivoService.tieneRol(usuarioEmail, "ADMIN"),
+                usuarioReactivoService.esPropietario(usuarioEmail, id))
+            .filter(permisos -> permisos.getT1() || permisos.getT2())
+            .flatMap(permisos -> usuarioReactivoService.obtenerUsuarioPorId(id));
+    }
+
+    /**
+     * Obtiene varios usuarios por ID, en el orden pedido
+     * Solo ADMIN (si no, lista vacía)
+     * GraphQL: obtenerUsuariosPorIds(ids: [ID!]!, usuarioEmail: String!)
+     */
+    @QueryMapping
+    public Mono<List<UsuarioDTO>> obtenerUsuariosPorIds(@Argument List<Long> ids, @Argument String usuarioEmail) {
+        return usuarioReactivoService.tieneRol(usuarioEmail, "ADMIN")
+            .flatMap(esAdmin -> esAdmin
+                ? usuarioReactivoService.obtenerUsuariosPorIds(ids)
+                : Mono.just(List.<UsuarioDTO>of()));
+    }
+
+    /**
+     * Obtiene un usuario por su email
+     * GraphQL: obtenerUsuarioPorEmail(email: String!)
+     */
+    @QueryMapping
+    public Mono<UsuarioDTO> obtenerUsuarioPorEmail(@Argument String email) {
+        return usuarioReactivoService.obtenerUsuarioPorEmail(email);
+    }
+
+    /**
+     * Obtiene usuarios por rol
+     * GraphQL: obtenerUsuariosPorRol(rol: String!)
+     */
+    @QueryMapping
+    public Flux<UsuarioDTO> obtenerUsuariosPorRol(@Argument String rol) {
+        return usuarioReactivoService.obtenerUsuariosPorRol(rol);
+    }
+
+    /**
+     * Totales del panel de administración (agregados en SQL sobre JPA, en boundedElastic)
+     * Solo ADMIN (si no, vacío)
+     * GraphQL: estadisticasUsuarios(usuarioEmail: String!, meses: Int = 12)
+     */
+    @QueryMapping
+    public Mono<EstadisticasUsuariosDTO> estadisticasUsuarios(@Argument String usuarioEmail, @Argument Integer meses) {
+        return usuarioReactivoService.tieneRol(usuarioEmail, "ADMIN")
+            .filter(esAdmin -> esAdmin)
+            .flatMap(esAdmin -> bloqueante(() -> estadisticasService.obtenerEstadisticas(meses)));
+    }
+
+    // ========================================
+    // MUTATIONS (Modificaciones)
+    // ========================================
+
+    /**
+     * Registra un nuevo usuario
+     * GraphQL: registrarUsuario(input: RegistroUsuarioInput!)
+     */
+    @MutationMapping
+    public Mono<UsuarioDTO> registrarUsuario(@Argument RegistroUsuarioInput input) {
+        return bloqueante(() -> UsuarioDTO.fromEntity(usuarioService.registrarUsuario(
+            input.getNombre(),
+            input.getApellido(),
+            input.getEmail(),
+            input.getPassword(),
+            input.getRol(),
+            input.getDireccion(),
+            input.getTelefono(),
+            input.getDocumentoIdentidad()
+        )));
+    }
+
+    /**
+     * Actualiza un usuario
+     * GraphQL: actualizarUsuario(id: ID!, input: ActualizarUsuarioInput!)
+     */
+    @MutationMapping
+    public Mono<UsuarioDTO> actualizarUsuario(@Argument Long id, @Argument ActualizarUsuarioInput input) {
+        return bloqueante(() -> UsuarioDTO.fromEntity(usuarioService.actualizarUsuario(
+            id,
+            input.getNombre(),
+            input.getApellido(),
+            input.getEmail(),
+            input.getVersion()
+        )));
+    }
+
+    /**
+     * Cambia la contraseña de un usuario
+     * GraphQL: cambiarPassword(id: ID!, nuevaPassword: String!)
+     */
+    @MutationMapping
+    public Mono<UsuarioDTO> cambiarPassword(@Argument Long id, @Argument String nuevaPassword) {
+        return bloqueante(() -> UsuarioDTO.fromEntity(usuarioService.cambiarPassword(id, nuevaPassword)));
+    }
+
+    /**
+     * Activa o desactiva un usuario
+     * GraphQL: cambiarEstadoUsuario(id: ID!, activo: Boolean!, version: Int)
+     */
+    @MutationMapping
+    public Mono<UsuarioDTO> cambiarEstadoUsuario(@Argument Long id, @Argument Boolean activo,
+                                                 @Argument Long version) {
+        return bloqueante(() -> UsuarioDTO.fromEntity(usuarioService.cambiarEstadoUsuario(id, activo, version)));
+    }
+
+    /**
+     * Activa o desactiva varios usuarios a la vez
+     * Solo ADMIN
+     * GraphQL: cambiarEstadoUsuarios(ids: [ID!]!, activo: Boolean!, usuarioEmail: String!)
+     */
+    @MutationMapping
+    public Mono<Integer> cambiarEstadoUsuarios(@Argument List<Long> ids, @Argument Boolean activo,
+                                               @Argument String usuarioEmail) {
+        return soloAdmin(usuarioEmail)
+            .then(bloqueante(() -> usuarioService.cambiarEstadoUsuarios(ids, activo)));
+    }
+
+    /**
+     * Activa o desactiva los usuarios que cumplen un filtro (rol y/o códigos de cliente)
+     * Solo ADMIN
+     * GraphQL: cambiarEstadoUsuariosPorFiltro(filtro: FiltroUsuariosInput!, activo: Boolean!, usuarioEmail: String!)
+     */
+    @MutationMapping
+    public Mono<Integer> cambiarEstadoUsuariosPorFiltro(@Argument FiltroUsuariosInput filtro,
+                                                        @Argument Boolean activo,
+                                                        @Argument String usuarioEmail) {
+        return soloAdmin(usuarioEmail)
+            .then(bloqueante(() -> usuarioService.cambiarEstadoUsuariosPorFiltro(
+                filtro.getRol(), filtro.getCodigosCliente(), activo)));
+    }
+
+    /**
+     * Termina con error si quien pide la operación no es ADMIN
+     */
+    private Mono<Void> soloAdmin(String usuarioEmail) {
+        return usuarioReactivoService.tieneRol(usuarioEmail, "ADMIN")
+            .flatMap(esAdmin -> esAdmin
+                ? Mono.<Void>empty()
+                : Mono.error(new IllegalArgumentException("Operación permitida solo a administradores")));
+    }
+
+    /**
+     * Ejecuta una llamada JPA (bloqueante) fuera de los hilos de eventos
+     */
+    static <T> Mono<T> bloqueante(Callable<T> llamada) {
+        return Mono.fromCallable(llamada).subscribeOn(Schedulers.boundedElastic());
+    }
+}
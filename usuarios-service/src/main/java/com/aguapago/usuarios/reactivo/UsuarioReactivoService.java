@@ -0,0 +1,111 @@
+package com.aguapago.usuarios.reactivo;
+
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.service.BusquedaMultiple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Servicio de consultas de Usuario sobre R2DBC (perfil "reactivo")
+ *
+ * Mismas consultas que UsuarioService, pero sin bloquear hilos:
+ * devuelve Mono/Flux que Spring GraphQL suscribe directamente.
+ */
+@Service
+@Profile("reactivo")
+public class UsuarioReactivoService {
+
+    @Autowired
+    private UsuarioReactivoRepository usuarioRepository;
+
+    @Autowired
+    private BusquedaMultiple busquedaMultiple;
+
+    /**
+     * Obtiene todos los usuarios del sistema
+     * @return Flux con todos los usuarios
+     */
+    public Flux<UsuarioDTO> obtenerTodosLosUsuarios() {
+        return usuarioRepository.findAll().map(UsuarioReactivoService::aDto);
+    }
+
+    /**
+     * Busca un usuario por su ID
+     * @param id el ID del usuario
+     * @return Mono con el usuario, vacío si no existe
+     */
+    public Mono<UsuarioDTO> obtenerUsuarioPorId(Long id) {
+        return usuarioRepository.findById(id).map(UsuarioReactivoService::aDto);
+    }
+
+    /**
+     * Busca varios usuarios por ID, un SELECT ... IN por tramo (uno tras otro)
+     * @param ids IDs de usuario
+     * @return Mono con un usuario por ID, en el mismo orden (null si no existe)
+     */
+    public Mono<List<UsuarioDTO>> obtenerUsuariosPorIds(List<Long> ids) {
+        return Mono.fromCallable(() -> busquedaMultiple.tramos(ids))
+            .flatMapMany(Flux::fromIterable)
+            .concatMap(usuarioRepository::findByIdIn)
+            .map(UsuarioReactivoService::aDto)
+            .collectMap(UsuarioDTO::getId)
+            .map(porId -> BusquedaMultiple.enOrden(ids, porId));
+    }
+
+    /**
+     * Busca un usuario por su email
+     * @param email el email del usuario
+     * @return Mono con el usuario, vacío si no existe
+     */
+    public Mono<UsuarioDTO> obtenerUsuarioPorEmail(String email) {
+        return usuarioRepository.findByEmail(email).map(UsuarioReactivoService::aDto);
+    }
+
+    /**
+     * Obtiene todos los usuarios con un rol específico
+     * @param rol el rol a buscar ("ADMIN" o "CLIENTE")
+     * @return Flux con los usuarios de ese rol
+     */
+    public Flux<UsuarioDTO> obtenerUsuariosPorRol(String rol) {
+        return usuarioRepository.findByRol(rol).map(UsuarioReactivoService::aDto);
+    }
+
+    /**
+     * Verifica si un usuario tiene un rol específico
+     */
+    public Mono<Boolean> tieneRol(String email, String rol) {
+        return usuarioRepository.findByEmail(email)
+            .map(u -> rol.equals(u.getRol()))
+            .defaultIfEmpty(false);
+    }
+
+    /**
+     * Verifica si un usuario es el propietario de un recurso
+     */
+    public Mono<Boolean> esPropietario(String email, Long usuarioId) {
+        return usuarioRepository.findByEmail(email)
+            .map(u -> u.getId().equals(usuarioId))
+            .defaultIfEmpty(false);
+    }
+
+    /**
+     * Convierte UsuarioRow → UsuarioDTO
+     */
+    static UsuarioDTO aDto(UsuarioRow usuario) {
+        return new UsuarioDTO(
+            usuario.getId(),
+            usuario.getNombre(),
+            usuario.getApellido(),
+            usuario.getEmail(),
+            usuario.getRol(),
+            usuario.getActivo(),
+            usuario.getCreatedAt(),
+            usuario.getVersion()
+        );
+    }
+}
@@ -0,0 +1,43 @@
+package com.aguapago.usuarios.reactivo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la tabla 'usuario' para el acceso reactivo (R2DBC)
+ *
+ * Mapea la misma tabla que la entidad JPA Usuario; solo se usa para lectura.
+ */
+@Table("usuario")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsuarioRow {
+
+    @Id
+    private Long id;
+
+    private String nombre;
+
+    private String apellido;
+
+    private String email;
+
+    @Column("password_hash")
+    private String passwordHash;
+
+    private String rol;
+
+    private Boolean activo;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    private Long version;
+}
@@ -0,0 +1,77 @@
+package com.aguapago.usuarios.repository;
+
+import com.aguapago.usuarios.exception.ConflictoVersionException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UPDATE parcial con control de versión, compartido por los fragmentos
+ * UsuarioRepositoryImpl y ClienteRepositoryImpl
+ *
+ * Genera una sola sentencia:
+ *   UPDATE tabla SET col1 = ?, ..., version = version + 1, updated_at = ?
+ *   WHERE id = ? [AND version = ?]
+ * que solo toca las columnas que cambian. Sin versión esperada, las columnas
+ * no enviadas igual quedan intactas (no hay lost update sobre ellas).
+ */
+final class ActualizacionParcial {
+
+    private ActualizacionParcial() {
+    }
+
+    /**
+     * @param entityManager   EntityManager de la transacción actual
+     * @param tipo            clase de la entidad (con atributos id, version y updatedAt)
+     * @param nombre          nombre para los mensajes ("Usuario", "Cliente")
+     * @param id              ID del registro
+     * @param versionEsperada versión leída por el cliente, o null para no comprobarla
+     * @param cambios         atributo → nuevo valor; solo estos se actualizan
+     * @throws IllegalArgumentException  si el registro no existe
+     * @throws ConflictoVersionException si la versión ya no coincide
+     */
+    static <T> void ejecutar(EntityManager entityManager, Class<T> tipo, String nombre,
+                             Long id, Long versionEsperada, Map<String, Object> cambios) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(tipo);
+        Root<T> raiz = update.from(tipo);
+
+        cambios.forEach(update::set);
+        update.set(raiz.<Long>get("version"), cb.sum(raiz.<Long>get("version"), 1L));
+        update.set(raiz.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+
+        Predicate condicion = cb.equal(raiz.get("id"), id);
+        if (versionEsperada != null) {
+            condicion = cb.and(condicion, cb.equal(raiz.get("version"), versionEsperada));
+        }
+        update.where(condicion);
+
+        // Igual que @Modifying(flushAutomatically, clearAutomatically): el UPDATE
+        // va directo a la base, así que el contexto de persistencia no debe quedar viejo
+        entityManager.flush();
+        int filas = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+
+        if (filas == 0) {
+            Long versionActual = versionActual(entityManager, tipo, id);
+            if (versionActual == null) {
+                throw new IllegalArgumentException(nombre + " no encontrado");
+            }
+            throw new ConflictoVersionException(nombre, id, versionEsperada, versionActual);
+        }
+    }
+
+    private static <T> Long versionActual(EntityManager entityManager, Class<T> tipo, Long id) {
+        List<Long> versiones = entityManager.createQuery(
+                "SELECT e.version FROM " + tipo.getSimpleName() + " e WHERE e.id = :id", Long.class)
+            .setParameter("id", id)
+            .getResultList();
+        return versiones.isEmpty() ? null : versiones.get(0);
+    }
+}
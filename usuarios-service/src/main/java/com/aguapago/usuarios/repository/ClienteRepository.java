@@ -1,9 +1,17 @@
 package com.aguapago.usuarios.repository;
 
 import com.aguapago.usuarios.entity.Cliente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -11,17 +19,47 @@ import java.util.Optional;
  * 
  * Proporciona métodos para acceder y manipular datos de clientes
  * en la base de datos PostgreSQL.
+ *
+ * Las búsquedas que devuelven entidades traen el usuario en el mismo JOIN
+ * (@EntityGraph); sin eso, la relación EAGER se carga con un SELECT extra
+ * por cada cliente (N+1).
  */
 @Repository
-public interface ClienteRepository extends JpaRepository<Cliente, Long> {
+public interface ClienteRepository extends JpaRepository<Cliente, Long>, ClienteRepositoryCustom {
+
+    /**
+     * Todos los clientes con su usuario, en una sola consulta
+     * @return lista de clientes
+     */
+    @Override
+    @EntityGraph(attributePaths = "usuario")
+    List<Cliente> findAll();
+
+    /**
+     * Clientes con id mayor al dado, con su usuario, en orden de id (tramos de @stream)
+     * @param desde id de la última fila entregada
+     * @param pagina tamaño del tramo
+     * @return clientes en orden de id
+     */
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario WHERE c.id > :desde ORDER BY c.id")
+    List<Cliente> findDesde(@Param("desde") Long desde, Pageable pagina);
 
     /**
      * Busca un cliente por su código único
      * @param codigoCliente el código del cliente (ej: "CLI-001")
      * @return Optional con el cliente si existe
      */
+    @EntityGraph(attributePaths = "usuario")
     Optional<Cliente> findByCodigoCliente(String codigoCliente);
 
+    /**
+     * Clientes con los códigos dados, con su usuario, en una sola consulta (sin orden)
+     * @param codigos códigos de cliente (un tramo de BusquedaMultiple)
+     * @return los clientes que existen
+     */
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario WHERE c.codigoCliente IN :codigos")
+    List<Cliente> findByCodigoClienteIn(@Param("codigos") Collection<String> codigos);
+
     /**
      * Verifica si existe un cliente con el código dado
      * @param codigoCliente el código a verificar
@@ -34,7 +72,8 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
      * @param usuarioId el ID del usuario
      * @return Optional con el cliente si existe
      */
-    Optional<Cliente> findByUsuarioId(Long usuarioId);
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario WHERE c.usuario.id = :usuarioId")
+    Optional<Cliente> findByUsuarioId(@Param("usuarioId") Long usuarioId);
 
     /**
      * Busca un cliente por el email de su usuario asociado
@@ -42,7 +81,8 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
      * @param email el email del usuario
      * @return Optional con el cliente si existe
      */
-    Optional<Cliente> findByUsuarioEmail(String email);
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario u WHERE u.email = :email")
+    Optional<Cliente> findByUsuarioEmail(@Param("email") String email);
 
     /**
      * Verifica si existe un cliente asociado a un usuario específico
@@ -50,4 +90,83 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
      * @return true si existe, false si no
      */
     Boolean existsByUsuarioId(Long usuarioId);
-}
\ No newline at end of file
+
+    /**
+     * IDs de usuario de los clientes con los códigos dados (sin cargar entidades)
+     * @param codigos códigos de cliente
+     * @return IDs de usuario de los que existen
+     */
+    @Query("SELECT c.usuario.id FROM Cliente c WHERE c.codigoCliente IN :codigos")
+    List<Long> findUsuarioIdsPorCodigos(@Param("codigos") List<String> codigos);
+
+    /**
+     * Clientes escritos después de una posición (updatedAt, id), hasta el límite de la sincronización
+     * Recorre idx_cliente_updated_at en orden; el usuario viene en el mismo JOIN
+     * @param desde updatedAt de la posición
+     * @param desdeId id de la posición (solo cuentan los mayores con el mismo updatedAt)
+     * @param hasta límite superior de updatedAt (inclusive)
+     * @param pagina tamaño de la página
+     * @return clientes en orden de (updatedAt, id)
+     */
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario "
+        + "WHERE (c.updatedAt, c.id) > (:desde, :desdeId) AND c.updatedAt <= :hasta ORDER BY c.updatedAt, c.id")
+    List<Cliente> findCambiosDesde(@Param("desde") LocalDateTime desde, @Param("desdeId") Long desdeId,
+                                   @Param("hasta") LocalDateTime hasta, Pageable pagina);
+
+    /**
+     * Como findCambiosDesde, pero solo el cliente del usuario dado (sincronización de un cliente)
+     * @param usuarioId usuario que sincroniza
+     * @return su cliente si cambió después de la posición, o vacío
+     */
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario WHERE c.usuario.id = :usuarioId "
+        + "AND (c.updatedAt, c.id) > (:desde, :desdeId) AND c.updatedAt <= :hasta ORDER BY c.updatedAt, c.id")
+    List<Cliente> findCambiosDesdeDeUsuario(@Param("usuarioId") Long usuarioId, @Param("desde") LocalDateTime desde,
+                                            @Param("desdeId") Long desdeId, @Param("hasta") LocalDateTime hasta,
+                                            Pageable pagina);
+
+    /**
+     * Clientes escritos después de un instante, con su usuario (puesta al día del directorio)
+     * @param desde updatedAt desde el que se buscan (exclusivo)
+     * @param pagina tamaño máximo
+     * @return clientes en orden de updatedAt
+     */
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario WHERE c.updatedAt > :desde ORDER BY c.updatedAt")
+    List<Cliente> findCambiadosDesde(@Param("desde") LocalDateTime desde, Pageable pagina);
+
+    /**
+     * Clientes cuyo usuario se escribió después de un instante (puesta al día del directorio)
+     * Recorre idx_usuario_updated_at
+     * @param desde updatedAt del usuario desde el que se buscan (exclusivo)
+     * @param pagina tamaño máximo
+     * @return clientes en orden de updatedAt del usuario
+     */
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.usuario u WHERE u.updatedAt > :desde ORDER BY u.updatedAt")
+    List<Cliente> findConUsuarioCambiadoDesde(@Param("desde") LocalDateTime desde, Pageable pagina);
+
+    /**
+     * Altas de clientes por mes desde un instante, sin traer filas (estadísticas del panel)
+     * Recorre idx_cliente_created_at desde ese instante
+     * @param desde inicio del primer mes
+     * @return filas [año, mes, cantidad] en orden cronológico (sin los meses sin altas)
+     */
+    @Query("SELECT YEAR(c.createdAt), MONTH(c.createdAt), COUNT(c) FROM Cliente c WHERE c.createdAt >= :desde "
+        + "GROUP BY YEAR(c.createdAt), MONTH(c.createdAt) ORDER BY YEAR(c.createdAt), MONTH(c.createdAt)")
+    List<Object[]> contarAltasPorMesDesde(@Param("desde") LocalDateTime desde);
+
+    /**
+     * Marca como cambiados los clientes de los usuarios cuyo estado va a cambiar
+     * Un cliente de un usuario inactivo se sincroniza como eliminado, así que
+     * debe volver a enviarse cuando su usuario cambia de estado. Se ejecuta
+     * antes del UPDATE de los usuarios y con sus mismos filtros.
+     * @param ids IDs de usuario del lote
+     * @param activo nuevo estado
+     * @param rol rol que deben tener (null: cualquiera)
+     * @param ahora nuevo updatedAt
+     * @return cantidad de clientes marcados
+     */
+    @Modifying
+    @Query("UPDATE Cliente c SET c.updatedAt = :ahora WHERE c.usuario.id IN ("
+        + "SELECT u.id FROM Usuario u WHERE u.id IN :ids AND u.activo <> :activo AND (:rol IS NULL OR u.rol = :rol))")
+    int marcarCambioDeEstado(@Param("ids") List<Long> ids, @Param("activo") Boolean activo,
+                             @Param("rol") String rol, @Param("ahora") LocalDateTime ahora);
+}
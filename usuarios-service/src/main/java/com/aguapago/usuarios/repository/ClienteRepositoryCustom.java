@@ -0,0 +1,19 @@
+package com.aguapago.usuarios.repository;
+
+import java.util.Map;
+
+/**
+ * Operaciones de ClienteRepository que no se pueden derivar del nombre del método
+ */
+public interface ClienteRepositoryCustom {
+
+    /**
+     * Actualiza solo los atributos dados, con una sola sentencia UPDATE
+     * @param id ID del cliente
+     * @param versionEsperada versión que leyó el cliente (null: sin comprobar)
+     * @param cambios atributo → nuevo valor
+     * @throws IllegalArgumentException si el cliente no existe
+     * @throws com.aguapago.usuarios.exception.ConflictoVersionException si la versión no coincide
+     */
+    void actualizarParcial(Long id, Long versionEsperada, Map<String, Object> cambios);
+}
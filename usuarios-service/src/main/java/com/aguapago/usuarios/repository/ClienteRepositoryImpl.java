@@ -0,0 +1,21 @@
+package com.aguapago.usuarios.repository;
+
+import com.aguapago.usuarios.entity.Cliente;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Map;
+
+/**
+ * Implementación del fragmento ClienteRepositoryCustom
+ */
+class ClienteRepositoryImpl implements ClienteRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void actualizarParcial(Long id, Long versionEsperada, Map<String, Object> cambios) {
+        ActualizacionParcial.ejecutar(entityManager, Cliente.class, "Cliente", id, versionEsperada, cambios);
+    }
+}
@@ -0,0 +1,67 @@
+package com.aguapago.usuarios.repository;
+
+import com.aguapago.usuarios.entity.EventoCambio;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio para la tabla outbox de eventos de cambio
+ */
+@Repository
+public interface EventoCambioRepository extends JpaRepository<EventoCambio, Long> {
+
+    /**
+     * Toma el siguiente lote de eventos pendientes, en orden de id
+     *
+     * Bloquea las filas con SKIP LOCKED (timeout -2): si hay varias
+     * instancias del servicio, cada relay toma un lote distinto.
+     * @param pagina tamaño del lote
+     * @return eventos sin publicar
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EventoCambio e WHERE e.publicadoAt IS NULL ORDER BY e.id")
+    List<EventoCambio> findPendientes(Pageable pagina);
+
+    /**
+     * Marca un lote de eventos como publicados
+     * @return cantidad de filas actualizadas
+     */
+    @Modifying
+    @Query("UPDATE EventoCambio e SET e.publicadoAt = :fecha WHERE e.id IN :ids")
+    int marcarPublicados(@Param("ids") List<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Borra eventos ya publicados antes de una fecha
+     * @return cantidad de filas borradas
+     */
+    @Modifying
+    @Query("DELETE FROM EventoCambio e WHERE e.publicadoAt < :limite")
+    int borrarPublicadosAntesDe(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Registra, con un solo INSERT ... SELECT, un evento ESTADO_CAMBIADO_MASIVO por
+     * cada usuario del lote cuyo estado va a cambiar
+     * Debe ejecutarse antes del UPDATE y con los mismos filtros. El payload es
+     * parcial: {"id": ..., "activo": ...}
+     * @return cantidad de eventos registrados
+     */
+    @Modifying
+    @Query("INSERT INTO EventoCambio (agregado, agregadoId, tipo, payload, createdAt) "
+        + "SELECT 'USUARIO', u.id, 'ESTADO_CAMBIADO_MASIVO', "
+        + "concat('{\"id\":', cast(u.id as String), ',\"activo\":', :activoJson, '}'), current_timestamp "
+        + "FROM Usuario u WHERE u.id IN :ids AND u.activo <> :activo AND (:rol IS NULL OR u.rol = :rol)")
+    int registrarCambiosDeEstado(@Param("ids") List<Long> ids, @Param("activo") Boolean activo,
+                                 @Param("activoJson") String activoJson, @Param("rol") String rol);
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.aguapago.usuarios.repository;
+
+import com.aguapago.usuarios.entity.TareaAprovisionamiento;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para la cola de aprovisionamiento de perfiles de cliente
+ */
+@Repository
+public interface TareaAprovisionamientoRepository extends JpaRepository<TareaAprovisionamiento, Long> {
+
+    /**
+     * Toma las tareas pendientes cuyo próximo intento ya venció
+     * Con SKIP LOCKED, varias instancias pueden tomar lotes distintos
+     * @param ahora fecha de referencia
+     * @param pagina tamaño del lote
+     * @return tareas listas para procesar
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT t FROM TareaAprovisionamiento t WHERE t.estado = 'PENDIENTE' "
+        + "AND t.proximoIntento <= :ahora ORDER BY t.proximoIntento, t.id")
+    List<TareaAprovisionamiento> findListas(@Param("ahora") LocalDateTime ahora, Pageable pagina);
+
+    /**
+     * Busca la tarea de un usuario
+     * @param usuarioId el ID del usuario
+     * @return Optional con la tarea si existe
+     */
+    Optional<TareaAprovisionamiento> findByUsuarioId(Long usuarioId);
+
+    /**
+     * Cuenta tareas por estado
+     * @param estado PENDIENTE, COMPLETADA o FALLIDA
+     * @return cantidad de tareas
+     */
+    long countByEstado(String estado);
+}
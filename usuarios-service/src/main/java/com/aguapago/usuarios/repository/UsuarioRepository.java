@@ -1,9 +1,15 @@
 package com.aguapago.usuarios.repository;
 
 import com.aguapago.usuarios.entity.Usuario;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +20,7 @@ import java.util.Optional;
  * en la base de datos PostgreSQL.
  */
 @Repository
-public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
+public interface UsuarioRepository extends JpaRepository<Usuario, Long>, UsuarioRepositoryCustom {
 
     /**
      * Busca un usuario por su email
@@ -23,6 +29,22 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      */
     Optional<Usuario> findByEmail(String email);
 
+    /**
+     * Cantidad de usuarios por rol y estado, sin traer filas (estadísticas del panel)
+     * Se resuelve con idx_usuario_rol_activo
+     * @return filas [rol, activo, cantidad]
+     */
+    @Query("SELECT u.rol, u.activo, COUNT(u) FROM Usuario u GROUP BY u.rol, u.activo")
+    List<Object[]> contarPorRolYEstado();
+
+    /**
+     * Usuarios con los IDs dados, en una sola consulta (sin orden)
+     * @param ids IDs de usuario (un tramo de BusquedaMultiple)
+     * @return los usuarios que existen
+     */
+    @Query("SELECT u FROM Usuario u WHERE u.id IN :ids")
+    List<Usuario> findByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Verifica si existe un usuario con el email dado
      * @param email el email a verificar
@@ -30,6 +52,14 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      */
     Boolean existsByEmail(String email);
 
+    /**
+     * Verifica si el email está en uso por otro usuario
+     * @param email el email a verificar
+     * @param id ID del usuario que se excluye
+     * @return true si otro usuario ya lo usa
+     */
+    Boolean existsByEmailAndIdNot(String email, Long id);
+
     /**
      * Busca todos los usuarios con un rol específico
      * @param rol el rol a buscar ("ADMIN" o "CLIENTE")
@@ -37,6 +67,17 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      */
     List<Usuario> findByRol(String rol);
 
+    /**
+     * Usuarios de un rol con id mayor al dado, en orden de id (tramos de @stream)
+     * Recorre idx_usuario_rol_id desde la posición, sin ordenar en memoria
+     * @param rol el rol a buscar
+     * @param desde id de la última fila entregada
+     * @param pagina tamaño del tramo
+     * @return usuarios en orden de id
+     */
+    @Query("SELECT u FROM Usuario u WHERE u.rol = :rol AND u.id > :desde ORDER BY u.id")
+    List<Usuario> findByRolDesde(@Param("rol") String rol, @Param("desde") Long desde, Pageable pagina);
+
     /**
      * Busca usuarios por estado (activo/inactivo)
      * @param activo true para activos, false para inactivos
@@ -51,4 +92,69 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * @return lista de usuarios que cumplen ambas condiciones
      */
     List<Usuario> findByRolAndActivo(String rol, Boolean activo);
+
+    /**
+     * IDs de usuarios CLIENTE sin perfil de cliente ni tarea de aprovisionamiento abierta
+     * Lo usa el barrido de reconciliación
+     * @param pagina tamaño del lote
+     * @return IDs de usuario en orden ascendente
+     */
+    @Query("SELECT u.id FROM Usuario u WHERE u.rol = 'CLIENTE' "
+        + "AND NOT EXISTS (SELECT c.id FROM Cliente c WHERE c.usuario.id = u.id) "
+        + "AND NOT EXISTS (SELECT t.id FROM TareaAprovisionamiento t "
+        + "WHERE t.usuarioId = u.id AND t.estado <> 'COMPLETADA') "
+        + "ORDER BY u.id")
+    List<Long> findIdsClientesSinPerfil(Pageable pagina);
+
+    /**
+     * IDs de usuarios de un rol que todavía no tienen el estado dado (paginado por keyset)
+     * @param rol el rol a buscar
+     * @param activo el estado objetivo
+     * @param desde último ID del lote anterior
+     * @param pagina tamaño del lote
+     * @return IDs en orden ascendente
+     */
+    @Query("SELECT u.id FROM Usuario u WHERE u.rol = :rol AND u.activo <> :activo AND u.id > :desde ORDER BY u.id")
+    List<Long> findIdsPorRolConEstadoDistinto(@Param("rol") String rol, @Param("activo") Boolean activo,
+                                              @Param("desde") Long desde, Pageable pagina);
+
+    /**
+     * Cambia el estado de un lote de usuarios con un solo UPDATE, sin cargar entidades
+     * Solo toca las filas cuyo estado cambia (y del rol dado, si no es null)
+     * @param ids IDs del lote
+     * @param activo nuevo estado
+     * @param rol rol que deben tener (null: cualquiera)
+     * @param ahora nuevo updatedAt de las filas que cambian
+     * @return cantidad de usuarios que cambiaron
+     */
+    @Modifying
+    @Query("UPDATE Usuario u SET u.activo = :activo, u.version = u.version + 1, u.updatedAt = :ahora "
+        + "WHERE u.id IN :ids AND u.activo <> :activo AND (:rol IS NULL OR u.rol = :rol)")
+    int cambiarEstadoEnLote(@Param("ids") List<Long> ids, @Param("activo") Boolean activo,
+                            @Param("rol") String rol, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Usuarios escritos después de una posición (updatedAt, id), hasta el límite de la sincronización
+     * Recorre idx_usuario_updated_at en orden, sin saltar filas entre páginas
+     * @param desde updatedAt de la posición
+     * @param desdeId id de la posición (solo cuentan los mayores con el mismo updatedAt)
+     * @param hasta límite superior de updatedAt (inclusive)
+     * @param pagina tamaño de la página
+     * @return usuarios en orden de (updatedAt, id)
+     */
+    @Query("SELECT u FROM Usuario u WHERE (u.updatedAt, u.id) > (:desde, :desdeId) AND u.updatedAt <= :hasta "
+        + "ORDER BY u.updatedAt, u.id")
+    List<Usuario> findCambiosDesde(@Param("desde") LocalDateTime desde, @Param("desdeId") Long desdeId,
+                                   @Param("hasta") LocalDateTime hasta, Pageable pagina);
+
+    /**
+     * Como findCambiosDesde, pero solo el usuario dado (sincronización de un cliente)
+     * @param usuarioId usuario que sincroniza
+     * @return el usuario si cambió después de la posición, o vacío
+     */
+    @Query("SELECT u FROM Usuario u WHERE u.id = :usuarioId AND (u.updatedAt, u.id) > (:desde, :desdeId) "
+        + "AND u.updatedAt <= :hasta ORDER BY u.updatedAt, u.id")
+    List<Usuario> findCambiosDesdeDeUsuario(@Param("usuarioId") Long usuarioId, @Param("desde") LocalDateTime desde,
+                                            @Param("desdeId") Long desdeId, @Param("hasta") LocalDateTime hasta,
+                                            Pageable pagina);
 }
\ No newline at end of file
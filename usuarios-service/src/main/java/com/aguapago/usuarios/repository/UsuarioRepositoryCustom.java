@@ -0,0 +1,19 @@
+package com.aguapago.usuarios.repository;
+
+import java.util.Map;
+
+/**
+ * Operaciones de UsuarioRepository que no se pueden derivar del nombre del método
+ */
+public interface UsuarioRepositoryCustom {
+
+    /**
+     * Actualiza solo los atributos dados, con una sola sentencia UPDATE
+     * @param id ID del usuario
+     * @param versionEsperada versión que leyó el cliente (null: sin comprobar)
+     * @param cambios atributo → nuevo valor
+     * @throws IllegalArgumentException si el usuario no existe
+     * @throws com.aguapago.usuarios.exception.ConflictoVersionException si la versión no coincide
+     */
+    void actualizarParcial(Long id, Long versionEsperada, Map<String, Object> cambios);
+}
@@ -0,0 +1,21 @@
+package com.aguapago.usuarios.repository;
+
+import com.aguapago.usuarios.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Map;
+
+/**
+ * Implementación del fragmento UsuarioRepositoryCustom
+ */
+class UsuarioRepositoryImpl implements UsuarioRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void actualizarParcial(Long id, Long versionEsperada, Map<String, Object> cambios) {
+        ActualizacionParcial.ejecutar(entityManager, Usuario.class, "Usuario", id, versionEsperada, cambios);
+    }
+}
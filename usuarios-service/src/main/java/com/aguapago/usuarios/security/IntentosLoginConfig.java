@@ -0,0 +1,40 @@
+package com.aguapago.usuarios.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuración del limitador de logins fallidos
+ *
+ * Activo por defecto; se desactiva con aguapago.login.limitador.habilitado=false.
+ * El umbral por IP es más alto que el de email porque varios clientes
+ * pueden salir por la misma IP (NAT de una oficina o de un operador móvil).
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.login.limitador.habilitado", havingValue = "true", matchIfMissing = true)
+public class IntentosLoginConfig {
+
+    @Bean
+    public LimitadorIntentosLogin limitadorIntentosLogin(
+            MeterRegistry registry,
+            @Value("${aguapago.login.entradas:65536}") int entradas,
+            @Value("${aguapago.login.umbral-email:5}") int umbralEmail,
+            @Value("${aguapago.login.umbral-ip:20}") int umbralIp,
+            @Value("${aguapago.login.backoff-inicial:1s}") Duration backoffInicial,
+            @Value("${aguapago.login.backoff-maximo:15m}") Duration backoffMaximo,
+            @Value("${aguapago.login.ventana:15m}") Duration ventana) {
+        return new LimitadorIntentosLogin(entradas, umbralEmail, umbralIp,
+            backoffInicial, backoffMaximo, ventana, registry);
+    }
+
+    @Bean
+    public IpOrigenInterceptor ipOrigenInterceptor(
+            @Value("${aguapago.login.usar-x-forwarded-for:true}") boolean usarXForwardedFor) {
+        return new IpOrigenInterceptor(usarXForwardedFor);
+    }
+}
@@ -0,0 +1,55 @@
+package com.aguapago.usuarios.security;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * Deja la IP de origen de la petición en el contexto GraphQL ("ipOrigen")
+ *
+ * Detrás del api-gateway la conexión viene del gateway, así que se usa el
+ * último valor de X-Forwarded-For: es el que agregó el propio gateway y el
+ * cliente no lo puede falsificar. Sin gateway delante, desactivar
+ * aguapago.login.usar-x-forwarded-for para usar la dirección remota.
+ */
+public class IpOrigenInterceptor implements WebGraphQlInterceptor {
+
+    public static final String IP_ORIGEN = "ipOrigen";
+
+    private final boolean usarXForwardedFor;
+
+    public IpOrigenInterceptor(boolean usarXForwardedFor) {
+        this.usarXForwardedFor = usarXForwardedFor;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        String ip = ipOrigen(request);
+        if (ip != null) {
+            request.configureExecutionInput((entrada, builder) ->
+                builder.graphQLContext(Map.of(IP_ORIGEN, ip)).build());
+        }
+        return chain.next(request);
+    }
+
+    private String ipOrigen(WebGraphQlRequest request) {
+        if (usarXForwardedFor) {
+            String reenviado = request.getHeaders().getFirst("X-Forwarded-For");
+            if (reenviado != null && !reenviado.isBlank()) {
+                String ultimo = reenviado.substring(reenviado.lastIndexOf(',') + 1).trim();
+                if (!ultimo.isEmpty()) {
+                    return ultimo;
+                }
+            }
+        }
+        InetSocketAddress remota = request.getRemoteAddress();
+        if (remota == null) {
+            return null;
+        }
+        return remota.getAddress() != null ? remota.getAddress().getHostAddress() : remota.getHostString();
+    }
+}
@@ -0,0 +1,232 @@
+package com.aguapago.usuarios.security;
+
+import com.aguapago.usuarios.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Frena los logins fallidos repetidos por email y por IP de origen
+ *
+ * Tras `umbral` fallos seguidos, cada nuevo intento espera un backoff
+ * exponencial (inicial, 2x, 4x... hasta el máximo). Mientras dura, el login
+ * se rechaza sin consultar la base ni calcular BCrypt. Un login correcto
+ * limpia el contador del email; el de la IP solo vence con la ventana.
+ *
+ * Los contadores viven en dos tablas de tamaño fijo (un long por entrada),
+ * así que la memoria no crece con la cantidad de emails o IPs atacantes.
+ * Una clave nueva que cae en una entrada ocupada solo la reemplaza si esa
+ * entrada ya venció o todavía no bloquea: no se puede "lavar" un email
+ * bloqueado fallando con otro que colisione.
+ *
+ * El contador por email es de cada tenant (el mismo email puede existir en
+ * dos cooperativas); el de IP es común, porque el atacante es el mismo.
+ */
+public class LimitadorIntentosLogin {
+
+    private final TablaFallos porEmail;
+    private final TablaFallos porIp;
+    private final LongSupplier reloj;
+
+    private final Counter rechazadosPorEmail;
+    private final Counter rechazadosPorIp;
+    private final Counter fallidos;
+
+    public LimitadorIntentosLogin(int entradas, int umbralEmail, int umbralIp,
+                                  Duration backoffInicial, Duration backoffMaximo, Duration ventana,
+                                  MeterRegistry registry) {
+        this(entradas, umbralEmail, umbralIp, backoffInicial, backoffMaximo, ventana, registry,
+            System::currentTimeMillis);
+    }
+
+    LimitadorIntentosLogin(int entradas, int umbralEmail, int umbralIp,
+                           Duration backoffInicial, Duration backoffMaximo, Duration ventana,
+                           MeterRegistry registry, LongSupplier reloj) {
+        long base = reloj.getAsLong();
+        this.porEmail = new TablaFallos(entradas, umbralEmail, backoffInicial, backoffMaximo, ventana, base);
+        this.porIp = new TablaFallos(entradas, umbralIp, backoffInicial, backoffMaximo, ventana, base);
+        this.reloj = reloj;
+        this.rechazadosPorEmail = Counter.builder("aguapago.login.rechazados")
+            .description("Logins rechazados por backoff, sin consultar la base ni calcular BCrypt")
+            .tag("motivo", "email")
+            .register(registry);
+        this.rechazadosPorIp = Counter.builder("aguapago.login.rechazados")
+            .description("Logins rechazados por backoff, sin consultar la base ni calcular BCrypt")
+            .tag("motivo", "ip")
+            .register(registry);
+        this.fallidos = Counter.builder("aguapago.login.fallidos")
+            .description("Logins con credenciales inválidas")
+            .register(registry);
+    }
+
+    // ====== MÉTODOS PÚBLICOS ======
+
+    /**
+     * Milisegundos que faltan para poder intentar el login (0: se permite)
+     * Si hay espera, cuenta el rechazo en las métricas.
+     * @param email email del intento
+     * @param ip IP de origen (null si no se conoce)
+     */
+    public long verificar(String email, String ip) {
+        long ahora = reloj.getAsLong();
+        long esperaEmail = porEmail.esperaRestante(normalizar(email), ahora);
+        long esperaIp = ip != null ? porIp.esperaRestante(ip, ahora) : 0;
+        if (esperaEmail > 0) {
+            rechazadosPorEmail.increment();
+        } else if (esperaIp > 0) {
+            rechazadosPorIp.increment();
+        }
+        return Math.max(esperaEmail, esperaIp);
+    }
+
+    /**
+     * Registra un login fallido (email inexistente o contraseña incorrecta)
+     */
+    public void registrarFallo(String email, String ip) {
+        long ahora = reloj.getAsLong();
+        fallidos.increment();
+        porEmail.registrarFallo(normalizar(email), ahora);
+        if (ip != null) {
+            porIp.registrarFallo(ip, ahora);
+        }
+    }
+
+    /**
+     * Un login correcto reinicia el contador de su email
+     */
+    public void registrarExito(String email) {
+        porEmail.limpiar(normalizar(email));
+    }
+
+    private static String normalizar(String email) {
+        String normalizado = email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+        String tenant = TenantContext.actual();
+        return TenantContext.PRINCIPAL.equals(tenant) ? normalizado : tenant + '/' + normalizado;
+    }
+
+    // ====== TABLA DE FALLOS ======
+
+    /**
+     * Tabla de hash de tamaño fijo, sin encadenamiento
+     *
+     * Cada entrada es un long: huella de la clave (16 bits) | fallos (8 bits)
+     * | instante del último fallo en ms desde `base` (40 bits, ~34 años).
+     * 0 es una entrada libre. Las actualizaciones son CAS, sin locks.
+     */
+    static final class TablaFallos {
+
+        private static final int BITS_TIEMPO = 40;
+        private static final long MASCARA_TIEMPO = (1L << BITS_TIEMPO) - 1;
+        private static final int MAX_FALLOS = 0xFF;
+
+        private final AtomicLongArray entradas;
+        private final int mascara;
+        private final int umbral;
+        private final long backoffInicialMs;
+        private final long backoffMaximoMs;
+        private final long ventanaMs;
+        private final long base;
+        /** Semilla aleatoria: las colisiones no se pueden fabricar desde afuera */
+        private final long semilla = ThreadLocalRandom.current().nextLong();
+
+        TablaFallos(int entradas, int umbral, Duration backoffInicial, Duration backoffMaximo,
+                    Duration ventana, long base) {
+            int tamano = Integer.highestOneBit(Math.max(16, entradas - 1) << 1);
+            this.entradas = new AtomicLongArray(tamano);
+            this.mascara = tamano - 1;
+            this.umbral = Math.max(1, Math.min(umbral, MAX_FALLOS));
+            this.backoffInicialMs = backoffInicial.toMillis();
+            this.backoffMaximoMs = backoffMaximo.toMillis();
+            this.ventanaMs = ventana.toMillis();
+            this.base = base;
+        }
+
+        long esperaRestante(String clave, long ahora) {
+            long hash = hash(clave);
+            long entrada = entradas.get(indice(hash));
+            if (entrada == 0 || huella(entrada) != huella(hash) || vencida(entrada, ahora)) {
+                return 0;
+            }
+            long bloqueoHasta = base + tiempo(entrada) + backoff(fallos(entrada));
+            return Math.max(0, bloqueoHasta - ahora);
+        }
+
+        void registrarFallo(String clave, long ahora) {
+            long hash = hash(clave);
+            int indice = indice(hash);
+            long relativo = (ahora - base) & MASCARA_TIEMPO;
+            while (true) {
+                long actual = entradas.get(indice);
+                int fallos;
+                if (actual != 0 && huella(actual) == huella(hash) && !vencida(actual, ahora)) {
+                    fallos = Math.min(MAX_FALLOS, fallos(actual) + 1);
+                } else if (actual == 0 || vencida(actual, ahora) || fallos(actual) < umbral) {
+                    fallos = 1;
+                } else {
+                    return;  // la entrada ocupada está bloqueando: se conserva
+                }
+                long nueva = ((long) huella(hash) << 48) | ((long) fallos << BITS_TIEMPO) | relativo;
+                if (entradas.compareAndSet(indice, actual, nueva)) {
+                    return;
+                }
+            }
+        }
+
+        void limpiar(String clave) {
+            long hash = hash(clave);
+            int indice = indice(hash);
+            long actual = entradas.get(indice);
+            if (actual != 0 && huella(actual) == huella(hash)) {
+                entradas.compareAndSet(indice, actual, 0);
+            }
+        }
+
+        private long backoff(int fallos) {
+            if (fallos < umbral) {
+                return 0;
+            }
+            int exceso = Math.min(fallos - umbral, 30);
+            return Math.min(backoffMaximoMs, backoffInicialMs << exceso);
+        }
+
+        private boolean vencida(long entrada, long ahora) {
+            return ahora - (base + tiempo(entrada)) > Math.max(ventanaMs, backoff(fallos(entrada)));
+        }
+
+        private int indice(long hash) {
+            return (int) hash & mascara;
+        }
+
+        /** FNV-1a con semilla y mezcla final de MurmurHash3 */
+        private long hash(String clave) {
+            long h = semilla ^ 0xcbf29ce484222325L;
+            for (int i = 0; i < clave.length(); i++) {
+                h = (h ^ clave.charAt(i)) * 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        /** Huella de 16 bits, nunca 0 para distinguirla de una entrada libre */
+        private static int huella(long valor) {
+            return (int) (valor >>> 48) | 1;
+        }
+
+        private static int fallos(long entrada) {
+            return (int) (entrada >>> BITS_TIEMPO) & MAX_FALLOS;
+        }
+
+        private static long tiempo(long entrada) {
+            return entrada & MASCARA_TIEMPO;
+        }
+    }
+}
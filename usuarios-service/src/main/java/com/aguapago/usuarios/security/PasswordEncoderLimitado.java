@@ -0,0 +1,53 @@
+package com.aguapago.usuarios.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * PasswordEncoder que limita cuántos hashes BCrypt corren a la vez
+ *
+ * BCrypt es trabajo de CPU puro. Con hilos virtuales no hay un tope natural
+ * de hilos, así que sin este límite cientos de logins simultáneos ocuparían
+ * todos los carrier threads y las peticiones que solo esperan a la base de
+ * datos no podrían avanzar. El semáforo no usa synchronized, por lo que
+ * esperar en él no fija (pin) el hilo virtual a su carrier.
+ */
+public class PasswordEncoderLimitado implements PasswordEncoder {
+
+    private final PasswordEncoder delegado;
+    private final Semaphore permisos;
+
+    public PasswordEncoderLimitado(PasswordEncoder delegado, int concurrencia) {
+        if (concurrencia < 1) {
+            throw new IllegalArgumentException("La concurrencia de hashing debe ser al menos 1");
+        }
+        this.delegado = delegado;
+        this.permisos = new Semaphore(concurrencia, true);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        permisos.acquireUninterruptibly();
+        try {
+            return delegado.encode(rawPassword);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        permisos.acquireUninterruptibly();
+        try {
+            return delegado.matches(rawPassword, encodedPassword);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+}
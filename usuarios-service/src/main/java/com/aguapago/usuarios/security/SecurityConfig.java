@@ -1,9 +1,12 @@
 package com.aguapago.usuarios.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
 /**
@@ -23,4 +26,15 @@ public class SecurityConfig {
             );
         return http.build();
     }
+
+    /**
+     * Encoder BCrypt compartido por AuthService y UsuarioService
+     * Limita los hashes simultáneos a la cantidad de núcleos (configurable)
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(
+            @Value("${aguapago.bcrypt.concurrencia:0}") int concurrencia) {
+        int limite = concurrencia > 0 ? concurrencia : Runtime.getRuntime().availableProcessors();
+        return new PasswordEncoderLimitado(new BCryptPasswordEncoder(), limite);
+    }
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
 package com.aguapago.usuarios.service;
 
 import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.security.LimitadorIntentosLogin;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -17,7 +18,12 @@ public class AuthService {
     @Autowired
     private UsuarioService usuarioService;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    /** null si aguapago.login.limitador.habilitado=false */
+    @Autowired(required = false)
+    private LimitadorIntentosLogin limitadorIntentosLogin;
 
     /**
      * Valida credenciales de login
@@ -27,10 +33,33 @@ public class AuthService {
      * @throws RuntimeException si las credenciales son inválidas
      */
     public Usuario login(String email, String password) {
+        return login(email, password, null);
+    }
+
+    /**
+     * Valida credenciales de login, frenando los intentos fallidos repetidos
+     * Si el email o la IP están en backoff, rechaza el intento antes de
+     * buscar el usuario y de calcular BCrypt.
+     * @param email email del usuario
+     * @param password contraseña en texto plano
+     * @param ipOrigen IP de origen del intento (null si no se conoce)
+     * @return el usuario si las credenciales son válidas
+     * @throws RuntimeException si las credenciales son inválidas o hay que esperar
+     */
+    public Usuario login(String email, String password, String ipOrigen) {
+        if (limitadorIntentosLogin != null) {
+            long espera = limitadorIntentosLogin.verificar(email, ipOrigen);
+            if (espera > 0) {
+                throw new IllegalArgumentException("Demasiados intentos fallidos. Reintente en "
+                    + Math.max(1, (espera + 999) / 1000) + " s");
+            }
+        }
+
         // Buscar usuario por email
         Optional<Usuario> usuarioOpt = usuarioService.obtenerUsuarioPorEmail(email);
         
         if (usuarioOpt.isEmpty()) {
+            registrarFallo(email, ipOrigen);
             throw new IllegalArgumentException("Credenciales inválidas");
         }
         
@@ -43,12 +72,22 @@ public class AuthService {
         
         // Verificar contraseña
         if (!passwordEncoder.matches(password, usuario.getPasswordHash())) {
+            registrarFallo(email, ipOrigen);
             throw new IllegalArgumentException("Credenciales inválidas");
         }
-        
+
+        if (limitadorIntentosLogin != null) {
+            limitadorIntentosLogin.registrarExito(email);
+        }
         return usuario;
     }
 
+    private void registrarFallo(String email, String ipOrigen) {
+        if (limitadorIntentosLogin != null) {
+            limitadorIntentosLogin.registrarFallo(email, ipOrigen);
+        }
+    }
+
     /**
      * Verifica si un usuario tiene un rol específico
      */
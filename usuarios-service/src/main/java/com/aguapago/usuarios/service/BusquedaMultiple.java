@@ -0,0 +1,62 @@
+package com.aguapago.usuarios.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Búsquedas por varias claves (códigos de cliente, IDs de usuario) en una sola operación
+ *
+ * Las claves se reparten en tramos de `tamanoTramo` (un SELECT ... IN por
+ * tramo) y el resultado vuelve en el orden de entrada, con null donde la
+ * clave no existe. Una clave repetida se busca una sola vez.
+ */
+@Component
+public class BusquedaMultiple {
+
+    /** Claves por operación */
+    @Value("${aguapago.busqueda-multiple.maximo:1000}")
+    private int maximo;
+
+    /** Claves por sentencia IN */
+    @Value("${aguapago.busqueda-multiple.tamano-tramo:500}")
+    private int tamanoTramo;
+
+    /**
+     * @throws IllegalArgumentException si hay más claves que el máximo por operación
+     */
+    public void validar(List<?> claves) {
+        if (claves.size() > maximo) {
+            throw new IllegalArgumentException("No se pueden buscar más de " + maximo + " claves a la vez");
+        }
+    }
+
+    /**
+     * Claves distintas (sin null) repartidas en tramos
+     * @throws IllegalArgumentException si hay más claves que el máximo por operación
+     */
+    public <K> List<List<K>> tramos(List<K> claves) {
+        validar(claves);
+        List<K> distintas = claves.stream().filter(Objects::nonNull).distinct().toList();
+        List<List<K>> tramos = new ArrayList<>();
+        for (int i = 0; i < distintas.size(); i += tamanoTramo) {
+            tramos.add(distintas.subList(i, Math.min(i + tamanoTramo, distintas.size())));
+        }
+        return tramos;
+    }
+
+    /**
+     * Un elemento por clave, en el orden de entrada (null si no se encontró)
+     */
+    public static <K, T> List<T> enOrden(List<K> claves, Map<K, T> encontrados) {
+        List<T> resultado = new ArrayList<>(claves.size());
+        for (K clave : claves) {
+            resultado.add(encontrados.get(clave));
+        }
+        return resultado;
+    }
+}
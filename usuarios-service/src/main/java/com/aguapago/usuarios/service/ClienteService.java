@@ -1,14 +1,21 @@
 package com.aguapago.usuarios.service;
 
+import com.aguapago.usuarios.directorio.DirectorioClientes;
 import com.aguapago.usuarios.entity.Cliente;
 import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.exception.ConflictoVersionException;
+import com.aguapago.usuarios.outbox.OutboxService;
 import com.aguapago.usuarios.repository.ClienteRepository;
 import com.aguapago.usuarios.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -18,6 +25,11 @@ import java.util.Optional;
  * - Creación de perfiles de cliente
  * - Consultas de información de cliente
  * - Actualización de datos de cliente
+ * 
+ * Las consultas son readOnly: si hay réplicas configuradas
+ * (aguapago.replicas.urls) se leen de una réplica.
+ * Cada mutation registra su evento de cambio en el outbox y, al
+ * confirmar, deja el cliente en el directorio por código.
  */
 @Service
 @Transactional
@@ -29,6 +41,16 @@ public class ClienteService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private BusquedaMultiple busquedaMultiple;
+
+    /** null si aguapago.directorio.habilitado=false */
+    @Autowired(required = false)
+    private DirectorioClientes directorioClientes;
+
     // ========================================
     // MÉTODOS DE CONSULTA
     // ========================================
@@ -37,15 +59,28 @@ public class ClienteService {
      * Obtiene todos los clientes
      * @return lista de todos los clientes
      */
+    @Transactional(readOnly = true)
     public List<Cliente> obtenerTodosLosClientes() {
         return clienteRepository.findAll();
     }
 
+    /**
+     * Tramo del listado de clientes en orden de id (entrega con @stream)
+     * @param despuesDe id del último cliente ya entregado
+     * @param cantidad máximo de clientes del tramo
+     * @return clientes siguientes, con su usuario
+     */
+    @Transactional(readOnly = true)
+    public List<Cliente> obtenerClientesDesde(Long despuesDe, int cantidad) {
+        return clienteRepository.findDesde(despuesDe, PageRequest.of(0, cantidad));
+    }
+
     /**
      * Busca un cliente por su ID
      * @param id el ID del cliente
      * @return Optional con el cliente si existe
      */
+    @Transactional(readOnly = true)
     public Optional<Cliente> obtenerClientePorId(Long id) {
         return clienteRepository.findById(id);
     }
@@ -55,15 +90,33 @@ public class ClienteService {
      * @param codigoCliente el código del cliente (ej: "CLI-001")
      * @return Optional con el cliente si existe
      */
+    @Transactional(readOnly = true)
     public Optional<Cliente> obtenerClientePorCodigo(String codigoCliente) {
         return clienteRepository.findByCodigoCliente(codigoCliente);
     }
 
+    /**
+     * Busca varios clientes por código (hojas de ruta de los lectores)
+     * Un SELECT ... IN con su usuario por cada tramo de códigos
+     * @param codigos códigos de cliente
+     * @return un cliente por código, en el mismo orden (null si no existe)
+     * @throws IllegalArgumentException si hay más códigos que aguapago.busqueda-multiple.maximo
+     */
+    @Transactional(readOnly = true)
+    public List<Cliente> obtenerClientesPorCodigos(List<String> codigos) {
+        Map<String, Cliente> porCodigo = new HashMap<>();
+        for (List<String> tramo : busquedaMultiple.tramos(codigos)) {
+            clienteRepository.findByCodigoClienteIn(tramo).forEach(c -> porCodigo.put(c.getCodigoCliente(), c));
+        }
+        return BusquedaMultiple.enOrden(codigos, porCodigo);
+    }
+
     /**
      * Busca un cliente por el ID de su usuario
      * @param usuarioId el ID del usuario
      * @return Optional con el cliente si existe
      */
+    @Transactional(readOnly = true)
     public Optional<Cliente> obtenerClientePorUsuarioId(Long usuarioId) {
         return clienteRepository.findByUsuarioId(usuarioId);
     }
@@ -73,6 +126,7 @@ public class ClienteService {
      * @param email el email del usuario
      * @return Optional con el cliente si existe
      */
+    @Transactional(readOnly = true)
     public Optional<Cliente> obtenerClientePorEmail(String email) {
         return clienteRepository.findByUsuarioEmail(email);
     }
@@ -125,7 +179,10 @@ public class ClienteService {
         cliente.setTelefono(telefono);
         cliente.setDocumentoIdentidad(documentoIdentidad);
         
-        return clienteRepository.save(cliente);
+        cliente = clienteRepository.save(cliente);
+        outboxService.registrarCambioCliente(OutboxService.CREADO, cliente);
+        recordarEnDirectorio(cliente);
+        return cliente;
     }
 
     // ========================================
@@ -134,30 +191,42 @@ public class ClienteService {
 
     /**
      * Actualiza la información de un cliente
+     * Un solo UPDATE con las columnas que cambian; si se envía la versión,
+     * solo se aplica si nadie modificó el cliente desde que se leyó
      * @param id ID del cliente
      * @param direccion nueva dirección (opcional)
      * @param telefono nuevo teléfono (opcional)
      * @param documentoIdentidad nuevo documento (opcional)
+     * @param version versión leída por el cliente (opcional)
      * @return el cliente actualizado
      * @throws IllegalArgumentException si el cliente no existe
+     * @throws ConflictoVersionException si la versión no coincide
      */
     public Cliente actualizarCliente(Long id, String direccion, 
-                                     String telefono, String documentoIdentidad) {
-        Cliente cliente = clienteRepository.findById(id)
-            .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado"));
-        
+                                     String telefono, String documentoIdentidad, Long version) {
+        Map<String, Object> cambios = new LinkedHashMap<>();
+
         // Actualizar solo los campos que no son null
         if (direccion != null) {
-            cliente.setDireccion(direccion);
+            cambios.put("direccion", direccion);
         }
         if (telefono != null) {
-            cliente.setTelefono(telefono);
+            cambios.put("telefono", telefono);
         }
         if (documentoIdentidad != null) {
-            cliente.setDocumentoIdentidad(documentoIdentidad);
+            cambios.put("documentoIdentidad", documentoIdentidad);
         }
         
-        return clienteRepository.save(cliente);
+        if (!cambios.isEmpty()) {
+            clienteRepository.actualizarParcial(id, version, cambios);
+        }
+        Cliente cliente = clienteRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado"));
+        if (!cambios.isEmpty()) {
+            outboxService.registrarCambioCliente(OutboxService.ACTUALIZADO, cliente);
+            recordarEnDirectorio(cliente);
+        }
+        return cliente;
     }
 
     /**
@@ -173,13 +242,19 @@ public class ClienteService {
         Cliente cliente = clienteRepository.findByUsuarioId(usuarioId)
             .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado para este usuario"));
         
-        return actualizarCliente(cliente.getId(), direccion, telefono, documentoIdentidad);
+        return actualizarCliente(cliente.getId(), direccion, telefono, documentoIdentidad, null);
     }
 
     // ========================================
     // MÉTODOS AUXILIARES
     // ========================================
 
+    private void recordarEnDirectorio(Cliente cliente) {
+        if (directorioClientes != null) {
+            directorioClientes.recordarAlConfirmar(cliente);
+        }
+    }
+
     /**
      * Genera un código de cliente único automáticamente
      * @return código generado (ej: "CLI-001", "CLI-002", etc.)
@@ -0,0 +1,144 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.dto.ConteoMesDTO;
+import com.aguapago.usuarios.dto.ConteoRolDTO;
+import com.aguapago.usuarios.dto.EstadisticasUsuariosDTO;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import com.aguapago.usuarios.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de estadísticas del panel de administración
+ *
+ * Los totales salen de agregados en SQL (GROUP BY sobre índices): la base
+ * devuelve unas pocas filas en lugar de la tabla completa. El resultado se
+ * guarda por tenant durante aguapago.estadisticas.vigencia, así que recargar
+ * el panel no vuelve a la base; si varios paneles piden a la vez un
+ * resultado vencido, se calcula una sola vez y los demás lo esperan.
+ */
+@Service
+public class EstadisticasService {
+
+    /** Meses de altas de clientes que se pueden pedir */
+    public static final int MAXIMO_MESES = 60;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Antigüedad máxima de un resultado guardado (0: siempre se calcula) */
+    @Value("${aguapago.estadisticas.vigencia:30s}")
+    private Duration vigencia;
+
+    private final Map<String, Instantanea> instantaneas = new ConcurrentHashMap<>();
+
+    // ========================================
+    // MÉTODOS DE CONSULTA
+    // ========================================
+
+    /**
+     * Totales de usuarios y altas de clientes del tenant actual
+     * @param meses meses de altas de clientes, incluido el actual (1 a MAXIMO_MESES)
+     * @return estadísticas con a lo sumo `vigencia` de antigüedad
+     * @throws IllegalArgumentException si meses está fuera de rango
+     */
+    public EstadisticasUsuariosDTO obtenerEstadisticas(int meses) {
+        if (meses < 1 || meses > MAXIMO_MESES) {
+            throw new IllegalArgumentException("Los meses deben estar entre 1 y " + MAXIMO_MESES);
+        }
+        String clave = TenantContext.actual() + '/' + meses;
+        long ahora = System.nanoTime();
+        CompletableFuture<EstadisticasUsuariosDTO> propio = new CompletableFuture<>();
+        Instantanea instantanea = instantaneas.compute(clave, (k, previa) ->
+            previa != null && ahora - previa.creada < vigencia.toNanos() ? previa : new Instantanea(propio, ahora));
+
+        if (instantanea.valor == propio) {
+            try {
+                propio.complete(calcular(meses));
+            } catch (RuntimeException e) {
+                instantaneas.remove(clave, instantanea);
+                propio.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return instantanea.valor.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    /**
+     * Tres consultas de agregados en una transacción de solo lectura
+     */
+    private EstadisticasUsuariosDTO calcular(int meses) {
+        YearMonth actual = YearMonth.now();
+        YearMonth primero = actual.minusMonths(meses - 1L);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(true);
+
+        return transaccion.execute(estado -> {
+            Map<String, ConteoRolDTO> porRol = new TreeMap<>();
+            long activos = 0;
+            long inactivos = 0;
+            for (Object[] fila : usuarioRepository.contarPorRolYEstado()) {
+                String rol = (String) fila[0];
+                long cantidad = ((Number) fila[2]).longValue();
+                ConteoRolDTO conteo = porRol.computeIfAbsent(rol, r -> new ConteoRolDTO(r, 0L, 0L, 0L));
+                conteo.setTotal(conteo.getTotal() + cantidad);
+                if (Boolean.TRUE.equals(fila[1])) {
+                    conteo.setActivos(conteo.getActivos() + cantidad);
+                    activos += cantidad;
+                } else {
+                    conteo.setInactivos(conteo.getInactivos() + cantidad);
+                    inactivos += cantidad;
+                }
+            }
+
+            Map<YearMonth, Long> altas = new TreeMap<>();
+            for (Object[] fila : clienteRepository.contarAltasPorMesDesde(primero.atDay(1).atStartOfDay())) {
+                altas.put(YearMonth.of(((Number) fila[0]).intValue(), ((Number) fila[1]).intValue()),
+                    ((Number) fila[2]).longValue());
+            }
+            List<ConteoMesDTO> porMes = new ArrayList<>(meses);
+            for (YearMonth mes = primero; !mes.isAfter(actual); mes = mes.plusMonths(1)) {
+                porMes.add(new ConteoMesDTO(mes.toString(), altas.getOrDefault(mes, 0L)));
+            }
+
+            return new EstadisticasUsuariosDTO(activos + inactivos, activos, inactivos,
+                new ArrayList<>(porRol.values()), clienteRepository.count(), porMes, LocalDateTime.now());
+        });
+    }
+
+    private static final class Instantanea {
+
+        private final CompletableFuture<EstadisticasUsuariosDTO> valor;
+        private final long creada;
+
+        private Instantanea(CompletableFuture<EstadisticasUsuariosDTO> valor, long creada) {
+            this.valor = valor;
+            this.creada = creada;
+        }
+    }
+}
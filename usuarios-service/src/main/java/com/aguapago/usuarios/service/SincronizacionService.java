@@ -0,0 +1,217 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.dto.CambioSincronizacionDTO;
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.PaginaCambiosDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Servicio de sincronización incremental para la app móvil
+ *
+ * Devuelve solo los usuarios y clientes escritos desde la última
+ * sincronización, en orden de (updatedAt, tipo, id) y por páginas con
+ * keyset: cada página son dos SELECT por índice con LIMIT, sin importar el
+ * tamaño de las tablas.
+ *
+ * Una sincronización empieza con la marca guardada (desde) y pide páginas
+ * con el cursor (after) hasta que hayMas es false; entonces la app guarda
+ * la nueva marca. El límite superior de la sincronización se fija en la
+ * primera página (ahora menos aguapago.sincronizacion.margen) y viaja en el
+ * cursor, así las páginas no se corren si hay escrituras mientras tanto. El
+ * margen cubre las transacciones que escribieron antes del límite pero aún
+ * no confirmaron: sin él, la app podría saltarse esas filas para siempre.
+ *
+ * Un ADMIN sincroniza todo el tenant; cualquier otro usuario, solo su propio
+ * usuario y su cliente (ver obtenerCambiosDesde con usuarioId).
+ */
+@Service
+@Transactional(readOnly = true)
+public class SincronizacionService {
+
+    /** Marca inicial: sin desde, se sincroniza todo */
+    private static final LocalDateTime INICIO = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final Comparator<CambioSincronizacionDTO> ORDEN = Comparator
+        .comparing(CambioSincronizacionDTO::getUpdatedAt)
+        .thenComparing(cambio -> orden(cambio.getTipo()))
+        .thenComparing(CambioSincronizacionDTO::getId);
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Value("${aguapago.sincronizacion.margen:5s}")
+    private Duration margen;
+
+    @Value("${aguapago.sincronizacion.pagina:100}")
+    private int paginaPorDefecto;
+
+    @Value("${aguapago.sincronizacion.pagina-maxima:500}")
+    private int paginaMaxima;
+
+    /**
+     * Obtiene una página de cambios de todos los usuarios y clientes
+     *
+     * @param desde marca de la última sincronización completa (null: todo)
+     * @param first tamaño de la página (por defecto aguapago.sincronizacion.pagina)
+     * @param after cursor de la página anterior de esta sincronización (null: primera página)
+     * @return cambios de la página, cursor siguiente y marca para la próxima sincronización
+     * @throws IllegalArgumentException si la marca o el cursor no son válidos
+     */
+    public PaginaCambiosDTO obtenerCambiosDesde(String desde, Integer first, String after) {
+        return obtenerCambiosDesde(desde, first, after, null);
+    }
+
+    /**
+     * Obtiene una página de cambios, de todos o solo de un usuario y su cliente
+     *
+     * @param usuarioId usuario cuyos registros se sincronizan (null: todos)
+     * @see #obtenerCambiosDesde(String, Integer, String)
+     */
+    public PaginaCambiosDTO obtenerCambiosDesde(String desde, Integer first, String after, Long usuarioId) {
+        int tamano = first == null ? paginaPorDefecto : first;
+        if (tamano < 1 || tamano > paginaMaxima) {
+            throw new IllegalArgumentException("first debe estar entre 1 y " + paginaMaxima);
+        }
+
+        Posicion posicion = after != null
+            ? Posicion.decodificar(after)
+            : Posicion.inicial(desde != null ? decodificarMarca(desde) : INICIO,
+                LocalDateTime.now().minus(margen).truncatedTo(ChronoUnit.MICROS));
+
+        // Con el mismo updatedAt, los usuarios van antes que los clientes: en la
+        // tabla del tipo de la posición se sigue desde su id; en la del otro tipo,
+        // o se incluyen todos (tipo posterior) o ninguno (tipo anterior)
+        PageRequest limite = PageRequest.of(0, tamano + 1);
+        List<CambioSincronizacionDTO> cambios = new ArrayList<>();
+        Long idUsuarios = posicion.idDesde(CambioSincronizacionDTO.USUARIO);
+        Long idClientes = posicion.idDesde(CambioSincronizacionDTO.CLIENTE);
+        (usuarioId == null
+            ? usuarioRepository.findCambiosDesde(posicion.updatedAt, idUsuarios, posicion.hasta, limite)
+            : usuarioRepository.findCambiosDesdeDeUsuario(usuarioId, posicion.updatedAt, idUsuarios, posicion.hasta, limite))
+            .forEach(usuario -> cambios.add(cambioDe(usuario)));
+        (usuarioId == null
+            ? clienteRepository.findCambiosDesde(posicion.updatedAt, idClientes, posicion.hasta, limite)
+            : clienteRepository.findCambiosDesdeDeUsuario(usuarioId, posicion.updatedAt, idClientes, posicion.hasta, limite))
+            .forEach(cliente -> cambios.add(cambioDe(cliente)));
+        cambios.sort(ORDEN);
+
+        boolean hayMas = cambios.size() > tamano;
+        List<CambioSincronizacionDTO> pagina = hayMas ? new ArrayList<>(cambios.subList(0, tamano)) : cambios;
+        String cursor = null;
+        if (!pagina.isEmpty()) {
+            CambioSincronizacionDTO ultimo = pagina.get(pagina.size() - 1);
+            cursor = new Posicion(ultimo.getUpdatedAt(), ultimo.getTipo(), ultimo.getId(), posicion.hasta)
+                .codificar();
+        }
+        return new PaginaCambiosDTO(pagina, cursor, hayMas, codificar(posicion.hasta.toString()));
+    }
+
+    // ====== CONVERSIÓN ======
+
+    private static CambioSincronizacionDTO cambioDe(Usuario usuario) {
+        boolean eliminado = !usuario.getActivo();
+        return new CambioSincronizacionDTO(CambioSincronizacionDTO.USUARIO, usuario.getId(), eliminado,
+            usuario.getUpdatedAt(), eliminado ? null : UsuarioDTO.fromEntity(usuario), null);
+    }
+
+    private static CambioSincronizacionDTO cambioDe(Cliente cliente) {
+        boolean eliminado = !cliente.getUsuario().getActivo();
+        return new CambioSincronizacionDTO(CambioSincronizacionDTO.CLIENTE, cliente.getId(), eliminado,
+            cliente.getUpdatedAt(), null, eliminado ? null : ClienteDTO.fromEntity(cliente));
+    }
+
+    private static int orden(String tipo) {
+        return CambioSincronizacionDTO.USUARIO.equals(tipo) ? 0 : 1;
+    }
+
+    // ====== MARCAS Y CURSORES ======
+
+    private static String codificar(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodificar(String valor) {
+        return new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime decodificarMarca(String marca) {
+        try {
+            return LocalDateTime.parse(decodificar(marca));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Marca de sincronización inválida");
+        }
+    }
+
+    /**
+     * Último registro entregado (updatedAt, tipo, id) y límite de la sincronización
+     */
+    private static final class Posicion {
+
+        private final LocalDateTime updatedAt;
+        private final String tipo;
+        private final Long id;
+        private final LocalDateTime hasta;
+
+        Posicion(LocalDateTime updatedAt, String tipo, Long id, LocalDateTime hasta) {
+            this.updatedAt = updatedAt;
+            this.tipo = tipo;
+            this.id = id;
+            this.hasta = hasta;
+        }
+
+        /** Antes de todo lo escrito después de desde (lo escrito en desde ya se entregó) */
+        static Posicion inicial(LocalDateTime desde, LocalDateTime hasta) {
+            return new Posicion(desde, CambioSincronizacionDTO.CLIENTE, Long.MAX_VALUE, hasta);
+        }
+
+        /**
+         * id a partir del cual leer la tabla del tipo dado, con updatedAt igual al de la posición
+         */
+        Long idDesde(String tabla) {
+            int comparacion = Integer.compare(orden(tabla), orden(tipo));
+            if (comparacion == 0) {
+                return id;
+            }
+            return comparacion > 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+
+        String codificar() {
+            return SincronizacionService.codificar(updatedAt + "|" + tipo + "|" + id + "|" + hasta);
+        }
+
+        static Posicion decodificar(String cursor) {
+            try {
+                String[] partes = SincronizacionService.decodificar(cursor).split("\\|");
+                String tipo = partes[1];
+                if (!CambioSincronizacionDTO.USUARIO.equals(tipo) && !CambioSincronizacionDTO.CLIENTE.equals(tipo)) {
+                    throw new IllegalArgumentException(tipo);
+                }
+                return new Posicion(LocalDateTime.parse(partes[0]), tipo, Long.parseLong(partes[2]),
+                    LocalDateTime.parse(partes[3]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de sincronización inválido");
+            }
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package com.aguapago.usuarios.service;
 
+import com.aguapago.usuarios.aprovisionamiento.AprovisionamientoService;
+import com.aguapago.usuarios.directorio.DirectorioClientes;
 import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.exception.ConflictoVersionException;
+import com.aguapago.usuarios.outbox.OutboxService;
+import com.aguapago.usuarios.repository.ClienteRepository;
 import com.aguapago.usuarios.repository.UsuarioRepository;
 //import com.aguapago.usuarios.service.ClienteService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -19,6 +33,11 @@ import java.util.Optional;
  * - CRUD de usuarios
  * - Validaciones
  * - Gestión de roles
+ * 
+ * Las consultas son readOnly: si hay réplicas configuradas
+ * (aguapago.replicas.urls) se leen de una réplica.
+ * Cada mutation registra su evento de cambio en el outbox; las que
+ * modifican usuarios existentes sacan sus clientes del directorio por código.
  */
 @Service
 @Transactional
@@ -28,8 +47,30 @@ public class UsuarioService {
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private ClienteService clienteService;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private AprovisionamientoService aprovisionamientoService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BusquedaMultiple busquedaMultiple;
+
+    /** null si aguapago.directorio.habilitado=false */
+    @Autowired(required = false)
+    private DirectorioClientes directorioClientes;
+
+    /** Filas por sentencia en los cambios masivos */
+    @Value("${aguapago.masivo.tamano-lote:1000}")
+    private int tamanoLoteMasivo;
 
     // ========================================
     // MÉTODOS DE CONSULTA
@@ -40,6 +81,7 @@ public class UsuarioService {
      * 
      * @return lista de todos los usuarios
      */
+    @Transactional(readOnly = true)
     public List<Usuario> obtenerTodosLosUsuarios() {
         return usuarioRepository.findAll();
     }
@@ -50,16 +92,35 @@ public class UsuarioService {
      * @param id el ID del usuario
      * @return Optional con el usuario si existe
      */
+    @Transactional(readOnly = true)
     public Optional<Usuario> obtenerUsuarioPorId(Long id) {
         return usuarioRepository.findById(id);
     }
 
+    /**
+     * Busca varios usuarios por ID
+     * Un SELECT ... IN por cada tramo de IDs
+     *
+     * @param ids IDs de usuario
+     * @return un usuario por ID, en el mismo orden (null si no existe)
+     * @throws IllegalArgumentException si hay más IDs que aguapago.busqueda-multiple.maximo
+     */
+    @Transactional(readOnly = true)
+    public List<Usuario> obtenerUsuariosPorIds(List<Long> ids) {
+        Map<Long, Usuario> porId = new HashMap<>();
+        for (List<Long> tramo : busquedaMultiple.tramos(ids)) {
+            usuarioRepository.findByIdIn(tramo).forEach(u -> porId.put(u.getId(), u));
+        }
+        return BusquedaMultiple.enOrden(ids, porId);
+    }
+
     /**
      * Busca un usuario por su email
      * 
      * @param email el email del usuario
      * @return Optional con el usuario si existe
      */
+    @Transactional(readOnly = true)
     public Optional<Usuario> obtenerUsuarioPorEmail(String email) {
         return usuarioRepository.findByEmail(email);
     }
@@ -70,16 +131,31 @@ public class UsuarioService {
      * @param rol el rol a buscar ("ADMIN" o "CLIENTE")
      * @return lista de usuarios con ese rol
      */
+    @Transactional(readOnly = true)
     public List<Usuario> obtenerUsuariosPorRol(String rol) {
         return usuarioRepository.findByRol(rol);
     }
 
+    /**
+     * Tramo de los usuarios de un rol en orden de id (entrega con @stream)
+     * 
+     * @param rol el rol a buscar
+     * @param despuesDe id del último usuario ya entregado
+     * @param cantidad máximo de usuarios del tramo
+     * @return usuarios siguientes con ese rol
+     */
+    @Transactional(readOnly = true)
+    public List<Usuario> obtenerUsuariosPorRolDesde(String rol, Long despuesDe, int cantidad) {
+        return usuarioRepository.findByRolDesde(rol, despuesDe, PageRequest.of(0, cantidad));
+    }
+
     /**
      * Obtiene usuarios activos o inactivos
      * 
      * @param activo true para activos, false para inactivos
      * @return lista de usuarios
      */
+    @Transactional(readOnly = true)
     public List<Usuario> obtenerUsuariosPorEstado(Boolean activo) {
         return usuarioRepository.findByActivo(activo);
     }
@@ -92,7 +168,8 @@ public class UsuarioService {
      * Registra un nuevo usuario en el sistema
      * /**
      * Registra un nuevo usuario en el sistema
-     * Si el rol es CLIENTE, crea automáticamente su perfil de cliente
+     * Si el rol es CLIENTE, encola la creación de su perfil de cliente:
+     * ProcesadorAprovisionamiento lo crea en segundo plano, con reintentos
      * 
      * @param nombre             nombre del usuario
      * @param apellido           apellido del usuario
@@ -128,21 +205,11 @@ public class UsuarioService {
 
         // Guardar usuario
         usuario = usuarioRepository.save(usuario);
+        outboxService.registrarCambioUsuario(OutboxService.CREADO, usuario);
 
-        // Si es CLIENTE, crear perfil automáticamente
+        // Si es CLIENTE, encolar la creación de su perfil (se procesa en segundo plano)
         if ("CLIENTE".equals(rol)) {
-            try {
-                String codigoCliente = clienteService.generarCodigoCliente();
-                clienteService.crearCliente(
-                        usuario.getId(),
-                        codigoCliente,
-                        direccion,
-                        telefono,
-                        documentoIdentidad);
-            } catch (Exception e) {
-                // Log del error pero no falla el registro del usuario
-                System.err.println("Error al crear perfil de cliente: " + e.getMessage());
-            }
+            aprovisionamientoService.encolar(usuario, direccion, telefono, documentoIdentidad);
         }
 
         return usuario;
@@ -154,34 +221,46 @@ public class UsuarioService {
 
     /**
      * Actualiza la información de un usuario
+     * Un solo UPDATE con las columnas que cambian; si se envía la versión,
+     * solo se aplica si nadie modificó el usuario desde que se leyó
      * 
      * @param id       ID del usuario a actualizar
      * @param nombre   nuevo nombre (opcional)
      * @param apellido nuevo apellido (opcional)
      * @param email    nuevo email (opcional, debe ser único)
+     * @param version  versión leída por el cliente (opcional)
      * @return el usuario actualizado
      * @throws IllegalArgumentException si el usuario no existe
+     * @throws ConflictoVersionException si la versión no coincide
      */
-    public Usuario actualizarUsuario(Long id, String nombre, String apellido, String email) {
-        Usuario usuario = usuarioRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+    public Usuario actualizarUsuario(Long id, String nombre, String apellido, String email, Long version) {
+        Map<String, Object> cambios = new LinkedHashMap<>();
 
         // Actualizar solo los campos que no son null
         if (nombre != null && !nombre.isEmpty()) {
-            usuario.setNombre(nombre);
+            cambios.put("nombre", nombre);
         }
         if (apellido != null && !apellido.isEmpty()) {
-            usuario.setApellido(apellido);
+            cambios.put("apellido", apellido);
         }
         if (email != null && !email.isEmpty()) {
             // Verificar que el nuevo email no esté en uso por otro usuario
-            if (!email.equals(usuario.getEmail()) && usuarioRepository.existsByEmail(email)) {
+            if (usuarioRepository.existsByEmailAndIdNot(email, id)) {
                 throw new IllegalArgumentException("El email ya está en uso");
             }
-            usuario.setEmail(email);
+            cambios.put("email", email);
         }
 
-        return usuarioRepository.save(usuario);
+        if (!cambios.isEmpty()) {
+            usuarioRepository.actualizarParcial(id, version, cambios);
+        }
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        if (!cambios.isEmpty()) {
+            outboxService.registrarCambioUsuario(OutboxService.ACTUALIZADO, usuario);
+            olvidarEnDirectorio(List.of(id));
+        }
+        return usuario;
     }
 
     /**
@@ -200,22 +279,135 @@ public class UsuarioService {
         }
 
         usuario.setPasswordHash(passwordEncoder.encode(nuevaPassword));
-        return usuarioRepository.save(usuario);
+        usuario = usuarioRepository.save(usuario);
+        outboxService.registrarCambioUsuario(OutboxService.PASSWORD_CAMBIADO, usuario);
+        olvidarEnDirectorio(List.of(id));
+        return usuario;
     }
 
     /**
      * Activa o desactiva un usuario
+     * Un solo UPDATE de la columna activo (con comprobación de versión si se envía)
      * 
-     * @param id     ID del usuario
-     * @param activo true para activar, false para desactivar
+     * @param id      ID del usuario
+     * @param activo  true para activar, false para desactivar
+     * @param version versión leída por el cliente (opcional)
      * @return el usuario actualizado
+     * @throws ConflictoVersionException si la versión no coincide
      */
-    public Usuario cambiarEstadoUsuario(Long id, Boolean activo) {
+    public Usuario cambiarEstadoUsuario(Long id, Boolean activo, Long version) {
+        clienteRepository.marcarCambioDeEstado(List.of(id), activo, null, LocalDateTime.now());
+        usuarioRepository.actualizarParcial(id, version, Map.of("activo", activo));
+
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        outboxService.registrarCambioUsuario(OutboxService.ESTADO_CAMBIADO, usuario);
+        olvidarEnDirectorio(List.of(id));
+        return usuario;
+    }
 
-        usuario.setActivo(activo);
-        return usuarioRepository.save(usuario);
+    // ========================================
+    // MÉTODOS MASIVOS
+    // ========================================
+
+    /**
+     * Activa o desactiva varios usuarios
+     * Por lotes de aguapago.masivo.tamano-lote: cada lote es un UPDATE (más el
+     * INSERT de sus eventos) en su propia transacción, sin cargar entidades.
+     * Repetir la operación es seguro: solo cambian las filas con otro estado.
+     * 
+     * @param ids    IDs de los usuarios
+     * @param activo true para activar, false para desactivar
+     * @return cantidad de usuarios que cambiaron de estado
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int cambiarEstadoUsuarios(List<Long> ids, Boolean activo) {
+        validarEstado(activo);
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> distintos = ids.stream().distinct().toList();
+        int total = 0;
+        for (int i = 0; i < distintos.size(); i += tamanoLoteMasivo) {
+            total += cambiarEstadoLote(
+                    distintos.subList(i, Math.min(i + tamanoLoteMasivo, distintos.size())), activo, null);
+        }
+        return total;
+    }
+
+    /**
+     * Activa o desactiva los usuarios que cumplen un filtro
+     * Con códigos de cliente, cambia a los usuarios de esos clientes (y del rol,
+     * si también se indica); solo con rol, a todos los usuarios de ese rol.
+     * 
+     * @param rol            rol de los usuarios (opcional)
+     * @param codigosCliente códigos de cliente (opcional)
+     * @param activo         true para activar, false para desactivar
+     * @return cantidad de usuarios que cambiaron de estado
+     * @throws IllegalArgumentException si el filtro está vacío
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int cambiarEstadoUsuariosPorFiltro(String rol, List<String> codigosCliente, Boolean activo) {
+        validarEstado(activo);
+        boolean porCodigos = codigosCliente != null && !codigosCliente.isEmpty();
+        if (rol == null && !porCodigos) {
+            throw new IllegalArgumentException("Debe indicar un rol o una lista de códigos de cliente");
+        }
+        if (rol != null && !rol.equals("ADMIN") && !rol.equals("CLIENTE")) {
+            throw new IllegalArgumentException("El rol debe ser 'ADMIN' o 'CLIENTE'");
+        }
+
+        int total = 0;
+        if (porCodigos) {
+            List<String> distintos = codigosCliente.stream().distinct().toList();
+            for (int i = 0; i < distintos.size(); i += tamanoLoteMasivo) {
+                List<Long> ids = clienteRepository.findUsuarioIdsPorCodigos(
+                        distintos.subList(i, Math.min(i + tamanoLoteMasivo, distintos.size())));
+                total += cambiarEstadoLote(ids, activo, rol);
+            }
+            return total;
+        }
+
+        // Solo rol: recorrer por keyset para que cada lote avance aunque alguna fila no cambie
+        long desde = 0;
+        List<Long> ids;
+        do {
+            ids = usuarioRepository.findIdsPorRolConEstadoDistinto(
+                    rol, activo, desde, PageRequest.of(0, tamanoLoteMasivo));
+            if (!ids.isEmpty()) {
+                total += cambiarEstadoLote(ids, activo, rol);
+                desde = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == tamanoLoteMasivo);
+        return total;
+    }
+
+    /**
+     * Un lote: eventos del outbox, marca de sus clientes y UPDATE en la misma transacción
+     */
+    private int cambiarEstadoLote(List<Long> ids, Boolean activo, String rol) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        Integer cambiados = new TransactionTemplate(transactionManager).execute(estado -> {
+            outboxService.registrarCambiosDeEstado(ids, activo, rol);
+            clienteRepository.marcarCambioDeEstado(ids, activo, rol, ahora);
+            olvidarEnDirectorio(ids);
+            return usuarioRepository.cambiarEstadoEnLote(ids, activo, rol, ahora);
+        });
+        return cambiados == null ? 0 : cambiados;
+    }
+
+    /**
+     * Los clientes de esos usuarios salen del directorio al confirmar
+     * (su resumen incluye nombre, email, estado y versión del usuario)
+     */
+    private void olvidarEnDirectorio(List<Long> usuarioIds) {
+        if (directorioClientes != null) {
+            directorioClientes.olvidarUsuariosAlConfirmar(usuarioIds);
+        }
     }
 
     // ========================================
@@ -229,6 +421,7 @@ public class UsuarioService {
      * @param password contraseña en texto plano
      * @return true si las credenciales son válidas
      */
+    @Transactional(readOnly = true)
     public boolean validarCredenciales(String email, String password) {
         Optional<Usuario> usuario = usuarioRepository.findByEmail(email);
 
@@ -249,6 +442,15 @@ public class UsuarioService {
     // MÉTODOS DE VALIDACIÓN PRIVADOS
     // ========================================
 
+    /**
+     * Valida que se indique el estado destino
+     */
+    private void validarEstado(Boolean activo) {
+        if (activo == null) {
+            throw new IllegalArgumentException("El estado (activo) es obligatorio");
+        }
+    }
+
     /**
      * Valida los datos básicos de un usuario
      */
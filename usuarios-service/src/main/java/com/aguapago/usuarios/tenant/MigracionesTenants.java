@@ -0,0 +1,51 @@
+package com.aguapago.usuarios.tenant;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Aplica las migraciones de Flyway a cada tenant adicional
+ *
+ * Spring Boot migra solo la base principal. Aquí se repite la misma
+ * configuración (ubicaciones, baseline) contra el pool de cada tenant; si
+ * el tenant usa un esquema propio, Flyway lo crea y lo migra.
+ */
+public class MigracionesTenants implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MigracionesTenants.class);
+
+    private final Flyway flyway;
+    private final Map<Object, DataSource> pools;
+    private final Map<String, String> esquemas;
+
+    public MigracionesTenants(Flyway flyway, Map<Object, DataSource> pools, Map<String, String> esquemas) {
+        this.flyway = flyway;
+        this.pools = pools;
+        this.esquemas = esquemas;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        pools.forEach((clave, pool) -> {
+            String tenant = (String) clave;
+            if (TenantContext.PRINCIPAL.equals(tenant)) {
+                return;
+            }
+            FluentConfiguration configuracion = Flyway.configure()
+                .configuration(flyway.getConfiguration())
+                .dataSource(pool);
+            String esquema = esquemas.get(tenant);
+            if (esquema != null) {
+                configuracion.schemas(esquema).defaultSchema(esquema);
+            }
+            int aplicadas = configuracion.load().migrate().migrationsExecuted;
+            log.info("Tenant {}: {} migraciones aplicadas", tenant, aplicadas);
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.aguapago.usuarios.tenant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cooperativas (tenants) que atiende esta instancia
+ *
+ * Siempre incluye TenantContext.PRINCIPAL, la base de spring.datasource.*.
+ * Los procesos programados recorren esta lista para atender a cada tenant.
+ */
+public class RegistroTenants {
+
+    private final List<String> ids;
+
+    public RegistroTenants(List<String> adicionales) {
+        Set<String> todos = new LinkedHashSet<>();
+        todos.add(TenantContext.PRINCIPAL);
+        for (String id : adicionales) {
+            if (!id.isBlank()) {
+                todos.add(id.trim());
+            }
+        }
+        this.ids = Collections.unmodifiableList(new ArrayList<>(todos));
+    }
+
+    /**
+     * IDs de todos los tenants, empezando por PRINCIPAL
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public boolean existe(String id) {
+        return ids.contains(id);
+    }
+
+    /**
+     * true si hay más tenants además del principal
+     */
+    public boolean esMultiTenant() {
+        return ids.size() > 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.aguapago.usuarios.tenant;
+
+import io.micrometer.context.ContextRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+import java.util.List;
+
+/**
+ * Resolución del tenant por petición
+ *
+ * Con una sola cooperativa (sin aguapago.tenants.ids) todo corre en el
+ * tenant principal y el comportamiento es el de siempre.
+ */
+@Configuration
+public class TenantConfig {
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(new TenantThreadLocalAccessor());
+    }
+
+    @Bean
+    public RegistroTenants registroTenants(@Value("${aguapago.tenants.ids:}") List<String> ids,
+                                           Environment environment) {
+        RegistroTenants registro = new RegistroTenants(ids);
+        if (registro.esMultiTenant() && environment.acceptsProfiles(Profiles.of("reactivo"))) {
+            // Las consultas R2DBC usan una sola ConnectionFactory: leerían la base principal
+            throw new IllegalStateException("El perfil reactivo no admite varios tenants (aguapago.tenants.ids)");
+        }
+        return registro;
+    }
+
+    @Bean
+    public FilterRegistrationBean<TenantFilter> tenantFilter(RegistroTenants registro) {
+        FilterRegistrationBean<TenantFilter> registracion = new FilterRegistrationBean<>(new TenantFilter(registro));
+        // Antes que Spring Security y que cualquier acceso a la base
+        registracion.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registracion;
+    }
+}
@@ -0,0 +1,60 @@
+package com.aguapago.usuarios.tenant;
+
+import java.util.function.Supplier;
+
+/**
+ * Cooperativa (tenant) de la petición o tarea en curso
+ *
+ * La establece TenantFilter al inicio de cada petición HTTP y los procesos
+ * programados con ejecutarEn(). Los executors la copian a sus hilos con
+ * context-propagation (TenantThreadLocalAccessor). Sin tenant establecido
+ * se usa PRINCIPAL: la base configurada en spring.datasource.*.
+ */
+public final class TenantContext {
+
+    /** Tenant de la base principal; es el único si no se configuran otros */
+    public static final String PRINCIPAL = "principal";
+
+    private static final ThreadLocal<String> ACTUAL = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    /**
+     * Tenant del hilo actual (PRINCIPAL si no hay ninguno establecido)
+     */
+    public static String actual() {
+        String tenant = ACTUAL.get();
+        return tenant != null ? tenant : PRINCIPAL;
+    }
+
+    /** Valor crudo del hilo (null si no hay tenant establecido) */
+    static String establecido() {
+        return ACTUAL.get();
+    }
+
+    static void establecer(String tenant) {
+        ACTUAL.set(tenant);
+    }
+
+    static void limpiar() {
+        ACTUAL.remove();
+    }
+
+    /**
+     * Ejecuta una acción con el tenant dado y restaura el anterior al terminar
+     */
+    public static <T> T ejecutarEn(String tenant, Supplier<T> accion) {
+        String anterior = ACTUAL.get();
+        ACTUAL.set(tenant);
+        try {
+            return accion.get();
+        } finally {
+            if (anterior != null) {
+                ACTUAL.set(anterior);
+            } else {
+                ACTUAL.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.aguapago.usuarios.tenant;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un pool de conexiones por cooperativa (tenant)
+ *
+ * Solo se activa si se define aguapago.tenants.ids. El tenant principal usa
+ * spring.datasource.*; cada tenant adicional se configura con:
+ *
+ *   aguapago.tenants.<id>.url        base propia (por defecto, la principal)
+ *   aguapago.tenants.<id>.esquema    esquema propio dentro de esa base
+ *   aguapago.tenants.<id>.username / password
+ *   aguapago.tenants.<id>.pool-size  conexiones del tenant (por defecto 5)
+ *
+ * Con varios tenants no se usan réplicas de lectura (ver ReplicaDataSourceConfig).
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.tenants.ids")
+public class TenantDataSourceConfig {
+
+    private final Map<String, String> esquemas = new HashMap<>();
+
+    @Bean
+    @Primary
+    public TenantRoutingDataSource dataSource(DataSourceProperties properties,
+                                              Environment environment,
+                                              RegistroTenants registro) {
+        HikariDataSource principal = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // Aplica spring.datasource.hikari.* a la principal, como haría Spring Boot
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(principal));
+        principal.setPoolName(TenantContext.PRINCIPAL);
+
+        Map<Object, Object> pools = new LinkedHashMap<>();
+        pools.put(TenantContext.PRINCIPAL, principal);
+        for (String tenant : registro.getIds()) {
+            if (TenantContext.PRINCIPAL.equals(tenant)) {
+                continue;
+            }
+            String prefijo = "aguapago.tenants." + tenant + ".";
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("tenant-" + tenant);
+            pool.setJdbcUrl(environment.getProperty(prefijo + "url", properties.determineUrl()));
+            pool.setUsername(environment.getProperty(prefijo + "username", properties.determineUsername()));
+            pool.setPassword(environment.getProperty(prefijo + "password", properties.determinePassword()));
+            pool.setDriverClassName(properties.determineDriverClassName());
+            pool.setMaximumPoolSize(environment.getProperty(prefijo + "pool-size", Integer.class, 5));
+            String esquema = environment.getProperty(prefijo + "esquema");
+            if (esquema != null) {
+                pool.setSchema(esquema);
+                esquemas.put(tenant, esquema);
+            }
+            pools.put(tenant, pool);
+        }
+
+        TenantRoutingDataSource routing = new TenantRoutingDataSource();
+        routing.setTargetDataSources(pools);
+        routing.setDefaultTargetDataSource(principal);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /**
+     * Recibe el DataSource como interfaz: puede llegar envuelto (ej. por el
+     * registro lento), y unwrap devuelve el TenantRoutingDataSource
+     */
+    @Bean
+    public MigracionesTenants migracionesTenants(Flyway flyway, DataSource dataSource) throws SQLException {
+        return new MigracionesTenants(flyway,
+            dataSource.unwrap(TenantRoutingDataSource.class).getResolvedDataSources(), esquemas);
+    }
+}
@@ -0,0 +1,57 @@
+package com.aguapago.usuarios.tenant;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Establece el tenant de cada petición a partir de la cabecera X-Tenant-Id
+ *
+ * La cabecera la pone el api-gateway (TenantGlobalFilter). Sin cabecera se
+ * usa el tenant principal; un tenant que esta instancia no conoce se
+ * rechaza con 400 antes de llegar a GraphQL.
+ */
+public class TenantFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA = "X-Tenant-Id";
+
+    private final RegistroTenants registro;
+
+    public TenantFilter(RegistroTenants registro) {
+        this.registro = registro;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String tenant = request.getHeader(CABECERA);
+        tenant = tenant == null || tenant.isBlank() ? TenantContext.PRINCIPAL : tenant.trim();
+        if (!registro.existe(tenant)) {
+            rechazar(response, tenant);
+            return;
+        }
+
+        TenantContext.establecer(tenant);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.limpiar();
+        }
+    }
+
+    private void rechazar(HttpServletResponse response, String tenant) throws IOException {
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        String seguro = tenant.replaceAll("[^A-Za-z0-9_-]", "?");
+        response.getWriter().write("{\"errors\":[{\"message\":\"Tenant desconocido: " + seguro
+            + "\",\"extensions\":{\"classification\":\"TENANT_DESCONOCIDO\"}}]}");
+    }
+}
@@ -0,0 +1,22 @@
+package com.aguapago.usuarios.tenant;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource que envía cada conexión al pool del tenant actual
+ *
+ * Cada tenant tiene su propio pool Hikari (su base o su esquema), así que
+ * una cooperativa grande que agota sus conexiones no deja sin conexiones a
+ * las demás. Un tenant sin pool es un error: no se cae a la base principal.
+ */
+public class TenantRoutingDataSource extends AbstractRoutingDataSource {
+
+    public TenantRoutingDataSource() {
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TenantContext.actual();
+    }
+}
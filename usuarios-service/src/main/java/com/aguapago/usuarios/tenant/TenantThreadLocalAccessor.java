@@ -0,0 +1,35 @@
+package com.aguapago.usuarios.tenant;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Expone TenantContext a context-propagation
+ *
+ * Spring GraphQL toma una foto de los ThreadLocal registrados al recibir la
+ * petición y la restaura en cada DataFetcher, aunque graphql-java lo invoque
+ * desde otro hilo.
+ */
+class TenantThreadLocalAccessor implements ThreadLocalAccessor<String> {
+
+    static final String CLAVE = "aguapago.tenant";
+
+    @Override
+    public Object key() {
+        return CLAVE;
+    }
+
+    @Override
+    public String getValue() {
+        return TenantContext.establecido();
+    }
+
+    @Override
+    public void setValue(String tenant) {
+        TenantContext.establecer(tenant);
+    }
+
+    @Override
+    public void setValue() {
+        TenantContext.limpiar();
+    }
+}
@@ -0,0 +1,68 @@
+package com.aguapago.usuarios.traza;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+
+import java.util.List;
+
+/**
+ * Spans de las fases de una operación GraphQL: parse, validación y ejecución
+ *
+ * Spring GraphQL ya crea "graphql.request" (la operación completa) y
+ * "graphql.datafetcher" (cada resolver; no los DataFetchers triviales de
+ * los DTOs). Las fases cuelgan de graphql.request, que Spring deja en el
+ * GraphQLContext; sin ella (instrumentación de Spring desactivada) no se
+ * crea nada.
+ */
+public class FasesGraphQlInstrumentation extends SimplePerformantInstrumentation {
+
+    private final ObservationRegistry registry;
+
+    public FasesGraphQlInstrumentation(ObservationRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters,
+                                                       InstrumentationState state) {
+        return fase("aguapago.graphql.parse", parameters.getGraphQLContext());
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters,
+                                                                         InstrumentationState state) {
+        return fase("aguapago.graphql.validacion", parameters.getGraphQLContext());
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        return fase("aguapago.graphql.ejecucion", parameters.getExecutionContext().getGraphQLContext());
+    }
+
+    private <T> InstrumentationContext<T> fase(String nombre, GraphQLContext contexto) {
+        Observation peticion = contexto.get(ObservationThreadLocalAccessor.KEY);
+        if (peticion == null || registry.isNoop()) {
+            return SimpleInstrumentationContext.noOp();
+        }
+        Observation fase = Observation.createNotStarted(nombre, registry).parentObservation(peticion).start();
+        return SimpleInstrumentationContext.whenCompleted((resultado, error) -> {
+            if (error != null) {
+                fase.error(error);
+            }
+            fase.stop();
+        });
+    }
+}
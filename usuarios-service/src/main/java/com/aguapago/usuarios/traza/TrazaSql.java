@@ -0,0 +1,64 @@
+package com.aguapago.usuarios.traza;
+
+import com.aguapago.usuarios.jdbc.ObservadorSql;
+import com.aguapago.usuarios.lento.Redaccion;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.Locale;
+
+/**
+ * Un span por sentencia JDBC, hijo del span en curso (el resolver, la
+ * petición HTTP...)
+ *
+ * Solo dentro de una observación: el SQL suelto de Flyway o de los procesos
+ * programados no abre trazas propias. El texto va redactado (sin literales);
+ * los valores de los parámetros nunca llegan aquí.
+ */
+public class TrazaSql implements ObservadorSql {
+
+    static final String NOMBRE = "aguapago.jdbc.sentencia";
+
+    private final ObservationRegistry registry;
+
+    public TrazaSql(ObservationRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isActivo() {
+        return !registry.isNoop();
+    }
+
+    @Override
+    public Object inicio(String sql) {
+        if (registry.getCurrentObservation() == null) {
+            return null;
+        }
+        return Observation.createNotStarted(NOMBRE, registry)
+            .contextualName("jdbc " + operacion(sql))
+            .lowCardinalityKeyValue("db.operacion", operacion(sql))
+            .highCardinalityKeyValue("db.sentencia", Redaccion.sql(sql))
+            .start();
+    }
+
+    @Override
+    public void fin(Object inicio, String sql, long nanos, Throwable error) {
+        if (inicio instanceof Observation observacion) {
+            if (error != null) {
+                observacion.error(error);
+            }
+            observacion.stop();
+        }
+    }
+
+    /** Primera palabra del SQL (select, insert, update...) */
+    private static String operacion(String sql) {
+        String texto = sql.stripLeading();
+        int fin = 0;
+        while (fin < texto.length() && Character.isLetter(texto.charAt(fin))) {
+            fin++;
+        }
+        return fin == 0 ? "otra" : texto.substring(0, fin).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,87 @@
+package com.aguapago.usuarios.traza;
+
+import com.aguapago.trazas.DestinoTrazas;
+import com.aguapago.trazas.DestinoTrazasArchivo;
+import com.aguapago.trazas.DestinoTrazasMemoria;
+import com.aguapago.trazas.ExportadorTrazas;
+import com.aguapago.trazas.MuestreoCabeza;
+import com.aguapago.trazas.MuestreoCola;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Trazas distribuidas: gateway → GraphQL → resolvers → JDBC
+ *
+ * Spring Boot arma Micrometer Tracing sobre el SDK de OpenTelemetry y
+ * continúa el traceparent (W3C) que envía el api-gateway. Aquí se agregan
+ * los spans propios (fases de GraphQL y sentencias JDBC), el muestreo y el
+ * destino de los spans.
+ *
+ * aguapago.trazas.destino elige el destino:
+ * - archivo (por defecto): JSON por línea en aguapago.trazas.archivo
+ * - memoria: dentro del proceso, para pruebas
+ * - cualquier otro valor: se espera un bean DestinoTrazas propio
+ *
+ * Muestreo: de cabeza con management.tracing.sampling.probability (por
+ * traceId) y de cola con aguapago.trazas.cola.umbral (trazas lentas o con
+ * error, aunque no hayan salido en la cabeza).
+ */
+@Configuration
+@ConditionalOnProperty(name = "aguapago.trazas.habilitado", havingValue = "true", matchIfMissing = true)
+public class TrazasConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.trazas.destino", havingValue = "archivo", matchIfMissing = true)
+    public DestinoTrazasArchivo destinoTrazasArchivo(
+            @Value("${aguapago.trazas.archivo:logs/trazas.jsonl}") String archivo,
+            ObjectMapper objectMapper) {
+        return new DestinoTrazasArchivo(Path.of(archivo), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.trazas.destino", havingValue = "memoria")
+    public DestinoTrazasMemoria destinoTrazasMemoria(
+            @Value("${aguapago.trazas.memoria.capacidad:10000}") int capacidad) {
+        return new DestinoTrazasMemoria(capacidad);
+    }
+
+    @Bean
+    public ExportadorTrazas exportadorTrazas(DestinoTrazas destinoTrazas) {
+        return new ExportadorTrazas(destinoTrazas);
+    }
+
+    @Bean
+    public Sampler muestreoCabeza(
+            @Value("${management.tracing.sampling.probability:0.1}") double probabilidad,
+            @Value("${aguapago.trazas.cola.habilitado:true}") boolean cola) {
+        return new MuestreoCabeza(probabilidad, cola);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aguapago.trazas.cola.habilitado", havingValue = "true", matchIfMissing = true)
+    public MuestreoCola muestreoCola(
+            ExportadorTrazas exportadorTrazas,
+            @Value("${aguapago.trazas.cola.umbral:1s}") Duration umbral,
+            @Value("${aguapago.trazas.cola.max-trazas:2000}") int maxTrazas,
+            @Value("${aguapago.trazas.cola.max-spans-por-traza:500}") int maxSpansPorTraza) {
+        return new MuestreoCola(exportadorTrazas, umbral, maxTrazas, maxSpansPorTraza);
+    }
+
+    @Bean
+    public FasesGraphQlInstrumentation fasesGraphQlInstrumentation(ObservationRegistry observationRegistry) {
+        return new FasesGraphQlInstrumentation(observationRegistry);
+    }
+
+    @Bean
+    public TrazaSql trazaSql(ObservationRegistry observationRegistry) {
+        return new TrazaSql(observationRegistry);
+    }
+}
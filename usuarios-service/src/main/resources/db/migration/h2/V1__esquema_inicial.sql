@@ -0,0 +1,59 @@
+-- ===================================
+-- Esquema inicial del servicio de usuarios (variante H2, pruebas)
+-- Mismo esquema que db/migration/postgresql/V1__esquema_inicial.sql
+-- ===================================
+
+CREATE TABLE IF NOT EXISTS usuario (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre          VARCHAR(50)  NOT NULL,
+    apellido        VARCHAR(50)  NOT NULL,
+    email           VARCHAR(150) NOT NULL,
+    password_hash   VARCHAR(255) NOT NULL,
+    rol             VARCHAR(20)  NOT NULL,
+    activo          BOOLEAN      NOT NULL DEFAULT TRUE,
+    version         BIGINT       NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_usuario_email UNIQUE (email)
+);
+
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS cliente (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    codigo_cliente      VARCHAR(20)  NOT NULL,
+    direccion           VARCHAR(200),
+    telefono            VARCHAR(20),
+    documento_identidad VARCHAR(20),
+    version             BIGINT       NOT NULL DEFAULT 0,
+    created_at          TIMESTAMP(6) NOT NULL,
+    usuario_id          BIGINT       NOT NULL,
+    CONSTRAINT uk_cliente_codigo UNIQUE (codigo_cliente),
+    CONSTRAINT uk_cliente_usuario UNIQUE (usuario_id),
+    CONSTRAINT fk_cliente_usuario FOREIGN KEY (usuario_id) REFERENCES usuario (id)
+);
+
+ALTER TABLE cliente ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    agregado        VARCHAR(20)  NOT NULL,
+    agregado_id     BIGINT       NOT NULL,
+    tipo            VARCHAR(30)  NOT NULL,
+    payload         TEXT         NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL,
+    publicado_at    TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS tarea_aprovisionamiento (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    usuario_id          BIGINT       NOT NULL,
+    direccion           VARCHAR(200),
+    telefono            VARCHAR(20),
+    documento_identidad VARCHAR(20),
+    estado              VARCHAR(20)  NOT NULL,
+    intentos            INTEGER      NOT NULL,
+    proximo_intento     TIMESTAMP(6) NOT NULL,
+    ultimo_error        VARCHAR(500),
+    created_at          TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_tarea_aprov_usuario UNIQUE (usuario_id)
+);
@@ -0,0 +1,14 @@
+-- ===================================
+-- Índices para las consultas de los repositorios (variante H2)
+-- H2 no tiene índices parciales: se usan índices completos equivalentes
+-- ===================================
+
+CREATE INDEX IF NOT EXISTS idx_usuario_rol_activo ON usuario (rol, activo, id);
+
+-- Equivale a idx_usuario_inactivos (WHERE activo = FALSE) de PostgreSQL
+CREATE INDEX IF NOT EXISTS idx_usuario_activo ON usuario (activo, id);
+
+-- Equivale a idx_evento_outbox_pendientes e idx_evento_outbox_publicados
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_publicado ON evento_outbox (publicado_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_tarea_aprov_pendientes ON tarea_aprovisionamiento (estado, proximo_intento, id);
@@ -0,0 +1,18 @@
+-- ===================================
+-- Sincronización incremental de la app móvil (obtenerCambiosDesde)
+-- Variante H2 de db/migration/postgresql/V3__sincronizacion.sql
+-- ===================================
+
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+UPDATE usuario SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE usuario ALTER COLUMN updated_at SET NOT NULL;
+ALTER TABLE usuario ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP;
+
+ALTER TABLE cliente ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+UPDATE cliente SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE cliente ALTER COLUMN updated_at SET NOT NULL;
+ALTER TABLE cliente ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP;
+
+-- Recorrido por keyset de los cambios: (updated_at, id) > (?, ?) ORDER BY updated_at, id
+CREATE INDEX IF NOT EXISTS idx_usuario_updated_at ON usuario (updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_cliente_updated_at ON cliente (updated_at, id);
@@ -0,0 +1,8 @@
+-- ===================================
+-- Estadísticas del panel de administración (estadisticasUsuarios)
+-- Variante H2 de db/migration/postgresql/V5__estadisticas.sql
+-- ===================================
+
+-- Altas de clientes por mes: created_at >= ? recorre solo los meses pedidos.
+-- Los conteos por rol y estado se resuelven con idx_usuario_rol_activo (rol, activo, id)
+CREATE INDEX IF NOT EXISTS idx_cliente_created_at ON cliente (created_at);
@@ -0,0 +1,24 @@
+-- ===================================
+-- Índices para las consultas de los repositorios
+-- Cada uno está cubierto por PlanesConsultaTest; las búsquedas por email,
+-- codigo_cliente y usuario_id usan los índices de sus restricciones UNIQUE
+-- ===================================
+
+-- findByRol, findByRolAndActivo y el recorrido por keyset de los cambios
+-- masivos (rol = ? AND activo <> ? AND id > ? ORDER BY id)
+CREATE INDEX IF NOT EXISTS idx_usuario_rol_activo ON usuario (rol, activo, id);
+
+-- findByActivo(false): los inactivos (cortes por falta de pago) son pocos
+CREATE INDEX IF NOT EXISTS idx_usuario_inactivos ON usuario (id) WHERE activo = FALSE;
+
+-- Relay del outbox: solo los pendientes, en orden de id
+DROP INDEX IF EXISTS idx_evento_outbox_pendientes;
+CREATE INDEX idx_evento_outbox_pendientes ON evento_outbox (id) WHERE publicado_at IS NULL;
+
+-- Limpieza de eventos publicados antiguos
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_publicados ON evento_outbox (publicado_at)
+    WHERE publicado_at IS NOT NULL;
+
+-- Cola de aprovisionamiento: tareas listas por estado y próximo intento
+DROP INDEX IF EXISTS idx_tarea_aprov_pendientes;
+CREATE INDEX idx_tarea_aprov_pendientes ON tarea_aprovisionamiento (estado, proximo_intento, id);
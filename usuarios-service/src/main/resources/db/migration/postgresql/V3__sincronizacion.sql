@@ -0,0 +1,20 @@
+-- ===================================
+-- Sincronización incremental de la app móvil (obtenerCambiosDesde)
+-- updated_at lo mantiene la aplicación en cada escritura (INSERT, UPDATE
+-- parcial y cambios de estado masivos); las filas existentes toman created_at.
+-- El DEFAULT cubre los INSERT hechos fuera de la aplicación (scripts, cargas)
+-- ===================================
+
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+UPDATE usuario SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE usuario ALTER COLUMN updated_at SET NOT NULL;
+ALTER TABLE usuario ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP;
+
+ALTER TABLE cliente ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+UPDATE cliente SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE cliente ALTER COLUMN updated_at SET NOT NULL;
+ALTER TABLE cliente ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP;
+
+-- Recorrido por keyset de los cambios: (updated_at, id) > (?, ?) ORDER BY updated_at, id
+CREATE INDEX IF NOT EXISTS idx_usuario_updated_at ON usuario (updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_cliente_updated_at ON cliente (updated_at, id);
@@ -0,0 +1,7 @@
+-- ===================================
+-- Tramos de obtenerUsuariosPorRol con @stream
+-- ===================================
+
+-- rol = ? AND id > ? ORDER BY id LIMIT ?: cada tramo lee solo sus filas.
+-- idx_usuario_rol_activo (rol, activo, id) no sirve: ordena por activo antes que por id
+CREATE INDEX IF NOT EXISTS idx_usuario_rol_id ON usuario (rol, id);
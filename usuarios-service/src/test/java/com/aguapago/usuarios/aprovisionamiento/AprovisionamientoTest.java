@@ -0,0 +1,78 @@
+package com.aguapago.usuarios.aprovisionamiento;
+
+import com.aguapago.usuarios.entity.TareaAprovisionamiento;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.TareaAprovisionamientoRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import com.aguapago.usuarios.service.UsuarioService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cola de aprovisionamiento contra H2 (perfil "carga"), con el scheduler
+ * desactivado para controlar cuándo corre cada pasada
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo-reconciliacion=1h"
+})
+@ActiveProfiles("carga")
+class AprovisionamientoTest {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesador;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private TareaAprovisionamientoRepository tareaRepository;
+
+    @Test
+    void registroEncolaYElProcesadorCreaElPerfil() {
+        Usuario usuario = usuarioService.registrarUsuario("Luis", "Cola", "luis.cola@aguapago.test",
+            "secreto1", "CLIENTE", "Av. Siempre Viva 742", "70000000", null);
+        assertFalse(clienteRepository.existsByUsuarioId(usuario.getId()));
+
+        procesador.procesarPendientes();
+
+        assertTrue(clienteRepository.existsByUsuarioId(usuario.getId()));
+        assertEquals("Av. Siempre Viva 742",
+            clienteRepository.findByUsuarioId(usuario.getId()).orElseThrow().getDireccion());
+        assertEquals(TareaAprovisionamiento.COMPLETADA,
+            tareaRepository.findByUsuarioId(usuario.getId()).orElseThrow().getEstado());
+    }
+
+    @Test
+    void reconciliacionRecuperaClientesSinPerfil() {
+        // Usuario CLIENTE cargado sin pasar por registrarUsuario
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Sin");
+        usuario.setApellido("Perfil");
+        usuario.setEmail("sin.perfil@aguapago.test");
+        usuario.setPasswordHash("x");
+        usuario.setRol("CLIENTE");
+        usuario.setActivo(true);
+        usuario = usuarioRepository.save(usuario);
+
+        assertTrue(procesador.reconciliar() >= 1);
+        procesador.procesarPendientes();
+
+        assertTrue(clienteRepository.existsByUsuarioId(usuario.getId()));
+        assertEquals(0, procesador.reconciliar());
+    }
+}
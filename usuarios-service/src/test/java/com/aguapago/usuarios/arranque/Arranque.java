@@ -0,0 +1,224 @@
+package com.aguapago.usuarios.arranque;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Un artefacto empaquetado (jar, jar con AOT, jar extraído con CDS o
+ * ejecutable nativo) que se arranca como proceso hijo para medirlo
+ */
+class Arranque {
+
+    /** Modos de ejecución que se comparan */
+    enum Modo {
+        JAR, AOT, CDS, NATIVO;
+
+        static Modo porNombre(String nombre) {
+            return switch (nombre.trim().toLowerCase()) {
+                case "jar" -> JAR;
+                case "aot" -> AOT;
+                case "cds" -> CDS;
+                case "native", "nativo" -> NATIVO;
+                default -> throw new IllegalArgumentException("Modo de arranque desconocido: " + nombre);
+            };
+        }
+    }
+
+    /** Resultado de un arranque: hasta la primera respuesta 200 de /graphql */
+    static final class Medicion {
+
+        final long milisegundos;
+        /** Memoria residente en MB en ese momento (-1 si el sistema no la expone) */
+        final long rssMb;
+
+        Medicion(long milisegundos, long rssMb) {
+            this.milisegundos = milisegundos;
+            this.rssMb = rssMb;
+        }
+    }
+
+    private final String nombre;
+    private final File directorio;
+    private final String artefacto;
+    private final List<String> classpathExtra;
+    private final List<String> argumentos;
+
+    /**
+     * @param directorio target/ del módulo
+     * @param artefacto nombre del jar sin extensión (también el del ejecutable nativo)
+     * @param classpathExtra jars que se agregan al classpath en la JVM (p. ej. un driver)
+     * @param argumentos argumentos de la aplicación
+     */
+    Arranque(String nombre, File directorio, String artefacto, List<String> classpathExtra, List<String> argumentos) {
+        this.nombre = nombre;
+        this.directorio = directorio;
+        this.artefacto = artefacto;
+        this.classpathExtra = classpathExtra;
+        this.argumentos = argumentos;
+    }
+
+    String nombre() {
+        return nombre;
+    }
+
+    /**
+     * @return por qué el modo no se puede medir (falta empaquetarlo), o null si se puede
+     */
+    String faltante(Modo modo) throws IOException {
+        File jar = new File(directorio, artefacto + ".jar");
+        switch (modo) {
+            case JAR:
+                return jar.isFile() ? null : jar + " (mvn package)";
+            case AOT:
+                return jar.isFile() && tieneAot(jar) ? null : jar + " con AOT (mvn -Paot package)";
+            case CDS:
+                return new File(directorio, "cds/application.jsa").isFile() ? null
+                    : directorio + "/cds/application.jsa (mvn -Pcds package)";
+            default:
+                return new File(directorio, artefacto).canExecute() ? null
+                    : directorio + "/" + artefacto + " (mvn -Pnative native:compile)";
+        }
+    }
+
+    /**
+     * Arranca el artefacto, espera la primera respuesta de /graphql y lo detiene
+     */
+    Medicion medir(Modo modo, Duration limite) throws IOException, InterruptedException {
+        int puerto = puertoLibre();
+        ProcessBuilder builder = new ProcessBuilder(comando(modo, puerto));
+        builder.directory(modo == Modo.CDS ? new File(directorio, "cds") : directorio);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(new File("target/arranque-" + nombre + "-" + modo.name().toLowerCase() + ".log"));
+
+        long inicio = System.nanoTime();
+        Process proceso = builder.start();
+        try {
+            esperarGraphql(proceso, puerto, limite, modo);
+            long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+            return new Medicion(milisegundos, rssMb(proceso.pid()));
+        } finally {
+            proceso.destroy();
+            proceso.waitFor();
+        }
+    }
+
+    // ====== COMANDOS ======
+
+    private List<String> comando(Modo modo, int puerto) throws IOException {
+        List<String> comando = new ArrayList<>();
+        if (modo == Modo.NATIVO) {
+            comando.add(new File(directorio, artefacto).getAbsolutePath());
+        } else {
+            comando.add(javaEjecutable());
+            if (modo == Modo.CDS) {
+                comando.add("-XX:SharedArchiveFile=application.jsa");
+                // Con las mismas rutas relativas que el entrenamiento
+                comando.add("-cp");
+                comando.add(classpath(artefacto + ".jar"));
+                comando.add(clasePrincipal(new File(directorio, "cds/" + artefacto + ".jar")));
+            } else {
+                if (modo == Modo.AOT) {
+                    comando.add("-Dspring.aot.enabled=true");
+                }
+                comando.add("-cp");
+                comando.add(classpath(artefacto + ".jar"));
+                comando.add("org.springframework.boot.loader.launch.JarLauncher");
+            }
+        }
+        comando.add("--server.port=" + puerto);
+        comando.addAll(argumentos);
+        return comando;
+    }
+
+    private String classpath(String jar) {
+        List<String> entradas = new ArrayList<>();
+        entradas.add(jar);
+        entradas.addAll(classpathExtra);
+        return String.join(File.pathSeparator, entradas);
+    }
+
+    private static String clasePrincipal(File jar) throws IOException {
+        try (JarFile archivo = new JarFile(jar)) {
+            return archivo.getManifest().getMainAttributes().getValue("Main-Class");
+        }
+    }
+
+    private static boolean tieneAot(File jar) throws IOException {
+        try (JarFile archivo = new JarFile(jar)) {
+            Enumeration<JarEntry> entradas = archivo.entries();
+            while (entradas.hasMoreElements()) {
+                if (entradas.nextElement().getName().endsWith("__ApplicationContextInitializer.class")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // ====== MEDICIÓN ======
+
+    private void esperarGraphql(Process proceso, int puerto, Duration limite, Modo modo) throws InterruptedException {
+        HttpClient http = HttpClient.newHttpClient();
+        HttpRequest sonda = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/graphql"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"query\":\"{ __typename }\"}"))
+            .timeout(Duration.ofSeconds(2))
+            .build();
+        long fin = System.nanoTime() + limite.toNanos();
+        while (System.nanoTime() < fin) {
+            if (!proceso.isAlive()) {
+                throw new IllegalStateException(nombre + " (" + modo + ") terminó al arrancar, ver target/arranque-"
+                    + nombre + "-" + modo.name().toLowerCase() + ".log");
+            }
+            try {
+                if (http.send(sonda, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Todavía no escucha
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException(nombre + " (" + modo + ") no respondió en " + limite.toSeconds() + "s");
+    }
+
+    /**
+     * VmRSS de /proc (Linux)
+     */
+    private static long rssMb(long pid) {
+        Path estado = Path.of("/proc/" + pid + "/status");
+        try {
+            for (String linea : Files.readAllLines(estado)) {
+                if (linea.startsWith("VmRSS:")) {
+                    return Long.parseLong(linea.replaceAll("\\D", "")) / 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sin /proc
+        }
+        return -1;
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaEjecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+}
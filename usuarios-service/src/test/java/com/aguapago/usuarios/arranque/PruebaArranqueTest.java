@@ -0,0 +1,121 @@
+package com.aguapago.usuarios.arranque;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Benchmark de arranque de usuarios-service y api-gateway
+ *
+ * Arranca cada artefacto empaquetado en cada modo (jar, aot, cds, native)
+ * varias veces y mide el tiempo hasta la primera respuesta 200 de /graphql
+ * y la memoria residente en ese momento. Los modos que no están
+ * empaquetados se omiten. Por ejemplo:
+ *
+ *   mvn -Paot,cds package -DskipTests (aquí y en ../api-gateway)
+ *   mvn -Parranque test
+ *
+ * usuarios-service necesita su base: por defecto la de application.properties,
+ * con el perfil arranque-rapido. El gateway apunta a un usuarios-service
+ * simulado, así se mide solo su propio arranque.
+ *
+ * Propiedades (-D...):
+ * - arranque.modos: modos a medir (jar,aot,cds,native)
+ * - arranque.repeticiones: arranques por modo; se informa la mediana (3)
+ * - arranque.limite: segundos máximos hasta la primera respuesta (120)
+ * - arranque.usuarios.argumentos: argumentos de usuarios-service, separados por espacios
+ * - arranque.usuarios.classpath: jars extra para la JVM, p. ej. otro driver (rutas absolutas)
+ * - arranque.gateway.directorio: target/ del gateway (../api-gateway/target)
+ */
+@Tag("arranque")
+class PruebaArranqueTest {
+
+    private static final String RESPUESTA_SIMULADA = "{\"data\":{\"__typename\":\"Query\"}}";
+
+    @Test
+    void mideElArranqueDeCadaModo() throws Exception {
+        List<Arranque.Modo> modos = Arrays.stream(propiedad("arranque.modos", "jar,aot,cds,native").split(","))
+            .map(Arranque.Modo::porNombre)
+            .toList();
+        int repeticiones = Integer.parseInt(propiedad("arranque.repeticiones", "3"));
+        Duration limite = Duration.ofSeconds(Long.parseLong(propiedad("arranque.limite", "120")));
+
+        HttpServer simulado = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        simulado.createContext("/graphql", intercambio -> {
+            byte[] cuerpo = RESPUESTA_SIMULADA.getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "application/json");
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        });
+        simulado.start();
+
+        try {
+            List<Arranque> artefactos = List.of(
+                new Arranque("usuarios-service", new File("target"), "usuarios-service-0.0.1-SNAPSHOT",
+                    lista(propiedad("arranque.usuarios.classpath", ""), Pattern.quote(File.pathSeparator)),
+                    lista(propiedad("arranque.usuarios.argumentos", "--spring.profiles.active=arranque-rapido"), "\\s+")),
+                new Arranque("api-gateway", new File(propiedad("arranque.gateway.directorio", "../api-gateway/target")),
+                    "api-gateway-0.0.1-SNAPSHOT", List.of(), List.of(
+                        // Las listas de rutas se reemplazan completas al sobreescribirlas
+                        "--spring.cloud.gateway.routes[0].id=usuarios-graphql",
+                        "--spring.cloud.gateway.routes[0].uri=http://localhost:" + simulado.getAddress().getPort(),
+                        "--spring.cloud.gateway.routes[0].predicates[0]=Path=/graphql")));
+
+            StringBuilder reporte = new StringBuilder(String.format("%-18s %-7s %14s %10s%n",
+                "artefacto", "modo", "1ª respuesta", "RSS"));
+            int medidos = 0;
+            for (Arranque artefacto : artefactos) {
+                for (Arranque.Modo modo : modos) {
+                    String faltante = artefacto.faltante(modo);
+                    if (faltante != null) {
+                        System.out.println("[arranque] " + artefacto.nombre() + " " + modo + " omitido: falta " + faltante);
+                        continue;
+                    }
+                    List<Arranque.Medicion> mediciones = new ArrayList<>();
+                    for (int i = 0; i < repeticiones; i++) {
+                        mediciones.add(artefacto.medir(modo, limite));
+                    }
+                    long milisegundos = mediana(mediciones.stream().mapToLong(m -> m.milisegundos).toArray());
+                    long rssMb = mediana(mediciones.stream().mapToLong(m -> m.rssMb).toArray());
+                    reporte.append(String.format("%-18s %-7s %11d ms %7s MB%n", artefacto.nombre(),
+                        modo.name().toLowerCase(), milisegundos, rssMb < 0 ? "n/d" : String.valueOf(rssMb)));
+                    medidos++;
+                }
+            }
+            System.out.println("[arranque] mediana de " + repeticiones + " arranques:\n" + reporte);
+            assertFalse(medidos == 0, "No hay artefactos empaquetados para medir");
+        } finally {
+            simulado.stop(0);
+        }
+    }
+
+    private static long mediana(long[] valores) {
+        Arrays.sort(valores);
+        return valores[valores.length / 2];
+    }
+
+    private static List<String> lista(String texto, String separador) {
+        return Arrays.stream(texto.split(separador))
+            .filter(parte -> !parte.isBlank())
+            .toList();
+    }
+
+    private static String propiedad(String nombre, String porDefecto) {
+        String valor = System.getProperty(nombre);
+        return valor == null || valor.isBlank() ? porDefecto : valor.trim();
+    }
+}
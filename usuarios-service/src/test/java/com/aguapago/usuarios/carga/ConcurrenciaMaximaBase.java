@@ -0,0 +1,129 @@
+package com.aguapago.usuarios.carga;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de concurrencia máxima sostenible
+ *
+ * Modelo cerrado: N clientes concurrentes repiten peticiones durante cada
+ * escalón, y N sube hasta que el p99 o la tasa de errores superan el umbral.
+ * Cada subclase fija el modo de hilos del servidor; el resultado se imprime
+ * y se guarda en target/concurrencia-<modo>.txt para compararlos.
+ *
+ * Ejecutar con: mvn -Pcarga test -Dtest='ConcurrenciaMaxima*'
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("carga")
+abstract class ConcurrenciaMaximaBase {
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /** Nombre del modo de hilos, usado en el reporte */
+    abstract String modo();
+
+    @Test
+    void medirConcurrenciaMaxima() throws Exception {
+        ConfiguracionCarga config = ConfiguracionCarga.desdePropiedades();
+        DatosSembrados datos = DatosSembrados.sembrar(jdbc, config.usuariosSembrados);
+        int[] escalones = escalones();
+        Duration porEscalon = Duration.ofSeconds(Long.getLong("carga.concurrencia.segundos", 10));
+        String destino = "http://localhost:" + puerto + "/graphql";
+
+        StringBuilder reporte = new StringBuilder("modo=" + modo() + "\n");
+        int maximaSostenible = 0;
+        for (int clientes : escalones) {
+            ResultadosCarga resultados = escalon(clientes, porEscalon, config, datos, destino);
+            boolean cumple = resultados.percentilMs(99) <= config.umbralP99Ms
+                && resultados.tasaErrores() <= config.umbralErrores;
+            reporte.append(String.format("clientes=%d throughput=%.1f req/s p99=%d ms errores=%.2f%% %s%n",
+                clientes, resultados.throughput(), resultados.percentilMs(99),
+                resultados.tasaErrores() * 100, cumple ? "OK" : "SATURADO"));
+            if (!cumple) {
+                break;
+            }
+            maximaSostenible = clientes;
+        }
+        reporte.append("concurrencia maxima sostenible: ").append(maximaSostenible).append('\n');
+
+        System.out.println("[carga] " + reporte);
+        guardar(reporte.toString());
+    }
+
+    private ResultadosCarga escalon(int clientes, Duration duracion, ConfiguracionCarga config,
+                                    DatosSembrados datos, String destino) throws InterruptedException {
+        ResultadosCarga resultados = new ResultadosCarga(config.mezcla.keySet(), duracion.toNanos());
+        HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        long fin = System.nanoTime() + duracion.toNanos();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clientes);
+        for (int i = 0; i < clientes; i++) {
+            pool.execute(() -> {
+                while (System.nanoTime() < fin) {
+                    OperacionCarga operacion = config.elegirOperacion();
+                    HttpRequest peticion = HttpRequest.newBuilder(URI.create(destino))
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .POST(HttpRequest.BodyPublishers.ofString(operacion.cuerpo(datos)))
+                        .build();
+                    long inicio = System.nanoTime();
+                    boolean error;
+                    try {
+                        HttpResponse<String> respuesta = http.send(peticion, HttpResponse.BodyHandlers.ofString());
+                        error = respuesta.statusCode() != 200 || operacion.esError(respuesta.body());
+                    } catch (IOException e) {
+                        error = true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    resultados.registrar(operacion, System.nanoTime() - inicio, error);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(duracion.toSeconds() + 60, TimeUnit.SECONDS);
+        return resultados;
+    }
+
+    private static int[] escalones() {
+        String texto = System.getProperty("carga.concurrencia.escalones", "10,25,50,100,200,400");
+        String[] partes = texto.split(",");
+        int[] valores = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            valores[i] = Integer.parseInt(partes[i].trim());
+        }
+        return valores;
+    }
+
+    private void guardar(String reporte) throws IOException {
+        Path archivo = Path.of("target", "concurrencia-" + modo() + ".txt");
+        Files.createDirectories(archivo.getParent());
+        Files.writeString(archivo, reporte);
+    }
+}
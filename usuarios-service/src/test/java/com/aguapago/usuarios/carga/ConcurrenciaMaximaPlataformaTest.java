@@ -0,0 +1,15 @@
+package com.aguapago.usuarios.carga;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Concurrencia máxima con hilos de plataforma (pool de Tomcat por defecto)
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class ConcurrenciaMaximaPlataformaTest extends ConcurrenciaMaximaBase {
+
+    @Override
+    String modo() {
+        return "plataforma";
+    }
+}
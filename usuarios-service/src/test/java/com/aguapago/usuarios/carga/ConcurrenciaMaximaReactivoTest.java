@@ -0,0 +1,15 @@
+package com.aguapago.usuarios.carga;
+
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Concurrencia máxima con el perfil reactivo (consultas sobre R2DBC)
+ */
+@ActiveProfiles(profiles = {"reactivo", "carga"}, inheritProfiles = false)
+class ConcurrenciaMaximaReactivoTest extends ConcurrenciaMaximaBase {
+
+    @Override
+    String modo() {
+        return "reactivo";
+    }
+}
@@ -0,0 +1,19 @@
+package com.aguapago.usuarios.carga;
+
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Concurrencia máxima con el perfil de hilos virtuales
+ * Solo corre en JDK 21 o superior
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@ActiveProfiles(profiles = {"carga", "virtual"}, inheritProfiles = false)
+class ConcurrenciaMaximaVirtualTest extends ConcurrenciaMaximaBase {
+
+    @Override
+    String modo() {
+        return "virtual";
+    }
+}
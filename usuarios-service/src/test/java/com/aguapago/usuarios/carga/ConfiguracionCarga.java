@@ -0,0 +1,106 @@
+package com.aguapago.usuarios.carga;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parámetros de la prueba de carga
+ *
+ * Todos se leen de propiedades del sistema para poder ajustarlos desde Maven:
+ * mvn -Pcarga test -Dcarga.tasa=200 -Dcarga.duracion=60
+ */
+class ConfiguracionCarga {
+
+    /** Llegadas por segundo (modelo abierto: no depende de las respuestas) */
+    final double tasa;
+
+    /** Duración de la fase medida */
+    final Duration duracion;
+
+    /** Calentamiento previo cuyas mediciones se descartan */
+    final Duration calentamiento;
+
+    /** Cantidad de usuarios sembrados (el 95% con perfil de cliente) */
+    final int usuariosSembrados;
+
+    /** Peso relativo de cada operación en la mezcla */
+    final Map<OperacionCarga, Integer> mezcla;
+
+    /** Umbrales que hacen fallar la prueba */
+    final long umbralP99Ms;
+    final double umbralErrores;
+    final double umbralThroughput;
+
+    /** Si es true, la carga pasa por el api-gateway empaquetado */
+    final boolean usarGateway;
+    final String gatewayJar;
+
+    private ConfiguracionCarga() {
+        this.tasa = Double.parseDouble(propiedad("carga.tasa", "50"));
+        this.duracion = Duration.ofSeconds(Long.parseLong(propiedad("carga.duracion", "20")));
+        this.calentamiento = Duration.ofSeconds(Long.parseLong(propiedad("carga.calentamiento", "5")));
+        this.usuariosSembrados = Integer.parseInt(propiedad("carga.usuarios", "2000"));
+        this.mezcla = parsearMezcla(propiedad("carga.mezcla",
+            "login=35,obtenerClientePorCodigo=40,registrarUsuario=5,"
+                + "obtenerTodosLosClientes=5,obtenerUsuariosPorRol=10,panelAdmin=5"));
+        this.umbralP99Ms = Long.parseLong(propiedad("carga.umbral.p99Ms", "1500"));
+        this.umbralErrores = Double.parseDouble(propiedad("carga.umbral.errores", "0.01"));
+        // Fracción mínima de la tasa objetivo que debe completarse
+        this.umbralThroughput = Double.parseDouble(propiedad("carga.umbral.throughput", "0.9"));
+        this.usarGateway = Boolean.parseBoolean(propiedad("carga.gateway", "true"));
+        this.gatewayJar = propiedad("carga.gateway.jar", "../api-gateway/target/api-gateway-0.0.1-SNAPSHOT.jar");
+    }
+
+    /**
+     * Elige una operación al azar respetando los pesos de la mezcla
+     */
+    OperacionCarga elegirOperacion() {
+        int total = mezcla.values().stream().mapToInt(Integer::intValue).sum();
+        int valor = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<OperacionCarga, Integer> entrada : mezcla.entrySet()) {
+            valor -= entrada.getValue();
+            if (valor < 0) {
+                return entrada.getKey();
+            }
+        }
+        throw new IllegalStateException("Mezcla de operaciones inconsistente");
+    }
+
+    static ConfiguracionCarga desdePropiedades() {
+        return new ConfiguracionCarga();
+    }
+
+    private static String propiedad(String nombre, String porDefecto) {
+        String valor = System.getProperty(nombre);
+        return valor == null || valor.isBlank() ? porDefecto : valor.trim();
+    }
+
+    /**
+     * Convierte "login=35,obtenerTodosLosClientes=10" en pesos por operación
+     */
+    private static Map<OperacionCarga, Integer> parsearMezcla(String texto) {
+        Map<OperacionCarga, Integer> pesos = new LinkedHashMap<>();
+        for (String parte : texto.split(",")) {
+            String[] claveValor = parte.trim().split("=");
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Mezcla inválida: " + parte);
+            }
+            int peso = Integer.parseInt(claveValor[1].trim());
+            if (peso > 0) {
+                pesos.put(OperacionCarga.porNombre(claveValor[0].trim()), peso);
+            }
+        }
+        if (pesos.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de operaciones está vacía");
+        }
+        return pesos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tasa=%.1f/s duracion=%ds calentamiento=%ds usuarios=%d mezcla=%s gateway=%s",
+            tasa, duracion.toSeconds(), calentamiento.toSeconds(), usuariosSembrados, mezcla, usarGateway);
+    }
+}
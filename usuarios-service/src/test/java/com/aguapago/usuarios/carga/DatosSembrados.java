@@ -0,0 +1,75 @@
+package com.aguapago.usuarios.carga;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Siembra usuarios y clientes directamente por JDBC (en lotes)
+ * y ofrece valores aleatorios de esos datos para armar peticiones.
+ */
+class DatosSembrados {
+
+    static final String PASSWORD = "carga123";
+
+    private static final int LOTE = 500;
+
+    private final List<String> emails = new ArrayList<>();
+    private final List<String> codigos = new ArrayList<>();
+    private String admin;
+
+    static DatosSembrados sembrar(JdbcTemplate jdbc, int cantidad) {
+        DatosSembrados datos = new DatosSembrados();
+        // Un solo hash para todos: BCrypt es caro y aquí no interesa medir la siembra
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> usuarios = new ArrayList<>(LOTE);
+        for (int i = 1; i <= cantidad; i++) {
+            // 1 de cada 20 es ADMIN, el resto CLIENTE
+            String rol = i % 20 == 0 ? "ADMIN" : "CLIENTE";
+            String email = "carga" + i + "@aguapago.test";
+            usuarios.add(new Object[] { "Usuario" + i, "Carga", email, hash, rol, true, ahora });
+            if ("CLIENTE".equals(rol)) {
+                datos.emails.add(email);
+            } else if (datos.admin == null) {
+                datos.admin = email;
+            }
+            if (usuarios.size() == LOTE || i == cantidad) {
+                jdbc.batchUpdate("INSERT INTO usuario (nombre, apellido, email, password_hash, rol, activo, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)", usuarios);
+                usuarios.clear();
+            }
+        }
+
+        // Perfil de cliente para cada usuario CLIENTE sembrado
+        jdbc.update("INSERT INTO cliente (codigo_cliente, direccion, telefono, documento_identidad, usuario_id, created_at) "
+            + "SELECT 'CARGA-' || CAST(id AS VARCHAR), 'Calle ' || CAST(id AS VARCHAR), '7000000', "
+            + "CAST(id AS VARCHAR), id, created_at FROM usuario WHERE rol = 'CLIENTE' AND email LIKE 'carga%'");
+        datos.codigos.addAll(jdbc.queryForList(
+            "SELECT codigo_cliente FROM cliente WHERE codigo_cliente LIKE 'CARGA-%'", String.class));
+        return datos;
+    }
+
+    String emailAleatorio() {
+        return emails.get(ThreadLocalRandom.current().nextInt(emails.size()));
+    }
+
+    /** Email de un ADMIN sembrado, para las operaciones que lo exigen */
+    String emailAdmin() {
+        return admin;
+    }
+
+    String codigoAleatorio() {
+        return codigos.get(ThreadLocalRandom.current().nextInt(codigos.size()));
+    }
+
+    int clientes() {
+        return codigos.size();
+    }
+}
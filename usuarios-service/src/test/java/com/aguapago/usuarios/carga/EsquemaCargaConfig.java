@@ -0,0 +1,26 @@
+package com.aguapago.usuarios.carga;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Esquema limpio para cada contexto de prueba con el perfil "carga"
+ *
+ * Todos los contextos comparten la base H2 en memoria; antes de migrar se
+ * borra lo que haya dejado el contexto anterior (lo que antes hacía
+ * ddl-auto=create-drop), así cada prueba siembra sobre tablas vacías.
+ */
+@Configuration
+@Profile("carga")
+class EsquemaCargaConfig {
+
+    @Bean
+    FlywayMigrationStrategy esquemaLimpio() {
+        return flyway -> {
+            flyway.clean();
+            flyway.migrate();
+        };
+    }
+}
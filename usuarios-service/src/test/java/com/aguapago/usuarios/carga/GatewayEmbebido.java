@@ -0,0 +1,97 @@
+package com.aguapago.usuarios.carga;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Levanta el api-gateway empaquetado como proceso hijo, apuntando al
+ * usuarios-service que arrancó la prueba.
+ *
+ * Requiere haber ejecutado antes: mvn -f ../api-gateway package -DskipTests
+ */
+class GatewayEmbebido implements AutoCloseable {
+
+    private final Process proceso;
+    private final int puerto;
+
+    private GatewayEmbebido(Process proceso, int puerto) {
+        this.proceso = proceso;
+        this.puerto = puerto;
+    }
+
+    /**
+     * @return el gateway en ejecución, o null si el jar no existe
+     */
+    static GatewayEmbebido iniciar(String rutaJar, int puertoUsuarios) throws IOException, InterruptedException {
+        File jar = new File(rutaJar);
+        if (!jar.isFile()) {
+            return null;
+        }
+        int puerto = puertoLibre();
+        String destino = "http://localhost:" + puertoUsuarios;
+        // Las listas de rutas se reemplazan completas al sobreescribirlas, por eso se declara la ruta entera
+        ProcessBuilder builder = new ProcessBuilder(List.of(
+            javaEjecutable(), "-jar", jar.getAbsolutePath(),
+            "--server.port=" + puerto,
+            "--spring.cloud.gateway.routes[0].id=usuarios-graphql",
+            "--spring.cloud.gateway.routes[0].uri=" + destino,
+            "--spring.cloud.gateway.routes[0].predicates[0]=Path=/graphql",
+            "--logging.level.org.springframework.cloud.gateway=INFO"));
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(new File("target/gateway-carga.log"));
+        GatewayEmbebido gateway = new GatewayEmbebido(builder.start(), puerto);
+        gateway.esperarDisponible(Duration.ofSeconds(90));
+        return gateway;
+    }
+
+    String urlGraphql() {
+        return "http://localhost:" + puerto + "/graphql";
+    }
+
+    private void esperarDisponible(Duration limite) throws InterruptedException {
+        HttpClient http = HttpClient.newHttpClient();
+        HttpRequest sonda = HttpRequest.newBuilder(URI.create(urlGraphql()))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"query\":\"{ __typename }\"}"))
+            .timeout(Duration.ofSeconds(2))
+            .build();
+        long fin = System.nanoTime() + limite.toNanos();
+        while (System.nanoTime() < fin) {
+            if (!proceso.isAlive()) {
+                throw new IllegalStateException("El gateway terminó al arrancar, ver target/gateway-carga.log");
+            }
+            try {
+                if (http.send(sonda, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Todavía no escucha
+            }
+            Thread.sleep(250);
+        }
+        close();
+        throw new IllegalStateException("El gateway no respondió en " + limite.toSeconds() + "s");
+    }
+
+    @Override
+    public void close() {
+        proceso.destroy();
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaEjecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+}
@@ -0,0 +1,119 @@
+package com.aguapago.usuarios.carga;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Operaciones GraphQL que componen la mezcla de carga
+ *
+ * Cada operación arma el cuerpo JSON de la petición a partir de los datos
+ * sembrados, y decide si la respuesta cuenta como error.
+ */
+enum OperacionCarga {
+
+    LOGIN("login") {
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            return peticion("mutation($e: String!, $p: String!) { login(input: {email: $e, password: $p}) { id rol mensaje } }",
+                "{\"e\":\"" + datos.emailAleatorio() + "\",\"p\":\"" + DatosSembrados.PASSWORD + "\"}");
+        }
+
+        @Override
+        boolean esError(String respuesta) {
+            // El login devuelve los errores en el campo mensaje
+            return super.esError(respuesta) || respuesta.contains("\"mensaje\":\"Error");
+        }
+    },
+
+    OBTENER_CLIENTE_POR_CODIGO("obtenerClientePorCodigo") {
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            return peticion("query($c: String!) { obtenerClientePorCodigo(codigo: $c) { id codigoCliente direccion usuario { id email } } }",
+                "{\"c\":\"" + datos.codigoAleatorio() + "\"}");
+        }
+    },
+
+    /** Hoja de ruta de un lector: 200 códigos en una sola operación (fuera de la mezcla por defecto) */
+    OBTENER_HOJA_DE_RUTA("obtenerClientesPorCodigos") {
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            StringBuilder codigos = new StringBuilder("[");
+            for (int i = 0; i < 200; i++) {
+                codigos.append(i == 0 ? "" : ",").append('"').append(datos.codigoAleatorio()).append('"');
+            }
+            return peticion("query($c: [String!]!, $a: String!) { obtenerClientesPorCodigos(codigos: $c, usuarioEmail: $a) "
+                    + "{ id codigoCliente usuario { id email } } }",
+                "{\"c\":" + codigos.append(']') + ",\"a\":\"" + datos.emailAdmin() + "\"}");
+        }
+    },
+
+    REGISTRAR_USUARIO("registrarUsuario") {
+        private final AtomicLong secuencia = new AtomicLong();
+
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            long n = secuencia.incrementAndGet();
+            return peticion("mutation($i: RegistroUsuarioInput!) { registrarUsuario(input: $i) { id email } }",
+                "{\"i\":{\"nombre\":\"Carga\",\"apellido\":\"Nuevo\",\"email\":\"nuevo" + n + "-"
+                    + System.nanoTime() + "@aguapago.test\",\"password\":\"" + DatosSembrados.PASSWORD
+                    + "\",\"rol\":\"CLIENTE\",\"direccion\":\"Calle " + n + "\"}}");
+        }
+    },
+
+    OBTENER_TODOS_LOS_CLIENTES("obtenerTodosLosClientes") {
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            return peticion("{ obtenerTodosLosClientes { id codigoCliente usuario { email activo } } }", "{}");
+        }
+    },
+
+    OBTENER_USUARIOS_POR_ROL("obtenerUsuariosPorRol") {
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            String rol = ThreadLocalRandom.current().nextInt(10) == 0 ? "ADMIN" : "CLIENTE";
+            return peticion("query($r: String!) { obtenerUsuariosPorRol(rol: $r) { id nombre email activo } }",
+                "{\"r\":\"" + rol + "\"}");
+        }
+    },
+
+    /**
+     * Operación del panel de administración: tres campos raíz independientes
+     * que el servicio resuelve en paralelo
+     */
+    PANEL_ADMIN("panelAdmin") {
+        @Override
+        String cuerpo(DatosSembrados datos) {
+            return peticion("query($e: String!) { obtenerUsuariosPorRol(rol: \"ADMIN\") { id email } "
+                    + "obtenerTodosLosClientes { id codigoCliente } obtenerUsuarioPorEmail(email: $e) { id nombre } }",
+                "{\"e\":\"" + datos.emailAleatorio() + "\"}");
+        }
+    };
+
+    final String nombre;
+
+    OperacionCarga(String nombre) {
+        this.nombre = nombre;
+    }
+
+    abstract String cuerpo(DatosSembrados datos);
+
+    /**
+     * Una respuesta con "errors" de nivel superior cuenta como error
+     */
+    boolean esError(String respuesta) {
+        return respuesta.contains("\"errors\"");
+    }
+
+    static OperacionCarga porNombre(String nombre) {
+        for (OperacionCarga operacion : values()) {
+            if (operacion.nombre.equals(nombre)) {
+                return operacion;
+            }
+        }
+        throw new IllegalArgumentException("Operación de carga desconocida: " + nombre);
+    }
+
+    private static String peticion(String documento, String variables) {
+        return "{\"query\":\"" + documento.replace("\"", "\\\"") + "\",\"variables\":" + variables + "}";
+    }
+}
@@ -0,0 +1,133 @@
+package com.aguapago.usuarios.carga;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de extremo a extremo
+ *
+ * Levanta usuarios-service contra H2 (modo PostgreSQL), siembra datos y, si el
+ * jar del api-gateway está empaquetado, lo levanta también y dirige la carga
+ * a través de él. Las llegadas siguen un modelo abierto a tasa fija.
+ *
+ * Ejecutar con: mvn -Pcarga test
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("carga")
+class PruebaCargaTest {
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void cargaMixtaCumpleUmbrales() throws Exception {
+        ConfiguracionCarga config = ConfiguracionCarga.desdePropiedades();
+        DatosSembrados datos = DatosSembrados.sembrar(jdbc, config.usuariosSembrados);
+        System.out.println("[carga] " + config);
+        System.out.println("[carga] clientes sembrados: " + datos.clientes());
+
+        GatewayEmbebido gateway = config.usarGateway
+            ? GatewayEmbebido.iniciar(config.gatewayJar, puerto)
+            : null;
+        String destino = gateway != null ? gateway.urlGraphql() : "http://localhost:" + puerto + "/graphql";
+        if (config.usarGateway && gateway == null) {
+            System.out.println("[carga] jar del gateway no encontrado (" + config.gatewayJar
+                + "), se usa el servicio directamente");
+        }
+        System.out.println("[carga] destino: " + destino);
+
+        try {
+            ResultadosCarga resultados = ejecutar(config, datos, destino);
+            System.out.println("[carga] resultados:\n" + resultados.reporte());
+
+            assertTrue(resultados.percentilMs(99) <= config.umbralP99Ms,
+                "p99 " + resultados.percentilMs(99) + " ms supera el umbral de " + config.umbralP99Ms + " ms");
+            assertTrue(resultados.tasaErrores() <= config.umbralErrores,
+                String.format("Tasa de errores %.2f%% supera el umbral de %.2f%%",
+                    resultados.tasaErrores() * 100, config.umbralErrores * 100));
+            assertTrue(resultados.throughput() >= config.tasa * config.umbralThroughput,
+                String.format("Throughput %.1f req/s por debajo del %.0f%% de la tasa objetivo",
+                    resultados.throughput(), config.umbralThroughput * 100));
+        } finally {
+            if (gateway != null) {
+                gateway.close();
+            }
+        }
+    }
+
+    private ResultadosCarga ejecutar(ConfiguracionCarga config, DatosSembrados datos, String destino)
+            throws InterruptedException {
+        ExecutorService respuestas = Executors.newCachedThreadPool();
+        HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(respuestas)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+        ResultadosCarga resultados = new ResultadosCarga(config.mezcla.keySet(), config.duracion.toNanos());
+        List<CompletableFuture<?>> pendientes = new ArrayList<>();
+
+        long intervalo = (long) (1_000_000_000L / config.tasa);
+        long inicio = System.nanoTime();
+        long inicioMedicion = inicio + config.calentamiento.toNanos();
+        long fin = inicioMedicion + config.duracion.toNanos();
+
+        for (long programado = inicio; programado < fin; programado += intervalo) {
+            long espera = programado - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            OperacionCarga operacion = config.elegirOperacion();
+            HttpRequest peticion = HttpRequest.newBuilder(URI.create(destino))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(operacion.cuerpo(datos)))
+                .build();
+            final long llegada = programado;
+            final boolean medir = programado >= inicioMedicion;
+            CompletableFuture<?> futuro = http.sendAsync(peticion, HttpResponse.BodyHandlers.ofString())
+                .handle((respuesta, error) -> {
+                    if (medir) {
+                        boolean fallo = error != null
+                            || respuesta.statusCode() != 200
+                            || operacion.esError(respuesta.body());
+                        resultados.registrar(operacion, System.nanoTime() - llegada, fallo);
+                    }
+                    return null;
+                });
+            pendientes.add(futuro);
+        }
+
+        try {
+            CompletableFuture.allOf(pendientes.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.out.println("[carga] peticiones sin terminar al cerrar: " + e);
+        }
+        respuestas.shutdownNow();
+        return resultados;
+    }
+}
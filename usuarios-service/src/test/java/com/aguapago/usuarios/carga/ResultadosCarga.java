@@ -0,0 +1,116 @@
+package com.aguapago.usuarios.carga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acumula latencias y errores por operación durante la fase medida
+ *
+ * La latencia se mide desde el instante en que la llegada estaba programada,
+ * no desde que se envió, para no ocultar esperas (coordinated omission).
+ */
+class ResultadosCarga {
+
+    private final Map<OperacionCarga, Acumulador> porOperacion = new EnumMap<>(OperacionCarga.class);
+    private final long duracionNanos;
+
+    ResultadosCarga(Iterable<OperacionCarga> operaciones, long duracionNanos) {
+        for (OperacionCarga operacion : operaciones) {
+            porOperacion.put(operacion, new Acumulador());
+        }
+        this.duracionNanos = duracionNanos;
+    }
+
+    void registrar(OperacionCarga operacion, long latenciaNanos, boolean error) {
+        porOperacion.get(operacion).registrar(latenciaNanos, error);
+    }
+
+    long total() {
+        return porOperacion.values().stream().mapToLong(Acumulador::cantidad).sum();
+    }
+
+    long errores() {
+        return porOperacion.values().stream().mapToLong(a -> a.errores.get()).sum();
+    }
+
+    double tasaErrores() {
+        long total = total();
+        return total == 0 ? 0 : (double) errores() / total;
+    }
+
+    double throughput() {
+        return total() / (duracionNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Percentil global (0-100) en milisegundos
+     */
+    long percentilMs(double percentil) {
+        List<Long> todas = new ArrayList<>();
+        porOperacion.values().forEach(a -> a.copiarEn(todas));
+        return percentil(todas.stream().mapToLong(Long::longValue).toArray(), percentil);
+    }
+
+    String reporte() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-26s %8s %8s %8s %8s %8s %8s%n",
+            "operacion", "total", "errores", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        porOperacion.forEach((operacion, a) -> {
+            long[] latencias = a.ordenadas();
+            sb.append(String.format("%-26s %8d %8d %8d %8d %8d %8d%n",
+                operacion.nombre, latencias.length, a.errores.get(),
+                percentil(latencias, 50), percentil(latencias, 90), percentil(latencias, 99),
+                percentil(latencias, 100)));
+        });
+        sb.append(String.format("TOTAL: %d peticiones, %.1f req/s, errores %.2f%%, p50 %d ms, p99 %d ms%n",
+            total(), throughput(), tasaErrores() * 100, percentilMs(50), percentilMs(99)));
+        return sb.toString();
+    }
+
+    private static long percentil(long[] valores, double percentil) {
+        if (valores.length == 0) {
+            return 0;
+        }
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(ordenados[Math.max(0, Math.min(indice, ordenados.length - 1))]);
+    }
+
+    private static class Acumulador {
+        private long[] latencias = new long[1024];
+        private int cantidad;
+        private final AtomicLong errores = new AtomicLong();
+
+        synchronized void registrar(long latenciaNanos, boolean error) {
+            if (cantidad == latencias.length) {
+                latencias = Arrays.copyOf(latencias, cantidad * 2);
+            }
+            latencias[cantidad++] = latenciaNanos;
+            if (error) {
+                errores.incrementAndGet();
+            }
+        }
+
+        synchronized long cantidad() {
+            return cantidad;
+        }
+
+        synchronized long[] ordenadas() {
+            long[] copia = Arrays.copyOf(latencias, cantidad);
+            Arrays.sort(copia);
+            return copia;
+        }
+
+        synchronized void copiarEn(List<Long> destino) {
+            for (int i = 0; i < cantidad; i++) {
+                destino.add(latencias[i]);
+            }
+        }
+    }
+}
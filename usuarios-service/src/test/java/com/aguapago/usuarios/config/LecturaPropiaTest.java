@@ -0,0 +1,175 @@
+package com.aguapago.usuarios.config;
+
+import com.aguapago.usuarios.outbox.DestinoEventosMemoria;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import com.aguapago.usuarios.service.UsuarioService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Réplicas de lectura contra H2 (perfil "carga"): la réplica es la misma
+ * base en memoria con su propio pool. El relay del outbox y el
+ * aprovisionamiento corren cada 100 ms, escribiendo en la primaria.
+ *
+ * El contexto se descarta al terminar: sus procesos programados no deben
+ * seguir corriendo durante otras pruebas.
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=100ms",
+    "aguapago.aprovisionamiento.intervalo=100ms",
+    "aguapago.aprovisionamiento.intervalo-reconciliacion=1h",
+    "aguapago.replicas.urls=jdbc:h2:mem:aguapago_carga;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+    "aguapago.replicas.pool-size=2",
+    "aguapago.replicas.ventana-lectura-propia=10s"
+})
+@ActiveProfiles("carga")
+@AutoConfigureMockMvc
+@DirtiesContext
+class LecturaPropiaTest {
+
+    private static final String REGISTRO = "{\"query\":\"mutation { registrarUsuario(input: {nombre: \\\"Rita\\\", "
+        + "apellido: \\\"Replica\\\", email: \\\"%s\\\", password: \\\"secreto1\\\", rol: \\\"ADMIN\\\"}) { id } }\"}";
+    private static final String CONSULTA = "{\"query\":\"{ obtenerUsuarioPorEmail(email: \\\"%s\\\") { id } }\"}";
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private DestinoEventosMemoria destino;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void losProcesosProgramadosNoDesvianLasLecturasALaPrimaria() throws Exception {
+        // Escrituras sin sesión: el aprovisionamiento crea el cliente y el relay publica los eventos
+        usuarioService.registrarUsuario("Pablo", "Programado", "pablo.replica@aguapago.test", "secreto1",
+            "CLIENTE", "Calle 1", null, null);
+        long limite = System.currentTimeMillis() + 5000;
+        while ((clienteRepository.findByUsuarioEmail("pablo.replica@aguapago.test").isEmpty()
+                || destino.recientes().stream().noneMatch(e -> e.getAgregado().equals("CLIENTE")))
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+        }
+        assertTrue(destino.recientes().stream().anyMatch(e -> e.getAgregado().equals("CLIENTE")),
+            "el relay debe haber publicado mientras corre la prueba");
+
+        // Los procesos siguen consultando cada 100 ms; las lecturas van igual a la réplica
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(150);
+            assertEquals("replica", origenDeLectura());
+        }
+    }
+
+    @Test
+    void soloLaSesionQueEscribioLeeDeLaPrimaria() throws Exception {
+        LecturaPropia.Sesion escritora = new LecturaPropia.Sesion(0);
+        LecturaPropia.ejecutarEn(escritora, () -> usuarioService.registrarUsuario(
+            "Sara", "Sesion", "sara.replica@aguapago.test", "secreto1", "ADMIN", null, null, null));
+        assertTrue(escritora.isEscribio());
+        assertEquals("primaria", LecturaPropia.ejecutarEn(escritora, this::origenDeLecturaSinExcepcion));
+
+        // Otra sesión, y una transacción de escritura que solo leyó, siguen en la réplica
+        LecturaPropia.Sesion lectora = new LecturaPropia.Sesion(0);
+        LecturaPropia.ejecutarEn(lectora, () -> new TransactionTemplate(transactionManager)
+            .execute(estado -> usuarioRepository.count()));
+        assertFalse(lectora.isEscribio());
+        assertEquals("replica", LecturaPropia.ejecutarEn(lectora, this::origenDeLecturaSinExcepcion));
+        assertEquals("replica", origenDeLectura());
+    }
+
+    @Test
+    void laCookieLlevaLaVentanaALaSiguientePeticion() throws Exception {
+        MvcResult registro = graphql(post("/graphql").contentType(MediaType.APPLICATION_JSON)
+            .content(REGISTRO.formatted("rita.replica@aguapago.test")));
+        Cookie cookie = registro.getResponse().getCookie(LecturaPropiaFilter.COOKIE);
+        assertNotNull(cookie, "una petición que escribió debe recibir la cookie");
+        assertTrue(Long.parseLong(cookie.getValue()) > System.currentTimeMillis());
+
+        MvcResult consulta = graphql(post("/graphql").contentType(MediaType.APPLICATION_JSON)
+            .cookie(cookie)
+            .content(CONSULTA.formatted("rita.replica@aguapago.test")));
+        assertTrue(consulta.getResponse().getContentAsString().contains("\"id\""));
+        // Sin escrituras no se renueva la cookie
+        assertNull(consulta.getResponse().getCookie(LecturaPropiaFilter.COOKIE));
+
+        // Un valor fuera de la ventana configurada se recorta
+        LecturaPropiaFilter filtro = new LecturaPropiaFilter(Duration.ofSeconds(10));
+        MockHttpServletRequest peticion = new MockHttpServletRequest();
+        peticion.setCookies(new Cookie(LecturaPropiaFilter.COOKIE, String.valueOf(Long.MAX_VALUE)));
+        filtro.doFilter(peticion, new MockHttpServletResponse(), (req, res) ->
+            assertTrue(LecturaPropia.actual().getPrimariaHasta() <= System.currentTimeMillis() + 10_000));
+    }
+
+    // ====== UTILIDADES ======
+
+    /**
+     * Pool que atiende una transacción readOnly: "replica" si la réplica
+     * tiene la conexión activa, "primaria" si no
+     */
+    private String origenDeLectura() throws SQLException {
+        HikariDataSource replica = (HikariDataSource) dataSource.unwrap(ReplicaRoutingDataSource.class)
+            .getResolvedDataSources().get(ReplicaRoutingDataSource.REPLICA + 0);
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        return lectura.execute(estado -> {
+            usuarioRepository.count();
+            HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+            return pool != null && pool.getActiveConnections() > 0 ? "replica" : "primaria";
+        });
+    }
+
+    private String origenDeLecturaSinExcepcion() {
+        try {
+            return origenDeLectura();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Ejecuta la petición esperando la respuesta asíncrona de GraphQL */
+    private MvcResult graphql(MockHttpServletRequestBuilder peticion) throws Exception {
+        MvcResult inicio = mvc.perform(peticion).andReturn();
+        return inicio.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(inicio)).andReturn() : inicio;
+    }
+}
@@ -0,0 +1,227 @@
+package com.aguapago.usuarios.directorio;
+
+import com.aguapago.usuarios.controller.ClienteResolver;
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.service.ClienteService;
+import com.aguapago.usuarios.service.UsuarioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tabla del directorio sobre archivos temporales, y el directorio contra H2
+ * (perfil "carga") con la puesta al día programada fuera de alcance
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo-reconciliacion=1h"
+})
+@ActiveProfiles("carga")
+class DirectorioClientesTest {
+
+    @TempDir
+    Path carpeta;
+
+    @Autowired
+    private DirectorioClientes directorio;
+
+    @Autowired
+    private ClienteResolver clienteResolver;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    // ====== TABLA ======
+
+    @Test
+    void laTablaSeRecuperaDelArchivoAlReabrir() throws Exception {
+        Path archivo = carpeta.resolve("principal.dir");
+        LocalDateTime marca = LocalDateTime.of(2026, 3, 1, 10, 30, 15, 123456000);
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 64)) {
+            assertFalse(tabla.isRecuperada());
+            assertTrue(tabla.guardar(resumen("CLI-001", 1L, 10L, 2L, "Calle 1")));
+            assertTrue(tabla.guardar(resumen("CLI-002", 2L, 20L, 0L, null)));
+            tabla.setMarca(marca);
+        }
+
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 64)) {
+            assertTrue(tabla.isRecuperada());
+            assertEquals(2, tabla.getEntradas());
+            assertEquals(marca, tabla.getMarca());
+            assertEquals(resumen("CLI-001", 1L, 10L, 2L, "Calle 1"), tabla.buscar("CLI-001"));
+            assertNull(tabla.buscar("CLI-002").getDireccion());
+            assertNull(tabla.buscar("CLI-003"));
+
+            // Una versión anterior no pisa la guardada
+            assertFalse(tabla.guardar(resumen("CLI-001", 1L, 10L, 1L, "Calle vieja")));
+            assertEquals("Calle 1", tabla.buscar("CLI-001").getDireccion());
+
+            assertEquals(1, tabla.olvidarUsuarios(Set.of(20L)));
+            assertNull(tabla.buscar("CLI-002"));
+        }
+
+        // Con otra capacidad el archivo no sirve: se empieza vacía
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 256)) {
+            assertFalse(tabla.isRecuperada());
+            assertNull(tabla.getMarca());
+            assertNull(tabla.buscar("CLI-001"));
+        }
+    }
+
+    @Test
+    void unSlotDanadoSeDescartaAlAbrir() throws Exception {
+        Path archivo = carpeta.resolve("danado.dir");
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 64)) {
+            tabla.guardar(resumen("CLI-SANO", 1L, 10L, 0L, "Calle sana"));
+            tabla.guardar(resumen("CLI-ROTO", 2L, 20L, 0L, "Calle rota"));
+        }
+        // Escritura a medias: un byte del registro cambia sin actualizar el CRC
+        byte[] contenido = Files.readAllBytes(archivo);
+        int posicion = new String(contenido, StandardCharsets.ISO_8859_1).indexOf("Calle rota");
+        try (RandomAccessFile raf = new RandomAccessFile(archivo.toFile(), "rw")) {
+            raf.seek(posicion);
+            raf.write('K');
+        }
+
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 64)) {
+            assertEquals(1, tabla.getEntradas());
+            assertNull(tabla.buscar("CLI-ROTO"));
+            assertEquals("Calle sana", tabla.buscar("CLI-SANO").getDireccion());
+        }
+    }
+
+    @Test
+    void unRegistroQueNoEntraEnElSlotNoSeGuarda() throws Exception {
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(carpeta.resolve("grande.dir"), 64)) {
+            assertFalse(tabla.guardar(resumen("CLI-GRANDE", 1L, 10L, 0L, "x".repeat(TablaDirectorio.MAXIMO_REGISTRO))));
+            assertNull(tabla.buscar("CLI-GRANDE"));
+        }
+    }
+
+    @Test
+    void cadaUsuarioConservaUnaSolaEntradaIndexada() throws Exception {
+        Path archivo = carpeta.resolve("indice.dir");
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 64)) {
+            assertTrue(tabla.guardar(resumen("CLI-VIEJO", 1L, 10L, 0L, "Calle 1")));
+            assertTrue(tabla.guardar(resumen("CLI-OTRO", 2L, 20L, 0L, "Calle 2")));
+
+            // El mismo usuario con otro código reemplaza su entrada anterior
+            assertTrue(tabla.guardar(resumen("CLI-NUEVO", 1L, 10L, 1L, "Calle 1")));
+            assertNull(tabla.buscar("CLI-VIEJO"));
+            assertEquals(2, tabla.getEntradas());
+        }
+
+        // El índice se vuelve a armar al reabrir el archivo
+        try (TablaDirectorio tabla = TablaDirectorio.abrir(archivo, 64)) {
+            assertEquals(2, tabla.olvidarUsuarios(Set.of(10L, 20L, 30L)));
+            assertNull(tabla.buscar("CLI-NUEVO"));
+            assertNull(tabla.buscar("CLI-OTRO"));
+            assertEquals(0, tabla.getEntradas());
+            assertEquals(0, tabla.olvidarUsuarios(Set.of(10L)));
+        }
+    }
+
+    // ====== DIRECTORIO ======
+
+    @Test
+    void lasEscriturasDelServicioMantienenAlDiaElDirectorio() {
+        Usuario usuario = usuarioService.registrarUsuario("Dora", "Directorio", "dora.directorio@aguapago.test",
+            "secreto1", "CLIENTE", null, null, null);
+        Cliente cliente = clienteService.crearCliente(usuario.getId(), "DIR-001", "Calle 1", "70000001", null);
+
+        // Guardado al confirmar crearCliente: se responde sin ir a la base
+        double aciertos = aciertos();
+        ClienteDTO leido = clienteResolver.obtenerClientePorCodigo("DIR-001").join();
+        assertEquals("Calle 1", leido.getDireccion());
+        assertEquals("dora.directorio@aguapago.test", leido.getUsuario().getEmail());
+        assertEquals(aciertos + 1, aciertos());
+
+        clienteService.actualizarCliente(cliente.getId(), "Calle 2", null, null, null);
+        ClienteDTO actualizado = directorio.buscar("DIR-001");
+        assertEquals("Calle 2", actualizado.getDireccion());
+        assertEquals(leido.getVersion() + 1, actualizado.getVersion());
+
+        // Un cambio del usuario lo saca; la siguiente búsqueda lo lee de la base y lo guarda
+        usuarioService.actualizarUsuario(usuario.getId(), "Dorotea", null, null, null);
+        assertNull(directorio.buscar("DIR-001"));
+        assertEquals("Dorotea", clienteResolver.obtenerClientePorCodigo("DIR-001").join().getUsuario().getNombre());
+        assertNotNull(directorio.buscar("DIR-001"));
+
+        // Lo que escribe otra instancia llega con la puesta al día
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado ->
+            clienteRepository.actualizarParcial(cliente.getId(), null, Map.of("telefono", "79999999")));
+        assertEquals("70000001", directorio.buscar("DIR-001").getTelefono());
+        assertTrue(directorio.ponerseAlDia() >= 1);
+        assertEquals("79999999", directorio.buscar("DIR-001").getTelefono());
+    }
+
+    @Test
+    void loQueNoEstaSeLeeDeLaPrimariaAntesDeRecordarlo() {
+        Usuario usuario = usuarioService.registrarUsuario("Fausto", "Fallo", "fausto.directorio@aguapago.test",
+            "secreto1", "CLIENTE", null, null, null);
+        clienteService.crearCliente(usuario.getId(), "DIR-002", "Calle 3", "70000002", null);
+        usuarioService.actualizarUsuario(usuario.getId(), "Faustino", null, null, null);
+        assertNull(directorio.buscar("DIR-002"));
+
+        // La lectura de solo lectura del servicio se une a la transacción de escritura: va a la primaria
+        boolean[] soloLectura = new boolean[1];
+        List<ClienteDTO> leidos = directorio.leerYRecordar(() -> {
+            soloLectura[0] = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+            return clienteService.obtenerClientePorCodigo("DIR-002").map(ClienteDTO::fromEntity).stream().toList();
+        });
+        assertFalse(soloLectura[0]);
+        assertEquals("Faustino", leidos.get(0).getUsuario().getNombre());
+        assertEquals("Faustino", directorio.buscar("DIR-002").getUsuario().getNombre());
+    }
+
+    // ====== UTILIDADES ======
+
+    private double aciertos() {
+        return registry.get("aguapago.directorio.busquedas").tag("resultado", "acierto").counter().count();
+    }
+
+    private static ClienteDTO resumen(String codigo, Long id, Long usuarioId, Long version, String direccion) {
+        UsuarioDTO usuario = new UsuarioDTO(usuarioId, "Ana", "Pérez", "ana" + usuarioId + "@aguapago.test",
+            "CLIENTE", true, LocalDateTime.of(2026, 1, 2, 3, 4, 5), 0L);
+        return new ClienteDTO(id, codigo, direccion, "70000000", null,
+            LocalDateTime.of(2026, 1, 2, 3, 4, 6, 789000000), version, usuario);
+    }
+}
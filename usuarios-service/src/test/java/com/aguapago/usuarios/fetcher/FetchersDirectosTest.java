@@ -0,0 +1,143 @@
+package com.aguapago.usuarios.fetcher;
+
+import com.aguapago.usuarios.dto.AuthResponse;
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.Scalars;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.graphql.execution.GraphQlSource;
+import org.springframework.graphql.execution.RuntimeWiringConfigurer;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DataFetchers directos sobre el esquema real, armado igual que en la
+ * aplicación (GraphQlSource de Spring) con una lista de clientes en memoria
+ */
+class FetchersDirectosTest {
+
+    private static final String CONSULTA = "{ obtenerTodosLosClientes { id codigoCliente direccion telefono "
+        + "documentoIdentidad createdAt version usuario { id nombre apellido email rol activo createdAt version } } }";
+
+    @Test
+    void respondeIgualQueElFetcherPorReflexion() {
+        List<ClienteDTO> clientes = clientes(200);
+        GraphQL reflexion = graphQl(clientes, false);
+        GraphQL directo = graphQl(clientes, true);
+
+        ExecutionResult esperado = reflexion.execute(CONSULTA);
+        assertTrue(esperado.getErrors().isEmpty(), esperado.getErrors().toString());
+        assertEquals(esperado.toSpecification(), directo.execute(CONSULTA).toSpecification());
+
+        GraphQLSchema esquema = directo.getGraphQLSchema();
+        for (String tipo : List.of("Usuario", "Cliente", "AuthResponse", "CambioSincronizacion", "PaginaCambios")) {
+            GraphQLObjectType objeto = esquema.getObjectType(tipo);
+            objeto.getFieldDefinitions().forEach(campo -> assertInstanceOf(FetcherDirecto.class,
+                esquema.getCodeRegistry().getDataFetcher(FieldCoordinates.coordinates(objeto, campo), campo),
+                tipo + "." + campo.getName()));
+        }
+    }
+
+    @Test
+    void caeEnReflexionSiLaFuenteEsDeOtraClase() throws Exception {
+        FetcherDirecto fetcher = FetcherDirecto.para(UsuarioDTO.class, "nombre");
+        GraphQLFieldDefinition campo = GraphQLFieldDefinition.newFieldDefinition()
+            .name("nombre").type(Scalars.GraphQLString).build();
+        AuthResponse otra = new AuthResponse();
+        otra.setNombre("Ana");
+        assertEquals("Ana", fetcher.get(campo, otra, () -> null));
+        assertNull(fetcher.get(campo, null, () -> null));
+        assertNull(FetcherDirecto.para(UsuarioDTO.class, "noExiste"));
+    }
+
+    /**
+     * Benchmark: CPU y memoria asignada por ejecución de obtenerTodosLosClientes
+     * con 10.000 filas (mvn -Pcarga test -Dtest=FetchersDirectosTest)
+     */
+    @Test
+    @Tag("carga")
+    void benchmarkListaGrande() {
+        int filas = Integer.getInteger("fetchers.filas", 10_000);
+        int repeticiones = Integer.getInteger("fetchers.repeticiones", 20);
+        List<ClienteDTO> clientes = clientes(filas);
+
+        Medicion reflexion = medir(graphQl(clientes, false), repeticiones);
+        Medicion directo = medir(graphQl(clientes, true), repeticiones);
+
+        System.out.printf("[fetchers] %d filas, %d ejecuciones%n", filas, repeticiones);
+        System.out.printf("[fetchers] reflexión: %7.1f ms CPU %8.1f MB asignados por ejecución%n",
+            reflexion.cpuMs, reflexion.mbAsignados);
+        System.out.printf("[fetchers] directo:   %7.1f ms CPU %8.1f MB asignados por ejecución%n",
+            directo.cpuMs, directo.mbAsignados);
+        assertTrue(directo.mbAsignados < reflexion.mbAsignados,
+            "Los fetchers directos deberían asignar menos memoria que PropertyDataFetcher");
+    }
+
+    // ====== UTILIDADES ======
+
+    private static GraphQL graphQl(List<ClienteDTO> clientes, boolean directos) {
+        RuntimeWiringConfigurer consulta = builder -> builder.type("Query",
+            tipo -> tipo.dataFetcher("obtenerTodosLosClientes", environment -> clientes));
+        GraphQlSource.SchemaResourceBuilder builder = GraphQlSource.schemaResourceBuilder()
+            .schemaResources(new ClassPathResource("graphql/schema.graphqls"))
+            .configureRuntimeWiring(consulta);
+        if (directos) {
+            builder.configureRuntimeWiring(new FetchersDirectos(UsuarioDTO.class.getPackageName()));
+        }
+        return builder.build().graphQl();
+    }
+
+    private static List<ClienteDTO> clientes(int cantidad) {
+        List<ClienteDTO> clientes = new ArrayList<>(cantidad);
+        LocalDateTime ahora = LocalDateTime.of(2024, 5, 1, 10, 30);
+        for (long i = 1; i <= cantidad; i++) {
+            UsuarioDTO usuario = new UsuarioDTO(i, "Nombre" + i, "Apellido" + i, "usuario" + i + "@aguapago.test",
+                "CLIENTE", i % 10 != 0, ahora, 0L);
+            clientes.add(new ClienteDTO(i, "CLI-" + i, "Calle " + i, "7000" + i, "DOC" + i, ahora, 1L, usuario));
+        }
+        return clientes;
+    }
+
+    private static Medicion medir(GraphQL graphQl, int repeticiones) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+        for (int i = 0; i < repeticiones; i++) {
+            graphQl.execute(CONSULTA);
+        }
+        long cpu = hilos.getThreadCpuTime(hilo);
+        long asignados = hilos.getThreadAllocatedBytes(hilo);
+        for (int i = 0; i < repeticiones; i++) {
+            ExecutionResult resultado = graphQl.execute(CONSULTA);
+            assertTrue(resultado.getErrors().isEmpty(), resultado.getErrors().toString());
+        }
+        return new Medicion((hilos.getThreadCpuTime(hilo) - cpu) / 1e6 / repeticiones,
+            (hilos.getThreadAllocatedBytes(hilo) - asignados) / 1048576.0 / repeticiones);
+    }
+
+    private static final class Medicion {
+
+        final double cpuMs;
+        final double mbAsignados;
+
+        Medicion(double cpuMs, double mbAsignados) {
+            this.cpuMs = cpuMs;
+            this.mbAsignados = mbAsignados;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.aguapago.usuarios.idempotencia;
+
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import graphql.ExecutionResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Idempotency-Key contra H2 (perfil "carga") por HTTP, y los duplicados
+ * concurrentes con una cadena simulada
+ */
+@SpringBootTest(properties = {"aguapago.outbox.intervalo=1h", "aguapago.aprovisionamiento.intervalo=1h"})
+@ActiveProfiles("carga")
+@AutoConfigureMockMvc
+class IdempotenciaTest {
+
+    private static final String REGISTRO = "mutation($input: RegistroUsuarioInput!) { registrarUsuario(input: $input) { id email } }";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void unReintentoRecibeElMismoResultadoSinRegistrarDeNuevo() throws Exception {
+        String cuerpo = registro("ana.idem@aguapago.test");
+
+        ejecutar(cuerpo, "clave-ana")
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(IdempotenciaInterceptor.CABECERA_REPETIDA))
+            .andExpect(jsonPath("$.data.registrarUsuario.email").value("ana.idem@aguapago.test"));
+        String id = usuarioRepository.findByEmail("ana.idem@aguapago.test").orElseThrow().getId().toString();
+
+        // Sin la clave fallaría con "El email ya está registrado"
+        ejecutar(cuerpo, "clave-ana")
+            .andExpect(status().isOk())
+            .andExpect(header().string(IdempotenciaInterceptor.CABECERA_REPETIDA, "true"))
+            .andExpect(jsonPath("$.errors").doesNotExist())
+            .andExpect(jsonPath("$.data.registrarUsuario.id").value(id));
+
+        // La misma clave con otras variables se rechaza sin ejecutar
+        ejecutar(registro("otra.idem@aguapago.test"), "clave-ana")
+            .andExpect(jsonPath("$.errors[0].extensions.classification").value("IDEMPOTENCIA"));
+        assertEquals(true, usuarioRepository.findByEmail("otra.idem@aguapago.test").isEmpty());
+    }
+
+    @Test
+    void unFalloNoSeGuardaYElReintentoSeEjecuta() throws Exception {
+        String cuerpo = registro("luz.idem@aguapago.test").replace("\"ADMIN\"", "\"NO_EXISTE\"");
+        ejecutar(cuerpo, "clave-luz")
+            .andExpect(jsonPath("$.errors").exists());
+
+        ejecutar(cuerpo, "clave-luz")
+            .andExpect(header().doesNotExist(IdempotenciaInterceptor.CABECERA_REPETIDA))
+            .andExpect(jsonPath("$.errors").exists());
+    }
+
+    @Test
+    void losDuplicadosConcurrentesEsperanLaPrimeraEjecucion() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofHours(1));
+        IdempotenciaInterceptor interceptor = new IdempotenciaInterceptor(almacen, new SimpleMeterRegistry());
+        AtomicInteger ejecuciones = new AtomicInteger();
+        ExecutionResult resultado = ExecutionResult.newExecutionResult()
+            .data(Map.of("cambiarPassword", Map.of("id", "7"))).build();
+
+        List<WebGraphQlResponse> respuestas = Mono.zip(
+                interceptor.intercept(peticion("k"), request -> Mono.delay(Duration.ofMillis(200))
+                    .map(t -> {
+                        ejecuciones.incrementAndGet();
+                        return new WebGraphQlResponse(
+                            new DefaultExecutionGraphQlResponse(request.toExecutionInput(), resultado));
+                    })),
+                interceptor.intercept(peticion("k"), request -> {
+                    ejecuciones.incrementAndGet();
+                    return Mono.error(new AssertionError("El duplicado no debe ejecutarse"));
+                }))
+            .map(par -> List.of(par.getT1(), par.getT2()))
+            .block(Duration.ofSeconds(5));
+
+        assertEquals(1, ejecuciones.get());
+        assertNull(respuestas.get(0).getResponseHeaders().getFirst(IdempotenciaInterceptor.CABECERA_REPETIDA));
+        assertEquals("true", respuestas.get(1).getResponseHeaders().getFirst(IdempotenciaInterceptor.CABECERA_REPETIDA));
+        assertSame(resultado.getData(), respuestas.get(1).getExecutionResult().getData());
+        assertEquals(1, almacen.getTamano());
+    }
+
+    // ====== UTILIDADES ======
+
+    /** Las mutations responden en el hilo de la petición; el resto, con asyncDispatch */
+    private ResultActions ejecutar(String cuerpo, String clave) throws Exception {
+        ResultActions inicio = mvc.perform(post("/graphql")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(IdempotenciaInterceptor.CABECERA, clave)
+            .content(cuerpo));
+        MvcResult resultado = inicio.andReturn();
+        return resultado.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(resultado)) : inicio;
+    }
+
+    private static String registro(String email) {
+        return "{\"query\":\"" + REGISTRO.replace("\"", "\\\"") + "\",\"variables\":{\"input\":{"
+            + "\"nombre\":\"Idem\",\"apellido\":\"Potente\",\"email\":\"" + email + "\","
+            + "\"password\":\"secreto1\",\"rol\":\"ADMIN\"}}}";
+    }
+
+    private static WebGraphQlRequest peticion(String clave) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set(IdempotenciaInterceptor.CABECERA, clave);
+        return new WebGraphQlRequest(URI.create("http://localhost/graphql"), cabeceras, null, null, Map.of(),
+            Map.of("query", "mutation { cambiarPassword(id: 7, nuevaPassword: \"nueva123\") { id } }"), "1", null);
+    }
+}
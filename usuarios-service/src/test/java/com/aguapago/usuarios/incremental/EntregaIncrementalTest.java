@@ -0,0 +1,286 @@
+package com.aguapago.usuarios.incremental;
+
+import com.aguapago.usuarios.aprovisionamiento.ProcesadorAprovisionamiento;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.service.UsuarioService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @defer y @stream por HTTP (multipart/mixed) contra H2, con tramos de 3
+ * filas para que un listado corto ya se entregue en varias partes
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "aguapago.graphql.incremental.tamano-tramo=3",
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h"
+})
+@ActiveProfiles("carga")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EntregaIncrementalTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String MULTIPART = "multipart/mixed;deferSpec=20220824, application/json";
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesadorAprovisionamiento;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    void sembrar() {
+        for (int i = 0; i < 8; i++) {
+            usuarioService.registrarUsuario("Stream" + i, "Lista", "stream" + i + "@aguapago.test",
+                "secreto1", "CLIENTE", "Calle " + i, null, null);
+        }
+        procesadorAprovisionamiento.procesarPendientes();
+    }
+
+    @Test
+    void entregaLaListaPorTramosConLosMismosDatos() throws Exception {
+        String seleccion = "{ id codigoCliente usuario { email } }";
+        JsonNode completa = post("{ obtenerTodosLosClientes " + seleccion + " }", null, "application/json")
+            .body().get("data").get("obtenerTodosLosClientes");
+
+        Respuesta respuesta = post("{ clientes: obtenerTodosLosClientes @stream(initialCount: 2) " + seleccion + " }",
+            null, MULTIPART);
+        assertTrue(respuesta.tipo.startsWith("multipart/mixed"), respuesta.tipo);
+        List<JsonNode> partes = respuesta.partes();
+
+        JsonNode primera = partes.get(0);
+        assertEquals(2, primera.get("data").get("clientes").size());
+        assertTrue(primera.get("hasNext").asBoolean());
+
+        // Cada tramo continúa donde terminó el anterior
+        List<JsonNode> filas = new ArrayList<>();
+        primera.get("data").get("clientes").forEach(filas::add);
+        for (JsonNode parte : partes.subList(1, partes.size())) {
+            if (parte.has("incremental")) {
+                JsonNode item = parte.get("incremental").get(0);
+                assertEquals("clientes", item.get("path").get(0).asText());
+                assertEquals(filas.size(), item.get("path").get(1).asInt());
+                assertTrue(item.get("items").size() <= 3);
+                item.get("items").forEach(filas::add);
+            }
+        }
+        assertFalse(partes.get(partes.size() - 1).get("hasNext").asBoolean());
+
+        assertEquals(ordenados(completa), filas.stream().sorted(Comparator.comparingLong(f -> f.get("id").asLong())).toList());
+        assertTrue(partes.size() >= 4, "Se esperaban varios tramos: " + partes.size());
+    }
+
+    @Test
+    void streamConVariablesFragmentosYOtrosCamposRaiz() throws Exception {
+        String query = "query Lista($rol: String!, $n: Int) { "
+            + "usuarios: obtenerUsuariosPorRol(rol: $rol) @stream(initialCount: $n, label: \"lista\") { ...Datos } "
+            + "otro: obtenerTodosLosClientes { id } } "
+            + "fragment Datos on Usuario { id email }";
+        List<JsonNode> partes = post(query, Map.of("rol", "CLIENTE", "n", 1), MULTIPART).partes();
+
+        JsonNode datos = partes.get(0).get("data");
+        assertEquals(1, datos.get("usuarios").size());
+        assertTrue(datos.get("otro").size() >= 8);
+
+        long usuarios = datos.get("usuarios").size();
+        for (JsonNode parte : partes.subList(1, partes.size())) {
+            if (parte.has("incremental")) {
+                JsonNode item = parte.get("incremental").get(0);
+                assertEquals("lista", item.get("label").asText());
+                assertFalse(item.has("errors"), item.toString());
+                usuarios += item.get("items").size();
+            }
+        }
+        assertEquals(usuarioService.obtenerUsuariosPorRol("CLIENTE").size(), usuarios);
+    }
+
+    @Test
+    void diferirUnFragmentoLoEnviaEnOtraParte() throws Exception {
+        Cliente cliente = clienteRepository.findAll().get(0);
+        String query = "query($id: ID!) { obtenerClientePorId(id: $id) { codigoCliente "
+            + "... @defer(label: \"titular\") { usuario { email } } } }";
+        List<JsonNode> partes = post(query, Map.of("id", cliente.getId()), MULTIPART).partes();
+
+        JsonNode inicial = partes.get(0);
+        assertEquals(cliente.getCodigoCliente(), inicial.get("data").get("obtenerClientePorId").get("codigoCliente").asText());
+        assertFalse(inicial.get("data").get("obtenerClientePorId").has("usuario"));
+        assertTrue(inicial.get("hasNext").asBoolean());
+
+        JsonNode diferido = partes.get(1).get("incremental").get(0);
+        assertEquals("titular", diferido.get("label").asText());
+        assertEquals("obtenerClientePorId", diferido.get("path").get(0).asText());
+        assertEquals(cliente.getUsuario().getEmail(), diferido.get("data").get("usuario").get("email").asText());
+        assertFalse(partes.get(partes.size() - 1).get("hasNext").asBoolean());
+    }
+
+    @Test
+    void sinMultipartLaRespuestaEsJsonCompleta() throws Exception {
+        Respuesta respuesta = post("{ obtenerTodosLosClientes @stream(initialCount: 1) { id "
+            + "... @defer { usuario { email } } } }", null, "*/*");
+        assertTrue(respuesta.tipo.startsWith("application/"), respuesta.tipo);
+        JsonNode clientes = respuesta.body().get("data").get("obtenerTodosLosClientes");
+        assertTrue(clientes.size() >= 8);
+        assertTrue(clientes.get(0).has("usuario"));
+    }
+
+    /**
+     * Benchmark: tiempo hasta la primera fila de obtenerTodosLosClientes con
+     * @stream frente a la respuesta JSON completa
+     * (mvn -Pcarga test -Dtest=EntregaIncrementalTest -Dincremental.filas=20000)
+     */
+    @Test
+    @Tag("carga")
+    void benchmarkPrimeraFila() throws Exception {
+        int filas = Integer.getInteger("incremental.filas", 20_000);
+        int repeticiones = Integer.getInteger("incremental.repeticiones", 5);
+        sembrarPorJdbc(filas);
+        try {
+            String seleccion = "{ id codigoCliente direccion usuario { nombre email } }";
+            long completa = Long.MAX_VALUE;
+            long primera = Long.MAX_VALUE;
+            for (int i = 0; i < repeticiones; i++) {
+                long inicio = System.nanoTime();
+                post("{ obtenerTodosLosClientes " + seleccion + " }", null, "application/json");
+                completa = Math.min(completa, System.nanoTime() - inicio);
+
+                inicio = System.nanoTime();
+                primera = Math.min(primera, primeraParte(
+                    "{ obtenerTodosLosClientes @stream(initialCount: 20) " + seleccion + " }") - inicio);
+            }
+            System.out.printf("[incremental] %d clientes: JSON completo %.1f ms, primera parte con @stream %.1f ms%n",
+                filas, completa / 1e6, primera / 1e6);
+            assertTrue(primera < completa, "La primera parte debería llegar antes que la respuesta completa");
+        } finally {
+            jdbc.update("DELETE FROM cliente WHERE codigo_cliente LIKE 'INC-%'");
+            jdbc.update("DELETE FROM usuario WHERE email LIKE 'inc%@aguapago.test'");
+        }
+    }
+
+    // ====== UTILIDADES ======
+
+    /**
+     * Instante en que termina de llegar la primera parte (sin esperar al resto)
+     */
+    private long primeraParte(String query) throws Exception {
+        String cuerpo = MAPPER.createObjectNode().put("query", query).toString();
+        HttpResponse<InputStream> respuesta = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/graphql"))
+            .header("Content-Type", "application/json")
+            .header("Accept", MULTIPART)
+            .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+            .build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream entrada = respuesta.body()) {
+            StringBuilder leido = new StringBuilder();
+            int delimitadores = 0;
+            int b;
+            while ((b = entrada.read()) != -1) {
+                leido.append((char) b);
+                if (leido.length() >= 5 && leido.substring(leido.length() - 5).equals("\r\n---")
+                        && ++delimitadores == 2) {
+                    return System.nanoTime();
+                }
+            }
+        }
+        throw new AssertionError("La respuesta no trajo ninguna parte completa");
+    }
+
+    private void sembrarPorJdbc(int cantidad) {
+        List<Object[]> usuarios = new ArrayList<>();
+        for (int i = 1; i <= cantidad; i++) {
+            usuarios.add(new Object[] {"Inc" + i, "Lista", "inc" + i + "@aguapago.test", "x", "CLIENTE", true});
+        }
+        jdbc.batchUpdate("INSERT INTO usuario (nombre, apellido, email, password_hash, rol, activo, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", usuarios);
+        jdbc.update("INSERT INTO cliente (codigo_cliente, direccion, telefono, documento_identidad, usuario_id, created_at) "
+            + "SELECT 'INC-' || CAST(id AS VARCHAR), 'Calle ' || CAST(id AS VARCHAR), '7000000', "
+            + "CAST(id AS VARCHAR), id, created_at FROM usuario WHERE email LIKE 'inc%@aguapago.test'");
+    }
+
+    private Respuesta post(String query, Map<String, Object> variables, String accept) throws Exception {
+        ObjectNode cuerpo = MAPPER.createObjectNode().put("query", query);
+        if (variables != null) {
+            cuerpo.set("variables", MAPPER.valueToTree(variables));
+        }
+        HttpResponse<String> respuesta = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/graphql"))
+            .header("Content-Type", "application/json")
+            .header("Accept", accept)
+            .POST(HttpRequest.BodyPublishers.ofString(cuerpo.toString()))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, respuesta.statusCode(), respuesta.body());
+        return new Respuesta(respuesta.headers().firstValue("Content-Type").orElse(""), respuesta.body());
+    }
+
+    private static List<JsonNode> ordenados(JsonNode lista) {
+        List<JsonNode> filas = new ArrayList<>();
+        lista.forEach(filas::add);
+        filas.sort(Comparator.comparingLong(f -> f.get("id").asLong()));
+        return filas;
+    }
+
+    private static final class Respuesta {
+
+        final String tipo;
+        final String cuerpo;
+
+        Respuesta(String tipo, String cuerpo) {
+            this.tipo = tipo;
+            this.cuerpo = cuerpo;
+        }
+
+        JsonNode body() throws Exception {
+            return MAPPER.readTree(cuerpo);
+        }
+
+        /**
+         * Partes del multipart: entre delimitadores "\r\n---", hasta el cierre "\r\n-----"
+         */
+        List<JsonNode> partes() throws Exception {
+            assertTrue(cuerpo.startsWith("\r\n---\r\n") && cuerpo.endsWith("\r\n-----\r\n"), cuerpo);
+            List<JsonNode> partes = new ArrayList<>();
+            String contenido = cuerpo.substring(0, cuerpo.length() - "--\r\n".length());
+            for (String parte : contenido.split("\r\n---")) {
+                if (!parte.isEmpty()) {
+                    int inicio = parte.indexOf("\r\n\r\n");
+                    assertTrue(parte.substring(0, inicio).contains("Content-Type: application/json"), parte);
+                    partes.add(MAPPER.readTree(parte.substring(inicio + 4)));
+                }
+            }
+            return partes;
+        }
+    }
+}
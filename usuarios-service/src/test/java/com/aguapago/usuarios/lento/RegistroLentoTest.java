@@ -0,0 +1,144 @@
+package com.aguapago.usuarios.lento;
+
+import com.aguapago.usuarios.service.UsuarioService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Registro lento contra H2 (perfil "carga"), con umbrales en 0 para que
+ * todo quede registrado
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.registro-lento.archivo=target/registro-lento-test.log"
+})
+@ActiveProfiles("carga")
+@AutoConfigureMockMvc
+class RegistroLentoTest {
+
+    private static final String EMAIL = "ana.lento@aguapago.test";
+
+    @Autowired
+    private RegistroLento registroLento;
+
+    @Autowired
+    private RegistroLentoEndpoint endpoint;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @AfterEach
+    void restaurar() {
+        registroLento.configurar(true, Duration.ofMillis(200), Duration.ofMillis(500), 0.0);
+    }
+
+    @Test
+    void registraSqlYOperacionesSinLosValores() throws Exception {
+        endpoint.configurar(null, 0L, 0L, null);
+        usuarioService.registrarUsuario("Ana", "Lento", EMAIL, "secreto1", "ADMIN", null, null, null);
+
+        MvcResult inicio = mvc.perform(post("/graphql")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"query PorEmail { obtenerUsuarioPorEmail(email: \\\"" + EMAIL
+                    + "\\\") { nombre } }\"}"))
+            .andReturn();
+        mvc.perform(asyncDispatch(inicio))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.data.obtenerUsuarioPorEmail.nombre").value("Ana"));
+
+        registroLento.esperarEscritura();
+        List<String> lineas = Files.readAllLines(Path.of("target/registro-lento-test.log"));
+        assertTrue(lineas.stream().anyMatch(l -> l.contains("\"tipo\":\"SQL\"") && l.contains("insert into usuario")),
+            "Falta el INSERT del registro");
+        assertTrue(lineas.stream().anyMatch(l -> l.contains("\"operacion\":\"PorEmail\"")
+            && l.contains("obtenerUsuarioPorEmail(email:\\\"\\\")")), "Falta la operación GraphQL");
+        assertTrue(lineas.stream().noneMatch(l -> l.contains(EMAIL)), "El registro no debe llevar valores");
+
+        assertEquals(0L, endpoint.estado().get("descartados"));
+    }
+
+    @Test
+    void inactivoNoRegistraNada() {
+        long antes = (long) endpoint.configurar(false, 0L, 0L, null).get("lentos");
+        usuarioService.obtenerTodosLosUsuarios();
+        assertEquals(antes, endpoint.estado().get("lentos"));
+    }
+
+    @Test
+    void elEndpointNoSeSirveEnElPuertoDeLaAplicacion() throws Exception {
+        // /actuator vive en management.server.port: el puerto de /graphql no permite cambiar la configuración
+        mvc.perform(post("/actuator/registrolento")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"activo\": false}"))
+            .andExpect(status().isNotFound());
+        assertEquals(true, endpoint.estado().get("activo"));
+    }
+
+    // ====== COMPONENTES ======
+
+    @Test
+    void redactaLiteralesYConservaIdentificadores() {
+        String sql = "select u1_0.id from usuario u1_0\n  where u1_0.email = 'o''brien@x.bo' and u1_0.id > 42 limit ?";
+        assertEquals("select u1_0.id from usuario u1_0 where u1_0.email = ? and u1_0.id > ? limit ?",
+            Redaccion.sql(sql));
+        assertEquals(1, Redaccion.parametros(sql));
+        assertEquals("{obtenerUsuarioPorId(id:\"\"){nombre}}",
+            Redaccion.operacion(Redaccion.documento("query { obtenerUsuarioPorId(id: \"7\") { nombre } }"), null));
+    }
+
+    @Test
+    void elAnilloLlenoDescartaSinBloquear() {
+        AnilloRegistros<Integer> anillo = new AnilloRegistros<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(anillo.ofrecer(i));
+        }
+        assertFalse(anillo.ofrecer(4));
+        assertEquals(0, anillo.tomar());
+        assertTrue(anillo.ofrecer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, anillo.tomar());
+        }
+        assertNull(anillo.tomar());
+        assertTrue(anillo.vacio());
+    }
+
+    @Test
+    void elArchivoRotaYConservaLasCopiasPedidas(@TempDir Path directorio) throws Exception {
+        Path archivo = directorio.resolve("lento.log");
+        try (ArchivoRotativo rotativo = new ArchivoRotativo(archivo, 100, 2)) {
+            for (int i = 0; i < 18; i++) {
+                rotativo.escribir("linea de prueba numero " + i);
+            }
+        }
+        assertTrue(Files.exists(directorio.resolve("lento.log.1")));
+        assertTrue(Files.exists(directorio.resolve("lento.log.2")));
+        assertFalse(Files.exists(directorio.resolve("lento.log.3")));
+        assertTrue(Files.readString(directorio.resolve("lento.log.1")).contains("numero 15"));
+    }
+}
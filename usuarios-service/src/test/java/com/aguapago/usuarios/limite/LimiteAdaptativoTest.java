@@ -0,0 +1,129 @@
+package com.aguapago.usuarios.limite;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteAdaptativoTest {
+
+    @Test
+    void prioridadBajaSeRechazaAntesQueAlta() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(10, 2, 50, 2.0, Duration.ofSeconds(5));
+
+        // BAJA puede ocupar el 60% del límite
+        for (int i = 0; i < 6; i++) {
+            assertTrue(limite.intentarAdquirir(PrioridadConsulta.BAJA));
+        }
+        assertFalse(limite.intentarAdquirir(PrioridadConsulta.BAJA));
+
+        // ALTA sigue entrando hasta el límite completo
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limite.intentarAdquirir(PrioridadConsulta.ALTA));
+        }
+        assertFalse(limite.intentarAdquirir(PrioridadConsulta.ALTA));
+    }
+
+    @Test
+    void latenciaExcesivaReduceElLimite() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(20, 2, 50, 2.0, Duration.ofMillis(100));
+
+        for (int i = 0; i < 10; i++) {
+            limite.intentarAdquirir(PrioridadConsulta.ALTA);
+            limite.liberar(Duration.ofMillis(500).toNanos(), false);
+        }
+        assertTrue(limite.getLimite() < 10);
+        assertEquals(0, limite.getEnVuelo());
+    }
+
+    @Test
+    void clasificaPorElCampoRaizMasCostoso() {
+        assertEquals(PrioridadConsulta.ALTA, clasificar(
+            "mutation { login(input: {email: \"a\", password: \"b\"}) { id } }"));
+        assertEquals(PrioridadConsulta.BAJA, clasificar(
+            "{ obtenerUsuarioPorEmail(email: \"a\") { id } obtenerTodosLosClientes { id } }"));
+        assertEquals(PrioridadConsulta.NORMAL, clasificar(
+            "mutation { registrarUsuario(input: {}) { id } }"));
+        // Las búsquedas por varias claves traen cientos de filas
+        assertEquals(PrioridadConsulta.BAJA, clasificar(
+            "{ obtenerClientesPorCodigos(codigos: [\"A\", \"B\"]) { id } }"));
+        assertEquals(PrioridadConsulta.BAJA, clasificar(
+            "{ estadisticasUsuarios(usuarioEmail: \"a\") { totalUsuarios } }"));
+    }
+
+    @Test
+    void lasQueriesSinClasificarSeDeducenDelEsquema() {
+        // Un campo nuevo no entra con el cupo completo de ALTA
+        assertEquals(PrioridadConsulta.NORMAL, clasificar("{ detalleNuevo { id } }"));
+        assertEquals(PrioridadConsulta.BAJA, clasificar("{ listadoNuevo { id } }"));
+        assertEquals(PrioridadConsulta.ALTA, clasificar("{ __typename }"));
+    }
+
+    @Test
+    void laOperacionRechazadaNoSeEjecuta() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(10, 10, 10, 2.0, Duration.ofSeconds(5));
+        LimiteConcurrenciaInterceptor interceptor = new LimiteConcurrenciaInterceptor(limite, Duration.ofSeconds(3));
+        GraphQL graphQL = GraphQL.newGraphQL(ESQUEMA).instrumentation(interceptor).build();
+
+        // BAJA ya ocupa su 60% del límite
+        for (int i = 0; i < 6; i++) {
+            assertTrue(limite.intentarAdquirir(PrioridadConsulta.BAJA));
+        }
+        LimiteConcurrenciaInterceptor.Admision rechazada = interceptor.admision();
+        ExecutionResult resultado = graphQL.execute(ExecutionInput.newExecutionInput("{ listadoNuevo { id } }")
+            .graphQLContext(Map.of(LimiteConcurrenciaInterceptor.Admision.CLAVE, rechazada)));
+        assertTrue(rechazada.isRechazada());
+        assertEquals(LimiteConcurrenciaInterceptor.SOBRECARGA, resultado.getErrors().get(0).getErrorType());
+        assertEquals("BAJA", resultado.getErrors().get(0).getExtensions().get("prioridad"));
+
+        // NORMAL entra, ocupa su lugar hasta que se libera
+        LimiteConcurrenciaInterceptor.Admision admitida = interceptor.admision();
+        resultado = graphQL.execute(ExecutionInput.newExecutionInput("{ detalleNuevo { id } }")
+            .graphQLContext(Map.of(LimiteConcurrenciaInterceptor.Admision.CLAVE, admitida)));
+        assertTrue(resultado.getErrors().isEmpty());
+        assertFalse(admitida.isRechazada());
+        assertEquals(7, limite.getEnVuelo());
+        admitida.liberar(false);
+        admitida.liberar(false);
+        assertEquals(6, limite.getEnVuelo());
+    }
+
+    // ====== UTILIDADES ======
+
+    private static final GraphQLSchema ESQUEMA = UnExecutableSchemaGenerator.makeUnExecutableSchema(
+        new SchemaParser().parse("""
+            type Query {
+              obtenerUsuarioPorEmail(email: String): Fila
+              obtenerTodosLosClientes: [Fila]
+              obtenerClientesPorCodigos(codigos: [String]): [Fila]
+              estadisticasUsuarios(usuarioEmail: String): Estadisticas
+              detalleNuevo: Fila
+              listadoNuevo: [Fila!]!
+            }
+            type Mutation {
+              login(input: Credenciales): Fila
+              registrarUsuario(input: Credenciales): Fila
+            }
+            input Credenciales { email: String password: String }
+            type Fila { id: ID }
+            type Estadisticas { totalUsuarios: Int }
+            """));
+
+    private static PrioridadConsulta clasificar(String documento) {
+        OperationDefinition operacion = Parser.parse(documento)
+            .getDefinitionsOfType(OperationDefinition.class).get(0);
+        return LimiteConcurrenciaInterceptor.clasificar(operacion, ESQUEMA);
+    }
+}
@@ -0,0 +1,71 @@
+package com.aguapago.usuarios.outbox;
+
+import com.aguapago.usuarios.aprovisionamiento.ProcesadorAprovisionamiento;
+import com.aguapago.usuarios.entity.EventoCambio;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.service.UsuarioService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Outbox contra H2 (perfil "carga"): cada mutation deja su evento y el
+ * relay lo publica en el destino en memoria
+ */
+@SpringBootTest(properties = {"aguapago.outbox.intervalo=1h", "aguapago.aprovisionamiento.intervalo=1h"})
+@ActiveProfiles("carga")
+class OutboxTest {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private RelayOutbox relayOutbox;
+
+    @Autowired
+    private DestinoEventosMemoria destino;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesadorAprovisionamiento;
+
+    @Test
+    void registroYCambioDeEstadoSePublicanEnOrden() {
+        Usuario usuario = usuarioService.registrarUsuario("Ana", "Outbox", "ana.outbox@aguapago.test",
+            "secreto1", "CLIENTE", "Calle 1", null, null);
+        procesadorAprovisionamiento.procesarPendientes();
+        usuarioService.cambiarEstadoUsuario(usuario.getId(), false, null);
+
+        relayOutbox.publicarPendientes();
+
+        List<EventoCambio> eventos = destino.recientes().stream()
+            .filter(e -> e.getPayload().contains("ana.outbox@aguapago.test"))
+            .toList();
+        assertEquals(List.of("USUARIO:CREADO", "CLIENTE:CREADO", "USUARIO:ESTADO_CAMBIADO"),
+            eventos.stream().map(e -> e.getAgregado() + ":" + e.getTipo()).toList());
+        assertTrue(eventos.get(2).getPayload().contains("\"activo\":false"));
+        assertFalse(eventos.get(0).getPayload().contains("passwordHash"));
+
+        // Una segunda pasada no vuelve a publicar lo ya publicado
+        assertEquals(0, relayOutbox.publicarPendientes());
+    }
+
+    @Test
+    void registrarFueraDeTransaccionFalla() {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        assertThrows(IllegalTransactionStateException.class,
+            () -> outboxService.registrarCambioUsuario(OutboxService.ACTUALIZADO, usuario));
+    }
+}
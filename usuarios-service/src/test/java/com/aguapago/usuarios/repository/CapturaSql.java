@@ -0,0 +1,37 @@
+package com.aguapago.usuarios.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registra el SQL que Hibernate prepara mientras la captura está activa
+ *
+ * Se registra con hibernate.session_factory.statement_inspector. La captura
+ * es global (no por hilo) porque los resolvers GraphQL corren en el
+ * consultasExecutor; las pruebas que la usan no deben correr en paralelo.
+ */
+public class CapturaSql implements StatementInspector {
+
+    private static final List<String> SENTENCIAS = new CopyOnWriteArrayList<>();
+    private static volatile boolean activa;
+
+    static void iniciar() {
+        SENTENCIAS.clear();
+        activa = true;
+    }
+
+    static List<String> detener() {
+        activa = false;
+        return List.copyOf(SENTENCIAS);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (activa) {
+            SENTENCIAS.add(sql);
+        }
+        return sql;
+    }
+}
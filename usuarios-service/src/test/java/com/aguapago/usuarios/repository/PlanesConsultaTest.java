@@ -0,0 +1,345 @@
+package com.aguapago.usuarios.repository;
+
+import com.aguapago.usuarios.aprovisionamiento.ProcesadorAprovisionamiento;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.entity.TareaAprovisionamiento;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.reactivo.ClienteReactivoRepository;
+import com.aguapago.usuarios.service.UsuarioService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regresión de planes de consulta y cantidad de sentencias
+ *
+ * Cada método de repositorio y cada operación GraphQL se ejecuta capturando
+ * el SQL que genera Hibernate (CapturaSql). La prueba falla si:
+ * - se emiten más sentencias de las previstas (un N+1 aparece como una
+ *   sentencia extra por fila, y aquí hay varias filas de cada tabla), o
+ * - el plan (EXPLAIN) de alguna sentencia recorre una tabla completa, salvo
+ *   en los listados que devuelven la tabla entera.
+ *
+ * Corre sobre H2 con las migraciones de db/migration/h2. Apuntando el perfil
+ * "carga" a una base PostgreSQL 16 de pruebas, usa EXPLAIN (GENERIC_PLAN)
+ * con enable_seqscan desactivado y valida las migraciones de PostgreSQL.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.aguapago.usuarios.repository.CapturaSql",
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo-reconciliacion=1h"
+})
+@AutoConfigureGraphQlTester
+@ActiveProfiles("carga")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlanesConsultaTest {
+
+    private static final int CLIENTES = 6;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesador;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private EventoCambioRepository eventoCambioRepository;
+
+    @Autowired
+    private TareaAprovisionamientoRepository tareaRepository;
+
+    @Autowired
+    private ExecutionGraphQlServiceTester graphQlTester;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private boolean postgres;
+
+    private Usuario admin;
+    private Cliente cliente;
+
+    @BeforeAll
+    void sembrar() {
+        tx = new TransactionTemplate(transactionManager);
+        postgres = jdbc.execute((java.sql.Connection c) -> c.getMetaData().getDatabaseProductName())
+            .toLowerCase().contains("postgres");
+
+        admin = usuarioService.registrarUsuario("Ada", "Planes", "ada@planes.aguapago.test",
+            "secreto1", "ADMIN", null, null, null);
+        for (int i = 0; i < CLIENTES; i++) {
+            usuarioService.registrarUsuario("Cliente" + i, "Planes", "cliente" + i + "@planes.aguapago.test",
+                "secreto1", "CLIENTE", "Calle " + i, "7000000" + i, "CI-" + i);
+        }
+        procesador.procesarPendientes();
+        cliente = clienteRepository.findByUsuarioEmail("cliente0@planes.aguapago.test").orElseThrow();
+    }
+
+    // ====== REPOSITORIOS ======
+
+    @Test
+    void usuarioRepository() {
+        assertAll(
+            consulta("findById", 1, () -> usuarioRepository.findById(admin.getId())),
+            consulta("findByEmail", 1, () -> usuarioRepository.findByEmail(admin.getEmail())),
+            consulta("findByIdIn", 1, () -> usuarioRepository.findByIdIn(List.of(admin.getId(), 0L))),
+            listado("contarPorRolYEstado", 1, () -> usuarioRepository.contarPorRolYEstado()),
+            consulta("existsByEmail", 1, () -> usuarioRepository.existsByEmail(admin.getEmail())),
+            consulta("existsByEmailAndIdNot", 1, () -> usuarioRepository.existsByEmailAndIdNot(admin.getEmail(), 0L)),
+            consulta("findByRol", 1, () -> usuarioRepository.findByRol("CLIENTE")),
+            consulta("findByActivo(false)", 1, () -> usuarioRepository.findByActivo(false)),
+            consulta("findByRolAndActivo", 1, () -> usuarioRepository.findByRolAndActivo("CLIENTE", true)),
+            consulta("findByRolDesde", 1, () -> usuarioRepository.findByRolDesde("CLIENTE", 0L, PageRequest.of(0, 3))),
+            consulta("findIdsClientesSinPerfil", 1, () -> usuarioRepository.findIdsClientesSinPerfil(PageRequest.of(0, 50))),
+            consulta("findIdsPorRolConEstadoDistinto", 1,
+                () -> usuarioRepository.findIdsPorRolConEstadoDistinto("CLIENTE", false, 0L, PageRequest.of(0, 50))),
+            consulta("cambiarEstadoEnLote", 1, () -> enTransaccion(
+                () -> usuarioRepository.cambiarEstadoEnLote(List.of(admin.getId()), true, null, LocalDateTime.now()))),
+            consulta("findCambiosDesde", 1, () -> usuarioRepository.findCambiosDesde(
+                LocalDateTime.now().minusMinutes(1), 0L, LocalDateTime.now(), PageRequest.of(0, 3))),
+            consulta("findCambiosDesdeDeUsuario", 1, () -> usuarioRepository.findCambiosDesdeDeUsuario(admin.getId(),
+                LocalDateTime.now().minusMinutes(1), 0L, LocalDateTime.now(), PageRequest.of(0, 3))),
+            consulta("actualizarParcial", 1, () -> enTransaccion(
+                () -> usuarioRepository.actualizarParcial(admin.getId(), null, Map.of("nombre", "Ada")))),
+            listado("findAll", 1, () -> usuarioRepository.findAll())
+        );
+    }
+
+    @Test
+    void clienteRepository() {
+        assertAll(
+            consulta("findById", 1, () -> clienteRepository.findById(cliente.getId())),
+            consulta("findByCodigoCliente", 1, () -> clienteRepository.findByCodigoCliente(cliente.getCodigoCliente())),
+            consulta("findByCodigoClienteIn", 1,
+                () -> clienteRepository.findByCodigoClienteIn(List.of(cliente.getCodigoCliente(), "NO-EXISTE"))),
+            consulta("existsByCodigoCliente", 1, () -> clienteRepository.existsByCodigoCliente(cliente.getCodigoCliente())),
+            consulta("findByUsuarioId", 1, () -> clienteRepository.findByUsuarioId(cliente.getUsuario().getId())),
+            consulta("findByUsuarioEmail", 1, () -> clienteRepository.findByUsuarioEmail(cliente.getUsuario().getEmail())),
+            consulta("existsByUsuarioId", 1, () -> clienteRepository.existsByUsuarioId(cliente.getUsuario().getId())),
+            consulta("findDesde", 1, () -> clienteRepository.findDesde(0L, PageRequest.of(0, 3))),
+            consulta("findUsuarioIdsPorCodigos", 1,
+                () -> clienteRepository.findUsuarioIdsPorCodigos(List.of(cliente.getCodigoCliente(), "NO-EXISTE"))),
+            consulta("findCambiosDesde", 1, () -> clienteRepository.findCambiosDesde(
+                LocalDateTime.now().minusMinutes(1), 0L, LocalDateTime.now(), PageRequest.of(0, 3))),
+            consulta("findCambiosDesdeDeUsuario", 1, () -> clienteRepository.findCambiosDesdeDeUsuario(
+                cliente.getUsuario().getId(), LocalDateTime.now().minusMinutes(1), 0L, LocalDateTime.now(),
+                PageRequest.of(0, 3))),
+            consulta("contarAltasPorMesDesde", 1,
+                () -> clienteRepository.contarAltasPorMesDesde(LocalDateTime.now().minusMonths(1))),
+            consulta("findCambiadosDesde", 1, () -> clienteRepository.findCambiadosDesde(
+                LocalDateTime.now().minusMinutes(1), PageRequest.of(0, 3))),
+            consulta("findConUsuarioCambiadoDesde", 1, () -> clienteRepository.findConUsuarioCambiadoDesde(
+                LocalDateTime.now().minusMinutes(1), PageRequest.of(0, 3))),
+            consulta("marcarCambioDeEstado", 1, () -> enTransaccion(() -> clienteRepository.marcarCambioDeEstado(
+                List.of(cliente.getUsuario().getId()), false, null, LocalDateTime.now()))),
+            consulta("actualizarParcial", 1, () -> enTransaccion(
+                () -> clienteRepository.actualizarParcial(cliente.getId(), null, Map.of("telefono", "70000000")))),
+            listado("findAll", 1, () -> clienteRepository.findAll())
+        );
+    }
+
+    @Test
+    void eventoCambioRepository() {
+        List<Long> ids = List.of(1L, 2L);
+        assertAll(
+            consulta("findPendientes", 1, () -> enTransaccion(
+                () -> eventoCambioRepository.findPendientes(PageRequest.of(0, 10)))),
+            consulta("marcarPublicados", 1, () -> enTransaccion(
+                () -> eventoCambioRepository.marcarPublicados(ids, LocalDateTime.now()))),
+            consulta("borrarPublicadosAntesDe", 1, () -> enTransaccion(
+                () -> eventoCambioRepository.borrarPublicadosAntesDe(LocalDateTime.now().minusYears(1)))),
+            consulta("registrarCambiosDeEstado", 1, () -> enTransaccion(
+                () -> eventoCambioRepository.registrarCambiosDeEstado(List.of(0L), true, "true", null)))
+        );
+    }
+
+    @Test
+    void tareaAprovisionamientoRepository() {
+        assertAll(
+            consulta("findListas", 1, () -> enTransaccion(
+                () -> tareaRepository.findListas(LocalDateTime.now(), PageRequest.of(0, 10)))),
+            consulta("findByUsuarioId", 1, () -> tareaRepository.findByUsuarioId(cliente.getUsuario().getId())),
+            consulta("countByEstado", 1, () -> tareaRepository.countByEstado(TareaAprovisionamiento.FALLIDA))
+        );
+    }
+
+    /**
+     * SQL escrito a mano de los repositorios R2DBC (perfil "reactivo")
+     * Los métodos derivados generan las mismas condiciones que sus pares JPA.
+     */
+    @Test
+    void consultasReactivas() {
+        List<Executable> verificaciones = new ArrayList<>();
+        for (Method metodo : ClienteReactivoRepository.class.getDeclaredMethods()) {
+            Query query = metodo.getAnnotation(Query.class);
+            if (query == null) {
+                continue;
+            }
+            String sql = query.value().replaceAll(":\\w+", "?");
+            if (sql.contains(" WHERE ")) {
+                verificaciones.add(() -> assertSinRecorridos(metodo.getName(), List.of(sql)));
+            }
+        }
+        assertAll(verificaciones);
+    }
+
+    // ====== OPERACIONES GRAPHQL ======
+
+    @Test
+    void operacionesGraphql() {
+        String email = admin.getEmail();
+        assertAll(
+            // Validación de rol + listado completo
+            listado("obtenerTodosLosUsuarios", 2,
+                () -> graphql("{ obtenerTodosLosUsuarios(usuarioEmail: \"" + email + "\") { id email version } }")),
+            consulta("obtenerUsuarioPorId", 3,
+                () -> graphql("{ obtenerUsuarioPorId(id: " + admin.getId() + ", usuarioEmail: \"" + email + "\") { id } }")),
+            consulta("obtenerUsuarioPorEmail", 1,
+                () -> graphql("{ obtenerUsuarioPorEmail(email: \"" + email + "\") { id } }")),
+            consulta("obtenerUsuariosPorRol", 1,
+                () -> graphql("{ obtenerUsuariosPorRol(rol: \"CLIENTE\") { id } }")),
+            listado("obtenerTodosLosClientes", 1,
+                () -> graphql("{ obtenerTodosLosClientes { id codigoCliente usuario { id email } } }")),
+            consulta("obtenerClientePorId", 1,
+                () -> graphql("{ obtenerClientePorId(id: " + cliente.getId() + ") { id usuario { email } } }")),
+            consulta("obtenerClientePorCodigo", 1,
+                () -> graphql("{ obtenerClientePorCodigo(codigo: \"" + cliente.getCodigoCliente() + "\") { id usuario { email } } }")),
+            // Validación de rol + un SELECT ... IN con el usuario en el mismo JOIN (o ninguno, si están en el directorio)
+            consulta("obtenerClientesPorCodigos", 2,
+                () -> graphql("{ obtenerClientesPorCodigos(codigos: [\"" + cliente.getCodigoCliente()
+                    + "\", \"NO-EXISTE\"], usuarioEmail: \"" + email + "\") { id usuario { email } } }")),
+            // Validación de rol + un SELECT ... IN
+            consulta("obtenerUsuariosPorIds", 2,
+                () -> graphql("{ obtenerUsuariosPorIds(ids: [" + admin.getId() + ", 0], usuarioEmail: \"" + email + "\") { id email } }")),
+            consulta("obtenerClientePorUsuarioId", 1,
+                () -> graphql("{ obtenerClientePorUsuarioId(usuarioId: " + cliente.getUsuario().getId() + ") { id usuario { email } } }")),
+            // Validación de rol + tres agregados (o ninguno, si el resultado está vigente)
+            listado("estadisticasUsuarios", 4,
+                () -> graphql("{ estadisticasUsuarios(usuarioEmail: \"" + email + "\") { totalUsuarios "
+                    + "usuariosPorRol { rol activos } clientesNuevosPorMes { mes cantidad } } }")),
+            // UPDATE parcial, relectura y evento al outbox
+            consulta("actualizarUsuario", 3,
+                () -> graphql("mutation { actualizarUsuario(id: " + admin.getId() + ", input: { nombre: \"Ada\" }) { id version } }")),
+            // UPDATE parcial, relectura y evento al outbox
+            consulta("actualizarCliente", 3,
+                () -> graphql("mutation { actualizarCliente(id: " + cliente.getId() + ", input: { telefono: \"71111111\" }) { id version } }")),
+            // Una página: un SELECT por keyset en cada tabla
+            // Usuario que pide + un SELECT por tabla
+            consulta("obtenerCambiosDesde", 3,
+                () -> graphql("{ obtenerCambiosDesde(usuarioEmail: \"" + email + "\", first: 3) { cambios { tipo id eliminado usuario { email } "
+                    + "cliente { codigoCliente usuario { email } } } cursor hayMas marca } }")),
+            // Validación de rol y, por lote: IDs, INSERT ... SELECT al outbox, marca de sus clientes y UPDATE
+            consulta("cambiarEstadoUsuariosPorFiltro", 5,
+                () -> graphql("mutation { cambiarEstadoUsuariosPorFiltro(filtro: { codigosCliente: [\""
+                    + cliente.getCodigoCliente() + "\"] }, activo: true, usuarioEmail: \"" + email + "\") }"))
+        );
+    }
+
+    // ====== VERIFICACIÓN ======
+
+    /** Operación que debe resolverse por índices con a lo sumo maxSentencias sentencias */
+    private Executable consulta(String nombre, int maxSentencias, Runnable accion) {
+        return verificar(nombre, maxSentencias, false, accion);
+    }
+
+    /** Listado de una tabla completa: el recorrido es esperado, pero no el N+1 */
+    private Executable listado(String nombre, int maxSentencias, Runnable accion) {
+        return verificar(nombre, maxSentencias, true, accion);
+    }
+
+    private Executable verificar(String nombre, int maxSentencias, boolean recorridoPermitido, Runnable accion) {
+        return () -> {
+            CapturaSql.iniciar();
+            List<String> sentencias;
+            try {
+                accion.run();
+            } finally {
+                sentencias = CapturaSql.detener();
+            }
+
+            assertTrue(sentencias.size() <= maxSentencias, () -> nombre + ": " + sentencias.size()
+                + " sentencias (máximo " + maxSentencias + ")\n" + String.join("\n", sentencias));
+            if (!recorridoPermitido) {
+                assertSinRecorridos(nombre, sentencias);
+            }
+        };
+    }
+
+    private void assertSinRecorridos(String nombre, List<String> sentencias) {
+        List<String> recorridos = new ArrayList<>();
+        for (String sql : sentencias) {
+            String plan = plan(sql);
+            if (plan.contains(postgres ? "Seq Scan" : ".tableScan")) {
+                recorridos.add(sql + "\n" + plan);
+            }
+        }
+        assertTrue(recorridos.isEmpty(), () -> nombre + ": recorrido completo de tabla\n"
+            + String.join("\n", recorridos));
+    }
+
+    private String plan(String sql) {
+        return jdbc.execute((java.sql.Connection conexion) -> {
+            if (postgres) {
+                // Con tablas de prueba pequeñas el recorrido siempre es más barato
+                conexion.createStatement().execute("SET enable_seqscan = off");
+            }
+            String explain = postgres ? "EXPLAIN (GENERIC_PLAN) " : "EXPLAIN ";
+            StringBuilder plan = new StringBuilder();
+            try (PreparedStatement ps = conexion.prepareStatement(explain + sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            } finally {
+                if (postgres) {
+                    conexion.createStatement().execute("RESET enable_seqscan");
+                }
+            }
+            return plan.toString();
+        });
+    }
+
+    private void enTransaccion(Runnable accion) {
+        tx.executeWithoutResult(estado -> {
+            accion.run();
+            estado.setRollbackOnly();
+        });
+    }
+
+    private void graphql(String documento) {
+        graphQlTester.document(documento).execute().errors().verify();
+    }
+}
@@ -0,0 +1,120 @@
+package com.aguapago.usuarios.security;
+
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.service.AuthService;
+import com.aguapago.usuarios.service.UsuarioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LimitadorIntentosLoginTest {
+
+    private final AtomicLong ahora = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private LimitadorIntentosLogin limitador(int umbralEmail, int umbralIp) {
+        return new LimitadorIntentosLogin(1024, umbralEmail, umbralIp, Duration.ofSeconds(1),
+            Duration.ofSeconds(8), Duration.ofMinutes(15), registry, ahora::get);
+    }
+
+    @Test
+    void backoffExponencialPorEmailHastaElMaximo() {
+        LimitadorIntentosLogin limitador = limitador(3, 100);
+
+        for (int i = 0; i < 2; i++) {
+            limitador.registrarFallo("Ana@Test.com", "10.0.0.1");
+        }
+        assertEquals(0, limitador.verificar("ana@test.com", "10.0.0.1"));
+
+        // Tercer fallo: 1s de espera; cada fallo siguiente la duplica, hasta 8s
+        long[] esperadas = {1000, 2000, 4000, 8000, 8000};
+        for (long esperada : esperadas) {
+            limitador.registrarFallo("ana@test.com", "10.0.0.1");
+            assertEquals(esperada, limitador.verificar(" ANA@test.com", "10.0.0.2"));
+            ahora.addAndGet(esperada);
+            assertEquals(0, limitador.verificar("ana@test.com", "10.0.0.2"));
+        }
+
+        // Otro email no se ve afectado; un login correcto limpia el contador
+        assertEquals(0, limitador.verificar("otro@test.com", "10.0.0.1"));
+        limitador.registrarFallo("ana@test.com", null);
+        limitador.registrarExito("ana@test.com");
+        assertEquals(0, limitador.verificar("ana@test.com", null));
+
+        assertEquals(5, registry.get("aguapago.login.rechazados").tag("motivo", "email").counter().count());
+    }
+
+    @Test
+    void laIpSeFrenaAunqueCambieElEmail() {
+        LimitadorIntentosLogin limitador = limitador(100, 4);
+
+        for (int i = 0; i < 4; i++) {
+            limitador.registrarFallo("usuario" + i + "@test.com", "10.0.0.9");
+        }
+        assertTrue(limitador.verificar("nuevo@test.com", "10.0.0.9") > 0);
+        assertEquals(0, limitador.verificar("nuevo@test.com", "10.0.0.10"));
+
+        // Pasada la ventana, los contadores vencen
+        ahora.addAndGet(Duration.ofMinutes(16).toMillis());
+        assertEquals(0, limitador.verificar("nuevo@test.com", "10.0.0.9"));
+        assertEquals(1, registry.get("aguapago.login.rechazados").tag("motivo", "ip").counter().count());
+    }
+
+    @Test
+    void tablaLlenaNoPierdeUnBloqueoActivo() {
+        // 16 entradas y miles de emails: las colisiones no liberan al bloqueado
+        LimitadorIntentosLogin limitador = new LimitadorIntentosLogin(16, 2, 1000, Duration.ofSeconds(30),
+            Duration.ofMinutes(1), Duration.ofMinutes(15), registry, ahora::get);
+        limitador.registrarFallo("victima@test.com", null);
+        limitador.registrarFallo("victima@test.com", null);
+
+        for (int i = 0; i < 5000; i++) {
+            limitador.registrarFallo("relleno" + i + "@test.com", null);
+        }
+        assertTrue(limitador.verificar("victima@test.com", null) > 0);
+    }
+
+    @Test
+    void loginFrenadoNoConsultaLaBaseNiCalculaBcrypt() {
+        UsuarioService usuarioService = mock(UsuarioService.class);
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        Usuario usuario = new Usuario();
+        usuario.setEmail("ana@test.com");
+        usuario.setPasswordHash("hash");
+        usuario.setActivo(true);
+        when(usuarioService.obtenerUsuarioPorEmail("ana@test.com")).thenReturn(Optional.of(usuario));
+        when(passwordEncoder.matches(anyString(), any())).thenReturn(false);
+
+        AuthService authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "usuarioService", usuarioService);
+        ReflectionTestUtils.setField(authService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(authService, "limitadorIntentosLogin", limitador(3, 100));
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IllegalArgumentException.class, () -> authService.login("ana@test.com", "mala", "10.0.0.1"));
+        }
+        verify(usuarioService, times(3)).obtenerUsuarioPorEmail("ana@test.com");
+        verify(passwordEncoder, times(3)).matches(anyString(), any());
+
+        IllegalArgumentException rechazo = assertThrows(IllegalArgumentException.class,
+            () -> authService.login("ana@test.com", "buena", "10.0.0.2"));
+        assertTrue(rechazo.getMessage().startsWith("Demasiados intentos fallidos"));
+        verify(passwordEncoder, never()).matches("buena", "hash");
+    }
+}
@@ -0,0 +1,96 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.controller.ClienteResolver;
+import com.aguapago.usuarios.controller.UsuarioResolver;
+import com.aguapago.usuarios.dto.ClienteDTO;
+import com.aguapago.usuarios.dto.UsuarioDTO;
+import com.aguapago.usuarios.entity.Usuario;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Búsquedas por varias claves contra H2 (perfil "carga"), con tramos de 2
+ * claves y sin directorio para que todas las claves vayan a la base
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo-reconciliacion=1h",
+    "aguapago.directorio.habilitado=false",
+    "aguapago.busqueda-multiple.tamano-tramo=2",
+    "aguapago.busqueda-multiple.maximo=5"
+})
+@ActiveProfiles("carga")
+class BusquedaMultipleTest {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private ClienteResolver clienteResolver;
+
+    @Autowired
+    private UsuarioResolver usuarioResolver;
+
+    @Test
+    void devuelveUnoPorClaveEnElOrdenPedido() {
+        List<Usuario> usuarios = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Usuario usuario = usuarioService.registrarUsuario("Hoja", "Ruta" + i, "hoja" + i + ".ruta@aguapago.test",
+                "secreto1", "CLIENTE", null, null, null);
+            clienteService.crearCliente(usuario.getId(), "RUTA-00" + i, "Calle " + i, null, null);
+            usuarios.add(usuario);
+        }
+
+        usuarioService.registrarUsuario("Ana", "Ruta", "ana.ruta@aguapago.test", "secreto1", "ADMIN", null, null, null);
+        List<ClienteDTO> clientes = clienteResolver.obtenerClientesPorCodigos(
+            List.of("RUTA-003", "NO-EXISTE", "RUTA-001", "RUTA-003", "RUTA-002"), "ana.ruta@aguapago.test").join();
+        assertEquals(5, clientes.size());
+        assertEquals("Calle 3", clientes.get(0).getDireccion());
+        assertNull(clientes.get(1));
+        assertEquals("RUTA-001", clientes.get(2).getCodigoCliente());
+        assertEquals("hoja1.ruta@aguapago.test", clientes.get(2).getUsuario().getEmail());
+        assertEquals("RUTA-003", clientes.get(3).getCodigoCliente());
+        assertEquals("RUTA-002", clientes.get(4).getCodigoCliente());
+
+        List<UsuarioDTO> leidos = usuarioResolver.obtenerUsuariosPorIds(
+            List.of(usuarios.get(2).getId(), -1L, usuarios.get(0).getId()), "ana.ruta@aguapago.test").join();
+        assertEquals("Ruta3", leidos.get(0).getApellido());
+        assertNull(leidos.get(1));
+        assertEquals("Ruta1", leidos.get(2).getApellido());
+    }
+
+    @Test
+    void soloAdminBuscaPorVariasClaves() {
+        Usuario cliente = usuarioService.registrarUsuario("Hoja", "Ajena", "hoja.ajena@aguapago.test",
+            "secreto1", "CLIENTE", null, null, null);
+        clienteService.crearCliente(cliente.getId(), "AJENA-001", "Calle Ajena", null, null);
+        assertTrue(clienteResolver.obtenerClientesPorCodigos(List.of("AJENA-001"), "hoja.ajena@aguapago.test")
+            .join().isEmpty());
+        assertTrue(usuarioResolver.obtenerUsuariosPorIds(List.of(cliente.getId()), "hoja.ajena@aguapago.test")
+            .join().isEmpty());
+        assertTrue(usuarioResolver.obtenerUsuariosPorIds(List.of(cliente.getId()), "nadie@aguapago.test")
+            .join().isEmpty());
+    }
+
+    @Test
+    void rechazaMasClavesQueElMaximo() {
+        List<String> codigos = List.of("A", "B", "C", "D", "E", "F");
+        assertThrows(IllegalArgumentException.class,
+            () -> clienteResolver.obtenerClientesPorCodigos(codigos, "ana.ruta@aguapago.test"));
+        assertThrows(IllegalArgumentException.class, () -> clienteService.obtenerClientesPorCodigos(codigos));
+    }
+}
@@ -0,0 +1,122 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.aprovisionamiento.ProcesadorAprovisionamiento;
+import com.aguapago.usuarios.controller.UsuarioResolver;
+import com.aguapago.usuarios.dto.FiltroUsuariosInput;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.outbox.OutboxService;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.EventoCambioRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cambios de estado masivos contra H2 (perfil "carga"), con lotes de 2
+ * filas para recorrer varios lotes
+ */
+@SpringBootTest(properties = {
+    "aguapago.masivo.tamano-lote=2",
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h"
+})
+@ActiveProfiles("carga")
+class CambioEstadoMasivoTest {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesadorAprovisionamiento;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private EventoCambioRepository eventoCambioRepository;
+
+    @Autowired
+    private UsuarioResolver usuarioResolver;
+
+    @Test
+    void desactivaPorIdsEnLotesYEsIdempotente() {
+        List<Long> ids = registrar("ids", 5, "ADMIN");
+        long eventosAntes = contarEventosMasivos();
+
+        assertEquals(5, usuarioService.cambiarEstadoUsuarios(ids, false));
+        ids.forEach(id -> assertFalse(usuarioRepository.findById(id).orElseThrow().getActivo()));
+        assertEquals(eventosAntes + 5, contarEventosMasivos());
+        assertTrue(eventoCambioRepository.findAll().stream()
+            .anyMatch(e -> e.getPayload().equals("{\"id\":" + ids.get(0) + ",\"activo\":false}")));
+
+        // Repetir no cambia nada ni genera eventos
+        assertEquals(0, usuarioService.cambiarEstadoUsuarios(ids, false));
+        assertEquals(eventosAntes + 5, contarEventosMasivos());
+    }
+
+    @Test
+    void desactivaPorCodigosDeCliente() {
+        List<Long> ids = registrar("codigos", 3, "CLIENTE");
+        procesadorAprovisionamiento.procesarPendientes();
+        List<String> codigos = ids.stream()
+            .map(id -> clienteRepository.findByUsuarioId(id).orElseThrow().getCodigoCliente())
+            .toList();
+
+        // El rol también filtra: ningún cliente es ADMIN
+        assertEquals(0, usuarioService.cambiarEstadoUsuariosPorFiltro("ADMIN", codigos, false));
+        assertEquals(3, usuarioService.cambiarEstadoUsuariosPorFiltro(null, codigos, false));
+        assertEquals(3, usuarioService.cambiarEstadoUsuariosPorFiltro("CLIENTE", codigos, true));
+    }
+
+    @Test
+    void filtroVacioSeRechaza() {
+        assertThrows(IllegalArgumentException.class,
+            () -> usuarioService.cambiarEstadoUsuariosPorFiltro(null, List.of(), false));
+    }
+
+    @Test
+    void soloAdminCambiaEstadosMasivamente() {
+        List<Long> ids = registrar("permiso", 2, "CLIENTE");
+        FiltroUsuariosInput filtro = new FiltroUsuariosInput();
+        filtro.setRol("CLIENTE");
+
+        // Un cliente (o alguien sin cuenta) no puede desactivar a nadie
+        assertThrows(IllegalArgumentException.class,
+            () -> usuarioResolver.cambiarEstadoUsuarios(ids, false, "permiso0@masivo.aguapago.test"));
+        assertThrows(IllegalArgumentException.class,
+            () -> usuarioResolver.cambiarEstadoUsuariosPorFiltro(filtro, false, "nadie@masivo.aguapago.test"));
+        ids.forEach(id -> assertTrue(usuarioRepository.findById(id).orElseThrow().getActivo()));
+
+        registrar("permiso-admin", 1, "ADMIN");
+        assertEquals(2, usuarioResolver.cambiarEstadoUsuarios(ids, false, "permiso-admin0@masivo.aguapago.test"));
+    }
+
+    private List<Long> registrar(String prefijo, int cantidad, String rol) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Usuario usuario = usuarioService.registrarUsuario("Masivo", "Prueba",
+                prefijo + i + "@masivo.aguapago.test", "secreto1", rol, null, null, null);
+            ids.add(usuario.getId());
+        }
+        return ids;
+    }
+
+    private long contarEventosMasivos() {
+        return eventoCambioRepository.findAll().stream()
+            .filter(e -> OutboxService.ESTADO_CAMBIADO_MASIVO.equals(e.getTipo()))
+            .count();
+    }
+}
@@ -0,0 +1,102 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.controller.UsuarioResolver;
+import com.aguapago.usuarios.dto.ConteoMesDTO;
+import com.aguapago.usuarios.dto.ConteoRolDTO;
+import com.aguapago.usuarios.dto.EstadisticasUsuariosDTO;
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Estadísticas del panel contra H2 (perfil "carga"), con una vigencia que
+ * no vence durante la prueba
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo-reconciliacion=1h",
+    "aguapago.estadisticas.vigencia=1h"
+})
+@ActiveProfiles("carga")
+class EstadisticasTest {
+
+    private static final String ADMIN = "ada.panel@aguapago.test";
+
+    @Autowired
+    private UsuarioResolver usuarioResolver;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private EstadisticasService estadisticasService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Test
+    void losTotalesCoincidenConLasFilasYSeReutilizanDuranteLaVigencia() {
+        usuarioService.registrarUsuario("Ada", "Panel", ADMIN, "secreto1", "ADMIN", null, null, null);
+        for (int i = 1; i <= 3; i++) {
+            Usuario usuario = usuarioService.registrarUsuario("Cli", "Panel" + i, "cli" + i + ".panel@aguapago.test",
+                "secreto1", "CLIENTE", null, null, null);
+            clienteService.crearCliente(usuario.getId(), "PANEL-00" + i, null, null, null);
+            if (i == 3) {
+                usuarioService.cambiarEstadoUsuario(usuario.getId(), false, null);
+            }
+        }
+
+        EstadisticasUsuariosDTO estadisticas = usuarioResolver.estadisticasUsuarios(ADMIN, 3).join();
+
+        List<Usuario> usuarios = usuarioRepository.findAll();
+        assertEquals(usuarios.size(), estadisticas.getTotalUsuarios());
+        assertEquals(usuarios.stream().filter(Usuario::getActivo).count(), estadisticas.getUsuariosActivos());
+        assertEquals(usuarios.stream().filter(u -> !u.getActivo()).count(), estadisticas.getUsuariosInactivos());
+        ConteoRolDTO clientes = estadisticas.getUsuariosPorRol().stream()
+            .filter(c -> c.getRol().equals("CLIENTE")).findFirst().orElseThrow();
+        assertEquals(usuarios.stream().filter(u -> u.getRol().equals("CLIENTE")).count(), clientes.getTotal());
+        assertEquals(clientes.getTotal(), clientes.getActivos() + clientes.getInactivos());
+
+        // Todos los clientes de la base se crearon en este mes
+        assertEquals(clienteRepository.count(), estadisticas.getTotalClientes());
+        List<ConteoMesDTO> porMes = estadisticas.getClientesNuevosPorMes();
+        assertEquals(3, porMes.size());
+        assertEquals(YearMonth.now().minusMonths(2).toString(), porMes.get(0).getMes());
+        assertEquals(0L, porMes.get(0).getCantidad());
+        assertEquals(YearMonth.now().toString(), porMes.get(2).getMes());
+        assertEquals(estadisticas.getTotalClientes(), porMes.get(2).getCantidad());
+
+        // Dentro de la vigencia no se recalcula; con otros meses, sí
+        usuarioService.registrarUsuario("Otro", "Panel", "otro.panel@aguapago.test", "secreto1", "ADMIN", null, null, null);
+        EstadisticasUsuariosDTO guardadas = usuarioResolver.estadisticasUsuarios(ADMIN, 3).join();
+        assertEquals(estadisticas.getCalculadoEn(), guardadas.getCalculadoEn());
+        assertEquals(estadisticas.getTotalUsuarios(), guardadas.getTotalUsuarios());
+        assertEquals(estadisticas.getTotalUsuarios() + 1, usuarioResolver.estadisticasUsuarios(ADMIN, 1).join().getTotalUsuarios());
+    }
+
+    @Test
+    void soloAdminYMesesEnRango() {
+        assertNull(usuarioResolver.estadisticasUsuarios("no.existe@aguapago.test", 12).join());
+        assertThrows(IllegalArgumentException.class, () -> estadisticasService.obtenerEstadisticas(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> estadisticasService.obtenerEstadisticas(EstadisticasService.MAXIMO_MESES + 1));
+    }
+}
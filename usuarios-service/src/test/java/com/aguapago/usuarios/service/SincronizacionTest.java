@@ -0,0 +1,144 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.aprovisionamiento.ProcesadorAprovisionamiento;
+import com.aguapago.usuarios.controller.SincronizacionResolver;
+import com.aguapago.usuarios.dto.CambioSincronizacionDTO;
+import com.aguapago.usuarios.dto.PaginaCambiosDTO;
+import com.aguapago.usuarios.entity.Usuario;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sincronización incremental contra H2 (perfil "carga"), sin margen para
+ * ver los cambios en cuanto se confirman
+ */
+@SpringBootTest(properties = {
+    "aguapago.sincronizacion.margen=0s",
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h"
+})
+@ActiveProfiles("carga")
+class SincronizacionTest {
+
+    @Autowired
+    private SincronizacionService sincronizacionService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesadorAprovisionamiento;
+
+    @Autowired
+    private SincronizacionResolver sincronizacionResolver;
+
+    @Test
+    void soloDevuelveLoQueCambioDesdeLaMarca() {
+        List<Usuario> usuarios = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            usuarios.add(usuarioService.registrarUsuario("Sync" + i, "Movil", "sync" + i + "@aguapago.test",
+                "secreto1", "CLIENTE", "Calle " + i, null, null));
+        }
+        procesadorAprovisionamiento.procesarPendientes();
+
+        // Sincronización completa en páginas de 3: sin repetidos ni huecos
+        List<CambioSincronizacionDTO> completa = new ArrayList<>();
+        String marca = sincronizar(null, 3, completa);
+        List<String> claves = completa.stream().map(c -> c.getTipo() + ":" + c.getId()).toList();
+        assertEquals(claves.size(), claves.stream().distinct().count());
+        for (Usuario usuario : usuarios) {
+            assertTrue(claves.contains("USUARIO:" + usuario.getId()));
+        }
+        assertEquals(10, completa.stream().filter(c -> c.getUsuario() != null
+            ? c.getUsuario().getEmail().startsWith("sync")
+            : c.getCliente() != null && c.getCliente().getUsuario().getEmail().startsWith("sync")).count());
+
+        // Sin escrituras, la siguiente sincronización viene vacía
+        List<CambioSincronizacionDTO> sinCambios = new ArrayList<>();
+        marca = sincronizar(marca, 3, sinCambios);
+        assertTrue(sinCambios.isEmpty());
+
+        // Una actualización y una desactivación: solo esos registros
+        usuarioService.actualizarUsuario(usuarios.get(1).getId(), "Sync1b", null, null, null);
+        usuarioService.cambiarEstadoUsuarios(List.of(usuarios.get(2).getId()), false);
+
+        List<CambioSincronizacionDTO> cambios = new ArrayList<>();
+        sincronizar(marca, 3, cambios);
+        assertEquals(3, cambios.size());
+
+        CambioSincronizacionDTO actualizado = cambios.get(0);
+        assertEquals("USUARIO", actualizado.getTipo());
+        assertEquals("Sync1b", actualizado.getUsuario().getNombre());
+        assertFalse(actualizado.getEliminado());
+
+        // Lápidas del usuario desactivado y de su cliente, sin datos
+        List<CambioSincronizacionDTO> lapidas = cambios.subList(1, 3);
+        assertTrue(lapidas.stream().allMatch(c -> c.getEliminado() && c.getUsuario() == null && c.getCliente() == null));
+        assertTrue(lapidas.stream().anyMatch(c -> c.getTipo().equals("USUARIO") && c.getId().equals(usuarios.get(2).getId())));
+        assertTrue(lapidas.stream().anyMatch(c -> c.getTipo().equals("CLIENTE")));
+    }
+
+    @Test
+    void unClienteSoloSincronizaSusRegistros() {
+        Usuario propio = usuarioService.registrarUsuario("Propio", "Movil", "propio.sync@aguapago.test",
+            "secreto1", "CLIENTE", "Calle P", null, null);
+        usuarioService.registrarUsuario("Ajeno", "Movil", "ajeno.sync@aguapago.test",
+            "secreto1", "CLIENTE", "Calle A", null, null);
+        usuarioService.registrarUsuario("Admin", "Movil", "admin.sync@aguapago.test",
+            "secreto1", "ADMIN", null, null, null);
+        procesadorAprovisionamiento.procesarPendientes();
+
+        List<CambioSincronizacionDTO> propios = sincronizacionResolver
+            .obtenerCambiosDesde("propio.sync@aguapago.test", null, 500, null).join().getCambios();
+        assertEquals(2, propios.size());
+        assertTrue(propios.stream().allMatch(c -> c.getUsuario() != null
+            ? c.getUsuario().getId().equals(propio.getId())
+            : c.getCliente().getUsuario().getId().equals(propio.getId())));
+
+        // ADMIN recibe también los registros de los demás
+        List<CambioSincronizacionDTO> todos = sincronizacionResolver
+            .obtenerCambiosDesde("admin.sync@aguapago.test", null, 500, null).join().getCambios();
+        assertTrue(todos.stream().anyMatch(c -> c.getUsuario() != null
+            && c.getUsuario().getEmail().equals("ajeno.sync@aguapago.test")));
+
+        // Sin identidad no hay cambios
+        Throwable error = assertThrows(CompletionException.class, () -> sincronizacionResolver
+            .obtenerCambiosDesde("nadie.sync@aguapago.test", null, 10, null).join());
+        assertTrue(error.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void rechazaCursoresYTamanosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> sincronizacionService.obtenerCambiosDesde(null, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> sincronizacionService.obtenerCambiosDesde(null, 501, null));
+        assertThrows(IllegalArgumentException.class, () -> sincronizacionService.obtenerCambiosDesde(null, 10, "xyz"));
+        assertThrows(IllegalArgumentException.class, () -> sincronizacionService.obtenerCambiosDesde("xyz", 10, null));
+    }
+
+    /**
+     * Pide páginas hasta que no haya más
+     * @return la marca para la próxima sincronización
+     */
+    private String sincronizar(String desde, int tamano, List<CambioSincronizacionDTO> acumulado) {
+        String cursor = null;
+        PaginaCambiosDTO pagina;
+        do {
+            pagina = sincronizacionService.obtenerCambiosDesde(desde, tamano, cursor);
+            assertTrue(pagina.getCambios().size() <= tamano);
+            acumulado.addAll(pagina.getCambios());
+            cursor = pagina.getCursor();
+        } while (pagina.getHayMas());
+        return pagina.getMarca();
+    }
+}
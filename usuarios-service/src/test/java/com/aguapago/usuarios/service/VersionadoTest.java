@@ -0,0 +1,64 @@
+package com.aguapago.usuarios.service;
+
+import com.aguapago.usuarios.entity.Usuario;
+import com.aguapago.usuarios.exception.ConflictoVersionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Actualizaciones parciales con versión contra H2 (perfil "carga")
+ */
+@SpringBootTest(properties = {"aguapago.outbox.intervalo=1h", "aguapago.aprovisionamiento.intervalo=1h"})
+@AutoConfigureGraphQlTester
+@ActiveProfiles("carga")
+class VersionadoTest {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ExecutionGraphQlServiceTester graphQlTester;
+
+    @Test
+    void actualizacionConVersionViejaFallaPorConflicto() {
+        Usuario usuario = usuarioService.registrarUsuario("Eva", "Version", "eva.version@aguapago.test",
+            "secreto1", "ADMIN", null, null, null);
+        Long leida = usuario.getVersion();
+
+        Usuario actualizado = usuarioService.actualizarUsuario(usuario.getId(), "Eva María", null, null, leida);
+        assertEquals(leida + 1, actualizado.getVersion());
+        assertEquals("Version", actualizado.getApellido());
+
+        // Un segundo escritor con la versión original pierde
+        ConflictoVersionException conflicto = assertThrows(ConflictoVersionException.class,
+            () -> usuarioService.cambiarEstadoUsuario(usuario.getId(), false, leida));
+        assertEquals(leida + 1, conflicto.getVersionActual());
+
+        // Sin versión, la actualización se aplica
+        assertEquals(false, usuarioService.cambiarEstadoUsuario(usuario.getId(), false, null).getActivo());
+    }
+
+    @Test
+    void conflictoLlegaComoErrorGraphqlReintentable() {
+        Usuario usuario = usuarioService.registrarUsuario("Leo", "Version", "leo.version@aguapago.test",
+            "secreto1", "ADMIN", null, null, null);
+
+        graphQlTester.document("mutation($id: ID!, $v: Int) { cambiarEstadoUsuario(id: $id, activo: false, version: $v) { id } }")
+            .variable("id", usuario.getId())
+            .variable("v", usuario.getVersion() + 5)
+            .execute()
+            .errors()
+            .satisfy(errores -> {
+                assertEquals(1, errores.size());
+                assertEquals("CONFLICTO_VERSION", errores.get(0).getErrorType().toString());
+                assertEquals(true, errores.get(0).getExtensions().get("reintentable"));
+            });
+    }
+}
@@ -0,0 +1,122 @@
+package com.aguapago.usuarios.tenant;
+
+import com.aguapago.usuarios.aprovisionamiento.ProcesadorAprovisionamiento;
+import com.aguapago.usuarios.entity.Cliente;
+import com.aguapago.usuarios.entity.EventoCambio;
+import com.aguapago.usuarios.outbox.DestinoEventosMemoria;
+import com.aguapago.usuarios.outbox.RelayOutbox;
+import com.aguapago.usuarios.repository.ClienteRepository;
+import com.aguapago.usuarios.service.UsuarioService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Dos cooperativas contra H2 (perfil "carga"): la principal y "coop-a",
+ * cada una con su propia base en memoria
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "aguapago.tenants.ids=coop-a",
+    "aguapago.tenants.coop-a.url=jdbc:h2:mem:aguapago_coop_a;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+    "aguapago.tenants.coop-a.pool-size=3"
+})
+@ActiveProfiles("carga")
+@AutoConfigureMockMvc
+class MultiTenantTest {
+
+    private static final String CONSULTA_POR_EMAIL =
+        "{\"query\":\"{ obtenerUsuarioPorEmail(email: \\\"%s\\\") { email nombre } }\"}";
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProcesadorAprovisionamiento procesadorAprovisionamiento;
+
+    @Autowired
+    private RelayOutbox relayOutbox;
+
+    @Autowired
+    private DestinoEventosMemoria destino;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void cadaTenantVeSoloSusDatosYSusEventos() {
+        // El mismo email puede existir en las dos cooperativas
+        TenantContext.ejecutarEn(TenantContext.PRINCIPAL, () -> usuarioService.registrarUsuario(
+            "Ana", "Principal", "ana.tenant@aguapago.test", "secreto1", "CLIENTE", "Calle 1", null, null));
+        TenantContext.ejecutarEn("coop-a", () -> usuarioService.registrarUsuario(
+            "Ana", "CoopA", "ana.tenant@aguapago.test", "secreto1", "CLIENTE", "Calle 2", null, null));
+
+        assertEquals(2, procesadorAprovisionamiento.procesarPendientes());
+        // USUARIO:CREADO y CLIENTE:CREADO de cada tenant
+        assertEquals(4, relayOutbox.publicarPendientes());
+
+        Cliente enCoopA = TenantContext.ejecutarEn("coop-a",
+            () -> clienteRepository.findByUsuarioEmail("ana.tenant@aguapago.test").orElseThrow());
+        Cliente enPrincipal = TenantContext.ejecutarEn(TenantContext.PRINCIPAL,
+            () -> clienteRepository.findByUsuarioEmail("ana.tenant@aguapago.test").orElseThrow());
+        assertEquals("CoopA", enCoopA.getUsuario().getApellido());
+        assertEquals("Principal", enPrincipal.getUsuario().getApellido());
+
+        List<EventoCambio> eventosCoopA = TenantContext.ejecutarEn("coop-a", destino::recientes);
+        assertEquals(2, eventosCoopA.size());
+        assertTrue(eventosCoopA.stream().allMatch(e -> e.getPayload().contains("CoopA")
+            || e.getAgregado().equals("CLIENTE")));
+        assertTrue(destino.recientes().stream().noneMatch(e -> e.getPayload().contains("CoopA")));
+    }
+
+    @Test
+    void laCabeceraSeleccionaElTenant() throws Exception {
+        TenantContext.ejecutarEn("coop-a", () -> usuarioService.registrarUsuario(
+            "Beto", "CoopA", "beto.tenant@aguapago.test", "secreto1", "ADMIN", null, null, null));
+
+        graphql(consulta("beto.tenant@aguapago.test").header(TenantFilter.CABECERA, "coop-a"))
+            .andExpect(jsonPath("$.data.obtenerUsuarioPorEmail.nombre").value("Beto"));
+        graphql(consulta("beto.tenant@aguapago.test"))
+            .andExpect(jsonPath("$.data.obtenerUsuarioPorEmail").doesNotExist());
+
+        mvc.perform(consulta("beto.tenant@aguapago.test").header(TenantFilter.CABECERA, "coop-x"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.errors[0].extensions.classification").value("TENANT_DESCONOCIDO"));
+    }
+
+    private MockHttpServletRequestBuilder consulta(String email) {
+        return post("/graphql")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(CONSULTA_POR_EMAIL.formatted(email));
+    }
+
+    /** Ejecuta la petición esperando la respuesta asíncrona de GraphQL */
+    private ResultActions graphql(MockHttpServletRequestBuilder peticion) throws Exception {
+        ResultActions inicio = mvc.perform(peticion);
+        MvcResult resultado = inicio.andReturn();
+        ResultActions respuesta = resultado.getRequest().isAsyncStarted()
+            ? mvc.perform(asyncDispatch(resultado))
+            : inicio;
+        return respuesta.andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,148 @@
+package com.aguapago.usuarios.traza;
+
+import com.aguapago.trazas.DestinoTrazasMemoria;
+import com.aguapago.trazas.MuestreoCola;
+import com.aguapago.usuarios.service.UsuarioService;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Trazas contra H2 (perfil "carga") con destino en memoria, sin muestreo de
+ * cabeza propio (probabilidad 0) y con el umbral de cola fuera de alcance
+ */
+@SpringBootTest(properties = {
+    "aguapago.outbox.intervalo=1h",
+    "aguapago.aprovisionamiento.intervalo=1h",
+    "management.tracing.sampling.probability=0.0",
+    "aguapago.trazas.cola.umbral=1h"
+})
+@ActiveProfiles("carga")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(metrics = false)
+class TrazasTest {
+
+    private static final String EMAIL = "ana.traza@aguapago.test";
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String SPAN_GATEWAY = "00f067aa0ba902b7";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DestinoTrazasMemoria destino;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @Autowired
+    private MuestreoCola muestreoCola;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Test
+    void continuaLaTrazaDelGatewayHastaElSql() throws Exception {
+        registrarSiFalta();
+        consultar(post("/graphql").header("traceparent", "00-" + TRACE_ID + "-" + SPAN_GATEWAY + "-01"));
+        exportarPendientes();
+
+        List<SpanData> spans = destino.deTraza(TRACE_ID);
+        Map<String, SpanData> porId = spans.stream().collect(Collectors.toMap(SpanData::getSpanId, Function.identity()));
+        List<String> nombres = spans.stream().map(SpanData::getName).toList();
+
+        SpanData servidor = spans.stream().filter(s -> SPAN_GATEWAY.equals(s.getParentSpanId())).findFirst().orElseThrow();
+        assertTrue(servidor.getSpanContext().isSampled());
+        assertTrue(nombres.containsAll(List.of(
+            "aguapago.graphql.parse", "aguapago.graphql.validacion", "aguapago.graphql.ejecucion")), nombres::toString);
+
+        SpanData resolver = spans.stream().filter(s -> s.getName().equals("graphql field obtener-usuario-por-email"))
+            .findFirst().orElseThrow(() -> new AssertionError("Falta el span del resolver: " + nombres));
+        SpanData sql = spans.stream().filter(s -> s.getName().equals("jdbc select"))
+            .findFirst().orElseThrow(() -> new AssertionError("Falta el span del SQL: " + nombres));
+        // El SQL corre en el consultasExecutor y cuelga del resolver que lo pidió
+        assertEquals(resolver.getSpanId(), sql.getParentSpanId());
+        assertTrue(sql.getAttributes().toString().contains("where u1_0.email=?"));
+        assertFalse(spans.stream().anyMatch(s -> s.getAttributes().toString().contains(EMAIL)));
+
+        // Todos los spans de la traza llegan hasta el del gateway
+        for (SpanData span : spans) {
+            SpanData actual = span;
+            while (porId.containsKey(actual.getParentSpanId())) {
+                actual = porId.get(actual.getParentSpanId());
+            }
+            assertEquals(SPAN_GATEWAY, actual.getParentSpanId(), span.getName());
+        }
+    }
+
+    @Test
+    void sinMuestreoDeCabezaSoloSeExportanLasLentas() throws Exception {
+        registrarSiFalta();
+        long antes = noMuestreados();
+        consultar(post("/graphql"));
+        exportarPendientes();
+        assertEquals(antes, noMuestreados());
+
+        muestreoCola.setUmbral(Duration.ZERO);
+        try {
+            consultar(post("/graphql"));
+            exportarPendientes();
+        } finally {
+            muestreoCola.setUmbral(Duration.ofHours(1));
+        }
+        List<SpanData> rescatados = destino.recientes().stream()
+            .filter(s -> !s.getSpanContext().isSampled()).toList();
+        assertTrue(rescatados.size() > antes);
+        assertTrue(rescatados.stream().anyMatch(s -> s.getName().equals("jdbc select")));
+    }
+
+    // ====== UTILIDADES ======
+
+    private void registrarSiFalta() {
+        if (usuarioService.obtenerUsuarioPorEmail(EMAIL).isEmpty()) {
+            usuarioService.registrarUsuario("Ana", "Traza", EMAIL, "secreto1", "ADMIN", null, null, null);
+        }
+    }
+
+    private void consultar(MockHttpServletRequestBuilder peticion) throws Exception {
+        MvcResult inicio = mvc.perform(peticion
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"{ obtenerUsuarioPorEmail(email: \\\"" + EMAIL + "\\\") { nombre } }\"}"))
+            .andReturn();
+        mvc.perform(asyncDispatch(inicio))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.data.obtenerUsuarioPorEmail.nombre").value("Ana"));
+    }
+
+    private void exportarPendientes() {
+        tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+    }
+
+    private long noMuestreados() {
+        return destino.recientes().stream().filter(s -> !s.getSpanContext().isSampled()).count();
+    }
+}